@@ -0,0 +1,50 @@
+package com.otcdlink.chiron.benchmark;
+
+import org.openjdk.jmh.results.RunResult;
+import org.openjdk.jmh.results.format.ResultFormatType;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.options.ChainedOptionsBuilder;
+import org.openjdk.jmh.runner.options.CommandLineOptions;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.util.Collection;
+
+/**
+ * Runs the benchmarks of this module, with usual JMH command-line options.
+ * Unless {@code -rf} or {@code -rff} say otherwise, results go to {@link #DEFAULT_RESULT_FILE}
+ * as JSON, so successive runs can be compared stage by stage.
+ */
+public final class BenchmarkRunner {
+
+  public static final String DEFAULT_RESULT_FILE = "jmh-result.json" ;
+
+  private BenchmarkRunner() { }
+
+  public static void main( final String... arguments ) throws Exception {
+    run( BenchmarkRunner.class.getPackage().getName(), arguments ) ;
+  }
+
+  /**
+   * @param defaultInclude a regular expression selecting benchmarks when there is no
+   *     explicit one in {@code arguments}.
+   */
+  public static Collection< RunResult > run(
+      final String defaultInclude,
+      final String... arguments
+  ) throws Exception {
+    final CommandLineOptions commandLineOptions = new CommandLineOptions( arguments ) ;
+    final ChainedOptionsBuilder optionsBuilder =
+        new OptionsBuilder().parent( commandLineOptions ) ;
+    if( commandLineOptions.getIncludes().isEmpty() ) {
+      optionsBuilder.include( defaultInclude ) ;
+    }
+    if( ! commandLineOptions.getResultFormat().hasValue() ) {
+      optionsBuilder.resultFormat( ResultFormatType.JSON ) ;
+    }
+    if( ! commandLineOptions.getResult().hasValue() ) {
+      optionsBuilder.result( DEFAULT_RESULT_FILE ) ;
+    }
+    return new Runner( optionsBuilder.build() ).run() ;
+  }
+
+}
@@ -0,0 +1,344 @@
+package com.otcdlink.chiron.benchmark;
+
+import com.otcdlink.chiron.buffer.BytebufCoat;
+import com.otcdlink.chiron.buffer.BytebufTools;
+import com.otcdlink.chiron.command.Command;
+import com.otcdlink.chiron.command.Stamp;
+import com.otcdlink.chiron.designator.Designator;
+import com.otcdlink.chiron.downend.tier.CommandWebsocketCodecDownendTier;
+import com.otcdlink.chiron.flow.journal.FileDesignatorCodecTools;
+import com.otcdlink.chiron.flow.journal.JournalHeapPersister;
+import com.otcdlink.chiron.integration.echo.EchoCodecFixture;
+import com.otcdlink.chiron.lab.middle.LabUpwardDuty;
+import com.otcdlink.chiron.lab.middle.command.DownwardCounterUpdate;
+import com.otcdlink.chiron.lab.middle.command.LabDownwardCommandResolver;
+import com.otcdlink.chiron.lab.middle.command.LabUpwardCommandResolver;
+import com.otcdlink.chiron.lab.middle.command.UpwardIncrement;
+import com.otcdlink.chiron.middle.ChannelTools;
+import com.otcdlink.chiron.middle.session.SessionIdentifier;
+import com.otcdlink.chiron.toolbox.clock.Clock;
+import com.otcdlink.chiron.toolbox.concurrent.ExecutorTools;
+import com.otcdlink.chiron.upend.tier.CommandWebsocketCodecUpendTier;
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.Unpooled;
+import io.netty.channel.embedded.EmbeddedChannel;
+import io.netty.handler.codec.http.websocketx.TextWebSocketFrame;
+import io.netty.handler.codec.http.websocketx.WebSocket13FrameDecoder;
+import io.netty.handler.codec.http.websocketx.WebSocket13FrameEncoder;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+import java.io.IOException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Measures, in isolation, each stage an {@link UpwardIncrement} goes through in the Upend,
+ * in the order they happen:
+ * <ol>
+ *   <li>Decoding of a masked WebSocket frame into a {@link TextWebSocketFrame}.</li>
+ *   <li>{@link CommandWebsocketCodecUpendTier} turning the {@link TextWebSocketFrame} into a
+ *       {@link Command}, with {@link Designator} creation.</li>
+ *   <li>{@link LabUpwardCommandResolver} decoding the {@link Command}'s body alone.</li>
+ *   <li>Handoff to a single-threaded logic executor, as {@code LabDaemon} does.</li>
+ *   <li>{@link JournalHeapPersister#accept(Command)}.</li>
+ *   <li>Encoding of a {@link DownwardCounterUpdate} into WebSocket frame bytes.</li>
+ * </ol>
+ * Netty stages run in an {@link EmbeddedChannel}, so there is no network at all.
+ * {@link LoopbackJmhBenchmark} measures the whole round trip.
+ */
+public class CommandStageJmhBenchmark {
+
+  private static final SessionIdentifier SESSION_IDENTIFIER = new SessionIdentifier( "s35510n" ) ;
+
+  private static final int MAXIMUM_FRAME_PAYLOAD = 8192 ;
+
+  private static Designator.Factory newDesignatorFactory() {
+    return new Designator.Factory( new Stamp.Generator( Clock.SYSTEM_CLOCK ) ) ;
+  }
+
+
+// ===============
+// WebSocket frame
+// ===============
+
+  @State( Scope.Thread )
+  public static class WebsocketFrameStage {
+    EmbeddedChannel channel ;
+    ByteBuf maskedFrame ;
+
+    @Setup
+    public void setUp() {
+      channel = new EmbeddedChannel(
+          new WebSocket13FrameDecoder( true, false, MAXIMUM_FRAME_PAYLOAD ) ) ;
+      maskedFrame = encodedFrame( true ) ;
+    }
+
+    @TearDown
+    public void tearDown() {
+      maskedFrame.release() ;
+      channel.finishAndReleaseAll() ;
+    }
+  }
+
+  @Benchmark
+  @Fork( value = 1, warmups = 1 )
+  @BenchmarkMode( Mode.Throughput )
+  public TextWebSocketFrame websocketFrameDecode( final WebsocketFrameStage stage ) {
+    stage.channel.writeInbound( stage.maskedFrame.retainedDuplicate() ) ;
+    final TextWebSocketFrame frame = stage.channel.readInbound() ;
+    frame.release() ;
+    return frame ;
+  }
+
+
+// ==========
+// Codec tier
+// ==========
+
+  @State( Scope.Thread )
+  public static class CodecTierStage {
+    EmbeddedChannel channel ;
+    ByteBuf frameContent ;
+
+    @Setup
+    public void setUp() {
+      channel = new EmbeddedChannel( new CommandWebsocketCodecUpendTier<>(
+          new LabUpwardCommandResolver<>(), newDesignatorFactory() ) ) ;
+      channel.attr( ChannelTools.SESSION_KEY ).set( SESSION_IDENTIFIER ) ;
+      frameContent = upwardFrameContent() ;
+    }
+
+    @TearDown
+    public void tearDown() {
+      frameContent.release() ;
+      channel.finishAndReleaseAll() ;
+    }
+  }
+
+  @Benchmark
+  @Fork( value = 1, warmups = 1 )
+  @BenchmarkMode( Mode.Throughput )
+  public Object commandCodecDecode( final CodecTierStage stage ) {
+    stage.channel.writeInbound(
+        new TextWebSocketFrame( stage.frameContent.retainedDuplicate() ) ) ;
+    return stage.channel.readInbound() ;
+  }
+
+
+// ================
+// Command resolver
+// ================
+
+  @State( Scope.Thread )
+  public static class ResolverStage {
+    final LabUpwardCommandResolver< Designator > resolver = new LabUpwardCommandResolver<>() ;
+    final Designator designator = newDesignatorFactory().upward(
+        new Command.Tag( "t0" ), SESSION_IDENTIFIER ) ;
+    final ByteBuf body = Unpooled.buffer() ;
+    final BytebufCoat coat = BytebufTools.coat( body ) ;
+
+    @Setup
+    public void setUp() throws IOException {
+      coat.writeIntegerPrimitive( 1 ) ;
+    }
+  }
+
+  @Benchmark
+  @Fork( value = 1, warmups = 1 )
+  @BenchmarkMode( Mode.Throughput )
+  public Command commandResolve( final ResolverStage stage ) throws IOException {
+    stage.body.readerIndex( 0 ) ;
+    return stage.resolver.decodeBody( stage.designator, "increment", stage.coat ) ;
+  }
+
+
+// ==============
+// Logic executor
+// ==============
+
+  private static final int LOGIC_BATCH = 1000 ;
+
+  @State( Scope.Benchmark )
+  public static class LogicExecutorStage {
+    ExecutorService executor ;
+    final CountingLabUpwardDuty duty = new CountingLabUpwardDuty() ;
+    final UpwardIncrement< Designator > command = new UpwardIncrement<>(
+        newDesignatorFactory().upward( new Command.Tag( "t0" ), SESSION_IDENTIFIER ), 1 ) ;
+
+    @Setup
+    public void setUp() {
+      executor = Executors.newSingleThreadExecutor(
+          ExecutorTools.newThreadFactory( CommandStageJmhBenchmark.class.getSimpleName() ) ) ;
+    }
+
+    @TearDown
+    public void tearDown() {
+      executor.shutdown() ;
+    }
+  }
+
+  /**
+   * Submits a batch and waits for the last {@link Command} to execute, so we measure how fast
+   * the logic thread drains its queue, not how fast we can fill it.
+   */
+  @Benchmark
+  @Fork( value = 1, warmups = 1 )
+  @BenchmarkMode( Mode.Throughput )
+  @OperationsPerInvocation( LOGIC_BATCH )
+  public int logicExecutor( final LogicExecutorStage stage ) {
+    final CompletableFuture< Integer > done = new CompletableFuture<>() ;
+    for( int i = 1 ; i < LOGIC_BATCH ; i ++ ) {
+      stage.executor.execute( () -> stage.command.callReceiver( stage.duty ) ) ;
+    }
+    stage.executor.execute( () -> {
+      stage.command.callReceiver( stage.duty ) ;
+      done.complete( stage.duty.counter ) ;
+    } ) ;
+    return done.join() ;
+  }
+
+  private static final class CountingLabUpwardDuty implements LabUpwardDuty< Designator > {
+    int counter = 0 ;
+
+    @Override
+    public void increment( final Designator designator, final int delta ) {
+      counter += delta ;
+    }
+  }
+
+
+// =======
+// Journal
+// =======
+
+  /**
+   * Reopening the {@link JournalHeapPersister} from time to time keeps its
+   * {@link java.io.ByteArrayOutputStream} from growing without bounds, for an amortized cost
+   * of one byte copy per written byte.
+   */
+  private static final int JOURNAL_REOPEN_THRESHOLD = 1_000_000 ;
+
+  @State( Scope.Thread )
+  public static class JournalStage {
+    final JournalHeapPersister< Designator, LabUpwardDuty< Designator > > persister =
+        new JournalHeapPersister<>(
+            new FileDesignatorCodecTools.InwardDesignatorEncoder(), 0, "Benchmark" ) ;
+    final UpwardIncrement< Designator > command = new UpwardIncrement<>(
+        newDesignatorFactory().upward( new Command.Tag( "t0" ), SESSION_IDENTIFIER ), 1 ) ;
+    int accepted = 0 ;
+
+    @Setup
+    public void setUp() throws IOException {
+      persister.open() ;
+    }
+
+    @TearDown
+    public void tearDown() throws IOException {
+      persister.close() ;
+    }
+  }
+
+  @Benchmark
+  @Fork( value = 1, warmups = 1 )
+  @BenchmarkMode( Mode.Throughput )
+  public void journalAccept( final JournalStage stage ) throws IOException {
+    stage.persister.accept( stage.command ) ;
+    if( ++ stage.accepted == JOURNAL_REOPEN_THRESHOLD ) {
+      stage.persister.close() ;
+      stage.persister.open() ;
+      stage.accepted = 0 ;
+    }
+  }
+
+
+// ================
+// Encoded response
+// ================
+
+  @State( Scope.Thread )
+  public static class ResponseStage {
+    EmbeddedChannel channel ;
+    DownwardCounterUpdate< Designator > response ;
+
+    @Setup
+    public void setUp() {
+      final Designator.Factory designatorFactory = newDesignatorFactory() ;
+      channel = new EmbeddedChannel(
+          new WebSocket13FrameEncoder( false ),
+          new CommandWebsocketCodecUpendTier<>(
+              new LabUpwardCommandResolver<>(), designatorFactory )
+      ) ;
+      response = new DownwardCounterUpdate<>( designatorFactory.downward(
+          designatorFactory.upward( new Command.Tag( "t0" ), SESSION_IDENTIFIER ) ), 1 ) ;
+    }
+
+    @TearDown
+    public void tearDown() {
+      channel.finishAndReleaseAll() ;
+    }
+  }
+
+  @Benchmark
+  @Fork( value = 1, warmups = 1 )
+  @BenchmarkMode( Mode.Throughput )
+  public int responseEncode( final ResponseStage stage ) {
+    stage.channel.writeOutbound( stage.response ) ;
+    return drainOutbound( stage.channel ) ;
+  }
+
+
+// =======
+// Fixture
+// =======
+
+  /**
+   * @return the content of a {@link TextWebSocketFrame} as sent by a Downend.
+   */
+  static ByteBuf upwardFrameContent() {
+    final EmbeddedChannel channel = new EmbeddedChannel( new CommandWebsocketCodecDownendTier<>(
+        new EchoCodecFixture.TagCodec(), new LabDownwardCommandResolver<>() ) ) ;
+    channel.writeOutbound( new UpwardIncrement<>( new Command.Tag( "t0" ), 1 ) ) ;
+    final TextWebSocketFrame frame = channel.readOutbound() ;
+    final ByteBuf content = Unpooled.copiedBuffer( frame.content() ) ;
+    frame.release() ;
+    channel.finishAndReleaseAll() ;
+    return content ;
+  }
+
+  static ByteBuf encodedFrame( final boolean masked ) {
+    final EmbeddedChannel channel = new EmbeddedChannel( new WebSocket13FrameEncoder( masked ) ) ;
+    channel.writeOutbound( new TextWebSocketFrame( upwardFrameContent() ) ) ;
+    final ByteBuf encoded = Unpooled.buffer() ;
+    ByteBuf part ;
+    while( ( part = channel.readOutbound() ) != null ) {
+      encoded.writeBytes( part ) ;
+      part.release() ;
+    }
+    channel.finishAndReleaseAll() ;
+    return encoded ;
+  }
+
+  private static int drainOutbound( final EmbeddedChannel channel ) {
+    int bytes = 0 ;
+    ByteBuf part ;
+    while( ( part = channel.readOutbound() ) != null ) {
+      bytes += part.readableBytes() ;
+      part.release() ;
+    }
+    return bytes ;
+  }
+
+  public static void main( final String... arguments ) throws Exception {
+    BenchmarkRunner.run( CommandStageJmhBenchmark.class.getName(), arguments ) ;
+  }
+
+}
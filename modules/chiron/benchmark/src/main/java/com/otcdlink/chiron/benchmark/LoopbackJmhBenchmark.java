@@ -0,0 +1,183 @@
+package com.otcdlink.chiron.benchmark;
+
+import com.otcdlink.chiron.command.Command;
+import com.otcdlink.chiron.downend.DownendConnector;
+import com.otcdlink.chiron.downend.DownendStateTools;
+import com.otcdlink.chiron.downend.SignonMaterializer;
+import com.otcdlink.chiron.downend.babyupend.BabyUpend;
+import com.otcdlink.chiron.integration.echo.EchoCodecFixture;
+import com.otcdlink.chiron.integration.echo.EchoDownwardDuty;
+import com.otcdlink.chiron.integration.echo.EchoUpwardCommandCrafter;
+import com.otcdlink.chiron.integration.echo.EchoUpwardDuty;
+import com.otcdlink.chiron.middle.session.SecondaryCode;
+import com.otcdlink.chiron.middle.session.SignonFailureNotice;
+import com.otcdlink.chiron.middle.tier.TimeBoundary;
+import com.otcdlink.chiron.middle.tier.WebsocketFrameSizer;
+import com.otcdlink.chiron.toolbox.Credential;
+import com.otcdlink.chiron.toolbox.TcpPortBooker;
+import com.otcdlink.chiron.toolbox.UrxTools;
+import com.otcdlink.chiron.toolbox.concurrent.ExecutorTools;
+import com.otcdlink.chiron.toolbox.internet.LocalAddressTools;
+import io.netty.channel.nio.NioEventLoopGroup;
+import io.netty.handler.codec.http.websocketx.TextWebSocketFrame;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+import java.net.URL;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Semaphore;
+import java.util.function.Consumer;
+
+/**
+ * Full round trip of an {@link com.otcdlink.chiron.integration.echo.UpwardEchoCommand}
+ * through a real {@link DownendConnector} and a {@link BabyUpend} on loopback interface.
+ * {@link BabyUpend} just sends each {@link TextWebSocketFrame} back, which happens to be a valid
+ * {@link com.otcdlink.chiron.integration.echo.DownwardEchoCommand} because both have the same
+ * name and body.
+ * Compare with the sum of stages in {@link CommandStageJmhBenchmark} to see what the network
+ * and the Downend cost.
+ */
+@State( Scope.Benchmark )
+public class LoopbackJmhBenchmark {
+
+  private static final int PIPELINE_DEPTH = 100 ;
+
+  private static final String MESSAGE = "Hello" ;
+
+  private NioEventLoopGroup eventLoopGroup ;
+  private BabyUpend babyUpend ;
+  private DownendConnector<
+      Command.Tag,
+      EchoDownwardDuty< Command.Tag >,
+      EchoUpwardDuty< Command.Tag >
+  > downendConnector ;
+  private EchoUpwardDuty< Command.Tag > upwardDuty ;
+
+  private final Command.Tag tag = new Command.Tag( "t0" ) ;
+
+  /**
+   * Only one {@link Benchmark} method runs at a time, each one sets what it needs.
+   */
+  private volatile CompletableFuture< String > nextResponse = null ;
+
+  private final Semaphore pipelineResponses = new Semaphore( 0 ) ;
+
+  @Setup
+  public void setUp() throws Exception {
+    final int port = TcpPortBooker.THIS.find() ;
+    babyUpend = new BabyUpend(
+        port,
+        BabyUpend.DEFAULT_CONNECTION_DESCRIPTOR,
+        TextWebSocketFrame::retainedDuplicate,
+        null,
+        null
+    ) ;
+    babyUpend.start().join() ;
+
+    eventLoopGroup = new NioEventLoopGroup(
+        1, ExecutorTools.newCountingDaemonThreadFactory( LoopbackJmhBenchmark.class ) ) ;
+    final URL url = UrxTools.parseUrlQuiet( "http://" +
+        LocalAddressTools.LOCAL_ADDRESS.getHostAddress() + ":" + port +
+        BabyUpend.WEBSOCKET_PATH
+    ) ;
+    downendConnector = new DownendConnector<>( new DownendConnector.Setup<>(
+        eventLoopGroup,
+        url,
+        null,
+        null,
+        TimeBoundary.DEFAULT,
+        NO_SIGNON,
+        new DownendStateTools.ChangeWatcherAdapter(),
+        new EchoCodecFixture.TagCodec(),
+        new EchoCodecFixture.PartialDownendDecoder<>(),
+        command -> command.callReceiver( echoDownwardDuty ),
+        null,
+        WebsocketFrameSizer.tightSizer( 8192 )
+    ) ) ;
+    upwardDuty = new EchoUpwardCommandCrafter<>( downendConnector::send ) ;
+    downendConnector.start().join() ;
+  }
+
+  @TearDown
+  public void tearDown() {
+    downendConnector.stop().join() ;
+    babyUpend.stop().join() ;
+    eventLoopGroup.shutdownGracefully() ;
+  }
+
+  private final EchoDownwardDuty< Command.Tag > echoDownwardDuty = ( designator, message ) -> {
+    final CompletableFuture< String > response = nextResponse ;
+    if( response == null ) {
+      pipelineResponses.release() ;
+    } else {
+      response.complete( message ) ;
+    }
+  } ;
+
+  /**
+   * One {@link Command} in flight, so this is about latency.
+   */
+  @Benchmark
+  @Fork( value = 1, warmups = 1 )
+  @BenchmarkMode( { Mode.Throughput, Mode.SampleTime } )
+  public String roundTrip() {
+    final CompletableFuture< String > response = new CompletableFuture<>() ;
+    nextResponse = response ;
+    upwardDuty.requestEcho( tag, MESSAGE ) ;
+    return response.join() ;
+  }
+
+  /**
+   * Many {@link Command}s in flight, so this is about throughput.
+   */
+  @Benchmark
+  @Fork( value = 1, warmups = 1 )
+  @BenchmarkMode( Mode.Throughput )
+  @OperationsPerInvocation( PIPELINE_DEPTH )
+  public void pipelined() throws InterruptedException {
+    nextResponse = null ;
+    for( int i = 0 ; i < PIPELINE_DEPTH ; i ++ ) {
+      upwardDuty.requestEcho( tag, MESSAGE ) ;
+    }
+    pipelineResponses.acquire( PIPELINE_DEPTH ) ;
+  }
+
+  /**
+   * {@link BabyUpend} doesn't require authentication.
+   */
+  private static final SignonMaterializer NO_SIGNON = new SignonMaterializer() {
+    @Override
+    public void readCredential( final Consumer< Credential > credentialConsumer ) {
+      throw new UnsupportedOperationException( "Do not call" ) ;
+    }
+
+    @Override
+    public void readSecondaryCode( final Consumer< SecondaryCode > secondaryCodeConsumer ) {
+      throw new UnsupportedOperationException( "Do not call" ) ;
+    }
+
+    @Override
+    public void waitForCancellation( final Runnable afterCancelled ) { }
+
+    @Override
+    public void setProgressMessage( final String message ) { }
+
+    @Override
+    public void setProblemMessage( final SignonFailureNotice signonFailureNotice ) { }
+
+    @Override
+    public void done() { }
+  } ;
+
+  public static void main( final String... arguments ) throws Exception {
+    BenchmarkRunner.run( LoopbackJmhBenchmark.class.getName(), arguments ) ;
+  }
+
+}
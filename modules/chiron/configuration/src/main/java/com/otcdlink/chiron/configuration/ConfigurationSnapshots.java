@@ -0,0 +1,336 @@
+package com.otcdlink.chiron.configuration;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.Ordering;
+import javassist.CannotCompileException;
+import javassist.ClassPool;
+import javassist.CtClass;
+import javassist.CtConstructor;
+import javassist.CtField;
+import javassist.CtMethod;
+import javassist.CtNewConstructor;
+import javassist.CtNewMethod;
+import javassist.LoaderClassPath;
+import javassist.NotFoundException;
+
+import java.io.IOException;
+import java.lang.reflect.Constructor;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.security.ProtectionDomain;
+import java.util.Comparator;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static com.google.common.base.Preconditions.checkNotNull;
+
+/**
+ * Turns a proxy-backed {@link Configuration} into an instance of a generated final class
+ * with one plain field per {@link Configuration.Property}, so reading a value costs a field
+ * access instead of an {@code InvocationHandler} call and a {@code Map} lookup.
+ * The generated class is created once per {@link Configuration} interface. Javassist
+ * produces its bytecode, and a dedicated child {@code ClassLoader} defines it, so there is
+ * no reflective call to {@code ClassLoader#defineClass} (which recent JDKs forbid).
+ * If the generated class could not access the {@link Configuration} interface or the type
+ * of one of its properties (because one of them is not {@code public}), there is no
+ * generation and {@link #snapshot(Configuration)} returns the proxy-backed
+ * {@link Configuration} unchanged.
+ *
+ * <p>
+ * The snapshot delegates {@link Object#toString()}, {@link Object#equals(Object)} and
+ * {@link Object#hashCode()} to the original {@link Configuration}, and
+ * {@link ConfigurationTools#newInspector(Configuration)} transparently uses the original.
+ * But calling a method on the snapshot is not recorded by an {@link Configuration.Inspector}
+ * (this is the point of having a plain field access).
+ */
+public final class ConfigurationSnapshots {
+
+  private ConfigurationSnapshots() { }
+
+  /**
+   * Implemented by generated classes.
+   * Public only because generated classes live in the package of the {@link Configuration}.
+   */
+  public interface Backed {
+    Configuration $$backing$$() ;
+  }
+
+  /**
+   * @param configuration a {@link Configuration} created by a {@link Configuration.Factory},
+   *     or a snapshot (which is returned as is).
+   * @return a snapshot, or given {@link Configuration} if its interface doesn't support
+   *     generation.
+   */
+  @SuppressWarnings( "unchecked" )
+  public static < C extends Configuration > C snapshot( final C configuration ) {
+    checkNotNull( configuration ) ;
+    if( configuration instanceof Backed ) {
+      return configuration ;
+    }
+    checkArgument( configuration instanceof ConfigurationInspector.InspectorEnabled,
+        "Not created by a " + Configuration.Factory.class.getSimpleName() + ": " + configuration ) ;
+    final Class< ? > configurationClass = ( ( ConfigurationInspector.InspectorEnabled )
+        configuration ).$$factory$$().configurationClass() ;
+    final SnapshotClass snapshotClass = SNAPSHOT_CLASSES.get( configurationClass ) ;
+    if( snapshotClass == SnapshotClass.UNSUPPORTED ) {
+      return configuration ;
+    }
+    final Object[] values = new Object[ snapshotClass.methods.size() ] ;
+    try {
+      for( int i = 0 ; i < values.length ; i ++ ) {
+        values[ i ] = snapshotClass.methods.get( i ).invoke( configuration ) ;
+      }
+      return ( C ) snapshotClass.constructor.newInstance( values, configuration ) ;
+    } catch( IllegalAccessException | InstantiationException | InvocationTargetException e ) {
+      throw new RuntimeException( "Could not create snapshot of " + configuration, e ) ;
+    }
+  }
+
+  /**
+   * Returns the proxy-backed {@link Configuration} if given object is a snapshot,
+   * or the object itself otherwise.
+   */
+  public static Object unwrap( final Object maybeSnapshot ) {
+    return maybeSnapshot instanceof Backed ?
+        ( ( Backed ) maybeSnapshot ).$$backing$$() : maybeSnapshot ;
+  }
+
+
+// ==========
+// Generation
+// ==========
+
+  private static final class SnapshotClass {
+
+    /**
+     * Means "keep the proxy".
+     */
+    static final SnapshotClass UNSUPPORTED = new SnapshotClass( ImmutableList.of(), null ) ;
+
+    final ImmutableList< Method > methods ;
+    final Constructor< ? > constructor ;
+
+    SnapshotClass( final ImmutableList< Method > methods, final Constructor< ? > constructor ) {
+      this.methods = methods ;
+      this.constructor = constructor ;
+    }
+  }
+
+  private static final ClassValue< SnapshotClass > SNAPSHOT_CLASSES =
+      new ClassValue< SnapshotClass >() {
+        @Override
+        protected SnapshotClass computeValue( final Class< ? > configurationClass ) {
+          try {
+            return generate( configurationClass ) ;
+          } catch(
+              NotFoundException | CannotCompileException | NoSuchMethodException | IOException e
+          ) {
+            throw new DefinitionException( "Could not generate snapshot class for " +
+                configurationClass.getName() + ": " + e.getMessage() ) ;
+          }
+        }
+      }
+  ;
+
+  private static final Comparator< Method > METHOD_NAME_ORDERING =
+      Ordering.natural().onResultOf( Method::getName ) ;
+
+  /**
+   * Defines generated classes. Its parent is the {@code ClassLoader} of the
+   * {@link Configuration} interface, so generated class sees the same types.
+   * It lives in a different runtime package than the {@link Configuration} interface, this
+   * is why everything it references must be {@code public}.
+   */
+  private static final class SnapshotClassLoader extends ClassLoader {
+
+    SnapshotClassLoader( final ClassLoader parent ) {
+      super( parent ) ;
+    }
+
+    Class< ? > define(
+        final String className,
+        final byte[] bytecode,
+        final ProtectionDomain protectionDomain
+    ) {
+      return defineClass( className, bytecode, 0, bytecode.length, protectionDomain ) ;
+    }
+  }
+
+  /**
+   * Synchronized because {@link ClassValue#computeValue(Class)} may run concurrently,
+   * and generating the same class twice would be a waste.
+   */
+  private static synchronized SnapshotClass generate( final Class< ? > configurationClass )
+      throws NotFoundException, CannotCompileException, NoSuchMethodException, IOException
+  {
+    checkArgument( configurationClass.isInterface() ) ;
+    final ImmutableList< Method > methods = propertyMethods( configurationClass ) ;
+    final SnapshotClassLoader snapshotClassLoader =
+        new SnapshotClassLoader( configurationClass.getClassLoader() ) ;
+    if( ! accessible( snapshotClassLoader, configurationClass ) ||
+        ! accessible( snapshotClassLoader, Backed.class )
+    ) {
+      return SnapshotClass.UNSUPPORTED ;
+    }
+    for( final Method method : methods ) {
+      if( ! accessible( snapshotClassLoader, method.getReturnType() ) ) {
+        return SnapshotClass.UNSUPPORTED ;
+      }
+    }
+
+    final ClassPool ctPool = new ClassPool( true ) ;
+    ctPool.appendClassPath( new LoaderClassPath( configurationClass.getClassLoader() ) ) ;
+    ctPool.appendClassPath(
+        new LoaderClassPath( ConfigurationSnapshots.class.getClassLoader() ) ) ;
+
+    final CtClass ctSnapshot = ctPool.makeClass( configurationClass.getName() + "$$Snapshot" ) ;
+    ctSnapshot.setModifiers( javassist.Modifier.PUBLIC | javassist.Modifier.FINAL ) ;
+    ctSnapshot.addInterface( ctPool.get( configurationClass.getName() ) ) ;
+    ctSnapshot.addInterface( ctPool.get( Backed.class.getName() ) ) ;
+
+    final String configurationClassName = Configuration.class.getName() ;
+    ctSnapshot.addField( CtField.make(
+        "private final " + configurationClassName + " backing ;", ctSnapshot ) ) ;
+
+    final StringBuilder constructorBody = new StringBuilder() ;
+    constructorBody.append( "{ this.backing = $2 ;\n" ) ;
+    for( int i = 0 ; i < methods.size() ; i ++ ) {
+      final Method method = methods.get( i ) ;
+      final Class< ? > type = method.getReturnType() ;
+      final String fieldName = "f" + i ;
+      ctSnapshot.addField( new CtField( ctClass( ctPool, type ), fieldName, ctSnapshot ) ) ;
+      ctSnapshot.getField( fieldName ).setModifiers(
+          javassist.Modifier.PRIVATE | javassist.Modifier.FINAL ) ;
+      constructorBody.append( "  this." ).append( fieldName ).append( " = " )
+          .append( unboxing( type, "$1[" + i + "]" ) ).append( " ;\n" ) ;
+      ctSnapshot.addMethod( CtNewMethod.make(
+          javassist.Modifier.PUBLIC,
+          ctClass( ctPool, type ),
+          method.getName(),
+          new CtClass[ 0 ],
+          new CtClass[ 0 ],
+          "{ return this." + fieldName + " ; }",
+          ctSnapshot
+      ) ) ;
+    }
+    constructorBody.append( "}" ) ;
+
+    final CtConstructor ctConstructor = CtNewConstructor.make(
+        new CtClass[] {
+            ctPool.get( Object.class.getName() + "[]" ),
+            ctPool.get( configurationClassName )
+        },
+        new CtClass[ 0 ],
+        constructorBody.toString(),
+        ctSnapshot
+    ) ;
+    ctSnapshot.addConstructor( ctConstructor ) ;
+
+    final String unwrap = ConfigurationSnapshots.class.getName() + ".unwrap" ;
+    ctSnapshot.addMethod( CtMethod.make(
+        "public " + configurationClassName + " $$backing$$() { return this.backing ; }",
+        ctSnapshot
+    ) ) ;
+    ctSnapshot.addMethod( CtMethod.make(
+        "public String toString() { return this.backing.toString() ; }", ctSnapshot ) ) ;
+    ctSnapshot.addMethod( CtMethod.make(
+        "public int hashCode() { return this.backing.hashCode() ; }", ctSnapshot ) ) ;
+    ctSnapshot.addMethod( CtMethod.make(
+        "public boolean equals( Object other ) { " +
+            "return this.backing.equals( " + unwrap + "( other ) ) ; }",
+        ctSnapshot
+    ) ) ;
+
+    final Class< ? > generated = snapshotClassLoader.define(
+        ctSnapshot.getName(),
+        ctSnapshot.toBytecode(),
+        configurationClass.getProtectionDomain()
+    ) ;
+    ctSnapshot.detach() ;
+    return new SnapshotClass(
+        methods,
+        generated.getConstructor( Object[].class, Configuration.class )
+    ) ;
+  }
+
+  /**
+   * Same criteria as {@link TemplateBasedFactory}: every non-static method without parameters
+   * is a property.
+   */
+  private static ImmutableList< Method > propertyMethods( final Class< ? > configurationClass ) {
+    final ImmutableList.Builder< Method > builder = ImmutableList.builder() ;
+    for( final Method method : configurationClass.getMethods() ) {
+      if( method.getParameterCount() == 0 && ! Modifier.isStatic( method.getModifiers() ) ) {
+        builder.add( method ) ;
+      }
+    }
+    return ImmutableList.sortedCopyOf( METHOD_NAME_ORDERING, builder.build() ) ;
+  }
+
+  /**
+   * Tells if a class defined by given {@code ClassLoader} (in another runtime package)
+   * could reference given type.
+   */
+  private static boolean accessible( final ClassLoader classLoader, final Class< ? > type ) {
+    if( type.isArray() ) {
+      return accessible( classLoader, type.getComponentType() ) ;
+    }
+    if( type.isPrimitive() ) {
+      return true ;
+    }
+    if( ! Modifier.isPublic( type.getModifiers() ) ) {
+      return false ;
+    }
+    try {
+      return Class.forName( type.getName(), false, classLoader ) == type ;
+    } catch( final ClassNotFoundException e ) {
+      return false ;
+    }
+  }
+
+  private static CtClass ctClass( final ClassPool ctPool, final Class< ? > type )
+      throws NotFoundException
+  {
+    // ClassPool knows primitive type names, and array names with one "[]" per dimension.
+    return ctPool.get( javassistName( type ) ) ;
+  }
+
+  /**
+   * The name Javassist understands, both in {@link ClassPool#get(String)} and in source code:
+   * {@code int[][]} instead of {@code [[I} for an array, with any number of dimensions.
+   */
+  private static String javassistName( final Class< ? > type ) {
+    if( type.isArray() ) {
+      return javassistName( type.getComponentType() ) + "[]" ;
+    } else {
+      return type.getName() ;
+    }
+  }
+
+  /**
+   * Javassist's compiler does not unbox by itself.
+   */
+  private static String unboxing( final Class< ? > type, final String expression ) {
+    if( type.isPrimitive() ) {
+      final String wrapper = PRIMITIVE_WRAPPERS.get( type ).getName() ;
+      return "( ( " + wrapper + " ) " + expression + " )." + type.getName() + "Value()" ;
+    } else {
+      return "( " + javassistName( type ) + " ) " + expression ;
+    }
+  }
+
+  private static final ImmutableMap< Class< ? >, Class< ? > > PRIMITIVE_WRAPPERS =
+      ImmutableMap.< Class< ? >, Class< ? > >builder()
+          .put( Boolean.TYPE, Boolean.class )
+          .put( Byte.TYPE, Byte.class )
+          .put( Character.TYPE, Character.class )
+          .put( Short.TYPE, Short.class )
+          .put( Integer.TYPE, Integer.class )
+          .put( Long.TYPE, Long.class )
+          .put( Float.TYPE, Float.class )
+          .put( Double.TYPE, Double.class )
+          .build()
+  ;
+
+}
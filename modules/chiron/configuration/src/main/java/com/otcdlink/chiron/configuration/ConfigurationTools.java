@@ -23,12 +23,15 @@ public final class ConfigurationTools {
    * Warning: during its lifetime, an {@link Configuration.Inspector} keeps track of every method call on the
    * {@link Configuration} object. For this reason, a too broadly scoped {@link Configuration.Inspector}
    * can lead to excessive memory consumption.
+   * For a snapshot created by {@link ConfigurationSnapshots#snapshot(Configuration)},
+   * the {@link Configuration.Inspector} only tracks calls on the original {@link Configuration}.
    */
   public static < C extends Configuration > Configuration.Inspector< C > newInspector(
       final C configuration
   ) {
     final ConfigurationInspector.InspectorEnabled inspectorEnabled
-        = ( ConfigurationInspector.InspectorEnabled ) configuration ;
+        = ( ConfigurationInspector.InspectorEnabled )
+            ConfigurationSnapshots.unwrap( configuration ) ;
     final ThreadLocal< Map< Configuration.Inspector, List<Configuration.Property > > >
         inspectorsThreadLocal = inspectorEnabled.$$inspectors$$() ;
     Map< Configuration.Inspector, List<Configuration.Property> > inspectors =
@@ -0,0 +1,218 @@
+package com.otcdlink.chiron.configuration;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableSet;
+import com.google.common.collect.ImmutableSortedMap;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static com.google.common.base.Preconditions.checkNotNull;
+
+/**
+ * Holds the current snapshot (as created by {@link ConfigurationSnapshots#snapshot(Configuration)})
+ * of a {@link Configuration}, and replaces it atomically when calling {@link #reload()}.
+ * Readers should call {@link #current()} once per unit of work and keep the returned
+ * {@link Configuration} for its duration, so they see consistent values.
+ *
+ * <p>
+ * If {@link #reload()} fails (unreadable file, conversion or validation error), the
+ * previous {@link Configuration} stays in place.
+ */
+public final class ReloadableConfiguration< C extends Configuration > {
+
+  private static final Logger LOGGER = LoggerFactory.getLogger( ReloadableConfiguration.class ) ;
+
+  /**
+   * Re-reads the {@link Configuration.Source}s, since {@link Configuration.Source} objects
+   * like the one for a properties file read it only once.
+   */
+  public interface SourcesSupplier {
+    ImmutableList< Configuration.Source > get() throws IOException ;
+  }
+
+  public interface Listener< C extends Configuration > {
+    /**
+     * Called after the switch to the new {@link Configuration}, in the thread which called
+     * {@link ReloadableConfiguration#reload()}.
+     *
+     * @param changedProperties never empty.
+     */
+    void configurationChanged(
+        C previous,
+        C current,
+        ImmutableSet< Configuration.Property< C > > changedProperties
+    ) ;
+  }
+
+  private final Configuration.Factory< C > factory ;
+  private final SourcesSupplier sourcesSupplier ;
+  private final AtomicReference< C > current ;
+  private final List< Subscription< C > > subscriptions = new CopyOnWriteArrayList<>() ;
+
+  /**
+   * Creates the first {@link Configuration}, so a construction without exception means
+   * {@link #current()} always returns something usable.
+   */
+  public ReloadableConfiguration(
+      final Configuration.Factory< C > factory,
+      final SourcesSupplier sourcesSupplier
+  ) throws ConfigurationException {
+    this.factory = checkNotNull( factory ) ;
+    this.sourcesSupplier = checkNotNull( sourcesSupplier ) ;
+    this.current = new AtomicReference<>( createSnapshot() ) ;
+  }
+
+  public C current() {
+    return current.get() ;
+  }
+
+  public void addListener( final Listener< C > listener ) {
+    subscriptions.add( new Subscription<>( listener, ImmutableSet.of() ) ) ;
+  }
+
+  /**
+   * @param watchedProperties the {@link Listener} gets called only if one of them changed.
+   */
+  public void addListener(
+      final Listener< C > listener,
+      final ImmutableSet< Configuration.Property< C > > watchedProperties
+  ) {
+    checkArgument( ! watchedProperties.isEmpty() ) ;
+    subscriptions.add( new Subscription<>( listener, watchedProperties ) ) ;
+  }
+
+  public void removeListener( final Listener< C > listener ) {
+    subscriptions.removeIf( subscription -> subscription.listener == listener ) ;
+  }
+
+  /**
+   * Synchronized so concurrent reloads can't notify {@link Listener}s in the wrong order.
+   *
+   * @return {@code true} if some value changed.
+   * @throws ConfigurationException the current {@link Configuration} remains unchanged.
+   */
+  public synchronized boolean reload() throws ConfigurationException {
+    final C reloaded = createSnapshot() ;
+    final C previous = current.get() ;
+    final ImmutableSet< Configuration.Property< C > > changedProperties =
+        changedProperties( previous, reloaded ) ;
+    if( changedProperties.isEmpty() ) {
+      LOGGER.debug( "Reloaded " + reloaded + " with no change." ) ;
+      return false ;
+    }
+    current.set( reloaded ) ;
+    LOGGER.info( "Reloaded " + reloaded + ", changed properties: " +
+        changedNames( changedProperties ) + "." ) ;
+    for( final Subscription< C > subscription : subscriptions ) {
+      if( subscription.interestedIn( changedProperties ) ) {
+        try {
+          subscription.listener.configurationChanged( previous, reloaded, changedProperties ) ;
+        } catch( final RuntimeException e ) {
+          LOGGER.error( "Failed to notify " + subscription.listener + ".", e ) ;
+        }
+      }
+    }
+    return true ;
+  }
+
+  @Override
+  public String toString() {
+    return getClass().getSimpleName() + "{" + current.get() + "}" ;
+  }
+
+
+// ======
+// Gears
+// ======
+
+  private C createSnapshot() throws ConfigurationException {
+    final ImmutableList< Configuration.Source > sources ;
+    try {
+      sources = sourcesSupplier.get() ;
+    } catch( final IOException e ) {
+      throw new ConfigurationException( "Could not read sources", e ) ;
+    }
+    checkArgument( ! sources.isEmpty(), "No " + Configuration.Source.class.getSimpleName() ) ;
+    final C configuration = factory.create(
+        sources.get( 0 ),
+        sources.subList( 1, sources.size() ).toArray( new Configuration.Source[ 0 ] )
+    ) ;
+    return ConfigurationSnapshots.snapshot( configuration ) ;
+  }
+
+  @SuppressWarnings( "unchecked" )
+  private static < C extends Configuration > ImmutableSet< Configuration.Property< C > >
+  changedProperties( final C previous, final C current ) {
+    final ImmutableSortedMap< String, ValuedProperty > previousProperties = valuedProperties(
+        previous ) ;
+    final ImmutableSortedMap< String, ValuedProperty > currentProperties = valuedProperties(
+        current ) ;
+    final ImmutableSet.Builder< Configuration.Property< C > > builder = ImmutableSet.builder() ;
+    for( final ValuedProperty currentProperty : currentProperties.values() ) {
+      final ValuedProperty previousProperty =
+          previousProperties.get( currentProperty.property.name() ) ;
+      if( previousProperty == null ||
+          ! Objects.equals( previousProperty.resolvedValue, currentProperty.resolvedValue )
+      ) {
+        builder.add( currentProperty.property ) ;
+      }
+    }
+    return builder.build() ;
+  }
+
+  private static ImmutableSortedMap< String, ValuedProperty > valuedProperties(
+      final Configuration configuration
+  ) {
+    return ( ( ConfigurationInspector.InspectorEnabled )
+        ConfigurationSnapshots.unwrap( configuration ) ).$$properties$$() ;
+  }
+
+  private static String changedNames(
+      final ImmutableSet< ? extends Configuration.Property > properties
+  ) {
+    final StringBuilder stringBuilder = new StringBuilder( "[" ) ;
+    for( final Configuration.Property property : properties ) {
+      if( stringBuilder.length() > 1 ) {
+        stringBuilder.append( ", " ) ;
+      }
+      stringBuilder.append( property.name() ) ;
+    }
+    return stringBuilder.append( "]" ).toString() ;
+  }
+
+  private static final class Subscription< C extends Configuration > {
+    final Listener< C > listener ;
+
+    /**
+     * Empty means all.
+     */
+    final ImmutableSet< Configuration.Property< C > > watchedProperties ;
+
+    Subscription(
+        final Listener< C > listener,
+        final ImmutableSet< Configuration.Property< C > > watchedProperties
+    ) {
+      this.listener = checkNotNull( listener ) ;
+      this.watchedProperties = checkNotNull( watchedProperties ) ;
+    }
+
+    boolean interestedIn( final ImmutableSet< Configuration.Property< C > > changedProperties ) {
+      if( watchedProperties.isEmpty() ) {
+        return true ;
+      }
+      for( final Configuration.Property< C > changed : changedProperties ) {
+        if( watchedProperties.contains( changed ) ) {
+          return true ;
+        }
+      }
+      return false ;
+    }
+  }
+}
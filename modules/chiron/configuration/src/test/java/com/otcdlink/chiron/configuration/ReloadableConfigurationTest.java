@@ -0,0 +1,164 @@
+package com.otcdlink.chiron.configuration;
+
+import com.google.common.base.Charsets;
+import com.google.common.base.Converter;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableSet;
+import com.google.common.io.Files;
+import com.otcdlink.chiron.testing.junit5.DirectoryExtension;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.RegisterExtension;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class ReloadableConfigurationTest {
+
+  @Test
+  void snapshot() throws Exception {
+    final Simple proxied = FACTORY.create( Sources.newSource(
+        "number = 12",
+        "flag = true",
+        "text = foo"
+    ) ) ;
+    final Simple snapshot = ConfigurationSnapshots.snapshot( proxied ) ;
+
+    assertThat( snapshot ).isNotSameAs( proxied ) ;
+    assertThat( snapshot ).isInstanceOf( ConfigurationSnapshots.Backed.class ) ;
+    assertThat( snapshot.number() ).isEqualTo( 12 ) ;
+    assertThat( snapshot.flag() ).isTrue() ;
+    assertThat( snapshot.text() ).isEqualTo( "foo" ) ;
+    assertThat( snapshot ).isEqualTo( proxied ) ;
+    assertThat( snapshot.hashCode() ).isEqualTo( proxied.hashCode() ) ;
+    assertThat( snapshot.toString() ).isEqualTo( proxied.toString() ) ;
+    assertThat( ConfigurationSnapshots.snapshot( snapshot ) ).isSameAs( snapshot ) ;
+  }
+
+  @Test
+  void multidimensionalArray() throws Exception {
+    final Configuration.Factory< Grid > factory = new TemplateBasedFactory< Grid >( Grid.class ) {
+      @Override
+      protected void initialize() {
+        property( using.cells() ).converter( Converter.from(
+            s -> Arrays.stream( s.split( ";" ) )
+                .map( row -> Arrays.stream( row.split( "," ) ).mapToInt( Integer::parseInt )
+                    .toArray() )
+                .toArray( int[][]::new ),
+            cells -> Arrays.stream( cells )
+                .map( row -> Arrays.stream( row ).mapToObj( Integer::toString )
+                    .collect( Collectors.joining( "," ) ) )
+                .collect( Collectors.joining( ";" ) )
+        ) ) ;
+      }
+    } ;
+    final Grid snapshot = ConfigurationSnapshots.snapshot(
+        factory.create( Sources.newSource( "cells = 1,2;3,4" ) ) ) ;
+
+    assertThat( snapshot ).isInstanceOf( ConfigurationSnapshots.Backed.class ) ;
+    assertThat( snapshot.cells() ).isEqualTo( new int[][] { { 1, 2 }, { 3, 4 } } ) ;
+  }
+
+  @Test
+  void nonPublicInterfaceKeepsProxy() throws Exception {
+    final Hidden proxied = ConfigurationTools.newFactory( Hidden.class )
+        .create( Sources.newSource( "number = 12" ) ) ;
+    assertThat( ConfigurationSnapshots.snapshot( proxied ) ).isSameAs( proxied ) ;
+  }
+
+  @Test
+  void inspectorUsesBackingConfiguration() throws Exception {
+    final Simple snapshot = ConfigurationSnapshots.snapshot( FACTORY.create( Sources.newSource(
+        "number = 12",
+        "flag = true",
+        "text = foo"
+    ) ) ) ;
+    final Configuration.Inspector< Simple > inspector =
+        ConfigurationTools.newInspector( snapshot ) ;
+    assertThat( inspector.sources() ).hasSize( 1 ) ;
+  }
+
+  @Test
+  void reload() throws Exception {
+    final File file = directoryExtension.newFile( "reloadable.properties" ) ;
+    write( file, "number = 1", "flag = false", "text = foo" ) ;
+
+    final ReloadableConfiguration< Simple > reloadable = new ReloadableConfiguration<>(
+        FACTORY, () -> ImmutableList.of( Sources.newSource( file ) ) ) ;
+    final Simple first = reloadable.current() ;
+    assertThat( first.number() ).isEqualTo( 1 ) ;
+
+    final List< String > allChanges = new ArrayList<>() ;
+    final List< String > textChanges = new ArrayList<>() ;
+    reloadable.addListener( ( previous, current, changedProperties ) ->
+        allChanges.add( previous.number() + "->" + current.number() ) ) ;
+    reloadable.addListener(
+        ( previous, current, changedProperties ) -> textChanges.add( current.text() ),
+        ImmutableSet.of( FACTORY.properties().get( "text" ) )
+    ) ;
+
+    assertThat( reloadable.reload() ).isFalse() ;
+    assertThat( reloadable.current() ).isSameAs( first ) ;
+
+    write( file, "number = 2", "flag = false", "text = foo" ) ;
+    assertThat( reloadable.reload() ).isTrue() ;
+    assertThat( reloadable.current().number() ).isEqualTo( 2 ) ;
+    assertThat( first.number() ).isEqualTo( 1 ) ;
+    assertThat( allChanges ).containsExactly( "1->2" ) ;
+    assertThat( textChanges ).isEmpty() ;
+
+    write( file, "number = 2", "flag = false", "text = bar" ) ;
+    assertThat( reloadable.reload() ).isTrue() ;
+    assertThat( textChanges ).containsExactly( "bar" ) ;
+  }
+
+  @Test
+  void failedReloadKeepsPrevious() throws Exception {
+    final File file = directoryExtension.newFile( "reloadable.properties" ) ;
+    write( file, "number = 1", "flag = false", "text = foo" ) ;
+
+    final ReloadableConfiguration< Simple > reloadable = new ReloadableConfiguration<>(
+        FACTORY, () -> ImmutableList.of( Sources.newSource( file ) ) ) ;
+    final Simple first = reloadable.current() ;
+
+    write( file, "number = not-a-number", "flag = false", "text = foo" ) ;
+    assertThatThrownBy( reloadable::reload ).isInstanceOf( ConfigurationException.class ) ;
+    assertThat( reloadable.current() ).isSameAs( first ) ;
+  }
+
+
+// =======
+// Fixture
+// =======
+
+  @SuppressWarnings( "WeakerAccess" )
+  @RegisterExtension
+  final DirectoryExtension directoryExtension = new DirectoryExtension() ;
+
+  private static void write( final File file, final String... lines ) throws Exception {
+    Files.asCharSink( file, Charsets.UTF_8 ).write( String.join( "\n", lines ) ) ;
+  }
+
+  public interface Simple extends Configuration {
+    int number() ;
+    boolean flag() ;
+    String text() ;
+  }
+
+  public interface Grid extends Configuration {
+    int[][] cells() ;
+  }
+
+  interface Hidden extends Configuration {
+    int number() ;
+  }
+
+  private static final Configuration.Factory< Simple > FACTORY =
+      ConfigurationTools.newFactory( Simple.class ) ;
+
+}
@@ -15,6 +15,7 @@ import com.otcdlink.chiron.middle.tier.WebsocketFrameSizer;
 import com.otcdlink.chiron.toolbox.ToStringTools;
 import com.otcdlink.chiron.toolbox.clock.Clock;
 import com.otcdlink.chiron.toolbox.internet.InternetProxyAccess;
+import com.otcdlink.chiron.toolbox.metrics.MetricRegistry;
 import com.otcdlink.chiron.toolbox.security.SslEngineFactory;
 import io.netty.channel.EventLoopGroup;
 import org.slf4j.Logger;
@@ -60,6 +61,38 @@ public class CommandTransceiver< DOWNWARD_DUTY, UPWARD_DUTY >
         final CommandConsumer< Command< Tracker, DOWNWARD_DUTY > > commandReceiver,
         final CommandInterceptor.Factory commandInterceptorFactory,
         final WebsocketFrameSizer websocketFrameSizer
+    ) {
+      this(
+          clock,
+          eventLoopGroup,
+          url,
+          internetProxyAccess,
+          sslEngineFactory,
+          initialTimeBoundary,
+          signonMaterializer,
+          stateWatcher,
+          commandDecoder,
+          commandReceiver,
+          commandInterceptorFactory,
+          websocketFrameSizer,
+          MetricRegistry.NULL
+      ) ;
+    }
+
+    public Setup(
+        final Clock clock,
+        final EventLoopGroup eventLoopGroup,
+        final URL url,
+        final InternetProxyAccess internetProxyAccess,
+        final SslEngineFactory.ForClient sslEngineFactory,
+        final TimeBoundary.PrimingForDownend initialTimeBoundary,
+        final SignonMaterializer signonMaterializer,
+        final ChangeWatcher stateWatcher,
+        final CommandBodyDecoder< Tracker, DOWNWARD_DUTY > commandDecoder,
+        final CommandConsumer< Command< Tracker, DOWNWARD_DUTY > > commandReceiver,
+        final CommandInterceptor.Factory commandInterceptorFactory,
+        final WebsocketFrameSizer websocketFrameSizer,
+        final MetricRegistry metricRegistry
     ) {
       super(
           eventLoopGroup,
@@ -73,7 +106,8 @@ public class CommandTransceiver< DOWNWARD_DUTY, UPWARD_DUTY >
           commandDecoder,
           new CommandConsumerInterceptor<>( commandReceiver ),
           commandInterceptorFactory,
-          websocketFrameSizer
+          websocketFrameSizer,
+          metricRegistry
       ) ;
     }
 
@@ -92,6 +126,8 @@ public class CommandTransceiver< DOWNWARD_DUTY, UPWARD_DUTY >
     trackerCodec.claimDelegate = ( ( ChangeWatcher ) setup.changeWatcher )::inFlightStatusChange ;
 
     this.trackerCurator = trackerCodec.trackerCurator ;
+    setup.metricRegistry.gauge(
+        DownendConnector.METRIC_PREFIX + ".trackers.pending", trackerCurator::pendingCount ) ;
 
     ( ( ChangeWatcherInterceptor ) setup.changeWatcher ).hook = changeWatcherAdapter() ;
 
@@ -25,14 +25,17 @@ import com.otcdlink.chiron.middle.session.SignonFailure;
 import com.otcdlink.chiron.middle.session.SignonFailureNotice;
 import com.otcdlink.chiron.middle.tier.CommandInterceptor;
 import com.otcdlink.chiron.middle.tier.ConnectionDescriptor;
+import com.otcdlink.chiron.middle.tier.MeteredWebsocketFrameAggregator;
 import com.otcdlink.chiron.middle.tier.TimeBoundary;
 import com.otcdlink.chiron.middle.tier.WebsocketFragmenterTier;
 import com.otcdlink.chiron.middle.tier.WebsocketFrameSizer;
+import com.otcdlink.chiron.middle.tier.WebsocketMetrics;
 import com.otcdlink.chiron.middle.tier.WebsocketTools;
 import com.otcdlink.chiron.toolbox.Credential;
 import com.otcdlink.chiron.toolbox.ToStringTools;
 import com.otcdlink.chiron.toolbox.UrxTools;
 import com.otcdlink.chiron.toolbox.internet.InternetProxyAccess;
+import com.otcdlink.chiron.toolbox.metrics.MetricRegistry;
 import com.otcdlink.chiron.toolbox.security.SslEngineFactory;
 import io.netty.bootstrap.Bootstrap;
 import io.netty.buffer.ByteBuf;
@@ -56,12 +59,10 @@ import io.netty.handler.codec.http.websocketx.CloseWebSocketFrame;
 import io.netty.handler.codec.http.websocketx.PingWebSocketFrame;
 import io.netty.handler.codec.http.websocketx.WebSocketClientHandshaker;
 import io.netty.handler.codec.http.websocketx.WebSocketClientHandshakerFactory;
-import io.netty.handler.codec.http.websocketx.WebSocketFrameAggregator;
 import io.netty.handler.codec.http.websocketx.WebSocketFrameDecoder;
 import io.netty.handler.codec.http.websocketx.WebSocketFrameEncoder;
 import io.netty.handler.codec.http.websocketx.WebSocketVersion;
 import io.netty.handler.proxy.ProxyHandler;
-import io.netty.handler.ssl.SslHandler;
 import io.netty.resolver.NoopAddressResolverGroup;
 import io.netty.util.concurrent.ScheduledFuture;
 import org.slf4j.Logger;
@@ -169,6 +170,14 @@ public final class DownendConnector< ENDPOINT_SPECIFIC, DOWNWARD_DUTY, UPWARD_DU
 
     public final WebsocketFrameSizer websocketFrameSizer ;
 
+    /**
+     * Receives metrics whose names start with {@link DownendConnector#METRIC_PREFIX}.
+     * {@link DownendConnector}s may share the same {@link MetricRegistry} so their
+     * {@link com.otcdlink.chiron.toolbox.metrics.Counter}s add up, but then
+     * {@link com.otcdlink.chiron.toolbox.metrics.Gauge}s only reflect the last one created.
+     */
+    public final MetricRegistry metricRegistry ;
+
     public Setup(
         final EventLoopGroup eventLoopGroup,
         final URL url,
@@ -182,6 +191,38 @@ public final class DownendConnector< ENDPOINT_SPECIFIC, DOWNWARD_DUTY, UPWARD_DU
         final CommandConsumer< Command< ENDPOINT_SPECIFIC, DOWNWARD_DUTY > > commandReceiver,
         final CommandInterceptor.Factory commandInterceptorFactory,
         final WebsocketFrameSizer websocketFrameSizer
+    ) {
+      this(
+          eventLoopGroup,
+          url,
+          internetProxyAccess,
+          sslEngineFactory,
+          primingTimeBoundary,
+          signonMaterializer,
+          changeWatcher,
+          endpointSpecificCodec,
+          commandDecoder,
+          commandReceiver,
+          commandInterceptorFactory,
+          websocketFrameSizer,
+          MetricRegistry.NULL
+      ) ;
+    }
+
+    public Setup(
+        final EventLoopGroup eventLoopGroup,
+        final URL url,
+        final InternetProxyAccess internetProxyAccess,
+        final SslEngineFactory.ForClient sslEngineFactory,
+        final TimeBoundary.PrimingForDownend primingTimeBoundary,
+        final SignonMaterializer signonMaterializer,
+        final ChangeWatcher changeWatcher,
+        final Codec< ENDPOINT_SPECIFIC > endpointSpecificCodec,
+        final CommandBodyDecoder< ENDPOINT_SPECIFIC, DOWNWARD_DUTY > commandDecoder,
+        final CommandConsumer< Command< ENDPOINT_SPECIFIC, DOWNWARD_DUTY > > commandReceiver,
+        final CommandInterceptor.Factory commandInterceptorFactory,
+        final WebsocketFrameSizer websocketFrameSizer,
+        final MetricRegistry metricRegistry
     ) {
       this.eventLoopGroup = checkNotNull( eventLoopGroup ) ;
       this.url = checkNotNull( url ) ;
@@ -196,6 +237,7 @@ public final class DownendConnector< ENDPOINT_SPECIFIC, DOWNWARD_DUTY, UPWARD_DU
       this.commandReceiver = checkNotNull( commandReceiver ) ;
       this.commandInterceptorFactory = commandInterceptorFactory ;
       this.websocketFrameSizer = checkNotNull( websocketFrameSizer ) ;
+      this.metricRegistry = checkNotNull( metricRegistry ) ;
     }
 
     @Override
@@ -223,6 +265,10 @@ public final class DownendConnector< ENDPOINT_SPECIFIC, DOWNWARD_DUTY, UPWARD_DU
 
   final Setup< ENDPOINT_SPECIFIC, DOWNWARD_DUTY > setup ;
 
+  public static final String METRIC_PREFIX = "downend" ;
+
+  private final WebsocketMetrics websocketMetrics ;
+
   private final StateUpdater stateUpdater ;
 
   private final SessionDownendTier sessionDownendTier ;
@@ -234,6 +280,8 @@ public final class DownendConnector< ENDPOINT_SPECIFIC, DOWNWARD_DUTY, UPWARD_DU
 
   public DownendConnector( final Setup< ENDPOINT_SPECIFIC, DOWNWARD_DUTY > setup ) {
     this.setup = checkNotNull( setup ) ;
+    this.websocketMetrics =
+        new WebsocketMetrics( setup.metricRegistry, METRIC_PREFIX + ".websocket" ) ;
     this.stateUpdater = new StateUpdater(
         this::toString,
         setup.url,
@@ -355,6 +403,9 @@ public final class DownendConnector< ENDPOINT_SPECIFIC, DOWNWARD_DUTY, UPWARD_DU
     checkNotNull( outbound ) ;
 
     if( currentStateBody.readyToSend() ) {
+      if( ! ( outbound instanceof PingWebSocketFrame ) ) {
+        lastOutboundContentNs = System.nanoTime() ;
+      }
       return currentStateBody.channel.writeAndFlush( outbound ) ;
     } else {
       // The contract is to let a timeout happen quietly.
@@ -654,6 +705,7 @@ public final class DownendConnector< ENDPOINT_SPECIFIC, DOWNWARD_DUTY, UPWARD_DU
    * Called by {@link DownendSupervisionTier#channelRead0(ChannelHandlerContext, Object)})}.
    */
   private void afterWebsocketHandshake( final ConnectionDescriptor connectionDescriptor ) {
+    forgetTraffic() ;
     final ScheduledFuture< ? > pingSchedule = setup.eventLoopGroup.schedule(
         ( ScheduledInternally.Ping ) this::pingNow,
         connectionDescriptor.timeBoundary.pingIntervalMs(),
@@ -998,7 +1050,10 @@ public final class DownendConnector< ENDPOINT_SPECIFIC, DOWNWARD_DUTY, UPWARD_DU
     if( setup.sslEngineFactory != null ) {
       channelPipeline.addLast(
           DownendTierName.SSL_HANDLER.tierName(),
-          new SslHandler( setup.sslEngineFactory.newSslEngine() )
+          setup.sslEngineFactory.newSslHandler(
+              setup.url.getHost(),
+              setup.url.getPort() < 0 ? setup.url.getDefaultPort() : setup.url.getPort()
+          )
       ) ;
       ChannelTools.decorateWithLogging(
           channelPipeline, DownendTierName.SSL_HANDLER.tierName(), false, false ) ;
@@ -1026,14 +1081,25 @@ public final class DownendConnector< ENDPOINT_SPECIFIC, DOWNWARD_DUTY, UPWARD_DU
 
     channelPipeline.addLast(
         DownendTierName.PING_PONG.tierName(),
-        new PongTier( DownendConnector.this::pongFrameReceived )
+        new PongTier( new PongTier.Claim() {
+          @Override
+          public void pongFrameReceived( final Long receivedPongCounter ) {
+            DownendConnector.this.pongFrameReceived( receivedPongCounter ) ;
+          }
+
+          @Override
+          public void frameReceived() {
+            lastInboundFrameNs = System.nanoTime() ;
+          }
+        } )
     ) ;
 
     channelPipeline.addLast(
         DownendTierName.COMMAND_CODEC.tierName(),
         new CommandWebsocketCodecDownendTier<>(
             setup.endpointSpecificCodec,
-            setup.commandDecoder
+            setup.commandDecoder,
+            websocketMetrics
         )
     ) ;
 
@@ -1096,15 +1162,16 @@ public final class DownendConnector< ENDPOINT_SPECIFIC, DOWNWARD_DUTY, UPWARD_DU
     channelPipeline.addAfter(
         DownendTierName.WS_ENCODER.tierName(),
         DownendTierName.WS_FRAME_FRAGMENTER.tierName(),
-        new WebsocketFragmenterTier( setup.websocketFrameSizer.fragmentSize )
+        new WebsocketFragmenterTier( setup.websocketFrameSizer.fragmentSize, websocketMetrics )
     ) ;
 
     channelPipeline.addAfter(
         DownendTierName.WS_DECODER.tierName(),
         DownendTierName.WS_FRAME_AGGREGATOR.tierName(),
-        new WebSocketFrameAggregator(
+        new MeteredWebsocketFrameAggregator(
 //            1
-            Integer.MAX_VALUE
+            Integer.MAX_VALUE,
+            websocketMetrics
         )
     ) ;
 
@@ -1186,8 +1253,14 @@ public final class DownendConnector< ENDPOINT_SPECIFIC, DOWNWARD_DUTY, UPWARD_DU
         current.connectionDescriptor.timeBoundary.pingIntervalMs(),
         TimeUnit.MILLISECONDS
     ) ;
-    final StateUpdater.Transition transition = stateUpdater.update(
-        stateBody -> stateBody.planNextPing( schedule ) ) ;
+    final StateUpdater.Transition transition ;
+    try {
+      transition = stateUpdater.update( stateBody -> stateBody.planNextPing( schedule ) ) ;
+    } catch( final StateBody.StateTransitionException e ) {
+      // Stopping or reconnecting, nobody would cancel it.
+      cancelAllFutures( schedule ) ;
+      throw e ;
+    }
     cancelAllFutures(
         transition.previous.nextPingFuture,
         transition.previous.nextPongTimeoutFuture
@@ -1200,8 +1273,53 @@ public final class DownendConnector< ENDPOINT_SPECIFIC, DOWNWARD_DUTY, UPWARD_DU
    */
   private long pingCounter = 0 ;
 
+  /**
+   * Updated from any thread calling {@link #send(StateBody, Object)}, for everything but
+   * Ping.
+   */
+  private volatile long lastOutboundContentNs = longAgoNs() ;
+
+  /**
+   * Updated by {@link PongTier}, for any frame.
+   */
+  private volatile long lastInboundFrameNs = longAgoNs() ;
+
+  private static long longAgoNs() {
+    return System.nanoTime() - TimeUnit.DAYS.toNanos( 1 ) ;
+  }
+
+  /**
+   * Traffic of a previous {@link Channel} doesn't count.
+   */
+  private void forgetTraffic() {
+    lastOutboundContentNs = longAgoNs() ;
+    lastInboundFrameNs = longAgoNs() ;
+  }
+
+  /**
+   * Upend considers any inbound content frame as a Ping, and there is inbound traffic
+   * proving the connection is alive, so there is no need for a Ping.
+   */
+  private boolean trafficFlows( final long pingIntervalMs ) {
+    final long now = System.nanoTime() ;
+    final long pingIntervalNs = TimeUnit.MILLISECONDS.toNanos( pingIntervalMs ) ;
+    return now - lastOutboundContentNs < pingIntervalNs &&
+        now - lastInboundFrameNs < pingIntervalNs ;
+  }
+
   private void pingNow() {
     StateBody stateBody = stateUpdater.current() ;
+    if( stateBody.connectionDescriptor != null &&
+        trafficFlows( stateBody.connectionDescriptor.timeBoundary.pingIntervalMs() )
+    ) {
+      LOGGER.debug( "Traffic flows, skipping ping." ) ;
+      try {
+        schedulePing() ;
+      } catch( final StateBody.StateTransitionException e ) {
+        LOGGER.debug( "Failed to plan next ping for " + this + "." ) ;
+      }
+      return ;
+    }
     final long currentPingCounter = pingCounter++ ;
     final int pongTimeoutMs = stateUpdater.pongTimeoutMs() ;
     if( stateBody.channel == null ) {
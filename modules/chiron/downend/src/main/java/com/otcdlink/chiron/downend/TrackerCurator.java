@@ -6,7 +6,6 @@ import com.otcdlink.chiron.command.Command;
 import com.otcdlink.chiron.middle.CommandFailureNotice;
 import com.otcdlink.chiron.toolbox.ToStringTools;
 import com.otcdlink.chiron.toolbox.clock.Clock;
-import org.joda.time.DateTime;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -74,6 +73,16 @@ public class TrackerCurator {
    */
   public static final String TAG_PREFIX = "TR-" ;
 
+  /**
+   * Number of {@link Tracker}s waiting for a response, cheap enough for a
+   * {@link com.otcdlink.chiron.toolbox.metrics.Gauge}.
+   */
+  public int pendingCount() {
+    synchronized( lock ) {
+      return trackers.size() ;
+    }
+  }
+
   public Command.Tag generateTag() {
     return new Command.Tag( TAG_PREFIX + messageIdentifierGenerator.getAndIncrement() ) ;
   }
@@ -88,7 +97,7 @@ public class TrackerCurator {
     synchronized( lock ) {
       wasEmpty = trackers.isEmpty() ;
       trackerEnhancer = new TrackerEnhancer(
-          clock.getCurrentDateTime().plus( currentTrackerLifetimeMs ),
+          clock.currentTimeMillis() + currentTrackerLifetimeMs,
           tracker
       ) ;
       trackers.put( commandTag, trackerEnhancer ) ;
@@ -213,7 +222,7 @@ public class TrackerCurator {
   public void scavengeTimeouts() {
     synchronized( lock ) {
       if( connected ) {
-        final long now = clock.getCurrentDateTime().getMillis() ;
+        final long now = clock.currentTimeMillis() ;
         notifyTrackersUnsynchronized(
             Tracker::afterTimeout,
             trackerSlot -> trackerSlot.endOfLifeTimestamp < now
@@ -277,8 +286,8 @@ public class TrackerCurator {
     public final long endOfLifeTimestamp ;
     public final Tracker tracker ;
 
-    public TrackerEnhancer( final DateTime endOfLifeTimestamp, final Tracker tracker ) {
-      this.endOfLifeTimestamp = endOfLifeTimestamp.getMillis() ;
+    public TrackerEnhancer( final long endOfLifeTimestamp, final Tracker tracker ) {
+      this.endOfLifeTimestamp = endOfLifeTimestamp ;
       this.tracker = checkNotNull( tracker ) ;
     }
 
@@ -5,6 +5,7 @@ import com.otcdlink.chiron.buffer.PositionalFieldWriter;
 import com.otcdlink.chiron.codec.CommandBodyDecoder;
 import com.otcdlink.chiron.command.codec.Codec;
 import com.otcdlink.chiron.middle.tier.AbstractCommandWebsocketCodecTier;
+import com.otcdlink.chiron.middle.tier.WebsocketMetrics;
 import io.netty.channel.ChannelHandlerContext;
 
 import java.io.IOException;
@@ -26,7 +27,15 @@ public class CommandWebsocketCodecDownendTier< ENDPOINT_SPECIFIC, UPWARD_DUTY, D
       final Codec< ENDPOINT_SPECIFIC > endpointSpecificCodec,
       final CommandBodyDecoder< ENDPOINT_SPECIFIC, UPWARD_DUTY > commandDecoder
   ) {
-    super( commandDecoder ) ;
+    this( endpointSpecificCodec, commandDecoder, WebsocketMetrics.NULL ) ;
+  }
+
+  public CommandWebsocketCodecDownendTier(
+      final Codec< ENDPOINT_SPECIFIC > endpointSpecificCodec,
+      final CommandBodyDecoder< ENDPOINT_SPECIFIC, UPWARD_DUTY > commandDecoder,
+      final WebsocketMetrics websocketMetrics
+  ) {
+    super( commandDecoder, websocketMetrics ) ;
     this.endpointSpecificCodec = checkNotNull( endpointSpecificCodec ) ;
   }
 
@@ -4,6 +4,7 @@ import com.otcdlink.chiron.middle.ChannelTools;
 import io.netty.channel.ChannelHandlerContext;
 import io.netty.channel.SimpleChannelInboundHandler;
 import io.netty.handler.codec.http.websocketx.PongWebSocketFrame;
+import io.netty.handler.codec.http.websocketx.WebSocketFrame;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -15,6 +16,12 @@ public class PongTier extends SimpleChannelInboundHandler< PongWebSocketFrame >
 
   public interface Claim {
     void pongFrameReceived( Long receivedPongCounter ) ;
+
+    /**
+     * Called for every inbound {@link WebSocketFrame}, including Pong, so there is no need
+     * to ping while there is inbound traffic.
+     */
+    default void frameReceived() { }
   }
   private final Claim claim ;
 
@@ -23,6 +30,17 @@ public class PongTier extends SimpleChannelInboundHandler< PongWebSocketFrame >
   }
 
 
+  @Override
+  public void channelRead(
+      final ChannelHandlerContext channelHandlerContext,
+      final Object message
+  ) throws Exception {
+    if( message instanceof WebSocketFrame ) {
+      claim.frameReceived() ;
+    }
+    super.channelRead( channelHandlerContext, message ) ;
+  }
+
   @Override
   protected void channelRead0(
       final ChannelHandlerContext channelHandlerContext,
@@ -0,0 +1,101 @@
+package com.otcdlink.chiron.evaluator;
+
+import com.google.common.collect.ImmutableList;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.function.Predicate;
+import java.util.stream.Stream;
+
+import static com.google.common.base.Preconditions.checkNotNull;
+import static com.google.common.collect.ImmutableList.toImmutableList;
+
+/**
+ * Result of {@link EvaluatorCompiler#compile(Evaluator)}, evaluates exactly like the
+ * {@link Evaluator} it comes from, with bulk operations on top.
+ */
+public final class CompiledEvaluator< ENTITY > implements Predicate< ENTITY > {
+
+  private final EvaluatorCompiler< ENTITY > compiler ;
+
+  /**
+   * Kept for {@link #toString()}.
+   */
+  private final Evaluator< ENTITY, ?, ? > evaluator ;
+
+  private final EvaluatorCompiler.Node< ENTITY > root ;
+
+  CompiledEvaluator(
+      final EvaluatorCompiler< ENTITY > compiler,
+      final Evaluator< ENTITY, ?, ? > evaluator,
+      final EvaluatorCompiler.Node< ENTITY > root
+  ) {
+    this.compiler = checkNotNull( compiler ) ;
+    this.evaluator = checkNotNull( evaluator ) ;
+    this.root = checkNotNull( root ) ;
+  }
+
+  @Override
+  public boolean test( final ENTITY entity ) {
+    return root.test( entity ) ;
+  }
+
+  /**
+   * Returns every matching entity, in iteration order.
+   * Large {@code Collection}s get split using a parallel {@code Stream}.
+   */
+  public ImmutableList< ENTITY > select( final Collection< ENTITY > entities ) {
+    final Stream< ENTITY > stream = entities.size() >= compiler.parallelThreshold ?
+        entities.parallelStream() : entities.stream() ;
+    return stream.filter( root ).collect( toImmutableList() ) ;
+  }
+
+  /**
+   * Same as {@link #select(Collection)} but narrows candidates first, using the smallest
+   * range obtained from the {@link IndexedEntities.SortedIndex}es matching a top-level
+   * comparison (or a comparison that is a direct child of a top-level
+   * {@link Evaluator.Kind#AND}). Result order is the one of the narrowest index
+   * if there was one, or the iteration order of {@link IndexedEntities#all()}.
+   */
+  public ImmutableList< ENTITY > select( final IndexedEntities< ENTITY > indexedEntities ) {
+    return select( narrowest( indexedEntities ) ) ;
+  }
+
+  private Collection< ENTITY > narrowest( final IndexedEntities< ENTITY > indexedEntities ) {
+    Collection< ENTITY > narrowest = indexedEntities.all ;
+    if( root instanceof EvaluatorCompiler.LongComparison ) {
+      narrowest = narrower( indexedEntities, ( EvaluatorCompiler.LongComparison< ENTITY > ) root,
+          narrowest ) ;
+    } else if( root instanceof EvaluatorCompiler.And ) {
+      for( final EvaluatorCompiler.Node< ENTITY > child :
+          ( ( EvaluatorCompiler.And< ENTITY > ) root ).children
+      ) {
+        if( child instanceof EvaluatorCompiler.LongComparison ) {
+          narrowest = narrower( indexedEntities,
+              ( EvaluatorCompiler.LongComparison< ENTITY > ) child, narrowest ) ;
+        }
+      }
+    }
+    return narrowest ;
+  }
+
+  private static < ENTITY > Collection< ENTITY > narrower(
+      final IndexedEntities< ENTITY > indexedEntities,
+      final EvaluatorCompiler.LongComparison< ENTITY > comparison,
+      final Collection< ENTITY > current
+  ) {
+    final IndexedEntities.SortedIndex< ENTITY > sortedIndex =
+        indexedEntities.indexes.get( comparison.queryField ) ;
+    if( sortedIndex == null ) {
+      return current ;
+    }
+    final List< ENTITY > slice =
+        sortedIndex.slice( comparison.scalarOrdering, comparison.parameter ) ;
+    return slice.size() < current.size() ? slice : current ;
+  }
+
+  @Override
+  public String toString() {
+    return getClass().getSimpleName() + "{" + evaluator.asString() + "}" ;
+  }
+}
@@ -0,0 +1,342 @@
+package com.otcdlink.chiron.evaluator;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableSet;
+
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Function;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static com.google.common.base.Preconditions.checkNotNull;
+
+/**
+ * Keeps standing queries (one {@link Evaluator} per {@link Subscription}) up to date with
+ * changes of {@link ENTITY}s, and notifies a {@link ContinuousQueryOutwardDuty} with
+ * incremental deltas only.
+ *
+ * <h1>Dependency tracking</h1>
+ * <p>
+ * Each {@link Subscription} depends on the {@link QueryField}s its {@link Evaluator} refers to.
+ * When the caller tells which {@link QueryField}s changed with
+ * {@link #updated(Object, Collection)}, only dependent {@link Subscription}s are re-evaluated.
+ * Other {@link Subscription}s already containing the {@link ENTITY} just get an update
+ * notification, and the remaining ones are not even looked at.
+ * So the cost of a change is proportional to the number of affected {@link Subscription}s,
+ * not to the total number of {@link Subscription}s times the number of {@link ENTITY}s.
+ *
+ * <h1>Threading</h1>
+ * <p>
+ * This class is not thread-safe, it is meant to be called from Upend Logic, which runs
+ * sequentially. The {@link ContinuousQueryOutwardDuty} gets called synchronously.
+ * It may subscribe or unsubscribe from inside its callbacks: notification loops iterate
+ * over a copy, and skip {@link Subscription}s that got unsubscribed meanwhile.
+ *
+ * @param <SUBSCRIBER> identifies who gets notified, typically a Designator or a
+ *     Session Identifier.
+ * @param <KEY> uniquely identifies an {@link ENTITY}, must support {@link Object#equals(Object)}
+ *     and {@link Object#hashCode()}.
+ */
+public final class ContinuousQueryEngine< SUBSCRIBER, KEY, ENTITY > {
+
+  private final EvaluatorCompiler< ENTITY > evaluatorCompiler ;
+  private final Function< ENTITY, KEY > keyExtractor ;
+  private final ContinuousQueryOutwardDuty< SUBSCRIBER, ENTITY > outwardDuty ;
+
+  private final Set< Subscription< SUBSCRIBER, ENTITY > > allSubscriptions =
+      new LinkedHashSet<>() ;
+
+  private final Map< SUBSCRIBER, Set< Subscription< SUBSCRIBER, ENTITY > > > bySubscriber =
+      new HashMap<>() ;
+
+  private final Map<
+      QueryField< ENTITY, ?, ?, ?, ?, ? >,
+      Set< Subscription< SUBSCRIBER, ENTITY > >
+  > byQueryField = new HashMap<>() ;
+
+  /**
+   * Reverse index telling which {@link Subscription}s currently contain an {@link ENTITY}.
+   */
+  private final Map< KEY, Set< Subscription< SUBSCRIBER, ENTITY > > > byMatchingKey =
+      new HashMap<>() ;
+
+  public ContinuousQueryEngine(
+      final EvaluatorCompiler< ENTITY > evaluatorCompiler,
+      final Function< ENTITY, KEY > keyExtractor,
+      final ContinuousQueryOutwardDuty< SUBSCRIBER, ENTITY > outwardDuty
+  ) {
+    this.evaluatorCompiler = checkNotNull( evaluatorCompiler ) ;
+    this.keyExtractor = checkNotNull( keyExtractor ) ;
+    this.outwardDuty = checkNotNull( outwardDuty ) ;
+  }
+
+
+// =============
+// Subscriptions
+// =============
+
+  /**
+   * Creates a {@link Subscription} and calls
+   * {@link ContinuousQueryOutwardDuty#entered(Subscription, Object)} for every matching
+   * {@link ENTITY} among current ones.
+   *
+   * @param currentEntities all the {@link ENTITY}s that exist at the time of the call.
+   */
+  public Subscription< SUBSCRIBER, ENTITY > subscribe(
+      final SUBSCRIBER subscriber,
+      final Evaluator< ENTITY, ?, ? > evaluator,
+      final Collection< ENTITY > currentEntities
+  ) {
+    checkNotNull( subscriber ) ;
+    final Subscription< SUBSCRIBER, ENTITY > subscription = new Subscription<>(
+        subscriber, evaluator, evaluatorCompiler.compile( evaluator ) ) ;
+    allSubscriptions.add( subscription ) ;
+    bySubscriber.computeIfAbsent( subscriber, any -> new LinkedHashSet<>() ).add( subscription ) ;
+    for( final QueryField< ENTITY, ?, ?, ?, ?, ? > queryField : subscription.dependencies ) {
+      byQueryField.computeIfAbsent( queryField, any -> new LinkedHashSet<>() ).add( subscription ) ;
+    }
+    for( final ENTITY entity : subscription.compiledEvaluator.select( currentEntities ) ) {
+      if( ! subscription.active ) {
+        break ;
+      }
+      enter( subscription, keyExtractor.apply( entity ), entity ) ;
+    }
+    return subscription ;
+  }
+
+  /**
+   * Forgets about the {@link Subscription} without notifying the
+   * {@link ContinuousQueryOutwardDuty}.
+   */
+  public void unsubscribe( final Subscription< SUBSCRIBER, ENTITY > subscription ) {
+    checkArgument( allSubscriptions.remove( subscription ), "Unknown: " + subscription ) ;
+    subscription.active = false ;
+    removeFromIndex( bySubscriber, subscription.subscriber, subscription ) ;
+    for( final QueryField< ENTITY, ?, ?, ?, ?, ? > queryField : subscription.dependencies ) {
+      removeFromIndex( byQueryField, queryField, subscription ) ;
+    }
+    for( final Object key : subscription.matchingKeys ) {
+      removeFromIndex( byMatchingKey, key, subscription ) ;
+    }
+    subscription.matchingKeys.clear() ;
+  }
+
+  /**
+   * Typically called when a session ends.
+   */
+  public void unsubscribeAll( final SUBSCRIBER subscriber ) {
+    final Set< Subscription< SUBSCRIBER, ENTITY > > subscriptions = bySubscriber.get( subscriber ) ;
+    if( subscriptions != null ) {
+      for( final Subscription< SUBSCRIBER, ENTITY > subscription :
+          ImmutableList.copyOf( subscriptions )
+      ) {
+        unsubscribe( subscription ) ;
+      }
+    }
+  }
+
+  public ImmutableSet< Subscription< SUBSCRIBER, ENTITY > > subscriptions(
+      final SUBSCRIBER subscriber
+  ) {
+    final Set< Subscription< SUBSCRIBER, ENTITY > > subscriptions = bySubscriber.get( subscriber ) ;
+    return subscriptions == null ? ImmutableSet.of() : ImmutableSet.copyOf( subscriptions ) ;
+  }
+
+  public int subscriptionCount() {
+    return allSubscriptions.size() ;
+  }
+
+
+// ==============
+// Entity changes
+// ==============
+
+  /**
+   * A brand new {@link ENTITY} has to be evaluated by every {@link Subscription}.
+   */
+  public void created( final ENTITY entity ) {
+    final KEY key = keyExtractor.apply( entity ) ;
+    for( final Subscription< SUBSCRIBER, ENTITY > subscription :
+        ImmutableList.copyOf( allSubscriptions )
+    ) {
+      if( subscription.active && subscription.compiledEvaluator.test( entity ) ) {
+        enter( subscription, key, entity ) ;
+      }
+    }
+  }
+
+  /**
+   * Re-evaluates only the {@link Subscription}s depending on given {@link QueryField}s.
+   *
+   * @param entity the new state of the {@link ENTITY}, with the same {@link KEY} as before.
+   * @param changedFields the {@link QueryField}s that may have a different value.
+   */
+  public void updated(
+      final ENTITY entity,
+      final Collection< ? extends QueryField< ENTITY, ?, ?, ?, ?, ? > > changedFields
+  ) {
+    final KEY key = keyExtractor.apply( entity ) ;
+    final Set< Subscription< SUBSCRIBER, ENTITY > > affected = new LinkedHashSet<>() ;
+    for( final QueryField< ENTITY, ?, ?, ?, ?, ? > queryField : changedFields ) {
+      final Set< Subscription< SUBSCRIBER, ENTITY > > dependents = byQueryField.get( queryField ) ;
+      if( dependents != null ) {
+        affected.addAll( dependents ) ;
+      }
+    }
+    reevaluate( key, entity, affected ) ;
+  }
+
+  /**
+   * Re-evaluates every {@link Subscription}, use it when there is no clue about what changed.
+   */
+  public void updated( final ENTITY entity ) {
+    reevaluate( keyExtractor.apply( entity ), entity, allSubscriptions ) ;
+  }
+
+  public void removed( final ENTITY entity ) {
+    final KEY key = keyExtractor.apply( entity ) ;
+    final Set< Subscription< SUBSCRIBER, ENTITY > > containing = byMatchingKey.remove( key ) ;
+    if( containing != null ) {
+      for( final Subscription< SUBSCRIBER, ENTITY > subscription :
+          ImmutableList.copyOf( containing )
+      ) {
+        if( subscription.active ) {
+          subscription.matchingKeys.remove( key ) ;
+          outwardDuty.left( subscription, entity ) ;
+        }
+      }
+    }
+  }
+
+  private void reevaluate(
+      final KEY key,
+      final ENTITY entity,
+      final Collection< Subscription< SUBSCRIBER, ENTITY > > affected
+  ) {
+    final Set< Subscription< SUBSCRIBER, ENTITY > > containing = byMatchingKey.get( key ) ;
+    final Set< Subscription< SUBSCRIBER, ENTITY > > unaffectedContaining =
+        containing == null ? new LinkedHashSet<>() : new LinkedHashSet<>( containing ) ;
+
+    for( final Subscription< SUBSCRIBER, ENTITY > subscription :
+        ImmutableList.copyOf( affected )
+    ) {
+      if( ! subscription.active ) {
+        continue ;
+      }
+      final boolean matchedBefore = subscription.matchingKeys.contains( key ) ;
+      final boolean matchesNow = subscription.compiledEvaluator.test( entity ) ;
+      if( matchedBefore ) {
+        unaffectedContaining.remove( subscription ) ;
+        if( matchesNow ) {
+          outwardDuty.updated( subscription, entity ) ;
+        } else {
+          leave( subscription, key, entity ) ;
+        }
+      } else if( matchesNow ) {
+        enter( subscription, key, entity ) ;
+      }
+    }
+
+    // Changed fields are not the ones that could change the result, but the ENTITY changed.
+    for( final Subscription< SUBSCRIBER, ENTITY > subscription : unaffectedContaining ) {
+      if( subscription.active ) {
+        outwardDuty.updated( subscription, entity ) ;
+      }
+    }
+  }
+
+  private void enter(
+      final Subscription< SUBSCRIBER, ENTITY > subscription,
+      final KEY key,
+      final ENTITY entity
+  ) {
+    subscription.matchingKeys.add( key ) ;
+    byMatchingKey.computeIfAbsent( key, any -> new LinkedHashSet<>() ).add( subscription ) ;
+    outwardDuty.entered( subscription, entity ) ;
+  }
+
+  private void leave(
+      final Subscription< SUBSCRIBER, ENTITY > subscription,
+      final KEY key,
+      final ENTITY entity
+  ) {
+    subscription.matchingKeys.remove( key ) ;
+    removeFromIndex( byMatchingKey, key, subscription ) ;
+    outwardDuty.left( subscription, entity ) ;
+  }
+
+  private static < INDEX_KEY, VALUE > void removeFromIndex(
+      final Map< INDEX_KEY, Set< VALUE > > index,
+      final Object key,
+      final VALUE value
+  ) {
+    final Set< VALUE > values = index.get( key ) ;
+    if( values != null ) {
+      values.remove( value ) ;
+      if( values.isEmpty() ) {
+        index.remove( key ) ;
+      }
+    }
+  }
+
+
+// ============
+// Subscription
+// ============
+
+  /**
+   * A standing query. Identity-based equality, so the same {@link SUBSCRIBER} may subscribe
+   * many times with the same {@link Evaluator}.
+   */
+  public static final class Subscription< SUBSCRIBER, ENTITY > {
+    public final SUBSCRIBER subscriber ;
+    public final Evaluator< ENTITY, ?, ? > evaluator ;
+    private final CompiledEvaluator< ENTITY > compiledEvaluator ;
+
+    /**
+     * Every {@link QueryField} that {@link #evaluator} depends on.
+     */
+    final ImmutableSet< QueryField< ENTITY, ?, ?, ?, ?, ? > > dependencies ;
+
+    /**
+     * Keys of currently matching {@link ENTITY}s, typed as {@code Object} to save one type
+     * parameter.
+     */
+    private final Set< Object > matchingKeys = new LinkedHashSet<>() ;
+
+    /**
+     * Cleared by {@link ContinuousQueryEngine#unsubscribe(Subscription)}, so notification
+     * loops skip it.
+     */
+    private boolean active = true ;
+
+    @SuppressWarnings( "unchecked" )
+    private Subscription(
+        final SUBSCRIBER subscriber,
+        final Evaluator< ENTITY, ?, ? > evaluator,
+        final CompiledEvaluator< ENTITY > compiledEvaluator
+    ) {
+      this.subscriber = checkNotNull( subscriber ) ;
+      this.evaluator = checkNotNull( evaluator ) ;
+      this.compiledEvaluator = checkNotNull( compiledEvaluator ) ;
+      final ImmutableSet.Builder< QueryField< ENTITY, ?, ?, ?, ?, ? > > builder =
+          ImmutableSet.builder() ;
+      evaluator.visitAll( forField ->
+          builder.add( ( ( Evaluator.ForField ) forField ).queryfield ) ) ;
+      this.dependencies = builder.build() ;
+    }
+
+    public int matchCount() {
+      return matchingKeys.size() ;
+    }
+
+    @Override
+    public String toString() {
+      return getClass().getSimpleName() + "{" + subscriber + ";" + evaluator.asString() + "}" ;
+    }
+  }
+
+}
@@ -0,0 +1,40 @@
+package com.otcdlink.chiron.evaluator;
+
+/**
+ * Receives the deltas calculated by a {@link ContinuousQueryEngine}.
+ * A typical implementation turns each call into a Downward Command for the session
+ * of the {@link SUBSCRIBER}.
+ *
+ * @param <SUBSCRIBER> identifies who should receive the delta, typically a Designator
+ *     or a Session Identifier.
+ */
+public interface ContinuousQueryOutwardDuty< SUBSCRIBER, ENTITY > {
+
+  /**
+   * The {@link ENTITY} now matches the {@link Evaluator} of the
+   * {@link ContinuousQueryEngine.Subscription}, either because it was just created, or because
+   * it changed, or because the {@link ContinuousQueryEngine.Subscription} was just created.
+   */
+  void entered(
+      ContinuousQueryEngine.Subscription< SUBSCRIBER, ENTITY > subscription,
+      ENTITY entity
+  ) ;
+
+  /**
+   * The {@link ENTITY} changed and still matches.
+   */
+  void updated(
+      ContinuousQueryEngine.Subscription< SUBSCRIBER, ENTITY > subscription,
+      ENTITY entity
+  ) ;
+
+  /**
+   * The {@link ENTITY} matched before and does not match anymore, or it was removed.
+   *
+   * @param entity last known state of the {@link ENTITY}.
+   */
+  void left(
+      ContinuousQueryEngine.Subscription< SUBSCRIBER, ENTITY > subscription,
+      ENTITY entity
+  ) ;
+}
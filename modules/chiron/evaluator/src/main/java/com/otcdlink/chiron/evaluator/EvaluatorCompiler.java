@@ -0,0 +1,466 @@
+package com.otcdlink.chiron.evaluator;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
+import org.joda.time.DateTime;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.List;
+import java.util.function.Predicate;
+import java.util.function.ToLongFunction;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static com.google.common.base.Preconditions.checkNotNull;
+
+/**
+ * Turns an {@link Evaluator} tree into a {@link CompiledEvaluator}, a tree of
+ * {@link Predicate}s that does the per-evaluation work once and for all:
+ * <ul>
+ *   <li>
+ *     Operator context is extracted from the {@link Evaluator#entityContext} at compile time,
+ *     not for each entity.
+ *   </li><li>
+ *     Scalar comparisons ({@link QueryOperators.IntegerOperator},
+ *     {@link QueryOperators.DateTimeOperator}) run on {@code long}s, reading the entity through
+ *     a {@link ToLongFunction} if one was registered with {@link Builder#primitive(QueryField,
+ *     ToLongFunction)}.
+ *   </li><li>
+ *     Children of {@link Evaluator.Kind#AND} and {@link Evaluator.Kind#OR} are reordered so
+ *     the cheapest and most selective ones come first, which makes short-circuiting happen
+ *     as early as possible. Selectivity comes from an optional sample of entities.
+ *   </li>
+ * </ul>
+ * The result is a flat structure of final fields and arrays that the JIT inlines well,
+ * so there is no need for bytecode generation.
+ *
+ * <p>
+ * Predicates must be free of side-effects for the reordering to be legit, which is the
+ * case for every {@link Operator} in {@link QueryOperators}.
+ *
+ * @param <ENTITY> the type of the object to evaluate.
+ */
+public final class EvaluatorCompiler< ENTITY > {
+
+  /**
+   * Above this size, {@link CompiledEvaluator#select(Collection)} splits the work using
+   * a parallel {@code Stream}.
+   */
+  public static final int DEFAULT_PARALLEL_THRESHOLD = 10_000 ;
+
+  private final ImmutableMap< QueryField< ENTITY, ?, ?, ?, ?, ? >, ToLongFunction< ENTITY > >
+      primitiveExtractors ;
+
+  final int parallelThreshold ;
+
+  private EvaluatorCompiler(
+      final ImmutableMap< QueryField< ENTITY, ?, ?, ?, ?, ? >, ToLongFunction< ENTITY > >
+          primitiveExtractors,
+      final int parallelThreshold
+  ) {
+    this.primitiveExtractors = checkNotNull( primitiveExtractors ) ;
+    checkArgument( parallelThreshold > 0 ) ;
+    this.parallelThreshold = parallelThreshold ;
+  }
+
+  public static < ENTITY > Builder< ENTITY > newBuilder() {
+    return new Builder<>() ;
+  }
+
+  public static final class Builder< ENTITY > {
+    private final ImmutableMap.Builder<
+        QueryField< ENTITY, ?, ?, ?, ?, ? >,
+        ToLongFunction< ENTITY >
+    > primitiveExtractors = ImmutableMap.builder() ;
+
+    private int parallelThreshold = DEFAULT_PARALLEL_THRESHOLD ;
+
+    private Builder() { }
+
+    /**
+     * Declares how to read the value of a {@link QueryField} as a {@code long}, without boxing.
+     * For a {@link DateTime} this is the value of {@link DateTime#getMillis()}.
+     * Registering a {@link QueryField} this way also makes it eligible for indexing with
+     * {@link EvaluatorCompiler#index(Collection, QueryField[])}.
+     *
+     * @param extractor must never fail, the {@link QueryField} must never have a {@code null}
+     *     value.
+     */
+    public Builder< ENTITY > primitive(
+        final QueryField< ENTITY, ?, ?, ?, ?, ? > queryField,
+        final ToLongFunction< ENTITY > extractor
+    ) {
+      primitiveExtractors.put( queryField, extractor ) ;
+      return this ;
+    }
+
+    public Builder< ENTITY > parallelThreshold( final int parallelThreshold ) {
+      this.parallelThreshold = parallelThreshold ;
+      return this ;
+    }
+
+    public EvaluatorCompiler< ENTITY > build() {
+      return new EvaluatorCompiler<>( primitiveExtractors.build(), parallelThreshold ) ;
+    }
+  }
+
+
+// =========
+// Compiling
+// =========
+
+  public CompiledEvaluator< ENTITY > compile( final Evaluator< ENTITY, ?, ? > evaluator ) {
+    return compile( evaluator, ImmutableList.of() ) ;
+  }
+
+  /**
+   * @param sample a few representative entities to measure the selectivity of each
+   *     {@link Evaluator.ForField}, may be empty.
+   */
+  public CompiledEvaluator< ENTITY > compile(
+      final Evaluator< ENTITY, ?, ? > evaluator,
+      final Collection< ENTITY > sample
+  ) {
+    checkNotNull( sample ) ;
+    return new CompiledEvaluator<>( this, evaluator, compileNode( evaluator, sample ) ) ;
+  }
+
+  private Node< ENTITY > compileNode(
+      final Evaluator< ENTITY, ?, ? > evaluator,
+      final Collection< ENTITY > sample
+  ) {
+    final Node< ENTITY > node ;
+    switch( evaluator.kind ) {
+      case EMPTY :
+        return Node.always() ;
+      case FIELD :
+        node = compileField( ( Evaluator.ForField ) evaluator ) ;
+        break ;
+      case NOT :
+        final Evaluator.Combinator< ENTITY, ?, ? > negated = ( Evaluator.Combinator ) evaluator ;
+        node = new Not<>( compileNode( negated.children.get( 0 ), sample ) ) ;
+        break ;
+      case AND :
+      case OR :
+        final Evaluator.Combinator< ENTITY, ?, ? > combinator = ( Evaluator.Combinator ) evaluator ;
+        final List< Node< ENTITY > > children = new ArrayList<>( combinator.children.size() ) ;
+        for( final Evaluator< ENTITY, ?, ? > child : combinator.children ) {
+          children.add( compileNode( child, sample ) ) ;
+        }
+        node = combine( evaluator.kind == Evaluator.Kind.AND, children ) ;
+        break ;
+      default :
+        throw new IllegalArgumentException( "Unsupported: " + evaluator.kind ) ;
+    }
+    node.measureSelectivity( sample ) ;
+    return node ;
+  }
+
+  private static < ENTITY > Node< ENTITY > combine(
+      final boolean and,
+      final List< Node< ENTITY > > children
+  ) {
+    children.sort( and ? Node.AND_RANK : Node.OR_RANK ) ;
+    final Node< ENTITY >[] array = children.toArray( new Node[ children.size() ] ) ;
+    return and ? new And<>( array ) : new Or<>( array ) ;
+  }
+
+  @SuppressWarnings( "unchecked" )
+  private Node< ENTITY > compileField( final Evaluator.ForField forField ) {
+    final Object operatorContext = forField.queryfield.operatorContextExtractor()
+        .apply( forField.entityContext ) ;
+    final ToLongFunction< ENTITY > primitiveExtractor =
+        primitiveExtractors.get( forField.queryfield ) ;
+
+    if( forField.operator instanceof QueryOperators.IntegerOperator ) {
+      final QueryOperators.ScalarOrdering scalarOrdering =
+          ( ( QueryOperators.IntegerOperator ) forField.operator ).scalarOrdering() ;
+      final Integer parameter = ( Integer ) forField.parameter ;
+      if( parameter != null ) {
+        return primitiveExtractor == null ?
+            new BoxedIntegerComparison<>( forField, scalarOrdering, parameter ) :
+            new LongComparison<>(
+                forField.queryfield, primitiveExtractor, scalarOrdering, parameter )
+        ;
+      }
+    } else if( forField.operator instanceof QueryOperators.DateTimeOperator ) {
+      final QueryOperators.ScalarOrdering scalarOrdering =
+          ( ( QueryOperators.DateTimeOperator ) forField.operator ).scalarOrdering() ;
+      final DateTime parameter = forField.parameter == null ?
+          ( DateTime ) operatorContext : ( DateTime ) forField.parameter ;
+      if( parameter != null && primitiveExtractor != null ) {
+        return new LongComparison<>(
+            forField.queryfield, primitiveExtractor, scalarOrdering, parameter.getMillis() ) ;
+      }
+    }
+    return new Generic<>(
+        forField,
+        operatorContext,
+        forField.operator instanceof QueryOperators.TextOperator ? Node.COST_EXPENSIVE :
+            Node.COST_GENERIC
+    ) ;
+  }
+
+
+// =====
+// Nodes
+// =====
+
+  /**
+   * Base class for compiled nodes. Cost and selectivity only matter at compile time.
+   */
+  abstract static class Node< ENTITY > implements Predicate< ENTITY > {
+
+    static final int COST_PRIMITIVE = 1 ;
+    static final int COST_GENERIC = 4 ;
+    static final int COST_EXPENSIVE = 20 ;
+
+    /**
+     * Estimated ratio of entities for which this {@link Node} evaluates to {@code true}.
+     * Without a sample we have no clue so we say one half.
+     */
+    double passRatio = 0.5 ;
+
+    abstract int cost() ;
+
+    final void measureSelectivity( final Collection< ENTITY > sample ) {
+      if( ! sample.isEmpty() ) {
+        int passCount = 0 ;
+        for( final ENTITY entity : sample ) {
+          if( test( entity ) ) {
+            passCount ++ ;
+          }
+        }
+        passRatio = ( double ) passCount / sample.size() ;
+      }
+    }
+
+    /**
+     * Classical ranking for conjunctive predicates: cost divided by the probability to
+     * short-circuit. Lower comes first.
+     */
+    static final Comparator< Node< ? > > AND_RANK = Comparator.comparingDouble(
+        node -> node.cost() / Math.max( 1 - node.passRatio, Double.MIN_NORMAL ) ) ;
+
+    static final Comparator< Node< ? > > OR_RANK = Comparator.comparingDouble(
+        node -> node.cost() / Math.max( node.passRatio, Double.MIN_NORMAL ) ) ;
+
+    @SuppressWarnings( "unchecked" )
+    static < ENTITY > Node< ENTITY > always() {
+      return ( Node< ENTITY > ) ALWAYS ;
+    }
+
+    private static final Node< Object > ALWAYS = new Node< Object >() {
+      @Override
+      int cost() {
+        return 0 ;
+      }
+
+      @Override
+      public boolean test( final Object entity ) {
+        return true ;
+      }
+    } ;
+  }
+
+  static final class LongComparison< ENTITY > extends Node< ENTITY > {
+    final QueryField< ENTITY, ?, ?, ?, ?, ? > queryField ;
+    final ToLongFunction< ENTITY > extractor ;
+    final QueryOperators.ScalarOrdering scalarOrdering ;
+    final long parameter ;
+
+    LongComparison(
+        final QueryField< ENTITY, ?, ?, ?, ?, ? > queryField,
+        final ToLongFunction< ENTITY > extractor,
+        final QueryOperators.ScalarOrdering scalarOrdering,
+        final long parameter
+    ) {
+      this.queryField = queryField ;
+      this.extractor = extractor ;
+      this.scalarOrdering = scalarOrdering ;
+      this.parameter = parameter ;
+    }
+
+    @Override
+    int cost() {
+      return COST_PRIMITIVE ;
+    }
+
+    @Override
+    public boolean test( final ENTITY entity ) {
+      return scalarOrdering.test( parameter, extractor.applyAsLong( entity ) ) ;
+    }
+  }
+
+  /**
+   * Avoids {@code Comparator} and {@code IntPredicate} calls when there is no
+   * primitive extractor.
+   */
+  private static final class BoxedIntegerComparison< ENTITY > extends Node< ENTITY > {
+    private final Evaluator.ForField forField ;
+    private final QueryOperators.ScalarOrdering scalarOrdering ;
+    private final int parameter ;
+
+    BoxedIntegerComparison(
+        final Evaluator.ForField forField,
+        final QueryOperators.ScalarOrdering scalarOrdering,
+        final int parameter
+    ) {
+      this.forField = forField ;
+      this.scalarOrdering = scalarOrdering ;
+      this.parameter = parameter ;
+    }
+
+    @Override
+    int cost() {
+      return COST_PRIMITIVE + 1 ;
+    }
+
+    @SuppressWarnings( "unchecked" )
+    @Override
+    public boolean test( final ENTITY entity ) {
+      final Integer value = ( Integer ) forField.queryfield.valueExtractor().apply( entity ) ;
+      if( value == null ) {
+        return forField.operator.apply( null, parameter, null ) ;
+      } else {
+        return scalarOrdering.test( parameter, value ) ;
+      }
+    }
+  }
+
+  private static final class Generic< ENTITY > extends Node< ENTITY > {
+    private final QueryField queryField ;
+    private final Operator operator ;
+    private final Object operatorContext ;
+    private final Object parameter ;
+    private final int cost ;
+
+    Generic(
+        final Evaluator.ForField forField,
+        final Object operatorContext,
+        final int cost
+    ) {
+      this.queryField = forField.queryfield ;
+      this.operator = forField.operator ;
+      this.parameter = forField.parameter ;
+      this.operatorContext = operatorContext ;
+      this.cost = cost ;
+    }
+
+    @Override
+    int cost() {
+      return cost ;
+    }
+
+    @SuppressWarnings( "unchecked" )
+    @Override
+    public boolean test( final ENTITY entity ) {
+      final Object value = queryField.valueExtractor().apply( entity ) ;
+      return operator.apply( operatorContext, parameter, value ) ;
+    }
+  }
+
+  private static final class Not< ENTITY > extends Node< ENTITY > {
+    private final Node< ENTITY > negated ;
+
+    Not( final Node< ENTITY > negated ) {
+      this.negated = negated ;
+    }
+
+    @Override
+    int cost() {
+      return negated.cost() ;
+    }
+
+    @Override
+    public boolean test( final ENTITY entity ) {
+      return ! negated.test( entity ) ;
+    }
+  }
+
+  static final class And< ENTITY > extends Node< ENTITY > {
+    final Node< ENTITY >[] children ;
+    private final int cost ;
+
+    And( final Node< ENTITY >[] children ) {
+      this.children = children ;
+      this.cost = totalCost( children ) ;
+    }
+
+    @Override
+    int cost() {
+      return cost ;
+    }
+
+    @Override
+    public boolean test( final ENTITY entity ) {
+      for( final Node< ENTITY > child : children ) {
+        if( ! child.test( entity ) ) {
+          return false ;
+        }
+      }
+      return true ;
+    }
+  }
+
+  private static final class Or< ENTITY > extends Node< ENTITY > {
+    private final Node< ENTITY >[] children ;
+    private final int cost ;
+
+    Or( final Node< ENTITY >[] children ) {
+      this.children = children ;
+      this.cost = totalCost( children ) ;
+    }
+
+    @Override
+    int cost() {
+      return cost ;
+    }
+
+    @Override
+    public boolean test( final ENTITY entity ) {
+      for( final Node< ENTITY > child : children ) {
+        if( child.test( entity ) ) {
+          return true ;
+        }
+      }
+      return false ;
+    }
+  }
+
+  private static int totalCost( final Node< ? >[] nodes ) {
+    int cost = 0 ;
+    for( final Node< ? > node : nodes ) {
+      cost += node.cost() ;
+    }
+    return cost ;
+  }
+
+
+// ========
+// Indexing
+// ========
+
+  /**
+   * Creates an {@link IndexedEntities} with a sorted index for each given {@link QueryField},
+   * which must have been declared with {@link Builder#primitive(QueryField, ToLongFunction)}.
+   */
+  @SafeVarargs
+  public final IndexedEntities< ENTITY > index(
+      final Collection< ENTITY > entities,
+      final QueryField< ENTITY, ?, ?, ?, ?, ? >... indexedFields
+  ) {
+    final ImmutableMap.Builder<
+        QueryField< ENTITY, ?, ?, ?, ?, ? >,
+        IndexedEntities.SortedIndex< ENTITY >
+    > indexes = ImmutableMap.builder() ;
+    for( final QueryField< ENTITY, ?, ?, ?, ?, ? > queryField : indexedFields ) {
+      final ToLongFunction< ENTITY > extractor = primitiveExtractors.get( queryField ) ;
+      checkArgument( extractor != null, "No primitive extractor for " + queryField ) ;
+      indexes.put( queryField, new IndexedEntities.SortedIndex<>( entities, extractor ) ) ;
+    }
+    return new IndexedEntities<>( ImmutableList.copyOf( entities ), indexes.build() ) ;
+  }
+
+}
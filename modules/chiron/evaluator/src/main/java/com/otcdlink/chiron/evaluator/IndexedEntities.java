@@ -0,0 +1,172 @@
+package com.otcdlink.chiron.evaluator;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
+
+import java.util.AbstractList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+import java.util.RandomAccess;
+import java.util.function.ToLongFunction;
+
+import static com.google.common.base.Preconditions.checkNotNull;
+
+/**
+ * A snapshot of entities with optional {@link SortedIndex}es, to be filtered by
+ * {@link CompiledEvaluator#select(IndexedEntities)}.
+ * Create it with {@link EvaluatorCompiler#index(Collection, QueryField[])}.
+ * The snapshot is immutable, so it must be recreated when entities change.
+ */
+public final class IndexedEntities< ENTITY > {
+
+  final ImmutableList< ENTITY > all ;
+
+  final ImmutableMap< QueryField< ENTITY, ?, ?, ?, ?, ? >, SortedIndex< ENTITY > > indexes ;
+
+  IndexedEntities(
+      final ImmutableList< ENTITY > all,
+      final ImmutableMap< QueryField< ENTITY, ?, ?, ?, ?, ? >, SortedIndex< ENTITY > > indexes
+  ) {
+    this.all = checkNotNull( all ) ;
+    this.indexes = checkNotNull( indexes ) ;
+  }
+
+  public ImmutableList< ENTITY > all() {
+    return all ;
+  }
+
+  public int size() {
+    return all.size() ;
+  }
+
+  @Override
+  public String toString() {
+    return getClass().getSimpleName() + "{size=" + all.size() + ";indexes=" +
+        indexes.keySet() + "}" ;
+  }
+
+  /**
+   * Entities sorted by a {@code long} key, with parallel arrays so a binary search touches
+   * only a {@code long[]}.
+   */
+  static final class SortedIndex< ENTITY > {
+    private final long[] keys ;
+    private final Object[] entities ;
+
+    SortedIndex( final Collection< ENTITY > unsorted, final ToLongFunction< ENTITY > extractor ) {
+      final int size = unsorted.size() ;
+      final KeyedEntity[] keyedEntities = new KeyedEntity[ size ] ;
+      int index = 0 ;
+      for( final ENTITY entity : unsorted ) {
+        keyedEntities[ index ++ ] = new KeyedEntity( extractor.applyAsLong( entity ), entity ) ;
+      }
+      Arrays.sort( keyedEntities, ( first, second ) -> Long.compare( first.key, second.key ) ) ;
+      keys = new long[ size ] ;
+      entities = new Object[ size ] ;
+      for( int i = 0 ; i < size ; i ++ ) {
+        keys[ i ] = keyedEntities[ i ].key ;
+        entities[ i ] = keyedEntities[ i ].entity ;
+      }
+    }
+
+    /**
+     * Returns the entities for which {@link QueryOperators.ScalarOrdering#test(long, long)}
+     * evaluates to {@code true}, given the {@code parameter} and the key of the entity as
+     * value.
+     */
+    List< ENTITY > slice(
+        final QueryOperators.ScalarOrdering scalarOrdering,
+        final long parameter
+    ) {
+      switch( scalarOrdering ) {
+        case STRICTLY_GREATER_THAN :      // value < parameter
+          return view( 0, firstIndexNotBelow( parameter ) ) ;
+        case GREATER_THAN_OR_EQUAL_TO :   // value <= parameter
+          return view( 0, firstIndexAbove( parameter ) ) ;
+        case EQUAL_TO :
+          return view( firstIndexNotBelow( parameter ), firstIndexAbove( parameter ) ) ;
+        case STRICTLY_LOWER_THAN :        // value > parameter
+          return view( firstIndexAbove( parameter ), keys.length ) ;
+        case LOWER_THAN_OR_EQUAL_TO :     // value >= parameter
+          return view( firstIndexNotBelow( parameter ), keys.length ) ;
+        default :
+          throw new IllegalArgumentException( "Unsupported: " + scalarOrdering ) ;
+      }
+    }
+
+    private int firstIndexNotBelow( final long key ) {
+      int low = 0 ;
+      int high = keys.length ;
+      while( low < high ) {
+        final int middle = ( low + high ) >>> 1 ;
+        if( keys[ middle ] < key ) {
+          low = middle + 1 ;
+        } else {
+          high = middle ;
+        }
+      }
+      return low ;
+    }
+
+    private int firstIndexAbove( final long key ) {
+      int low = 0 ;
+      int high = keys.length ;
+      while( low < high ) {
+        final int middle = ( low + high ) >>> 1 ;
+        if( keys[ middle ] <= key ) {
+          low = middle + 1 ;
+        } else {
+          high = middle ;
+        }
+      }
+      return low ;
+    }
+
+    private List< ENTITY > view( final int fromInclusive, final int toExclusive ) {
+      return new Slice<>( entities, fromInclusive, toExclusive ) ;
+    }
+
+    private static final class KeyedEntity {
+      final long key ;
+      final Object entity ;
+
+      KeyedEntity( final long key, final Object entity ) {
+        this.key = key ;
+        this.entity = entity ;
+      }
+    }
+  }
+
+  /**
+   * Read-only view on a part of an array, supports efficient splitting by parallel
+   * {@code Stream}s because it is {@link RandomAccess}.
+   */
+  private static final class Slice< ENTITY > extends AbstractList< ENTITY >
+      implements RandomAccess
+  {
+    private final Object[] array ;
+    private final int offset ;
+    private final int size ;
+
+    Slice( final Object[] array, final int fromInclusive, final int toExclusive ) {
+      this.array = array ;
+      this.offset = fromInclusive ;
+      this.size = Math.max( 0, toExclusive - fromInclusive ) ;
+    }
+
+    @SuppressWarnings( "unchecked" )
+    @Override
+    public ENTITY get( final int index ) {
+      if( index < 0 || index >= size ) {
+        throw new IndexOutOfBoundsException( "Index: " + index + ", size: " + size ) ;
+      }
+      return ( ENTITY ) array[ offset + index ] ;
+    }
+
+    @Override
+    public int size() {
+      return size ;
+    }
+  }
+}
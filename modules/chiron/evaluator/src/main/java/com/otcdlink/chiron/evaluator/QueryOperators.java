@@ -32,6 +32,27 @@ public interface QueryOperators {
       this.comparisonResultEvaluator = comparisonResultEvaluator ;
     }
 
+    /**
+     * Same result as {@link #comparisonResultEvaluator} applied to the comparison of
+     * {@code parameter} with {@code value}, without boxing nor {@code Comparator} call.
+     */
+    public boolean test( final long parameter, final long value ) {
+      switch( this ) {
+        case STRICTLY_GREATER_THAN :
+          return parameter > value ;
+        case GREATER_THAN_OR_EQUAL_TO :
+          return parameter >= value ;
+        case EQUAL_TO :
+          return parameter == value ;
+        case STRICTLY_LOWER_THAN :
+          return parameter < value ;
+        case LOWER_THAN_OR_EQUAL_TO :
+          return parameter <= value ;
+        default :
+          throw new IllegalArgumentException( "Unsupported: " + this ) ;
+      }
+    }
+
   }
   enum DateTimeOperator implements Operator< DateTime, DateTime, DateTime > {
 
@@ -53,6 +74,10 @@ public interface QueryOperators {
       return scalarOrdering.symbol ;
     }
 
+    public QueryOperators.ScalarOrdering scalarOrdering() {
+      return scalarOrdering ;
+    }
+
     @Override
     public boolean apply(
         final DateTime context,
@@ -164,6 +189,10 @@ public interface QueryOperators {
       return scalarOrdering.symbol ;
     }
 
+    public QueryOperators.ScalarOrdering scalarOrdering() {
+      return scalarOrdering ;
+    }
+
     @Override
     public boolean apply( final Void context, final Integer parameter, final Integer value ) {
       return scalarOrdering.comparisonResultEvaluator.test(
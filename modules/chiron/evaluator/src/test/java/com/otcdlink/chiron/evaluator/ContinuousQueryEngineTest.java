@@ -0,0 +1,208 @@
+package com.otcdlink.chiron.evaluator;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableSet;
+import org.joda.time.DateTime;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Consumer;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class ContinuousQueryEngineTest {
+
+  @Test
+  void initialSnapshot() {
+    engine.subscribe( "Alice", SOME_INT_ABOVE_10, ImmutableList.of( E1_5, E2_20, E3_30 ) ) ;
+    assertThat( recorder.drain() )
+        .containsExactly( "Alice entered E2/20", "Alice entered E3/30" ) ;
+  }
+
+  @Test
+  void enterUpdateLeave() {
+    final ContinuousQueryEngine.Subscription< String, EvaluatorFixture.MyEntity > subscription =
+        engine.subscribe( "Alice", SOME_INT_ABOVE_10, ImmutableList.of( E1_5 ) ) ;
+    assertThat( recorder.drain() ).isEmpty() ;
+
+    engine.updated(
+        entity( "E1", 15 ),
+        ImmutableSet.of( EvaluatorFixture.MyEntitiyField.SOME_INT )
+    ) ;
+    assertThat( recorder.drain() ).containsExactly( "Alice entered E1/15" ) ;
+    assertThat( subscription.matchCount() ).isEqualTo( 1 ) ;
+
+    engine.updated(
+        entity( "E1", 16 ),
+        ImmutableSet.of( EvaluatorFixture.MyEntitiyField.SOME_INT )
+    ) ;
+    assertThat( recorder.drain() ).containsExactly( "Alice updated E1/16" ) ;
+
+    engine.updated(
+        entity( "E1", 1 ),
+        ImmutableSet.of( EvaluatorFixture.MyEntitiyField.SOME_INT )
+    ) ;
+    assertThat( recorder.drain() ).containsExactly( "Alice left E1/1" ) ;
+    assertThat( subscription.matchCount() ).isEqualTo( 0 ) ;
+  }
+
+  @Test
+  void unrelatedFieldChangeOnlyUpdatesContainingSubscriptions() {
+    engine.subscribe( "Alice", SOME_INT_ABOVE_10, ImmutableList.of( E2_20 ) ) ;
+    engine.subscribe( "Bob", SOME_INT_ABOVE_10, ImmutableList.of() ) ;
+    recorder.drain() ;
+
+    engine.updated(
+        entity( "E2", 20 ),
+        ImmutableSet.of( EvaluatorFixture.MyEntitiyField.SOME_DATE )
+    ) ;
+    assertThat( recorder.drain() ).containsExactly( "Alice updated E2/20" ) ;
+  }
+
+  @Test
+  void createAndRemove() {
+    engine.subscribe( "Alice", SOME_INT_ABOVE_10, ImmutableList.of() ) ;
+    engine.subscribe( "Bob", SOME_INT_ABOVE_10.negate(), ImmutableList.of() ) ;
+
+    engine.created( E3_30 ) ;
+    engine.created( E1_5 ) ;
+    assertThat( recorder.drain() ).containsExactly( "Alice entered E3/30", "Bob entered E1/5" ) ;
+
+    engine.removed( E3_30 ) ;
+    assertThat( recorder.drain() ).containsExactly( "Alice left E3/30" ) ;
+  }
+
+  @Test
+  void unsubscribeAll() {
+    engine.subscribe( "Alice", SOME_INT_ABOVE_10, ImmutableList.of( E2_20 ) ) ;
+    engine.subscribe( "Alice", SOME_INT_ABOVE_10.negate(), ImmutableList.of( E2_20 ) ) ;
+    recorder.drain() ;
+    assertThat( engine.subscriptions( "Alice" ) ).hasSize( 2 ) ;
+
+    engine.unsubscribeAll( "Alice" ) ;
+    assertThat( engine.subscriptionCount() ).isEqualTo( 0 ) ;
+    engine.removed( E2_20 ) ;
+    engine.created( E3_30 ) ;
+    assertThat( recorder.drain() ).isEmpty() ;
+  }
+  @Test
+  void unsubscribeFromCallback() {
+    engine.subscribe( "Alice", SOME_INT_ABOVE_10, ImmutableList.of() ) ;
+    engine.subscribe( "Alice", SOME_INT_ABOVE_10, ImmutableList.of() ) ;
+    engine.subscribe( "Bob", SOME_INT_ABOVE_10, ImmutableList.of() ) ;
+    recorder.reaction = subscription -> {
+      if( "Alice".equals( subscription.subscriber ) ) {
+        engine.unsubscribeAll( "Alice" ) ;
+      }
+    } ;
+
+    engine.created( E3_30 ) ;
+    assertThat( recorder.drain() )
+        .describedAs( "Second subscription of Alice went away in the meantime" )
+        .containsExactly( "Alice entered E3/30", "Bob entered E3/30" ) ;
+
+    engine.subscribe( "Carol", SOME_INT_ABOVE_10, ImmutableList.of( E3_30 ) ) ;
+    recorder.drain() ;
+    recorder.reaction = subscription -> {
+      if( "Bob".equals( subscription.subscriber ) ) {
+        engine.unsubscribeAll( "Carol" ) ;
+      }
+    } ;
+    engine.updated( entity( "E3", 31 ) ) ;
+    assertThat( recorder.drain() ).containsExactly( "Bob updated E3/31" ) ;
+
+    recorder.reaction = subscription -> engine.unsubscribeAll( "Bob" ) ;
+    engine.removed( E3_30 ) ;
+    assertThat( recorder.drain() ).containsExactly( "Bob left E3/30" ) ;
+    assertThat( engine.subscriptionCount() ).isEqualTo( 0 ) ;
+  }
+
+
+// =======
+// Fixture
+// =======
+
+  private final Recorder recorder = new Recorder() ;
+
+  private final ContinuousQueryEngine< String, String, EvaluatorFixture.MyEntity > engine =
+      new ContinuousQueryEngine<>(
+          EvaluatorCompiler.< EvaluatorFixture.MyEntity >newBuilder().build(),
+          myEntity -> myEntity.someString,
+          recorder
+      )
+  ;
+
+  private static EvaluatorFixture.MyEntity entity( final String key, final int someInt ) {
+    return new EvaluatorFixture.MyEntity( new DateTime( 0 ), key, someInt ) ;
+  }
+
+  private static final EvaluatorFixture.MyEntity E1_5 = entity( "E1", 5 ) ;
+  private static final EvaluatorFixture.MyEntity E2_20 = entity( "E2", 20 ) ;
+  private static final EvaluatorFixture.MyEntity E3_30 = entity( "E3", 30 ) ;
+
+  /**
+   * {@link QueryOperators.IntegerOperator} compares the parameter to the value.
+   */
+  private static final Evaluator<
+      EvaluatorFixture.MyEntity,
+      EvaluatorFixture.MyContext,
+      EvaluatorFixture.MyEntitiyField< ?, ?, ?, ? >
+  > SOME_INT_ABOVE_10 = EvaluatorFixture.MyEntitiyField.empty( null ).field(
+      EvaluatorFixture.MyEntitiyField.SOME_INT,
+      QueryOperators.IntegerOperator.STRICTLY_LOWER_THAN,
+      10
+  ) ;
+
+  private static final class Recorder
+      implements ContinuousQueryOutwardDuty< String, EvaluatorFixture.MyEntity >
+  {
+    private final List< String > events = new ArrayList<>() ;
+
+    /**
+     * Runs after recording, like some Logic reacting to a notification.
+     */
+    private Consumer< ContinuousQueryEngine.Subscription< String, EvaluatorFixture.MyEntity > >
+        reaction = subscription -> { } ;
+
+    @Override
+    public void entered(
+        final ContinuousQueryEngine.Subscription< String, EvaluatorFixture.MyEntity > subscription,
+        final EvaluatorFixture.MyEntity entity
+    ) {
+      record( subscription, "entered", entity ) ;
+    }
+
+    @Override
+    public void updated(
+        final ContinuousQueryEngine.Subscription< String, EvaluatorFixture.MyEntity > subscription,
+        final EvaluatorFixture.MyEntity entity
+    ) {
+      record( subscription, "updated", entity ) ;
+    }
+
+    @Override
+    public void left(
+        final ContinuousQueryEngine.Subscription< String, EvaluatorFixture.MyEntity > subscription,
+        final EvaluatorFixture.MyEntity entity
+    ) {
+      record( subscription, "left", entity ) ;
+    }
+
+    private void record(
+        final ContinuousQueryEngine.Subscription< String, EvaluatorFixture.MyEntity > subscription,
+        final String what,
+        final EvaluatorFixture.MyEntity entity
+    ) {
+      events.add( subscription.subscriber + " " + what + " " +
+          entity.someString + "/" + entity.someInt ) ;
+      reaction.accept( subscription ) ;
+    }
+
+    public ImmutableList< String > drain() {
+      final ImmutableList< String > copy = ImmutableList.copyOf( events ) ;
+      events.clear() ;
+      return copy ;
+    }
+  }
+}
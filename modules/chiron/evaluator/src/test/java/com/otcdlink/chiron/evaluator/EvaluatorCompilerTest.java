@@ -0,0 +1,175 @@
+package com.otcdlink.chiron.evaluator;
+
+import com.google.common.collect.ImmutableList;
+import org.joda.time.DateTime;
+import org.junit.jupiter.api.Test;
+
+import java.util.HashSet;
+import java.util.Random;
+import java.util.regex.Pattern;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class EvaluatorCompilerTest {
+
+  @Test
+  void sameResultAsInterpreted() {
+    for( final Evaluator< EvaluatorFixture.MyEntity, ?, ? > evaluator : EVALUATORS ) {
+      final CompiledEvaluator< EvaluatorFixture.MyEntity > compiled =
+          COMPILER.compile( evaluator ) ;
+      for( final EvaluatorFixture.MyEntity entity : ENTITIES ) {
+        assertThat( compiled.test( entity ) )
+            .describedAs( evaluator.asString() )
+            .isEqualTo( evaluator.evaluate( entity ) ) ;
+      }
+    }
+  }
+
+  @Test
+  void sameResultWithoutPrimitiveExtractor() {
+    final EvaluatorCompiler< EvaluatorFixture.MyEntity > compiler =
+        EvaluatorCompiler.< EvaluatorFixture.MyEntity >newBuilder().build() ;
+    for( final Evaluator< EvaluatorFixture.MyEntity, ?, ? > evaluator : EVALUATORS ) {
+      final CompiledEvaluator< EvaluatorFixture.MyEntity > compiled =
+          compiler.compile( evaluator ) ;
+      for( final EvaluatorFixture.MyEntity entity : ENTITIES ) {
+        assertThat( compiled.test( entity ) )
+            .describedAs( evaluator.asString() )
+            .isEqualTo( evaluator.evaluate( entity ) ) ;
+      }
+    }
+  }
+
+  @Test
+  void sameResultWithSampledSelectivity() {
+    for( final Evaluator< EvaluatorFixture.MyEntity, ?, ? > evaluator : EVALUATORS ) {
+      final CompiledEvaluator< EvaluatorFixture.MyEntity > compiled =
+          COMPILER.compile( evaluator, ENTITIES.subList( 0, 100 ) ) ;
+      assertThat( compiled.select( ENTITIES ) )
+          .describedAs( evaluator.asString() )
+          .containsExactlyElementsOf( interpreted( evaluator ) ) ;
+    }
+  }
+
+  @Test
+  void indexedSelection() {
+    final IndexedEntities< EvaluatorFixture.MyEntity > indexedEntities = COMPILER.index(
+        ENTITIES,
+        EvaluatorFixture.MyEntitiyField.SOME_INT,
+        EvaluatorFixture.MyEntitiyField.SOME_DATE
+    ) ;
+    for( final Evaluator< EvaluatorFixture.MyEntity, ?, ? > evaluator : EVALUATORS ) {
+      final CompiledEvaluator< EvaluatorFixture.MyEntity > compiled =
+          COMPILER.compile( evaluator ) ;
+      assertThat( new HashSet<>( compiled.select( indexedEntities ) ) )
+          .describedAs( evaluator.asString() )
+          .isEqualTo( new HashSet<>( interpreted( evaluator ) ) ) ;
+    }
+  }
+
+  @Test
+  void parallelSelection() {
+    final EvaluatorCompiler< EvaluatorFixture.MyEntity > compiler =
+        EvaluatorCompiler.< EvaluatorFixture.MyEntity >newBuilder()
+            .primitive( EvaluatorFixture.MyEntitiyField.SOME_INT, myEntity -> myEntity.someInt )
+            .parallelThreshold( 10 )
+            .build()
+    ;
+    for( final Evaluator< EvaluatorFixture.MyEntity, ?, ? > evaluator : EVALUATORS ) {
+      assertThat( compiler.compile( evaluator ).select( ENTITIES ) )
+          .describedAs( evaluator.asString() )
+          .containsExactlyElementsOf( interpreted( evaluator ) ) ;
+    }
+  }
+
+
+// =======
+// Fixture
+// =======
+
+  private static ImmutableList< EvaluatorFixture.MyEntity > interpreted(
+      final Evaluator< EvaluatorFixture.MyEntity, ?, ? > evaluator
+  ) {
+    final ImmutableList.Builder< EvaluatorFixture.MyEntity > builder = ImmutableList.builder() ;
+    for( final EvaluatorFixture.MyEntity entity : ENTITIES ) {
+      if( evaluator.evaluate( entity ) ) {
+        builder.add( entity ) ;
+      }
+    }
+    return builder.build() ;
+  }
+
+  private static final EvaluatorCompiler< EvaluatorFixture.MyEntity > COMPILER =
+      EvaluatorCompiler.< EvaluatorFixture.MyEntity >newBuilder()
+          .primitive( EvaluatorFixture.MyEntitiyField.SOME_INT, myEntity -> myEntity.someInt )
+          .primitive(
+              EvaluatorFixture.MyEntitiyField.SOME_DATE,
+              myEntity -> myEntity.someDate.getMillis()
+          )
+          .build()
+  ;
+
+  private static final ImmutableList< EvaluatorFixture.MyEntity > ENTITIES ;
+  static {
+    final Random random = new Random( 0 ) ;
+    final ImmutableList.Builder< EvaluatorFixture.MyEntity > builder = ImmutableList.builder() ;
+    for( int i = 0 ; i < 1000 ; i ++ ) {
+      builder.add( new EvaluatorFixture.MyEntity(
+          new DateTime( ( long ) random.nextInt( 100 ) ),
+          random.nextBoolean() ? "Foo" : "Bar",
+          random.nextInt( 50 )
+      ) ) ;
+    }
+    ENTITIES = builder.build() ;
+  }
+
+  private static final Evaluator<
+      EvaluatorFixture.MyEntity,
+      EvaluatorFixture.MyContext,
+      EvaluatorFixture.MyEntitiyField< ?, ?, ?, ? >
+  > EMPTY = EvaluatorFixture.MyEntitiyField.empty(
+      new EvaluatorFixture.MyContext( new DateTime( 50 ) ) ) ;
+
+  private static final ImmutableList< Evaluator< EvaluatorFixture.MyEntity, ?, ? > > EVALUATORS =
+      ImmutableList.of(
+          EMPTY,
+          EMPTY.field(
+              EvaluatorFixture.MyEntitiyField.SOME_INT,
+              QueryOperators.IntegerOperator.STRICTLY_LOWER_THAN,
+              10
+          ),
+          EMPTY.field(
+              EvaluatorFixture.MyEntitiyField.SOME_INT,
+              QueryOperators.IntegerOperator.EQUAL_TO,
+              7
+          ).negate(),
+          EMPTY.field(
+              EvaluatorFixture.MyEntitiyField.SOME_DATE,
+              QueryOperators.DateTimeOperator.GREATER_THAN_OR_EQUAL_TO,
+              null  // Uses the date from MyContext.
+          ).and( EMPTY.field(
+              EvaluatorFixture.MyEntitiyField.SOME_INT,
+              QueryOperators.IntegerOperator.LOWER_THAN_OR_EQUAL_TO,
+              20
+          ) ),
+          EMPTY.field(
+              EvaluatorFixture.MyEntitiyField.SOME_TEXT,
+              QueryOperators.TextOperator.MATCHES,
+              Pattern.compile( "F.*" )
+          ).and( EMPTY.field(
+              EvaluatorFixture.MyEntitiyField.SOME_DATE,
+              QueryOperators.DateTimeOperator.STRICTLY_GREATER_THAN,
+              new DateTime( 30 )
+          ) ).or( EMPTY.field(
+              EvaluatorFixture.MyEntitiyField.SOME_STRING,
+              QueryOperators.StringOperator.EQUAL_TO,
+              "Bar"
+          ).and( EMPTY.field(
+              EvaluatorFixture.MyEntitiyField.SOME_INT,
+              QueryOperators.IntegerOperator.STRICTLY_GREATER_THAN,
+              25
+          ) ) )
+      )
+  ;
+
+}
@@ -18,6 +18,7 @@ import org.slf4j.Logger;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.concurrent.Future;
+import java.util.concurrent.ThreadLocalRandom;
 import java.util.concurrent.TimeUnit;
 
 import static com.google.common.base.Preconditions.checkArgument;
@@ -68,6 +69,17 @@ public class Junction {
     this.lagMs = lagMs ;
   }
 
+  private volatile int jitterMs = 0 ;
+
+  /**
+   * Adds a random delay between 0 and {@code jitterMs} to {@link #lag(int)}, for each
+   * transfer. Delivery order doesn't change.
+   */
+  public void jitter( final int jitterMs ) {
+    checkArgument( jitterMs >= 0 ) ;
+    this.jitterMs = jitterMs ;
+  }
+
 
 // =====================
 // Pipeline configurator
@@ -186,7 +198,9 @@ public class Junction {
 
   private void ingressExit( final TcpTransitServer.Transfer.IngressExit transferAtIngressExit ) {
 //    logger.debug( "Reached Ingress exit: " + transferAtIngressExit + "." ) ;
-    final int currentLag = this.lagMs ;
+    final int currentJitter = this.jitterMs ;
+    final int currentLag = this.lagMs +
+        ( currentJitter == 0 ? 0 : ThreadLocalRandom.current().nextInt( currentJitter + 1 ) ) ;
     final Collection<TcpTransitServer.Transfer.Delayed< ? >> pendingTasks =
         destinationDelayedTransferMap.get( transferAtIngressExit.origin() ) ;
 
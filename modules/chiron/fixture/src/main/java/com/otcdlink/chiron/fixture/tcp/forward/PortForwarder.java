@@ -1,6 +1,7 @@
 package com.otcdlink.chiron.fixture.tcp.forward;
 
 import com.otcdlink.chiron.fixture.tcp.AbstractTcpTransitServer;
+import com.otcdlink.chiron.fixture.tcp.Junction;
 import com.otcdlink.chiron.toolbox.internet.HostPort;
 import io.netty.channel.Channel;
 import io.netty.channel.EventLoopGroup;
@@ -126,6 +127,41 @@ public final class PortForwarder extends AbstractTcpTransitServer {
 
 
 
+// ===========
+// Degradation
+// ===========
+
+  private volatile int lagMs = 0 ;
+
+  private volatile int jitterMs = 0 ;
+
+  /**
+   * @see Junction#lag(int)
+   */
+  public void lag( final int lagMs ) {
+    checkArgument( lagMs >= 0 ) ;
+    this.lagMs = lagMs ;
+    applyToAll( junction -> junction.lag( lagMs ) ) ;
+    LOGGER.info( "Lag set to " + lagMs + " ms for " + this + "." ) ;
+  }
+
+  /**
+   * @see Junction#jitter(int)
+   */
+  public void jitter( final int jitterMs ) {
+    checkArgument( jitterMs >= 0 ) ;
+    this.jitterMs = jitterMs ;
+    applyToAll( junction -> junction.jitter( jitterMs ) ) ;
+    LOGGER.info( "Jitter set to " + jitterMs + " ms for " + this + "." ) ;
+  }
+
+  @Override
+  protected void prepare( final Junction junction ) {
+    junction.lag( lagMs ) ;
+    junction.jitter( jitterMs ) ;
+  }
+
+
 // =========
 // Lifecycle
 // =========
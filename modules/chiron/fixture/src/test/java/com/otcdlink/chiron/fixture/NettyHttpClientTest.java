@@ -147,6 +147,72 @@ public class NettyHttpClientTest {
     }
   }
 
+  @Test( timeout = TIMEOUT )
+  public void pooledConnectionReused() throws Exception {
+    Thread.currentThread().setName( "JUnit" ) ;
+
+    final HttpServer httpServer = httpServer( port, "/", HttpHandlers.getOk() ) ;
+
+    try(
+        final NettyHttpClient httpClient = new NettyHttpClient(
+            EventLoopGroupOwner.EventLoopGroupFactory::defaultFactory,
+            5_000,
+            null,
+            NettyHttpClient.Pooling.DEFAULT
+        )
+    ) {
+      httpClient.start().join() ;
+      final URL url = new URL( "http://localhost:" + port + "/" ) ;
+      final NettyHttpClient.Recorder recorder = new NettyHttpClient.Recorder() ;
+      for( int i = 0 ; i < 3 ; i ++ ) {
+        httpClient.httpGet( url, recorder ) ;
+        WatchedResponseAssert.assertThat( recorder.nextOutcome() ).isComplete() ;
+      }
+      final NettyHttpClient.PoolMetrics poolMetrics = httpClient.poolMetrics() ;
+      LOGGER.info( "Got " + poolMetrics + "." ) ;
+      assertThat( poolMetrics.connectionsOpened ).isEqualTo( 1 ) ;
+      assertThat( poolMetrics.requestsSent ).isEqualTo( 3 ) ;
+      assertThat( poolMetrics.openConnections ).isEqualTo( 1 ) ;
+    } finally {
+      httpServer.stop( 0 ) ;
+    }
+  }
+
+  @Test( timeout = TIMEOUT )
+  public void queuedRequestTimesOut() throws Exception {
+    Thread.currentThread().setName( "JUnit" ) ;
+
+    // Never responds.
+    final HttpServer httpServer = httpServer( port, "/", compose() ) ;
+    final int requestTimeoutMs = 1_000 ;
+
+    try(
+        final NettyHttpClient httpClient = new NettyHttpClient(
+            EventLoopGroupOwner.EventLoopGroupFactory::defaultFactory,
+            requestTimeoutMs,
+            null,
+            new NettyHttpClient.Pooling( 1, 1, 30_000 )
+        )
+    ) {
+      httpClient.start().join() ;
+      final URL url = new URL( "http://localhost:" + port + "/" ) ;
+      final NettyHttpClient.Recorder recorder = new NettyHttpClient.Recorder() ;
+      final long start = System.currentTimeMillis() ;
+      httpClient.httpGet( url, recorder ) ;
+      httpClient.httpGet( url, recorder ) ;
+      for( int i = 0 ; i < 2 ; i ++ ) {
+        final NettyHttpClient.Outcome outcome = recorder.nextOutcome() ;
+        assertThat( outcome ).isInstanceOf( NettyHttpClient.NoResponse.class ) ;
+        assertThat( ( ( NettyHttpClient.NoResponse ) outcome ).cause )
+            .isEqualTo( NettyHttpClient.Recorder.NoResponseCause.TIMEOUT ) ;
+      }
+      // Without counting the time spent in the queue, the second one would take twice as long.
+      assertThat( System.currentTimeMillis() - start ).isLessThan( requestTimeoutMs * 3 / 2 ) ;
+    } finally {
+      httpServer.stop( 0 ) ;
+    }
+  }
+
   @Test( timeout = TIMEOUT )
   public void followRedirect() throws Exception {
     Thread.currentThread().setName( "JUnit" ) ;
@@ -4,8 +4,11 @@ import com.otcdlink.chiron.buffer.BytebufTools;
 import com.otcdlink.chiron.buffer.PositionalFieldWriter;
 import com.otcdlink.chiron.command.Command;
 import com.otcdlink.chiron.command.CommandConsumer;
+import com.otcdlink.chiron.command.Stamp;
 import com.otcdlink.chiron.command.codec.Encoder;
 import com.otcdlink.chiron.toolbox.ToStringTools;
+import com.otcdlink.chiron.toolbox.metrics.Counter;
+import com.otcdlink.chiron.toolbox.metrics.MetricRegistry;
 import com.otcdlink.chiron.toolbox.text.LineBreak;
 import io.netty.buffer.ByteBuf;
 import io.netty.buffer.Unpooled;
@@ -99,10 +102,51 @@ public abstract class AbstractJournalPersister< DESIGNATOR, DUTY, SINK extends C
   private SINK sink = null ;
   private long writtenBytes ;
 
+  /**
+   * May be {@code null}.
+   */
+  private JournalReplicator replicator = null ;
+
+  public static final String METRIC_PREFIX = "journal" ;
+
+  /**
+   * Never {@code null}, counts nothing visible unless {@link #recordMetrics(MetricRegistry)}
+   * happened.
+   */
+  private Counter lineCounter = MetricRegistry.NULL.counter( METRIC_PREFIX + ".lines" ) ;
+
+  /**
+   * Never {@code null}, counts nothing visible unless {@link #recordMetrics(MetricRegistry)}
+   * happened.
+   */
+  private Counter byteCounter = MetricRegistry.NULL.counter( METRIC_PREFIX + ".bytes" ) ;
+
+  /**
+   * Makes every subsequent line count in {@code journal.lines} and {@code journal.bytes}.
+   * Those are monotonic {@link Counter}s, so lines and bytes per second come from the
+   * difference between two reads.
+   */
+  public void recordMetrics( final MetricRegistry metricRegistry ) {
+    checkState( sink == null, "Already open" ) ;
+    lineCounter = metricRegistry.counter( METRIC_PREFIX + ".lines" ) ;
+    byteCounter = metricRegistry.counter( METRIC_PREFIX + ".bytes" ) ;
+  }
+
+  /**
+   * Makes every subsequent line also go to given {@link JournalReplicator}.
+   */
+  public void replicateTo( final JournalReplicator replicator ) {
+    checkState( sink == null, "Already open" ) ;
+    this.replicator = checkNotNull( replicator ) ;
+  }
+
   @SuppressWarnings( "IOResourceOpenedButNotSafelyClosed" )
   @Override
   public void open() throws IOException {
     checkState( sink == null, "Already open" ) ;
+    if( replicator != null ) {
+      replicator.journalOpened() ;
+    }
     sink = createSink() ;
     writtenBytes = 0 ;
     prepareWrite() ;
@@ -149,6 +193,9 @@ public abstract class AbstractJournalPersister< DESIGNATOR, DUTY, SINK extends C
       LOGGER.info( "Closed " + this + "." ) ;
     } finally {
       sink = null ;
+      if( replicator != null ) {
+        replicator.journalClosed() ;
+      }
     }
   }
 
@@ -162,6 +209,8 @@ public abstract class AbstractJournalPersister< DESIGNATOR, DUTY, SINK extends C
    * with 1000 {@link Command}/s, so replaying a day of 8 hours would take 160 s.
    * Real-world figures will differ, because of {@link Command} size, rotating disk, number of
    * cores, and processor frequency.
+   * {@code CommandStageJmhBenchmark#journalAccept} in {@code Chiron-benchmark} gives
+   * repeatable figures (without {@link #autoFlush}).
    */
   @Override
   public void autoFlush( final boolean flushEachLine ) {
@@ -187,6 +236,19 @@ public abstract class AbstractJournalPersister< DESIGNATOR, DUTY, SINK extends C
     }
   }
 
+  @Override
+  public void writeBoundary( final Stamp boundary ) throws IOException {
+    prepareWrite() ;
+    fieldWriter.writeAsciiUnsafe( IntradayPersistenceConstants.BOUNDARY ) ;
+    fieldWriter.writeAsciiUnsafe( " " ) ;
+    fieldWriter.writeAsciiUnsafe( boundary.asStringRoundedToFlooredSecond() ) ;
+    fieldWriter.writeAsciiUnsafe( lineBreak ) ;
+    completeWrite() ;
+    if( autoFlush ) {
+      flush( sink ) ;
+    }
+  }
+
   private void checkOpen() {
     checkState( sink != null, "Not open" ) ;
   }
@@ -201,7 +263,12 @@ public abstract class AbstractJournalPersister< DESIGNATOR, DUTY, SINK extends C
     lineByteBuffer.position( 0 ) ;
     lineByteBuffer.limit( lineByteBuf.writerIndex() ) ;
     writeByteBufferToSink( sink, lineByteBuffer, writtenBytes ) ;
+    if( replicator != null ) {
+      replicator.replicate( lineByteBuf, writtenBytes ) ;
+    }
     writtenBytes += lineByteBuf.writerIndex() ;
+    lineCounter.increment() ;
+    byteCounter.add( lineByteBuf.writerIndex() ) ;
   }
 
   /**
@@ -14,6 +14,13 @@ public interface IntradayPersistenceConstants {
 
   String MAGIC = "SchemaVersion" ;
 
+  /**
+   * Starts a line written by {@link JournalPersister#writeBoundary}.
+   * A line representing a {@link com.otcdlink.chiron.command.Command} can't start like this
+   * because it starts with a {@link com.otcdlink.chiron.command.Stamp}.
+   */
+  String BOUNDARY = "Boundary" ;
+
 
   /**
    * Multiplatform-friendly so we can read files from one platform on another one.
@@ -79,9 +79,4 @@ public final class JournalFileChannelPersister< DESIGNATOR, DUTY >
     // Don't do anything, it's a memory-mapped file, let the OS decide when to flush.
     // sink.force( false ) ;
   }
-
-  @Override
-  public PersisterWhenFrozen whenFrozen() {
-    return new InnerLockablePersister() ;
-  }
 }
@@ -1,15 +1,13 @@
 package com.otcdlink.chiron.flow.journal;
 
 import com.google.common.base.Charsets;
-import com.otcdlink.chiron.buffer.BytebufCoat;
-import com.otcdlink.chiron.buffer.BytebufTools;
 import com.otcdlink.chiron.codec.CommandBodyDecoder;
-import com.otcdlink.chiron.codec.DecodeException;
 import com.otcdlink.chiron.command.Command;
 import com.otcdlink.chiron.command.codec.Decoder;
 import com.otcdlink.chiron.flow.journal.slicer.FileSlicer;
 import com.otcdlink.chiron.flow.journal.slicer.Slice;
 import com.otcdlink.chiron.toolbox.text.LineBreak;
+import io.netty.buffer.ByteBuf;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import reactor.core.publisher.SynchronousSink;
@@ -28,10 +26,7 @@ public class JournalFileReader< DESIGNATOR, DUTY >
   private static final Logger LOGGER = LoggerFactory.getLogger( JournalFileReader.class ) ;
 
   protected final File journalFile ;
-  private final Decoder< DESIGNATOR > designatorDecoder ;
-  private final boolean designatorDecoderFileAware ;
-  private final CommandBodyDecoder< DESIGNATOR, DUTY > commandBodyDecoder ;
-  private final BytebufTools.Coating coating = BytebufTools.threadLocalRecyclableCoating() ;
+  private final JournalLineDecoder< DESIGNATOR, DUTY > lineDecoder ;
   private final int expectedSchemaVersion ;
   private FileSlicer fileSlicer ;
   private final LineBreak lineBreak ;
@@ -60,10 +55,7 @@ public class JournalFileReader< DESIGNATOR, DUTY >
       final LineBreak lineBreak
   ) {
     this.journalFile = checkNotNull( journalFile ) ;
-    this.designatorDecoder = checkNotNull( designatorDecoder ) ;
-    this.designatorDecoderFileAware =
-        designatorDecoder instanceof FileDesignatorCodecTools.FileAwareDecoder ;
-    this.commandBodyDecoder = checkNotNull( commandBodyDecoder ) ;
+    this.lineDecoder = new JournalLineDecoder<>( designatorDecoder, commandBodyDecoder ) ;
     this.expectedSchemaVersion = expectedSchemaVersion ;
     this.lineBreak = checkNotNull( lineBreak ) ;
   }
@@ -102,6 +94,8 @@ public class JournalFileReader< DESIGNATOR, DUTY >
     try {
       if( slice.lineIndexInFile() == 0 ) {
         firstLine( slice ) ;
+      } else if( isBoundary( slice ) ) {
+        LOGGER.debug( "Skipping '" + slice.toString( Charsets.US_ASCII ) + "'." ) ;
       } else {
         synchronousSink.next( decode( slice ) ) ;
       }
@@ -120,27 +114,27 @@ public class JournalFileReader< DESIGNATOR, DUTY >
         slice.toString( Charsets.US_ASCII ) + "', to be done." ) ;
   }
 
-  private Command< DESIGNATOR, DUTY > decode( final Slice slice ) throws Exception {
-    final BytebufCoat coat = coating.coat( slice ) ;
-    final Command< DESIGNATOR, DUTY > command ;
-    try {
-      final DESIGNATOR designator ;
-      designator = designatorDecoder.decodeFrom( coat ) ;
-      final String commandName = coat.readDelimitedString() ;
-      final long lineNumber = slice.lineIndexInFile() + 2 ;
-      if( designatorDecoderFileAware ) {
-        ( ( FileDesignatorCodecTools.FileAwareDecoder ) designatorDecoder ).lineNumber(
-            lineNumber ) ;
-      }
-      command = commandBodyDecoder.decodeBody( designator, commandName, coat ) ;
-      if( command == null ) {
-        throw new DecodeException( "Failed to resolve '" + commandName + "' at line " +
-            lineNumber + "." ) ;
+  private static final byte[] BOUNDARY_PREFIX =
+      ( IntradayPersistenceConstants.BOUNDARY + " " ).getBytes( Charsets.US_ASCII ) ;
+
+  /**
+   * Detects what {@link JournalPersister#writeBoundary} wrote.
+   */
+  static boolean isBoundary( final ByteBuf line ) {
+    if( line.readableBytes() < BOUNDARY_PREFIX.length ) {
+      return false ;
+    }
+    final int readerIndex = line.readerIndex() ;
+    for( int i = 0 ; i < BOUNDARY_PREFIX.length ; i ++ ) {
+      if( line.getByte( readerIndex + i ) != BOUNDARY_PREFIX[ i ] ) {
+        return false ;
       }
-    } finally {
-      coating.recycle() ;
     }
-    return command ;
+    return true ;
+  }
+
+  private Command< DESIGNATOR, DUTY > decode( final Slice slice ) throws Exception {
+    return lineDecoder.decode( slice, slice.lineIndexInFile() + 2 ) ;
   }
 
 }
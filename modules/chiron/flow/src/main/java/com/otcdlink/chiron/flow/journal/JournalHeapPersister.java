@@ -76,11 +76,6 @@ public final class JournalHeapPersister< DESIGNATOR, DUTY >
     lastBytes = sink.toByteArray() ;
   }
 
-  @Override
-  public PersisterWhenFrozen whenFrozen() {
-    return new InnerLockablePersister() ;
-  }
-
   public final byte[] getBytes() {
     checkState( lastBytes != null ) ;
     return lastBytes ;
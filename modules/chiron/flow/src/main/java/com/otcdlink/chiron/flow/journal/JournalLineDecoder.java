@@ -0,0 +1,60 @@
+package com.otcdlink.chiron.flow.journal;
+
+import com.otcdlink.chiron.buffer.BytebufCoat;
+import com.otcdlink.chiron.buffer.BytebufTools;
+import com.otcdlink.chiron.codec.CommandBodyDecoder;
+import com.otcdlink.chiron.codec.DecodeException;
+import com.otcdlink.chiron.command.Command;
+import com.otcdlink.chiron.command.codec.Decoder;
+import io.netty.buffer.ByteBuf;
+
+import static com.google.common.base.Preconditions.checkNotNull;
+
+/**
+ * Decodes one journal line (without its line break) into a {@link Command}.
+ * Not thread-safe, because of {@link FileDesignatorCodecTools.FileAwareDecoder}.
+ */
+final class JournalLineDecoder< DESIGNATOR, DUTY > {
+
+  private final Decoder< DESIGNATOR > designatorDecoder ;
+  private final boolean designatorDecoderFileAware ;
+  private final CommandBodyDecoder< DESIGNATOR, DUTY > commandBodyDecoder ;
+  private final BytebufTools.Coating coating = BytebufTools.threadLocalRecyclableCoating() ;
+
+  JournalLineDecoder(
+      final Decoder< DESIGNATOR > designatorDecoder,
+      final CommandBodyDecoder< DESIGNATOR, DUTY > commandBodyDecoder
+  ) {
+    this.designatorDecoder = checkNotNull( designatorDecoder ) ;
+    this.designatorDecoderFileAware =
+        designatorDecoder instanceof FileDesignatorCodecTools.FileAwareDecoder ;
+    this.commandBodyDecoder = checkNotNull( commandBodyDecoder ) ;
+  }
+
+  /**
+   * @param lineNumber what a text editor would display, for diagnostics.
+   */
+  Command< DESIGNATOR, DUTY > decode( final ByteBuf line, final long lineNumber )
+      throws Exception
+  {
+    final BytebufCoat coat = coating.coat( line ) ;
+    final Command< DESIGNATOR, DUTY > command ;
+    try {
+      final DESIGNATOR designator ;
+      designator = designatorDecoder.decodeFrom( coat ) ;
+      final String commandName = coat.readDelimitedString() ;
+      if( designatorDecoderFileAware ) {
+        ( ( FileDesignatorCodecTools.FileAwareDecoder ) designatorDecoder ).lineNumber(
+            lineNumber ) ;
+      }
+      command = commandBodyDecoder.decodeBody( designator, commandName, coat ) ;
+      if( command == null ) {
+        throw new DecodeException( "Failed to resolve '" + commandName + "' at line " +
+            lineNumber + "." ) ;
+      }
+    } finally {
+      coating.recycle() ;
+    }
+    return command ;
+  }
+}
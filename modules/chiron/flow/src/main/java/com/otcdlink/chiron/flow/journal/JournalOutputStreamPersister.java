@@ -79,9 +79,4 @@ public final class JournalOutputStreamPersister< DESIGNATOR, DUTY >
   protected void flush( final OutputStream sink ) throws IOException {
     sink.flush() ;
   }
-
-  @Override
-  public PersisterWhenFrozen whenFrozen() {
-    return new InnerLockablePersister() ;
-  }
 }
@@ -1,6 +1,7 @@
 package com.otcdlink.chiron.flow.journal;
 
 import com.otcdlink.chiron.command.Command;
+import com.otcdlink.chiron.command.Stamp;
 import com.otcdlink.chiron.command.codec.Encoder;
 
 import java.io.Closeable;
@@ -22,7 +23,12 @@ public interface JournalPersister< COMMAND >
 
   void autoFlush( boolean autoflush ) ;
 
-  PersisterWhenFrozen whenFrozen() ;
+  /**
+   * Writes a line telling that given {@link Stamp} is the boundary with another journal,
+   * see {@link JournalSwitchover}.
+   * {@link JournalFileReader} skips such a line.
+   */
+  void writeBoundary( Stamp boundary ) throws IOException ;
 
 
     /**
@@ -73,8 +79,8 @@ public interface JournalPersister< COMMAND >
         }
 
         @Override
-        public PersisterWhenFrozen whenFrozen() {
-          return new InnerLockablePersister() ;
+        public void writeBoundary( final Stamp boundary ) throws IOException {
+          delegate.writeBoundary( boundary ) ;
         }
 
         @Override
@@ -91,15 +97,16 @@ public interface JournalPersister< COMMAND >
     return commandFactory ;
   }
 
-  class InnerLockablePersister implements PersisterWhenFrozen {
-
-  }
-
   /**
-   * Describes what a {@code FlowConductor} can see from a
-   * {@code com.otcdlink.server.reactor.StagePack.PersisterStage3}.
+   * What a {@link JournalSwitchover} can do with the persister stage once it is frozen.
    */
-  interface PersisterWhenFrozen {
+  interface PersisterWhenFrozen< COMMAND > {
 
+    /**
+     * @param next an opened {@link JournalPersister}, which will receive every subsequent
+     *     {@link COMMAND}.
+     * @return the {@link JournalPersister} which received every previous {@link COMMAND}.
+     */
+    JournalPersister< COMMAND > switchTo( JournalPersister< COMMAND > next ) ;
   }
 }
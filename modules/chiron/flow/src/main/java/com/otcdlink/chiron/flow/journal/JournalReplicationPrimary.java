@@ -0,0 +1,294 @@
+package com.otcdlink.chiron.flow.journal;
+
+import com.otcdlink.chiron.toolbox.netty.NettySocketClient;
+import io.netty.buffer.ByteBuf;
+import io.netty.channel.Channel;
+import io.netty.channel.ChannelFutureListener;
+import io.netty.channel.ChannelHandlerContext;
+import io.netty.channel.ChannelInitializer;
+import io.netty.channel.SimpleChannelInboundHandler;
+import io.netty.channel.WriteBufferWaterMark;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.net.InetSocketAddress;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static com.google.common.base.Preconditions.checkArgument;
+
+/**
+ * Streams what {@link AbstractJournalPersister}s write to a {@link JournalReplicationStandby}.
+ *
+ * <h1>Acknowledgement</h1>
+ * With a non-zero acknowledgement timeout, {@link JournalReplicator#replicate(ByteBuf, long)}
+ * (so {@link JournalPersister#accept(Object)}) returns only after the standby acknowledged
+ * it wrote the line into its own journal, which keeps the standby up to date with every
+ * {@link com.otcdlink.chiron.command.Command} the primary released.
+ * After a timeout, the line remains in flight and the primary moves on, logging a warning.
+ * With a zero timeout, replication is asynchronous and costs a copy of each line.
+ *
+ * <h1>Slow standby</h1>
+ * Lines waiting to be written to the socket may not exceed some maximum number of bytes.
+ * Past that, the primary disconnects from the standby rather than letting its outbound
+ * buffer grow without bound, and the standby must be brought up to date as described below.
+ *
+ * <h1>Disconnection</h1>
+ * When there is no connection, replication just doesn't happen. Bringing a standby up
+ * to date again means copying journal files and restarting it, there is no resynchronisation.
+ */
+public class JournalReplicationPrimary extends NettySocketClient {
+
+  private static final Logger LOGGER = LoggerFactory.getLogger( JournalReplicationPrimary.class ) ;
+
+  /**
+   * Enough for a few thousand lines of usual size.
+   */
+  public static final int DEFAULT_MAXIMUM_BYTES_IN_FLIGHT = 4 * 1024 * 1024 ;
+
+  private final long acknowledgementTimeoutMilliseconds ;
+  private final int maximumBytesInFlight ;
+  private final AtomicInteger journalCounter = new AtomicInteger() ;
+  private final Map< Integer, Replicator > replicators = new ConcurrentHashMap<>() ;
+  private final AtomicBoolean flushPending = new AtomicBoolean() ;
+  private volatile Channel channel = null ;
+
+  /**
+   * @param acknowledgementTimeoutMilliseconds 0 for asynchronous replication.
+   */
+  public JournalReplicationPrimary( final long acknowledgementTimeoutMilliseconds ) {
+    this( acknowledgementTimeoutMilliseconds, DEFAULT_MAXIMUM_BYTES_IN_FLIGHT ) ;
+  }
+
+  /**
+   * @param acknowledgementTimeoutMilliseconds 0 for asynchronous replication.
+   * @param maximumBytesInFlight bytes waiting to be written to the socket before the primary
+   *     disconnects.
+   */
+  public JournalReplicationPrimary(
+      final long acknowledgementTimeoutMilliseconds,
+      final int maximumBytesInFlight
+  ) {
+    checkArgument( acknowledgementTimeoutMilliseconds >= 0 ) ;
+    checkArgument( maximumBytesInFlight > 1 ) ;
+    this.acknowledgementTimeoutMilliseconds = acknowledgementTimeoutMilliseconds ;
+    this.maximumBytesInFlight = maximumBytesInFlight ;
+  }
+
+  public CompletableFuture< Void > connect( final InetSocketAddress standbyAddress ) {
+    final CompletableFuture< Void > connected = new CompletableFuture<>() ;
+    connect( standbyAddress, new ChannelInitializer< Channel >() {
+      @Override
+      protected void initChannel( final Channel initiatorChannel ) throws Exception {
+        initiatorChannel.config().setWriteBufferWaterMark(
+            new WriteBufferWaterMark( maximumBytesInFlight / 2, maximumBytesInFlight ) ) ;
+        initiatorChannel.pipeline().addLast(
+            ReplicationFrames.newFrameDecoder(),
+            ReplicationFrames.newFrameEncoder(),
+            new AcknowledgementHandler()
+        ) ;
+      }
+    } ).addListener( ( ChannelFutureListener ) future -> {
+      if( future.isSuccess() ) {
+        channel = future.channel() ;
+        LOGGER.info( "Connected " + this + " to " + standbyAddress + "." ) ;
+        connected.complete( null ) ;
+      } else {
+        connected.completeExceptionally( future.cause() ) ;
+      }
+    } ) ;
+    return connected ;
+  }
+
+  /**
+   * One per {@link AbstractJournalPersister}.
+   */
+  public JournalReplicator newReplicator() {
+    return new Replicator() ;
+  }
+
+  @Override
+  protected void customStop() {
+    final Channel current = channel ;
+    channel = null ;
+    if( current != null ) {
+      current.close() ;
+    }
+  }
+
+  private boolean synchronous() {
+    return acknowledgementTimeoutMilliseconds > 0 ;
+  }
+
+  private void flushSoon( final Channel current ) {
+    if( flushPending.compareAndSet( false, true ) ) {
+      current.eventLoop().execute( () -> {
+        flushPending.set( false ) ;
+        current.flush() ;
+      } ) ;
+    }
+  }
+
+
+// ==========
+// Replicator
+// ==========
+
+  private final class Replicator implements JournalReplicator {
+
+    /**
+     * Accessed only by {@link JournalReplicator} methods, see threading note there.
+     */
+    private int journal = -1 ;
+
+    /**
+     * Accessed only by {@link JournalReplicator} methods, see threading note there.
+     */
+    private boolean warnedAboutDisconnection = false ;
+
+    /**
+     * Guarded by {@code this}.
+     */
+    private long acknowledged = 0 ;
+
+    @Override
+    public void journalOpened() {
+      journal = journalCounter.incrementAndGet() ;
+      synchronized( this ) {
+        acknowledged = 0 ;
+      }
+      warnedAboutDisconnection = false ;
+      replicators.put( journal, this ) ;
+    }
+
+    @Override
+    public void replicate( final ByteBuf line, final long offset ) {
+      final Channel current = activeChannel() ;
+      if( current != null ) {
+        if( ! current.isWritable() ) {
+          disconnectSlowStandby( current ) ;
+          return ;
+        }
+        final ByteBuf frame = ReplicationFrames.data( current.alloc(), journal, offset, line ) ;
+        if( synchronous() ) {
+          current.writeAndFlush( frame ) ;
+          awaitAcknowledgement( current, offset + line.readableBytes() ) ;
+        } else {
+          current.write( frame ) ;
+          flushSoon( current ) ;
+        }
+      }
+    }
+
+    @Override
+    public void journalClosed() {
+      final Channel current = activeChannel() ;
+      if( current != null ) {
+        current.writeAndFlush( ReplicationFrames.close( current.alloc(), journal ) ) ;
+      }
+      replicators.remove( journal ) ;
+    }
+
+    private Channel activeChannel() {
+      final Channel current = channel ;
+      if( current == null || ! current.isActive() ) {
+        if( ! warnedAboutDisconnection ) {
+          warnedAboutDisconnection = true ;
+          LOGGER.warn( "Not connected, " + JournalReplicationPrimary.this +
+              " doesn't replicate journal " + journal + " any more." ) ;
+        }
+        return null ;
+      }
+      return current ;
+    }
+
+    /**
+     * {@link Channel#isWritable()} accounts for writes still queued in the
+     * {@link io.netty.channel.EventLoop}, so this happens soon enough to bound memory.
+     */
+    private void disconnectSlowStandby( final Channel current ) {
+      LOGGER.error( "More than " + maximumBytesInFlight + " bytes in flight to " + current +
+          ", disconnecting " + JournalReplicationPrimary.this + " from standby." ) ;
+      if( channel == current ) {
+        channel = null ;
+      }
+      current.close() ;
+    }
+
+    private synchronized void awaitAcknowledgement( final Channel current, final long end ) {
+      final long deadline = System.nanoTime() +
+          TimeUnit.MILLISECONDS.toNanos( acknowledgementTimeoutMilliseconds ) ;
+      while( acknowledged < end && current.isActive() ) {
+        final long remaining = deadline - System.nanoTime() ;
+        if( remaining <= 0 ) {
+          LOGGER.warn( "No acknowledgement for journal " + journal + " up to " + end +
+              " after " + acknowledgementTimeoutMilliseconds + " ms, moving on." ) ;
+          return ;
+        }
+        try {
+          TimeUnit.NANOSECONDS.timedWait( this, remaining ) ;
+        } catch( final InterruptedException e ) {
+          Thread.currentThread().interrupt() ;
+          return ;
+        }
+      }
+    }
+
+    private synchronized void acknowledge( final long end ) {
+      if( end > acknowledged ) {
+        acknowledged = end ;
+      }
+      notifyAll() ;
+    }
+
+    private synchronized void wakeUp() {
+      notifyAll() ;
+    }
+  }
+
+  private final class AcknowledgementHandler extends SimpleChannelInboundHandler< ByteBuf > {
+
+    @Override
+    protected void channelRead0(
+        final ChannelHandlerContext channelHandlerContext,
+        final ByteBuf frame
+    ) {
+      final byte kind = frame.readByte() ;
+      if( kind == ReplicationFrames.ACK ) {
+        final int journal = frame.readInt() ;
+        final long end = frame.readLong() ;
+        final Replicator replicator = replicators.get( journal ) ;
+        if( replicator != null ) {
+          replicator.acknowledge( end ) ;
+        }
+      } else {
+        LOGGER.error( "Unexpected frame kind " + kind + ", closing " +
+            channelHandlerContext.channel() + "." ) ;
+        channelHandlerContext.close() ;
+      }
+    }
+
+    @Override
+    public void channelInactive( final ChannelHandlerContext channelHandlerContext )
+        throws Exception
+    {
+      LOGGER.warn( "Lost connection to standby: " + channelHandlerContext.channel() + "." ) ;
+      replicators.values().forEach( Replicator::wakeUp ) ;
+      super.channelInactive( channelHandlerContext ) ;
+    }
+
+    @Override
+    public void exceptionCaught(
+        final ChannelHandlerContext channelHandlerContext,
+        final Throwable cause
+    ) {
+      LOGGER.error( "Closing " + channelHandlerContext.channel() + ".", cause ) ;
+      channelHandlerContext.close() ;
+    }
+  }
+
+}
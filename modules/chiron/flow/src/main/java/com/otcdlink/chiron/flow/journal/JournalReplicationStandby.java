@@ -0,0 +1,206 @@
+package com.otcdlink.chiron.flow.journal;
+
+import com.otcdlink.chiron.codec.CommandBodyDecoder;
+import com.otcdlink.chiron.command.Command;
+import com.otcdlink.chiron.command.codec.Decoder;
+import com.otcdlink.chiron.toolbox.netty.NettySocketServer;
+import com.otcdlink.chiron.toolbox.text.LineBreak;
+import io.netty.buffer.ByteBuf;
+import io.netty.channel.Channel;
+import io.netty.channel.ChannelHandlerContext;
+import io.netty.channel.SimpleChannelInboundHandler;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.File;
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
+
+import static com.google.common.base.Preconditions.checkNotNull;
+
+/**
+ * Receives journal lines from a {@link JournalReplicationPrimary}, appends them to its own
+ * journal files, and applies the {@link Command}s they contain to its logic, so it can take
+ * over with an up-to-date state.
+ * Each journal of the primary goes into a new file, with exactly the same bytes.
+ *
+ * <h1>Acknowledgement</h1>
+ * The acknowledgement for a line happens after writing it into the journal file (which
+ * doesn't mean syncing it to the disk) and before applying it, so slow logic doesn't slow
+ * the primary down.
+ *
+ * <h1>Threading</h1>
+ * Everything happens in the {@link io.netty.channel.EventLoop} of the connection, so there
+ * should be only one primary at a time, which doesn't reconnect; and logic should not block.
+ * Promoting the standby means stopping it, then using its journal files and its logic.
+ */
+public class JournalReplicationStandby< DESIGNATOR, DUTY > extends NettySocketServer {
+
+  private static final Logger LOGGER = LoggerFactory.getLogger( JournalReplicationStandby.class ) ;
+
+  private final Supplier< File > journalFileSupplier ;
+  private final JournalLineDecoder< DESIGNATOR, DUTY > lineDecoder ;
+  private final Consumer< Command< DESIGNATOR, DUTY > > logic ;
+  private final int lineBreakLength ;
+
+  /**
+   * @param journalFileSupplier called for each new journal of the primary.
+   */
+  public JournalReplicationStandby(
+      final InetSocketAddress listenAddress,
+      final Supplier< File > journalFileSupplier,
+      final Decoder< DESIGNATOR > designatorDecoder,
+      final CommandBodyDecoder< DESIGNATOR, DUTY > commandBodyDecoder,
+      final Consumer< Command< DESIGNATOR, DUTY > > logic,
+      final LineBreak lineBreak
+  ) {
+    super( listenAddress, EventLoopGroupFactory::defaultFactory ) ;
+    this.journalFileSupplier = checkNotNull( journalFileSupplier ) ;
+    this.lineDecoder = new JournalLineDecoder<>( designatorDecoder, commandBodyDecoder ) ;
+    this.logic = checkNotNull( logic ) ;
+    this.lineBreakLength = lineBreak.asByteArray().length ;
+  }
+
+  @Override
+  protected void initializeChildChannel( final Channel initiatorChannel ) throws Exception {
+    initiatorChannel.pipeline().addLast(
+        ReplicationFrames.newFrameDecoder(),
+        ReplicationFrames.newFrameEncoder(),
+        new ReplicaHandler()
+    ) ;
+  }
+
+  private static final class ReplicaJournal {
+    final File file ;
+    final FileChannel fileChannel ;
+    long expectedOffset = 0 ;
+    long lineIndex = 0 ;
+
+    ReplicaJournal( final File file ) throws IOException {
+      this.file = checkNotNull( file ) ;
+      AbstractJournalPersister.ensureFileExists( file ) ;
+      this.fileChannel = FileChannel.open( file.toPath(), StandardOpenOption.CREATE,
+          StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING ) ;
+    }
+
+    void close() throws IOException {
+      fileChannel.force( false ) ;
+      fileChannel.close() ;
+      LOGGER.info( "Closed replica journal " + file + "." ) ;
+    }
+  }
+
+  /**
+   * One per connection.
+   */
+  private final class ReplicaHandler extends SimpleChannelInboundHandler< ByteBuf > {
+
+    private final Map< Integer, ReplicaJournal > journals = new HashMap<>() ;
+
+    @Override
+    protected void channelRead0(
+        final ChannelHandlerContext channelHandlerContext,
+        final ByteBuf frame
+    ) throws Exception {
+      final byte kind = frame.readByte() ;
+      final int journal = frame.readInt() ;
+      if( kind == ReplicationFrames.DATA ) {
+        final long offset = frame.readLong() ;
+        ReplicaJournal replicaJournal = journals.get( journal ) ;
+        if( replicaJournal == null && offset == 0 ) {
+          replicaJournal = new ReplicaJournal( journalFileSupplier.get() ) ;
+          journals.put( journal, replicaJournal ) ;
+          LOGGER.info( "Replicating journal " + journal + " into " + replicaJournal.file + "." ) ;
+        }
+        if( replicaJournal == null || offset != replicaJournal.expectedOffset ) {
+          LOGGER.error( "Unexpected offset " + offset + " for journal " + journal +
+              ", closing " + channelHandlerContext.channel() + "." ) ;
+          channelHandlerContext.close() ;
+          return ;
+        }
+        append( replicaJournal, frame ) ;
+        channelHandlerContext.writeAndFlush( ReplicationFrames.acknowledgement(
+            channelHandlerContext.alloc(), journal, replicaJournal.expectedOffset ) ) ;
+        apply( replicaJournal, frame ) ;
+      } else if( kind == ReplicationFrames.CLOSE ) {
+        final ReplicaJournal replicaJournal = journals.remove( journal ) ;
+        if( replicaJournal != null ) {
+          replicaJournal.close() ;
+        }
+      } else {
+        LOGGER.error( "Unexpected frame kind " + kind + ", closing " +
+            channelHandlerContext.channel() + "." ) ;
+        channelHandlerContext.close() ;
+      }
+    }
+
+    /**
+     * Leaves {@code line} indexes unchanged.
+     */
+    private void append( final ReplicaJournal replicaJournal, final ByteBuf line )
+        throws IOException
+    {
+      final ByteBuffer byteBuffer = line.nioBuffer() ;
+      while( byteBuffer.hasRemaining() ) {
+        replicaJournal.expectedOffset += replicaJournal.fileChannel.write(
+            byteBuffer, replicaJournal.expectedOffset ) ;
+      }
+    }
+
+    /**
+     * Skips what {@link JournalFileReader} skips.
+     */
+    private void apply( final ReplicaJournal replicaJournal, final ByteBuf line ) {
+      final long lineIndex = replicaJournal.lineIndex ++ ;
+      if( lineIndex == 0 || line.readableBytes() <= lineBreakLength ) {
+        return ;
+      }
+      final ByteBuf withoutLineBreak =
+          line.slice( line.readerIndex(), line.readableBytes() - lineBreakLength ) ;
+      if( JournalFileReader.isBoundary( withoutLineBreak ) ) {
+        return ;
+      }
+      final Command< DESIGNATOR, DUTY > command ;
+      try {
+        command = lineDecoder.decode( withoutLineBreak, lineIndex + 2 ) ;
+      } catch( final Exception e ) {
+        LOGGER.error( "Could not decode line " + ( lineIndex + 2 ) + " of " +
+            replicaJournal.file + ", not applying it.", e ) ;
+        return ;
+      }
+      logic.accept( command ) ;
+    }
+
+    @Override
+    public void channelInactive( final ChannelHandlerContext channelHandlerContext )
+        throws Exception
+    {
+      for( final ReplicaJournal replicaJournal : journals.values() ) {
+        try {
+          replicaJournal.close() ;
+        } catch( final IOException e ) {
+          LOGGER.error( "Could not close " + replicaJournal.file + ".", e ) ;
+        }
+      }
+      journals.clear() ;
+      super.channelInactive( channelHandlerContext ) ;
+    }
+
+    @Override
+    public void exceptionCaught(
+        final ChannelHandlerContext channelHandlerContext,
+        final Throwable cause
+    ) {
+      LOGGER.error( "Closing " + channelHandlerContext.channel() + ".", cause ) ;
+      channelHandlerContext.close() ;
+    }
+  }
+
+}
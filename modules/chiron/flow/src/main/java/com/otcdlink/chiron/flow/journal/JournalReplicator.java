@@ -0,0 +1,33 @@
+package com.otcdlink.chiron.flow.journal;
+
+import io.netty.buffer.ByteBuf;
+
+/**
+ * Receives every line an {@link AbstractJournalPersister} writes, so a standby can
+ * keep an identical journal.
+ * For a given {@link JournalPersister}, calls never overlap, but they may come from
+ * different threads: with a {@link JournalSwitchover}, {@link #journalOpened()} and
+ * {@link #journalClosed()} happen in the thread calling {@link JournalSwitchover#switchover},
+ * and {@link #replicate(ByteBuf, long)} also happens there for header and boundary lines.
+ *
+ * @see AbstractJournalPersister#replicateTo(JournalReplicator)
+ */
+public interface JournalReplicator {
+
+  /**
+   * Called at the beginning of {@link JournalPersister#open()}, before writing the header.
+   */
+  void journalOpened() ;
+
+  /**
+   * @param line the bytes of one line, including the line break; implementation must not
+   *     keep a reference on it after returning.
+   * @param offset the position of the line in the journal.
+   */
+  void replicate( ByteBuf line, long offset ) ;
+
+  /**
+   * Called at the end of {@link JournalPersister#close()}.
+   */
+  void journalClosed() ;
+}
@@ -0,0 +1,361 @@
+package com.otcdlink.chiron.flow.journal;
+
+import com.google.common.collect.ImmutableMap;
+import com.otcdlink.chiron.command.Stamp;
+import com.otcdlink.chiron.toolbox.ToStringTools;
+import com.otcdlink.chiron.toolbox.concurrent.freeze.FreezeControl;
+import com.otcdlink.chiron.toolbox.concurrent.freeze.ThreadFreezer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.function.Supplier;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static com.google.common.base.Preconditions.checkNotNull;
+
+/**
+ * Switches to a new journal file ("bascule") while the pipeline keeps running, instead of
+ * closing a {@link JournalPersister} and opening it again.
+ *
+ * <h1>Protocol</h1>
+ * Each pipeline stage runs in its own thread, identified by a {@link KEY}, and calls
+ * {@link Stage#commandBoundary()} between two {@link COMMAND}s. The persister stage uses
+ * the {@link JournalPersister} returned by {@link #persister()}, which does it by itself.
+ * Then {@link #switchover(File)}:
+ * <ol>
+ *   <li>
+ *     Creates and opens the next {@link JournalPersister} (creating the file and writing
+ *     the header) in calling thread.
+ *   </li><li>
+ *     Asks every stage to freeze at its next command boundary, and waits for all of them
+ *     with a {@link ThreadFreezer}.
+ *   </li><li>
+ *     Obtains the boundary {@link Stamp}, writes it into next {@link JournalPersister},
+ *     and swaps it in.
+ *   </li><li>
+ *     Unfreezes every stage.
+ *   </li><li>
+ *     Writes the boundary {@link Stamp} into previous {@link JournalPersister} and closes it,
+ *     in calling thread.
+ *   </li>
+ * </ol>
+ * So frozen stages only wait for a single-line write and a reference swap, once the
+ * last stage reached its command boundary.
+ *
+ * <h1>Idle stages</h1>
+ * A stage waiting for its input doesn't reach a command boundary, and other stages stay
+ * frozen meanwhile. This is why each stage comes with a "waker" which makes it reach a
+ * command boundary soon, like by posting a no-op into its input queue.
+ * If some stage still doesn't reach its command boundary within a timeout, the switchover
+ * gets abandoned: frozen stages resume, and late ones don't freeze.
+ *
+ * <h1>Threading</h1>
+ * {@link #switchover(File)} calls {@link JournalPersister#open()} on next
+ * {@link JournalPersister}, then {@link JournalPersister#writeBoundary(Stamp)} and
+ * {@link JournalPersister#close()} on previous one, from its calling thread, not from the
+ * persister stage. Those calls never overlap with the ones of the persister stage, and
+ * {@link ThreadFreezer} makes them visible to it.
+ */
+public final class JournalSwitchover< KEY, COMMAND > {
+
+  private static final Logger LOGGER = LoggerFactory.getLogger( JournalSwitchover.class ) ;
+
+  public static final long DEFAULT_FREEZE_TIMEOUT_MILLISECONDS = 10_000 ;
+
+  private final ThreadFreezer< KEY > threadFreezer ;
+  private final ImmutableMap< KEY, Runnable > stageWakers ;
+  private final KEY persisterKey ;
+  private final ImmutableMap< KEY, Stage > stages ;
+  private final JournalPersister.Factory< COMMAND > persisterFactory ;
+  private final Supplier< Stamp > boundarySupplier ;
+  private final SwitchingPersister persister ;
+  private final long freezeTimeoutMilliseconds ;
+
+  /**
+   * Guards {@link #requestedGeneration} increments and {@link #abandoned}, so a
+   * {@link Stage} can't freeze after {@link #switchover(File)} gave up waiting for it.
+   */
+  private final Object generationLock = new Object() ;
+
+  /**
+   * Guarded by {@link #generationLock}.
+   */
+  private boolean abandoned = false ;
+
+  /**
+   * Incremented for each {@link #switchover(File)}, so a {@link Stage} knows if it should
+   * freeze.
+   */
+  private volatile long requestedGeneration = 0 ;
+
+  public JournalSwitchover(
+      final ImmutableMap< KEY, Runnable > stageWakers,
+      final KEY persisterKey,
+      final JournalPersister.Factory< COMMAND > persisterFactory,
+      final File firstFile,
+      final Supplier< Stamp > boundarySupplier
+  ) {
+    this( stageWakers, persisterKey, persisterFactory, firstFile, boundarySupplier,
+        DEFAULT_FREEZE_TIMEOUT_MILLISECONDS ) ;
+  }
+
+  /**
+   * @param stageWakers all the stages, including the persister stage.
+   * @param persisterKey the stage calling methods of {@link #persister()}.
+   * @param boundarySupplier called while every stage is frozen, typically the
+   *     {@link Stamp.Generator} of the pipeline so the boundary {@link Stamp} sits between
+   *     the ones of previous and next {@link COMMAND}s.
+   * @param freezeTimeoutMilliseconds how long {@link #switchover(File)} waits for every stage
+   *     to reach its command boundary.
+   */
+  public JournalSwitchover(
+      final ImmutableMap< KEY, Runnable > stageWakers,
+      final KEY persisterKey,
+      final JournalPersister.Factory< COMMAND > persisterFactory,
+      final File firstFile,
+      final Supplier< Stamp > boundarySupplier,
+      final long freezeTimeoutMilliseconds
+  ) {
+    checkArgument( stageWakers.containsKey( persisterKey ),
+        "Missing " + persisterKey + " in " + stageWakers.keySet() ) ;
+    checkArgument( freezeTimeoutMilliseconds > 0 ) ;
+    this.freezeTimeoutMilliseconds = freezeTimeoutMilliseconds ;
+    this.stageWakers = stageWakers ;
+    this.persisterKey = persisterKey ;
+    this.persisterFactory = checkNotNull( persisterFactory ) ;
+    this.boundarySupplier = checkNotNull( boundarySupplier ) ;
+    this.threadFreezer = new ThreadFreezer<>( stageWakers.keySet() ) ;
+    this.persister = new SwitchingPersister( persisterFactory.createNew( firstFile ) ) ;
+    final ImmutableMap.Builder< KEY, Stage > stageBuilder = ImmutableMap.builder() ;
+    for( final KEY key : stageWakers.keySet() ) {
+      stageBuilder.put( key, new Stage( key, persisterKey.equals( key ) ? persister : key ) ) ;
+    }
+    this.stages = stageBuilder.build() ;
+    persister.stage = stages.get( persisterKey ) ;
+  }
+
+  /**
+   * The {@link JournalPersister} for the persister stage, which writes into the first file,
+   * then into the file of last {@link #switchover(File)}.
+   */
+  public JournalPersister< COMMAND > persister() {
+    return persister ;
+  }
+
+  /**
+   * The persister stage needs its {@link Stage} only to reach a command boundary
+   * when idle, because {@link #persister()} already does it for each {@link COMMAND}.
+   */
+  public Stage stage( final KEY key ) {
+    return checkNotNull( stages.get( key ), "Unknown: " + key ) ;
+  }
+
+  /**
+   * Blocks until every stage reached its command boundary, see class comment.
+   * Only one switchover happens at a time.
+   *
+   * @throws IOException if creating next file failed, in which case nothing changed;
+   *     or if writing the boundary into previous file, or closing it, failed.
+   * @throws TimeoutException if some stage didn't reach its command boundary in time,
+   *     in which case nothing changed.
+   */
+  public synchronized void switchover( final File nextFile )
+      throws IOException, TimeoutException
+  {
+    final JournalPersister< COMMAND > next = persisterFactory.createNew( nextFile ) ;
+    try {
+      next.open() ;
+    } catch( final IOException | RuntimeException e ) {
+      closeQuietly( next, e ) ;
+      throw e ;
+    }
+
+    synchronized( generationLock ) {
+      requestedGeneration ++ ;
+      abandoned = false ;
+    }
+    for( final Runnable waker : stageWakers.values() ) {
+      waker.run() ;
+    }
+    final ImmutableMap< KEY, Object > frozen = threadFreezer.waitForAllFrozen(
+        freezeTimeoutMilliseconds, TimeUnit.MILLISECONDS ) ;
+    if( frozen == null ) {
+      synchronized( generationLock ) {
+        abandoned = true ;
+        threadFreezer.unfreezeFrozen() ;
+      }
+      final TimeoutException timeoutException = new TimeoutException(
+          "Some stage didn't reach its command boundary after " + freezeTimeoutMilliseconds +
+          " ms, abandoned switchover to " + nextFile ) ;
+      closeQuietly( next, timeoutException ) ;
+      throw timeoutException ;
+    }
+    final long freezeStart = System.nanoTime() ;
+    final Stamp boundary ;
+    final JournalPersister< COMMAND > previous ;
+    try {
+      boundary = boundarySupplier.get() ;
+      next.writeBoundary( boundary ) ;
+      @SuppressWarnings( "unchecked" )
+      final JournalPersister.PersisterWhenFrozen< COMMAND > persisterWhenFrozen =
+          ( JournalPersister.PersisterWhenFrozen< COMMAND > ) frozen.get( persisterKey ) ;
+      previous = persisterWhenFrozen.switchTo( next ) ;
+    } catch( final IOException | RuntimeException e ) {
+      threadFreezer.unfreezeAll() ;
+      closeQuietly( next, e ) ;
+      throw e ;
+    }
+    threadFreezer.unfreezeAll() ;
+    final long pauseNanoseconds = System.nanoTime() - freezeStart ;
+
+    try {
+      previous.writeBoundary( boundary ) ;
+    } catch( final IOException | RuntimeException e ) {
+      closeQuietly( previous, e ) ;
+      throw e ;
+    }
+    previous.close() ;
+    LOGGER.info( "Switched over from " + previous + " to " + next + " at " + boundary +
+        ", stages kept frozen for " + TimeUnit.NANOSECONDS.toMicros( pauseNanoseconds ) +
+        " microseconds after the last one reached its command boundary." ) ;
+  }
+
+  /**
+   * Closes given {@link JournalPersister} after some failure, adding a closing failure to it.
+   */
+  private static void closeQuietly(
+      final JournalPersister< ? > journalPersister,
+      final Exception primary
+  ) {
+    try {
+      journalPersister.close() ;
+    } catch( final IOException | RuntimeException closeFailure ) {
+      primary.addSuppressed( closeFailure ) ;
+    }
+  }
+
+  @Override
+  public String toString() {
+    return ToStringTools.getNiceClassName( this ) + "{" + persister.delegate + "}" ;
+  }
+
+
+// =====
+// Stage
+// =====
+
+  public final class Stage {
+
+    private final KEY key ;
+    private final FreezeControl< Object > freezeControl ;
+
+    /**
+     * What {@link #switchover(File)} gets from {@link ThreadFreezer#waitForAllFrozen()}.
+     */
+    private final Object frozen ;
+
+    /**
+     * Accessed only by stage's thread.
+     */
+    private long frozenGeneration = 0 ;
+
+    private Stage( final KEY key, final Object frozen ) {
+      this.key = checkNotNull( key ) ;
+      this.frozen = checkNotNull( frozen ) ;
+      this.freezeControl = threadFreezer.internalControl( key ) ;
+    }
+
+    /**
+     * Call from stage's thread, when it processes no {@link COMMAND}.
+     * Costs one {@code volatile} read when there is no switchover in progress.
+     */
+    public void commandBoundary() {
+      if( requestedGeneration != frozenGeneration ) {
+        final boolean freeze ;
+        synchronized( generationLock ) {
+          frozenGeneration = requestedGeneration ;
+          freeze = ! abandoned ;
+          if( freeze ) {
+            freezeControl.freeze( frozen ) ;
+          }
+        }
+        if( freeze ) {
+          freezeControl.continueWhenWarm() ;
+        }
+      }
+    }
+
+    @Override
+    public String toString() {
+      return ToStringTools.getNiceClassName( this ) + "{" + key + "}" ;
+    }
+  }
+
+
+// =========
+// Persister
+// =========
+
+  private final class SwitchingPersister
+      implements
+      JournalPersister< COMMAND >,
+      JournalPersister.PersisterWhenFrozen< COMMAND >
+  {
+
+    /**
+     * No need for {@code volatile}: {@link #switchTo(JournalPersister)} happens while
+     * persister stage is frozen, and {@link ThreadFreezer} provides the memory barriers.
+     */
+    private JournalPersister< COMMAND > delegate ;
+
+    /**
+     * Set once by {@link JournalSwitchover}'s constructor.
+     */
+    private Stage stage = null ;
+
+    private boolean autoFlush = false ;
+
+    private SwitchingPersister( final JournalPersister< COMMAND > first ) {
+      this.delegate = checkNotNull( first ) ;
+    }
+
+    @Override
+    public void open() throws IOException {
+      delegate.open() ;
+    }
+
+    @Override
+    public void accept( final COMMAND command ) {
+      stage.commandBoundary() ;
+      delegate.accept( command ) ;
+    }
+
+    @Override
+    public void autoFlush( final boolean autoFlush ) {
+      this.autoFlush = autoFlush ;
+      delegate.autoFlush( autoFlush ) ;
+    }
+
+    @Override
+    public void writeBoundary( final Stamp boundary ) throws IOException {
+      delegate.writeBoundary( boundary ) ;
+    }
+
+    @Override
+    public void close() throws IOException {
+      delegate.close() ;
+    }
+
+    @Override
+    public JournalPersister< COMMAND > switchTo( final JournalPersister< COMMAND > next ) {
+      final JournalPersister< COMMAND > previous = delegate ;
+      next.autoFlush( autoFlush ) ;
+      delegate = checkNotNull( next ) ;
+      return previous ;
+    }
+  }
+}
@@ -0,0 +1,78 @@
+package com.otcdlink.chiron.flow.journal;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.ByteBufAllocator;
+import io.netty.channel.ChannelHandler;
+import io.netty.handler.codec.LengthFieldBasedFrameDecoder;
+import io.netty.handler.codec.LengthFieldPrepender;
+
+/**
+ * Frames exchanged by {@link JournalReplicationPrimary} and {@link JournalReplicationStandby},
+ * each one prefixed by its length on 4 bytes.
+ * A journal number identifies a journal for the duration of a connection.
+ * <pre>
+ * DATA  = [ kind:byte ][ journal:int ][ offset:long ][ line bytes ]
+ * CLOSE = [ kind:byte ][ journal:int ]
+ * ACK   = [ kind:byte ][ journal:int ][ end offset:long ]
+ * </pre>
+ */
+final class ReplicationFrames {
+
+  private ReplicationFrames() { }
+
+  static final byte DATA = 1 ;
+  static final byte CLOSE = 2 ;
+  static final byte ACK = 3 ;
+
+  /**
+   * Much more than the longest line {@link AbstractJournalPersister} can write.
+   */
+  private static final int MAXIMUM_FRAME_LENGTH = 16 * 1024 * 1024 ;
+
+  private static final int LENGTH_FIELD_LENGTH = 4 ;
+
+  static ChannelHandler newFrameDecoder() {
+    return new LengthFieldBasedFrameDecoder(
+        MAXIMUM_FRAME_LENGTH, 0, LENGTH_FIELD_LENGTH, 0, LENGTH_FIELD_LENGTH ) ;
+  }
+
+  static ChannelHandler newFrameEncoder() {
+    return new LengthFieldPrepender( LENGTH_FIELD_LENGTH ) ;
+  }
+
+  /**
+   * Copies readable bytes of {@code line} without changing its indexes.
+   */
+  static ByteBuf data(
+      final ByteBufAllocator allocator,
+      final int journal,
+      final long offset,
+      final ByteBuf line
+  ) {
+    final ByteBuf frame = allocator.buffer( 1 + 4 + 8 + line.readableBytes() ) ;
+    frame.writeByte( DATA ) ;
+    frame.writeInt( journal ) ;
+    frame.writeLong( offset ) ;
+    frame.writeBytes( line, line.readerIndex(), line.readableBytes() ) ;
+    return frame ;
+  }
+
+  static ByteBuf close( final ByteBufAllocator allocator, final int journal ) {
+    final ByteBuf frame = allocator.buffer( 1 + 4 ) ;
+    frame.writeByte( CLOSE ) ;
+    frame.writeInt( journal ) ;
+    return frame ;
+  }
+
+  static ByteBuf acknowledgement(
+      final ByteBufAllocator allocator,
+      final int journal,
+      final long endOffset
+  ) {
+    final ByteBuf frame = allocator.buffer( 1 + 4 + 8 ) ;
+    frame.writeByte( ACK ) ;
+    frame.writeInt( journal ) ;
+    frame.writeLong( endOffset ) ;
+    return frame ;
+  }
+}
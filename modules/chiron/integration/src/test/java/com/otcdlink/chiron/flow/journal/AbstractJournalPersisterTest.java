@@ -10,6 +10,7 @@ import com.otcdlink.chiron.integration.echo.EchoUpwardDuty;
 import com.otcdlink.chiron.integration.echo.UpwardEchoCommand;
 import com.otcdlink.chiron.middle.session.SessionIdentifier;
 import com.otcdlink.chiron.testing.junit5.DirectoryExtension;
+import com.otcdlink.chiron.toolbox.metrics.MetricRegistry;
 import com.otcdlink.chiron.toolbox.text.LineBreak;
 import org.junit.jupiter.api.Disabled;
 import org.junit.jupiter.api.Test;
@@ -53,6 +54,24 @@ public abstract class AbstractJournalPersisterTest {
     assertThat( wholeFileAsString ).contains( " " + ( commandCount - 1 ) + "__" ) ;
   }
 
+  @Test
+  void metrics() throws Exception {
+    final PersisterKit persisterKit = newPersisterKit() ;
+    final MetricRegistry metricRegistry = new MetricRegistry() ;
+    ( ( AbstractJournalPersister< ?, ?, ? > ) persisterKit.persister )
+        .recordMetrics( metricRegistry ) ;
+    persisterKit.writeSequence(
+        command( "Hello", 1 ),
+        command( "Hello (longer text)", 2 )
+    ) ;
+
+    final String wholeFileAsString = persisterKit.loadActualFile() ;
+    assertThat( metricRegistry.snapshot() )
+        .containsEntry( "journal.lines", 3L )
+        .containsEntry( "journal.bytes", ( long ) wholeFileAsString.length() )
+    ;
+  }
+
   @Test
   @Disabled( "Takes too long and asserts nothing" )
   void evenMoreWrites() throws Exception {
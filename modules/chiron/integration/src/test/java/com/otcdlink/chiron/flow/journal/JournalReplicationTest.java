@@ -0,0 +1,165 @@
+package com.otcdlink.chiron.flow.journal;
+
+import com.google.common.io.Files;
+import com.otcdlink.chiron.command.Command;
+import com.otcdlink.chiron.command.Stamp;
+import com.otcdlink.chiron.designator.Designator;
+import com.otcdlink.chiron.designator.DesignatorForger;
+import com.otcdlink.chiron.integration.echo.EchoCodecFixture;
+import com.otcdlink.chiron.integration.echo.EchoUpwardDuty;
+import com.otcdlink.chiron.integration.echo.UpwardEchoCommand;
+import com.otcdlink.chiron.middle.session.SessionIdentifier;
+import com.otcdlink.chiron.testing.junit5.DirectoryExtension;
+import com.otcdlink.chiron.toolbox.TcpPortBooker;
+import com.otcdlink.chiron.toolbox.internet.LocalAddressTools;
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.Unpooled;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.RegisterExtension;
+
+import java.io.File;
+import java.io.InputStream;
+import java.net.InetSocketAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.net.SocketTimeoutException;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class JournalReplicationTest {
+
+  @Test
+  void standbyGetsSameBytesAndAppliesCommands() throws Exception {
+    final File primaryFile = new File( directoryExtension.testDirectory(), "primary.journal" ) ;
+    final File standbyFile = new File( directoryExtension.testDirectory(), "standby.journal" ) ;
+    final List< Command< Designator, EchoUpwardDuty< Designator > > > applied =
+        new CopyOnWriteArrayList<>() ;
+    final InetSocketAddress standbyAddress =
+        new InetSocketAddress( LocalAddressTools.LOCAL_ADDRESS, TcpPortBooker.THIS.find() ) ;
+
+    final JournalReplicationStandby< Designator, EchoUpwardDuty< Designator > > standby =
+        new JournalReplicationStandby<>(
+            standbyAddress,
+            () -> standbyFile,
+            new FileDesignatorCodecTools.InwardDesignatorDecoder(),
+            new EchoCodecFixture.PartialUpendDecoder(),
+            applied::add,
+            IntradayPersistenceConstants.LINE_BREAK
+        )
+    ;
+    final JournalReplicationPrimary primary = new JournalReplicationPrimary( 5_000 ) ;
+    standby.start().join() ;
+    primary.start().join() ;
+    try {
+      primary.connect( standbyAddress ).get( 5, TimeUnit.SECONDS ) ;
+      final JournalFileChannelPersister< Designator, EchoUpwardDuty< Designator > > persister =
+          new JournalFileChannelPersister<>(
+              primaryFile,
+              new FileDesignatorCodecTools.InwardDesignatorEncoder(),
+              1,
+              "JustTesting"
+          )
+      ;
+      persister.replicateTo( primary.newReplicator() ) ;
+      persister.open() ;
+      for( int i = 0 ; i < COMMAND_COUNT / 2 ; i ++ ) {
+        persister.accept( command( i ) ) ;
+      }
+      persister.writeBoundary( Stamp.raw( Stamp.FLOOR_MILLISECONDS + 10_000, 0 ) ) ;
+      for( int i = COMMAND_COUNT / 2 ; i < COMMAND_COUNT ; i ++ ) {
+        persister.accept( command( i ) ) ;
+      }
+      persister.close() ;
+
+      // Synchronous replication: the standby wrote every line before close() returned.
+      assertThat( Files.toByteArray( standbyFile ) )
+          .isEqualTo( Files.toByteArray( primaryFile ) ) ;
+
+      final long deadline = System.currentTimeMillis() + 5_000 ;
+      while( applied.size() < COMMAND_COUNT ) {
+        assertThat( System.currentTimeMillis() ).isLessThan( deadline ) ;
+        Thread.sleep( 10 ) ;
+      }
+      assertThat( applied ).hasSize( COMMAND_COUNT ) ;
+      for( int i = 0 ; i < COMMAND_COUNT ; i ++ ) {
+        assertThat( ( ( UpwardEchoCommand< ? > ) applied.get( i ) ).message )
+            .isEqualTo( i + "__Hello" ) ;
+      }
+    } finally {
+      primary.stop().join() ;
+      standby.stop().join() ;
+    }
+  }
+
+  @Test
+  void stalledStandbyGetsDisconnected() throws Exception {
+    final int maximumBytesInFlight = 64 * 1024 ;
+    final JournalReplicationPrimary primary =
+        new JournalReplicationPrimary( 0, maximumBytesInFlight ) ;
+    final ByteBuf line = Unpooled.wrappedBuffer( new byte[ 1024 ] ) ;
+    primary.start().join() ;
+    try( final ServerSocket stalledStandby =
+             new ServerSocket( 0, 1, LocalAddressTools.LOCAL_ADDRESS )
+    ) {
+      primary.connect( new InetSocketAddress(
+          LocalAddressTools.LOCAL_ADDRESS, stalledStandby.getLocalPort() ) )
+          .get( 5, TimeUnit.SECONDS ) ;
+      try( final Socket accepted = stalledStandby.accept() ) {
+        final JournalReplicator replicator = primary.newReplicator() ;
+        replicator.journalOpened() ;
+        // Nobody reads, so socket buffers fill up and frames pile up in the primary.
+        for( int i = 0 ; i < STALLED_LINE_COUNT ; i ++ ) {
+          replicator.replicate( line.duplicate(), ( long ) i * line.readableBytes() ) ;
+        }
+
+        accepted.setSoTimeout( 5_000 ) ;
+        final InputStream inputStream = accepted.getInputStream() ;
+        final byte[] buffer = new byte[ 64 * 1024 ] ;
+        long received = 0 ;
+        int read ;
+        try {
+          while( ( read = inputStream.read( buffer ) ) >= 0 ) {
+            received += read ;
+          }
+        } catch( final SocketTimeoutException e ) {
+          throw new AssertionError( "Primary did not disconnect after " + received + " bytes" ) ;
+        }
+        assertThat( received )
+            .describedAs( "Primary gave up before sending every line" )
+            .isLessThan( ( long ) STALLED_LINE_COUNT * line.readableBytes() ) ;
+      }
+    } finally {
+      primary.stop().join() ;
+    }
+  }
+
+// =======
+// Fixture
+// =======
+
+  /**
+   * Much more than loopback socket buffers can hold.
+   */
+  private static final int STALLED_LINE_COUNT = 64 * 1024 ;
+
+  private static final int COMMAND_COUNT = 100 ;
+
+  private static final DesignatorForger.CounterStep DESIGNATOR_FORGER =
+      DesignatorForger.newForger()
+          .session( new SessionIdentifier( "7he5e5510N" ) )
+          .flooredInstant( 1 )
+  ;
+
+  private static Command< Designator, EchoUpwardDuty< Designator > > command( final int index ) {
+    return new UpwardEchoCommand<>(
+        DESIGNATOR_FORGER.counter( index ).upward(), index + "__Hello" ) ;
+  }
+
+  @SuppressWarnings( "WeakerAccess" )
+  @RegisterExtension
+  final DirectoryExtension directoryExtension = new DirectoryExtension() ;
+
+}
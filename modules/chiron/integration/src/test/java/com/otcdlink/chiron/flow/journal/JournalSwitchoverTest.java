@@ -0,0 +1,206 @@
+package com.otcdlink.chiron.flow.journal;
+
+import com.google.common.base.Charsets;
+import com.google.common.base.Splitter;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
+import com.otcdlink.chiron.command.Command;
+import com.otcdlink.chiron.command.Stamp;
+import com.otcdlink.chiron.designator.Designator;
+import com.otcdlink.chiron.designator.DesignatorForger;
+import com.otcdlink.chiron.integration.echo.EchoUpwardDuty;
+import com.otcdlink.chiron.integration.echo.UpwardEchoCommand;
+import com.otcdlink.chiron.middle.session.SessionIdentifier;
+import org.junit.jupiter.api.Test;
+
+import java.io.File;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.locks.LockSupport;
+import java.util.stream.Collectors;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class JournalSwitchoverTest {
+
+  @Test
+  void switchoverUnderLoad() throws Exception {
+    final Map< String, JournalHeapPersister< Designator, EchoUpwardDuty< Designator > > >
+        persisters = new ConcurrentHashMap<>() ;
+    final JournalPersister.Factory< Command< Designator, EchoUpwardDuty< Designator > > >
+        factory = recordingFactory( persisters ) ;
+
+    final AtomicBoolean running = new AtomicBoolean( true ) ;
+    final Thread[] logicThread = { null } ;
+    final Thread[] persisterThread = { null } ;
+    final JournalSwitchover< String, Command< Designator, EchoUpwardDuty< Designator > > >
+        switchover = new JournalSwitchover<>(
+            ImmutableMap.of(
+                PERSISTER, () -> LockSupport.unpark( persisterThread[ 0 ] ),
+                LOGIC, () -> LockSupport.unpark( logicThread[ 0 ] )
+            ),
+            PERSISTER,
+            factory,
+            new File( "first" ),
+            () -> BOUNDARY
+        )
+    ;
+
+    // Mostly idle, so it needs its waker.
+    logicThread[ 0 ] = new Thread( () -> idle( switchover.stage( LOGIC ), running ), LOGIC ) ;
+    logicThread[ 0 ].start() ;
+
+    final JournalPersister< Command< Designator, EchoUpwardDuty< Designator > > > persister =
+        switchover.persister() ;
+    persister.open() ;
+    final CountDownLatch halfWritten = new CountDownLatch( 1 ) ;
+    persisterThread[ 0 ] = new Thread( () -> {
+      for( int i = 0 ; i < COMMAND_COUNT ; i ++ ) {
+        persister.accept( command( i ) ) ;
+        if( i == COMMAND_COUNT / 2 ) {
+          halfWritten.countDown() ;
+        }
+      }
+      // Switchover may happen after last Command.
+      idle( switchover.stage( PERSISTER ), running ) ;
+    }, PERSISTER ) ;
+    persisterThread[ 0 ].start() ;
+
+    halfWritten.await() ;
+    switchover.switchover( new File( "second" ) ) ;
+    running.set( false ) ;
+    for( final Thread thread : new Thread[] { logicThread[ 0 ], persisterThread[ 0 ] } ) {
+      LockSupport.unpark( thread ) ;
+      thread.join() ;
+    }
+    persister.close() ;
+
+    final List< String > firstLines = lines( persisters.get( "first" ) ) ;
+    final List< String > secondLines = lines( persisters.get( "second" ) ) ;
+    final String boundaryLine = "Boundary " + BOUNDARY.asStringRoundedToFlooredSecond() ;
+    assertThat( firstLines.get( 0 ) ).isEqualTo( HEADER ) ;
+    assertThat( firstLines.get( firstLines.size() - 1 ) ).isEqualTo( boundaryLine ) ;
+    assertThat( secondLines.get( 0 ) ).isEqualTo( HEADER ) ;
+    assertThat( secondLines.get( 1 ) ).isEqualTo( boundaryLine ) ;
+
+    final ImmutableList< String > allCommandLines = ImmutableList.< String >builder()
+        .addAll( firstLines.subList( 1, firstLines.size() - 1 ) )
+        .addAll( secondLines.subList( 2, secondLines.size() ) )
+        .build()
+    ;
+    assertThat( allCommandLines ).hasSize( COMMAND_COUNT ) ;
+    for( int i = 0 ; i < COMMAND_COUNT ; i ++ ) {
+      assertThat( allCommandLines.get( i ) ).contains( " " + i + "__Hello" ) ;
+    }
+  }
+
+  @Test
+  void abandonWhenSomeStageNeverReachesBoundary() throws Exception {
+    final Map< String, JournalHeapPersister< Designator, EchoUpwardDuty< Designator > > >
+        persisters = new ConcurrentHashMap<>() ;
+    final AtomicBoolean running = new AtomicBoolean( true ) ;
+    final JournalSwitchover< String, Command< Designator, EchoUpwardDuty< Designator > > >
+        switchover = new JournalSwitchover<>(
+            ImmutableMap.of(
+                PERSISTER, () -> { },
+                // Stuck somewhere, waking it up does nothing.
+                LOGIC, () -> { }
+            ),
+            PERSISTER,
+            recordingFactory( persisters ),
+            new File( "first" ),
+            () -> BOUNDARY,
+            100
+        )
+    ;
+
+    final JournalPersister< Command< Designator, EchoUpwardDuty< Designator > > > persister =
+        switchover.persister() ;
+    persister.open() ;
+    final Thread persisterThread = new Thread( () -> {
+      while( running.get() ) {
+        switchover.stage( PERSISTER ).commandBoundary() ;
+        LockSupport.parkNanos( 1_000_000L ) ;
+      }
+      for( int i = 0 ; i < COMMAND_COUNT ; i ++ ) {
+        persister.accept( command( i ) ) ;
+      }
+    }, PERSISTER ) ;
+    persisterThread.start() ;
+
+    assertThatThrownBy( () -> switchover.switchover( new File( "second" ) ) )
+        .isInstanceOf( TimeoutException.class ) ;
+    running.set( false ) ;
+    persisterThread.join( 5_000 ) ;
+    assertThat( persisterThread.isAlive() )
+        .describedAs( "Persister stage should resume after abandoned switchover" )
+        .isFalse() ;
+    persister.close() ;
+
+    final List< String > firstLines = lines( persisters.get( "first" ) ) ;
+    assertThat( firstLines.get( 0 ) ).isEqualTo( HEADER ) ;
+    assertThat( firstLines.subList( 1, firstLines.size() ) ).hasSize( COMMAND_COUNT ) ;
+  }
+
+// =======
+// Fixture
+// =======
+
+  private static final String PERSISTER = "persister" ;
+
+  private static final String LOGIC = "logic" ;
+
+  private static final int COMMAND_COUNT = 10_000 ;
+
+  private static final String HEADER = "SchemaVersion 1 ApplicationVersion JustTesting" ;
+
+  private static final Stamp BOUNDARY = Stamp.raw( Stamp.FLOOR_MILLISECONDS + 10_000, 0 ) ;
+
+  private static final DesignatorForger.CounterStep DESIGNATOR_FORGER =
+      DesignatorForger.newForger()
+          .session( new SessionIdentifier( "7he5e5510N" ) )
+          .flooredInstant( 1 )
+  ;
+
+  private static Command< Designator, EchoUpwardDuty< Designator > > command( final int index ) {
+    return new UpwardEchoCommand<>(
+        DESIGNATOR_FORGER.counter( index ).upward(), index + "__Hello" ) ;
+  }
+
+  private static JournalPersister.Factory< Command< Designator, EchoUpwardDuty< Designator > > >
+  recordingFactory(
+      final Map< String, JournalHeapPersister< Designator, EchoUpwardDuty< Designator > > >
+          persisters
+  ) {
+    return file -> {
+      final JournalHeapPersister< Designator, EchoUpwardDuty< Designator > > persister =
+          new JournalHeapPersister<>(
+              new FileDesignatorCodecTools.InwardDesignatorEncoder(), 1, "JustTesting" ) ;
+      persisters.put( file.getName(), persister ) ;
+      return persister ;
+    } ;
+  }
+
+  private static void idle( final JournalSwitchover.Stage stage, final AtomicBoolean running ) {
+    while( running.get() ) {
+      stage.commandBoundary() ;
+      LockSupport.parkNanos( 1_000_000_000L ) ;
+    }
+  }
+
+  private static List< String > lines( final JournalHeapPersister< ?, ? > persister ) {
+    return Splitter.on( IntradayPersistenceConstants.LINE_BREAK.asString )
+        .omitEmptyStrings()
+        .splitToList( new String( persister.getBytes(), Charsets.US_ASCII ) )
+        .stream()
+        .map( String::trim )
+        .collect( Collectors.toList() )
+    ;
+  }
+
+}
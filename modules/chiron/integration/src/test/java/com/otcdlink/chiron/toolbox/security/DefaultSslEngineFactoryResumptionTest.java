@@ -0,0 +1,71 @@
+package com.otcdlink.chiron.toolbox.security;
+
+import com.otcdlink.chiron.middle.AutosignerFixture;
+import io.netty.buffer.ByteBuf;
+import io.netty.channel.embedded.EmbeddedChannel;
+import io.netty.handler.ssl.SslHandler;
+import org.junit.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class DefaultSslEngineFactoryResumptionTest {
+
+  @Test
+  public void secondHandshakeResumesSession() throws Exception {
+    final DefaultSslEngineFactory.ForServer serverFactory =
+        ( DefaultSslEngineFactory.ForServer ) AutosignerFixture.sslEngineFactoryForServer() ;
+    final DefaultSslEngineFactory.ForClient clientFactory =
+        ( DefaultSslEngineFactory.ForClient ) AutosignerFixture.sslEngineFactoryForClient() ;
+
+    handshake( clientFactory, serverFactory ) ;
+    assertThat( serverFactory.handshakeMeter().snapshot().full ).isEqualTo( 1 ) ;
+    assertThat( serverFactory.handshakeMeter().snapshot().resumed ).isEqualTo( 0 ) ;
+
+    // Session creation time has a millisecond resolution.
+    Thread.sleep( 10 ) ;
+
+    handshake( clientFactory, serverFactory ) ;
+    final HandshakeMeter.Snapshot serverSnapshot = serverFactory.handshakeMeter().snapshot() ;
+    assertThat( serverSnapshot.full ).isEqualTo( 1 ) ;
+    assertThat( serverSnapshot.resumed ).isEqualTo( 1 ) ;
+    assertThat( serverSnapshot.failed ).isEqualTo( 0 ) ;
+    assertThat( clientFactory.handshakeMeter().snapshot().resumed ).isEqualTo( 1 ) ;
+  }
+
+// =======
+// Fixture
+// =======
+
+  private static final String HOST = "localhost" ;
+  private static final int PORT = 443 ;
+
+  private static void handshake(
+      final SslEngineFactory.ForClient clientFactory,
+      final SslEngineFactory.ForServer serverFactory
+  ) {
+    final SslHandler serverHandler = serverFactory.newSslHandler( "127.0.0.1", 50000 ) ;
+    final SslHandler clientHandler = clientFactory.newSslHandler( HOST, PORT ) ;
+    final EmbeddedChannel server = new EmbeddedChannel( serverHandler ) ;
+    final EmbeddedChannel client = new EmbeddedChannel( clientHandler ) ;
+    for( int i = 0 ; i < 100 ; i ++ ) {
+      if( clientHandler.handshakeFuture().isDone() && serverHandler.handshakeFuture().isDone() ) {
+        break ;
+      }
+      ferry( client, server ) ;
+      ferry( server, client ) ;
+    }
+    assertThat( serverHandler.handshakeFuture().isSuccess() ).isTrue() ;
+    assertThat( clientHandler.handshakeFuture().isSuccess() ).isTrue() ;
+    client.finishAndReleaseAll() ;
+    server.finishAndReleaseAll() ;
+  }
+
+  private static void ferry( final EmbeddedChannel from, final EmbeddedChannel to ) {
+    from.runPendingTasks() ;
+    ByteBuf byteBuf ;
+    while( ( byteBuf = from.readOutbound() ) != null ) {
+      to.writeInbound( byteBuf ) ;
+    }
+  }
+
+}
@@ -0,0 +1,243 @@
+package com.otcdlink.chiron.upend.session.implementation;
+
+import com.otcdlink.chiron.designator.Designator;
+import com.otcdlink.chiron.integration.ReactiveSessionFixture.MyAddress;
+import com.otcdlink.chiron.integration.ReactiveSessionFixture.MyChannel;
+import com.otcdlink.chiron.integration.ReactiveSessionFixture.MyUser;
+import com.otcdlink.chiron.middle.session.SecondaryToken;
+import com.otcdlink.chiron.middle.session.SessionIdentifier;
+import com.otcdlink.chiron.middle.session.SignableUser;
+import com.otcdlink.chiron.middle.session.SignonDecision;
+import com.otcdlink.chiron.middle.session.SignonFailure;
+import com.otcdlink.chiron.middle.session.SignonFailureNotice;
+import com.otcdlink.chiron.middle.session.SignonSetback;
+import com.otcdlink.chiron.toolbox.clock.UpdateableClock;
+import com.otcdlink.chiron.upend.TimeKit;
+import com.otcdlink.chiron.upend.session.SessionSupervisor;
+import com.otcdlink.chiron.upend.session.SignonInwardDuty;
+import org.joda.time.Duration;
+import org.junit.After;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import static com.otcdlink.chiron.integration.ReactiveSessionFixture.CHANNEL_A1;
+import static com.otcdlink.chiron.integration.ReactiveSessionFixture.CHANNEL_B1;
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class ShardedSessionSupervisorTest {
+
+  @Test
+  public void manyUsersAcrossShards() throws Exception {
+    final List< CompletableFuture< SessionIdentifier > > sessions = new ArrayList<>() ;
+    for( int i = 0 ; i < USER_COUNT ; i ++ ) {
+      sessions.add( primarySignon(
+          "user" + i, new MyChannel( "Channel" + i + "/1.1.1.1" ) { } ) ) ;
+    }
+    for( final CompletableFuture< SessionIdentifier > session : sessions ) {
+      assertThat( session.get( TIMEOUT_S, TimeUnit.SECONDS ) ).isNotNull() ;
+    }
+    assertThat( sessions.stream().map( CompletableFuture::join ).distinct().count() )
+        .isEqualTo( USER_COUNT ) ;
+  }
+
+  @Test
+  public void oneSessionPerUser() throws Exception {
+    primarySignon( "someone", CHANNEL_A1 ).get( TIMEOUT_S, TimeUnit.SECONDS ) ;
+    final CompletableFuture< SessionIdentifier > second = primarySignon( "someone", CHANNEL_B1 ) ;
+    assertThat( failure( second ).kind ).isEqualTo( SignonFailure.SESSION_ALREADY_ATTRIBUTED ) ;
+  }
+
+  @Test
+  public void inactiveSessionExpires() throws Exception {
+    final SessionIdentifier sessionIdentifier =
+        primarySignon( "someone", CHANNEL_A1 ).get( TIMEOUT_S, TimeUnit.SECONDS ) ;
+    sessionSupervisor.closed( CHANNEL_A1, sessionIdentifier, false ) ;
+    assertThat( reuse( sessionIdentifier, CHANNEL_A1 ).get( TIMEOUT_S, TimeUnit.SECONDS ) )
+        .isNull() ;
+
+    sessionSupervisor.closed( CHANNEL_A1, sessionIdentifier, false ) ;
+    clock.increment( MAXIMUM_INACTIVITY.getMillis() * 2 ) ;
+    // Let the sweep happen.
+    Thread.sleep( SWEEP_PERIOD.getMillis() * 5 ) ;
+    final SignonFailureNotice reuseFailure =
+        reuse( sessionIdentifier, CHANNEL_A1 ).get( TIMEOUT_S, TimeUnit.SECONDS ) ;
+    assertThat( reuseFailure.kind ).isEqualTo( SignonFailure.UNKNOWN_SESSION ) ;
+  }
+
+  @Test
+  public void closeWithoutSessionIdentifier() throws Exception {
+    final SessionIdentifier sessionIdentifier =
+        primarySignon( "someone", CHANNEL_A1 ).get( TIMEOUT_S, TimeUnit.SECONDS ) ;
+    sessionSupervisor.closed( CHANNEL_A1, null, true ) ;
+    final SignonFailureNotice reuseFailure =
+        reuse( sessionIdentifier, CHANNEL_A1 ).get( TIMEOUT_S, TimeUnit.SECONDS ) ;
+    assertThat( reuseFailure.kind ).isEqualTo( SignonFailure.UNKNOWN_SESSION ) ;
+  }
+
+  @Test
+  public void reuseMalformedSessionIdentifier() throws Exception {
+    for( final String malformed : new String[] { "X", "-X", "99-X", "Z-X" } ) {
+      final SignonFailureNotice reuseFailure = reuse(
+          new SessionIdentifier( malformed ), CHANNEL_A1 ).get( TIMEOUT_S, TimeUnit.SECONDS ) ;
+      assertThat( reuseFailure.kind ).isEqualTo( SignonFailure.UNKNOWN_SESSION ) ;
+    }
+  }
+
+  @After
+  public void tearDown() {
+    sessionSupervisor.stop() ;
+  }
+
+
+// =======
+// Fixture
+// =======
+
+  private static final int USER_COUNT = 200 ;
+
+  private static final long TIMEOUT_S = 5 ;
+
+  private static final Duration MAXIMUM_INACTIVITY = Duration.standardSeconds( 10 ) ;
+
+  private static final Duration SWEEP_PERIOD = Duration.millis( 10 ) ;
+
+  private final TimeKit< UpdateableClock > timeKit = TimeKit.instrumentedTimeKit() ;
+
+  private final UpdateableClock clock = timeKit.clock ;
+
+  private final ShardedSessionSupervisor< MyChannel, MyAddress, Void > sessionSupervisor ;
+
+  public ShardedSessionSupervisorTest() {
+    sessionSupervisor = new ShardedSessionSupervisor<>(
+        timeKit,
+        4,
+        SWEEP_PERIOD,
+        DefaultSessionIdentifierGenerator::new,
+        new AcceptingLogic(),
+        null,
+        MAXIMUM_INACTIVITY,
+        MyChannel::remoteAddress,
+        channel -> { }
+    ) ;
+  }
+
+  /**
+   * Accepts every login, answering synchronously like a {@code UpendLogic} would do
+   * from its own thread.
+   */
+  private class AcceptingLogic implements SignonInwardDuty {
+    @Override
+    public void primarySignonAttempt(
+        final Designator designatorInternal,
+        final String login,
+        final String password
+    ) {
+      sessionSupervisor.primarySignonAttempted(
+          designatorInternal, new SignonDecision<>( new MyUser( login, "+360000000" ) { } ) ) ;
+    }
+
+    @Override
+    public void registerSession(
+        final Designator designatorInternal,
+        final SessionIdentifier sessionIdentifier,
+        final String login
+    ) {
+      sessionSupervisor.sessionCreated( designatorInternal, sessionIdentifier, login, null ) ;
+    }
+
+    @Override
+    public void secondarySignonAttempt( final Designator designator, final String login ) { }
+
+    @Override
+    public void failedSignonAttempt(
+        final Designator designator,
+        final String login,
+        final SignonSetback.Factor factor
+    ) { }
+
+    @Override
+    public void signout( final Designator designator ) { }
+
+    @Override
+    public void signoutQuiet(
+        final Designator designator,
+        final SessionIdentifier sessionIdentifier
+    ) { }
+
+    @Override
+    public void signoutAll( final Designator designator ) { }
+
+    @Override
+    public void resetSignonFailures( final Designator designator, final String login ) { }
+  }
+
+  private CompletableFuture< SessionIdentifier > primarySignon(
+      final String login,
+      final MyChannel channel
+  ) {
+    final CompletableFuture< SessionIdentifier > future = new CompletableFuture<>() ;
+    sessionSupervisor.attemptPrimarySignon(
+        login,
+        "password",
+        channel,
+        channel.remoteAddress(),
+        new SessionSupervisor.PrimarySignonAttemptCallback< Void >() {
+          @Override
+          public void signonResult( final SignonFailureNotice signonFailureNotice ) {
+            future.completeExceptionally( new SignonFailed( signonFailureNotice ) ) ;
+          }
+
+          @Override
+          public void needSecondarySignon(
+              final SignableUser userIdentity,
+              final SecondaryToken secondaryToken
+          ) {
+            future.completeExceptionally( new IllegalStateException( "Unexpected" ) ) ;
+          }
+
+          @Override
+          public void sessionAttributed(
+              final SessionIdentifier sessionIdentifier,
+              final Void sessionPrimer
+          ) {
+            future.complete( sessionIdentifier ) ;
+          }
+        }
+    ) ;
+    return future ;
+  }
+
+  private CompletableFuture< SignonFailureNotice > reuse(
+      final SessionIdentifier sessionIdentifier,
+      final MyChannel channel
+  ) {
+    final CompletableFuture< SignonFailureNotice > future = new CompletableFuture<>() ;
+    sessionSupervisor.tryReuse( sessionIdentifier, channel, future::complete ) ;
+    return future ;
+  }
+
+  private static SignonFailureNotice failure( final CompletableFuture< ? > future )
+      throws Exception
+  {
+    try {
+      future.get( TIMEOUT_S, TimeUnit.SECONDS ) ;
+      throw new AssertionError( "Should have failed" ) ;
+    } catch( final ExecutionException e ) {
+      return ( ( SignonFailed ) e.getCause() ).signonFailureNotice ;
+    }
+  }
+
+  private static class SignonFailed extends Exception {
+    final SignonFailureNotice signonFailureNotice ;
+
+    SignonFailed( final SignonFailureNotice signonFailureNotice ) {
+      super( signonFailureNotice.toString() ) ;
+      this.signonFailureNotice = signonFailureNotice ;
+    }
+  }
+}
@@ -6,12 +6,18 @@ import com.otcdlink.chiron.buffer.PositionalFieldWriter;
 import com.otcdlink.chiron.codec.CommandBodyDecoder;
 import com.otcdlink.chiron.codec.DecodeException;
 import com.otcdlink.chiron.command.Command;
+import com.otcdlink.chiron.command.RecyclableCommand;
 import com.otcdlink.chiron.command.Stamp;
 import com.otcdlink.chiron.designator.Designator;
 import com.otcdlink.chiron.designator.DesignatorForger;
+import com.otcdlink.chiron.designator.FlyweightDesignator;
 import com.otcdlink.chiron.middle.ChannelTools;
 import com.otcdlink.chiron.middle.CommandAssert;
 import com.otcdlink.chiron.middle.session.SessionIdentifier;
+import com.otcdlink.chiron.middle.tier.WebsocketMetrics;
+import com.otcdlink.chiron.toolbox.clock.Clock;
+import com.otcdlink.chiron.toolbox.metrics.Histogram;
+import com.otcdlink.chiron.toolbox.metrics.MetricRegistry;
 import io.netty.channel.embedded.EmbeddedChannel;
 import io.netty.handler.codec.http.websocketx.TextWebSocketFrame;
 import mockit.Expectations;
@@ -60,6 +66,99 @@ public class CommandWebsocketDecoderUpendTierTest {
         .isEquivalentTo( DUMMY_UPWARD_COMMAND ) ;
   }
 
+  @Test
+  public void metrics(
+      @Injectable final Designator.Factory designatorFactory
+  ) throws Exception {
+    final MetricRegistry metricRegistry = new MetricRegistry() ;
+    final CommandWebsocketCodecUpendTier<
+                InboundCallableReceiver,
+                OutboundCallableReceiver
+            > channelHandler = new CommandWebsocketCodecUpendTier<>(
+        newBodyDecoder(),
+        designatorFactory,
+        new WebsocketMetrics( metricRegistry, "test" )
+    ) ;
+
+    final EmbeddedChannel embeddedChannel = new EmbeddedChannel( channelHandler ) ;
+    embeddedChannel.attr( ChannelTools.SESSION_KEY ).set( SESSION_IDENTIFIER ) ;
+
+    new Expectations() {{
+      designatorFactory.upward( TAG, SESSION_IDENTIFIER ) ;
+      result = DUMMY_UPWARD_COMMAND.endpointSpecific ;
+    }} ;
+
+    final String frameText = DUMMY_UPWARD_COMMAND.description().name() + ' ' +
+        TAG.asString() + ' ' +
+        Integer.toString( DUMMY_UPWARD_COMMAND.integerPrimitive ) + ' ' +
+        DUMMY_UPWARD_COMMAND.nullableString + ' '
+    ;
+    embeddedChannel.writeInbound( new TextWebSocketFrame( frameText ) ) ;
+
+    final Histogram frameSizes = metricRegistry.histogram( "test.frame.size.in" ) ;
+    assertThat( frameSizes.count() ).isEqualTo( 1 ) ;
+    assertThat( frameSizes.max() ).isEqualTo( frameText.length() ) ;
+    assertThat( metricRegistry.snapshot() )
+        .containsEntry( "test.frames.in", 1L )
+        .containsEntry( "test.bytes.in", ( long ) frameText.length() )
+    ;
+  }
+
+  @Test
+  public void recyclableSkipsTagAndReusesDesignator() throws Exception {
+    final CommandWebsocketCodecUpendTier<
+                InboundCallableReceiver,
+                OutboundCallableReceiver
+            > channelHandler = new CommandWebsocketCodecUpendTier<>(
+        newRecyclingBodyDecoder(),
+        new Designator.Factory( new Stamp.Generator( CLOCK ) )
+    ) ;
+
+    final EmbeddedChannel embeddedChannel = new EmbeddedChannel( channelHandler ) ;
+    embeddedChannel.attr( ChannelTools.SESSION_KEY ).set( SESSION_IDENTIFIER ) ;
+
+    embeddedChannel.writeInbound( recyclableFrame( 1 ) ) ;
+    embeddedChannel.writeInbound( recyclableFrame( 2 ) ) ;
+
+    assertThat( embeddedChannel.inboundMessages() ).hasSize( 2 ) ;
+    final RecyclableDummyCommand command1 =
+        ( RecyclableDummyCommand ) embeddedChannel.inboundMessages().remove() ;
+    final RecyclableDummyCommand command2 =
+        ( RecyclableDummyCommand ) embeddedChannel.inboundMessages().remove() ;
+
+    assertThat( command1.integerPrimitive ).isEqualTo( 1 ) ;
+    assertThat( command2.integerPrimitive ).isEqualTo( 2 ) ;
+    assertThat( command1.endpointSpecific ).isInstanceOf( FlyweightDesignator.class ) ;
+    assertThat( command2.endpointSpecific ).isSameAs( command1.endpointSpecific ) ;
+    assertThat( ( ( FlyweightDesignator ) command1.endpointSpecific ).sessionIdentifier )
+        .isEqualTo( SESSION_IDENTIFIER ) ;
+  }
+
+  @Test
+  public void recyclableGetsNewDesignatorAfterSessionChange() throws Exception {
+    final CommandWebsocketCodecUpendTier<
+                InboundCallableReceiver,
+                OutboundCallableReceiver
+            > channelHandler = new CommandWebsocketCodecUpendTier<>(
+        newRecyclingBodyDecoder(),
+        new Designator.Factory( new Stamp.Generator( CLOCK ) )
+    ) ;
+
+    final EmbeddedChannel embeddedChannel = new EmbeddedChannel( channelHandler ) ;
+    embeddedChannel.attr( ChannelTools.SESSION_KEY ).set( SESSION_IDENTIFIER ) ;
+    embeddedChannel.writeInbound( recyclableFrame( 1 ) ) ;
+
+    embeddedChannel.attr( ChannelTools.SESSION_KEY ).set( SESSION_IDENTIFIER_2 ) ;
+    embeddedChannel.writeInbound( recyclableFrame( 2 ) ) ;
+
+    assertThat( embeddedChannel.inboundMessages() ).hasSize( 2 ) ;
+    final Command command1 = ( Command ) embeddedChannel.inboundMessages().remove() ;
+    final Command command2 = ( Command ) embeddedChannel.inboundMessages().remove() ;
+
+    assertThat( command2.endpointSpecific ).isNotSameAs( command1.endpointSpecific ) ;
+    assertThat( ( ( FlyweightDesignator ) command2.endpointSpecific ).sessionIdentifier )
+        .isEqualTo( SESSION_IDENTIFIER_2 ) ;
+  }
 
   @Test
   public void encode(
@@ -123,6 +222,37 @@ public class CommandWebsocketDecoderUpendTierTest {
       targettedDecoders.get( commandName ).decode( endpointSpecific, positionalFieldReader ) ;
   }
 
+  /**
+   * Decodes {@link RecyclableDummyCommand} from the {@link FlyweightDesignator}'s pool, and
+   * {@link DummyCommand} as usual.
+   */
+  private static CommandBodyDecoder< Designator, InboundCallableReceiver >
+  newRecyclingBodyDecoder() {
+    final CommandBodyDecoder< Designator, InboundCallableReceiver > usual = newBodyDecoder() ;
+    return new CommandBodyDecoder< Designator, InboundCallableReceiver >() {
+      @Override
+      public Command< Designator, InboundCallableReceiver > decodeBody(
+          final Designator endpointSpecific,
+          final String commandName,
+          final PositionalFieldReader positionalFieldReader
+      ) throws IOException {
+        if( recycles( commandName ) ) {
+          final RecyclableDummyCommand command = ( ( FlyweightDesignator ) endpointSpecific )
+              .obtain( RecyclableDummyCommand.class, RecyclableDummyCommand::new ) ;
+          command.readBody( positionalFieldReader ) ;
+          return command ;
+        } else {
+          return usual.decodeBody( endpointSpecific, commandName, positionalFieldReader ) ;
+        }
+      }
+
+      @Override
+      public boolean recycles( final String commandName ) {
+        return "recyclable".equals( commandName ) ;
+      }
+    } ;
+  }
+
   interface TargettedCommandDecoder< ENDPOINT_SPECIFIC, CALLABLE_RECEIVER > {
     Command< ENDPOINT_SPECIFIC, CALLABLE_RECEIVER > decode(
         final ENDPOINT_SPECIFIC endpointSpecific,
@@ -171,7 +301,46 @@ public class CommandWebsocketDecoderUpendTierTest {
     }
   }
 
+  @Command.Description( name = "recyclable", tracked = false )
+  private static class RecyclableDummyCommand
+      extends RecyclableCommand< InboundCallableReceiver >
+  {
+    private int integerPrimitive ;
+
+    public RecyclableDummyCommand( final FlyweightDesignator designator ) {
+      super( designator ) ;
+    }
+
+    @Override
+    public void readBody( final PositionalFieldReader positionalFieldReader ) throws IOException {
+      integerPrimitive = positionalFieldReader.readIntegerPrimitive() ;
+    }
+
+    @Override
+    protected void clearBody() {
+      integerPrimitive = 0 ;
+    }
+
+    @Override
+    public void callReceiver( final InboundCallableReceiver inboundCallableReceiver ) {
+      inboundCallableReceiver.intAndString( integerPrimitive, null ) ;
+    }
+
+    @Override
+    public void encodeBody( final PositionalFieldWriter positionalFieldWriter ) throws IOException {
+      positionalFieldWriter.writeIntegerPrimitive( integerPrimitive ) ;
+    }
+  }
+
+  private static TextWebSocketFrame recyclableFrame( final int integerPrimitive ) {
+    return new TextWebSocketFrame( "recyclable " + TAG.asString() + ' ' + integerPrimitive + ' ' ) ;
+  }
+
+  private static final Clock CLOCK = () -> Stamp.FLOOR_MILLISECONDS ;
+
   private static final SessionIdentifier SESSION_IDENTIFIER = new SessionIdentifier( "Stuvwxyz" ) ;
+  private static final SessionIdentifier SESSION_IDENTIFIER_2 =
+      new SessionIdentifier( "Rstuvwxy" ) ;
   private static final Stamp STAMP = Stamp.raw( Stamp.FLOOR_MILLISECONDS, 1 ) ;
   private static final Command.Tag TAG = new Command.Tag( "Tuvwx" ) ;
   private static final Designator DESIGNATOR_UPWARD = DesignatorForger.newForger()
@@ -1,21 +1,16 @@
 package com.otcdlink.chiron.upend.tier;
 
-import com.otcdlink.chiron.fixture.Monolist;
 import io.netty.channel.Channel;
 import io.netty.channel.embedded.EmbeddedChannel;
 import io.netty.handler.codec.http.websocketx.PingWebSocketFrame;
 import io.netty.handler.codec.http.websocketx.PongWebSocketFrame;
 import io.netty.handler.codec.http.websocketx.TextWebSocketFrame;
-import io.netty.util.concurrent.ScheduledFuture;
-import mockit.Mock;
-import mockit.MockUp;
 import org.junit.Test;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
-import java.util.concurrent.ScheduledExecutorService;
-import java.util.concurrent.Semaphore;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
 
 import static org.assertj.core.api.Assertions.assertThat;
 
@@ -40,48 +35,40 @@ public class PongTierTest {
   }
 
 
-//  @Ignore( "Broken by Netty 4.1.24.Final, EmbeddedChannel doesn't seem to register ChannelHandlers properly" )
-  @Test( /*timeout = TIMEOUT*/ )
-  public < EXECUTOR extends ScheduledExecutorService > void timeout() throws Exception {
-
-    final int timeout = 100 ;
-    final Monolist< Runnable > runnableCapture = new Monolist<>() ;
-    final Semaphore schedulingHappenedSemaphore = new Semaphore( 0 ) ;
-
-    new MockUp< EXECUTOR >() {
-      /**
-       * Same as {@link ScheduledExecutorService#schedule(Runnable, long, TimeUnit)}
-       */
-      @SuppressWarnings( "unused" )
-      @Mock
-      public ScheduledFuture< ? > schedule(
-          final Runnable command,
-          final long delay,
-          final TimeUnit timeUnit
-      ) {
-        LOGGER.info( "Scheduling timeout in the mock ..." ) ;
-        assertThat( timeUnit.toMillis( delay ) ).isEqualTo( timeout ) ;
-        runnableCapture.add( command ) ;
-        schedulingHappenedSemaphore.release() ;
-        return null ;
-      }
-    } ;
-
-    LOGGER.info( "Creating " + CHANNEL_CLASS + " that timeouts very soon." ) ;
-
-    final EmbeddedChannel channel = new EmbeddedChannel( new PongTier( timeout ) ) ;
+  @Test
+  public void timeout() {
+    final AtomicLong nanoClock = new AtomicLong( 0 ) ;
+    final EmbeddedChannel channel =
+        new EmbeddedChannel( new PongTier( TIMEOUT_MS, nanoClock::get ) ) ;
+    assertThat( channel.isOpen() ).isTrue() ;
 
+    nanoClock.set( TimeUnit.MILLISECONDS.toNanos( TIMEOUT_MS ) ) ;
+    LivenessSweeper.sweepNow( channel.eventLoop() ) ;
     assertThat( channel.isOpen() ).isTrue() ;
 
-//    Executors.newSingleThreadScheduledExecutor().schedule( () -> {}, 1, TimeUnit.MILLISECONDS ) ;
-    schedulingHappenedSemaphore.acquire() ;
+    nanoClock.set( TimeUnit.MILLISECONDS.toNanos( TIMEOUT_MS + 1 ) ) ;
+    LivenessSweeper.sweepNow( channel.eventLoop() ) ;
+    LOGGER.info( "Sweep caused " + CHANNEL_CLASS + " to close." ) ;
+    assertThat( channel.isOpen() ).isFalse() ;
+  }
+
+  @Test
+  public void contentFrameCountsAsActivity() {
+    final AtomicLong nanoClock = new AtomicLong( 0 ) ;
+    final EmbeddedChannel channel =
+        new EmbeddedChannel( new PongTier( TIMEOUT_MS, nanoClock::get ) ) ;
 
-    LOGGER.info( "Timeout scheduling happened." ) ;
+    nanoClock.set( TimeUnit.MILLISECONDS.toNanos( TIMEOUT_MS ) ) ;
+    channel.writeInbound( new TextWebSocketFrame() ) ;
+    channel.< Object >readInbound() ;
 
-    runnableCapture.get().run() ;
-    LOGGER.info( "Executed timeout callback caused " + CHANNEL_CLASS + " to close." ) ;
-    assertThat( channel.isOpen() ).isFalse() ;
+    nanoClock.set( TimeUnit.MILLISECONDS.toNanos( TIMEOUT_MS * 2 ) ) ;
+    LivenessSweeper.sweepNow( channel.eventLoop() ) ;
+    assertThat( channel.isOpen() ).isTrue() ;
 
+    nanoClock.set( TimeUnit.MILLISECONDS.toNanos( TIMEOUT_MS * 2 + 1 ) ) ;
+    LivenessSweeper.sweepNow( channel.eventLoop() ) ;
+    assertThat( channel.isOpen() ).isFalse() ;
   }
 
 
@@ -104,8 +91,7 @@ public class PongTierTest {
     return channel ;
   }
 
-  private static final long TIMEOUT = 1_000 ;
-//  private static final long TIMEOUT = 1_000_000 ;
+  private static final long TIMEOUT_MS = 100 ;
 
   private static final String CHANNEL_CLASS = Channel.class.getSimpleName() ;
 
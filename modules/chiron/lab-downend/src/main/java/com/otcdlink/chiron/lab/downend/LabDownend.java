@@ -13,6 +13,7 @@ import com.otcdlink.chiron.toolbox.UrxTools;
 import com.otcdlink.chiron.toolbox.clock.Clock;
 import com.otcdlink.chiron.toolbox.concurrent.ExecutorTools;
 import com.otcdlink.chiron.toolbox.internet.HostPort;
+import io.netty.channel.EventLoopGroup;
 import io.netty.channel.nio.NioEventLoopGroup;
 
 import java.net.URL;
@@ -32,13 +33,32 @@ public class LabDownend {
       final SignonMaterializer signonMaterializer,
       final CommandTransceiver.ChangeWatcher changeWatcher,
       final LabDownwardDuty< Tracker > labDownwardDuty
+  ) {
+    this(
+        new NioEventLoopGroup( 2, ExecutorTools.newCountingDaemonThreadFactory( LabDownend.class ) ),
+        hostPort,
+        signonMaterializer,
+        changeWatcher,
+        labDownwardDuty
+    ) ;
+  }
+
+  /**
+   * @param eventLoopGroup may be shared with other {@link LabDownend}s.
+   */
+  public LabDownend(
+      final EventLoopGroup eventLoopGroup,
+      final HostPort hostPort,
+      final SignonMaterializer signonMaterializer,
+      final CommandTransceiver.ChangeWatcher changeWatcher,
+      final LabDownwardDuty< Tracker > labDownwardDuty
   ) {
     websocketUrl = UrxTools.parseUrlQuiet(
         "http://" + hostPort.asString() + "/websocket" ) ;
 
     commandTransceiver = new CommandTransceiver<>( new CommandTransceiver.Setup<>(
         Clock.SYSTEM_CLOCK,
-        new NioEventLoopGroup( 2, ExecutorTools.newCountingDaemonThreadFactory( LabDownend.class ) ),
+        eventLoopGroup,
         websocketUrl,
         null,
         null,
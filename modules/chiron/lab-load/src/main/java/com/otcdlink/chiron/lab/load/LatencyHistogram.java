@@ -0,0 +1,111 @@
+package com.otcdlink.chiron.lab.load;
+
+import com.otcdlink.chiron.toolbox.ToStringTools;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+import static com.google.common.base.Preconditions.checkArgument;
+
+/**
+ * Lock-free histogram of latencies, in microseconds, with a relative error under 1/32
+ * (values under 64 µs are exact).
+ * Each power of 2 gets 32 linear sub-buckets, so recording is a few bit operations and one
+ * {@link AtomicLongArray#incrementAndGet(int)}, with no allocation, which is what we want
+ * when thousands of Downends record concurrently.
+ */
+public final class LatencyHistogram {
+
+  private static final int SUB_BUCKET_BITS = 5 ;
+
+  private static final int SUB_BUCKET_COUNT = 1 << SUB_BUCKET_BITS ;
+
+  /**
+   * Values below this one get their own bucket.
+   */
+  private static final long EXACT_LIMIT = SUB_BUCKET_COUNT * 2 ;
+
+  private static final int BUCKET_COUNT = ( 64 - SUB_BUCKET_BITS ) * SUB_BUCKET_COUNT ;
+
+  private final AtomicLongArray counts = new AtomicLongArray( BUCKET_COUNT ) ;
+
+  private final AtomicLong total = new AtomicLong() ;
+
+  private final AtomicLong maximum = new AtomicLong() ;
+
+  public void recordNanoseconds( final long nanoseconds ) {
+    recordMicroseconds( TimeUnit.NANOSECONDS.toMicros( Math.max( 0, nanoseconds ) ) ) ;
+  }
+
+  public void recordMicroseconds( final long microseconds ) {
+    checkArgument( microseconds >= 0 ) ;
+    counts.incrementAndGet( indexOf( microseconds ) ) ;
+    total.incrementAndGet() ;
+    long currentMaximum ;
+    while( microseconds > ( currentMaximum = maximum.get() ) ) {
+      if( maximum.compareAndSet( currentMaximum, microseconds ) ) {
+        break ;
+      }
+    }
+  }
+
+  public long count() {
+    return total.get() ;
+  }
+
+  public long maximumMicroseconds() {
+    return maximum.get() ;
+  }
+
+  /**
+   * @param percentile between 0 and 100.
+   * @return upper bound of the bucket containing the value at given percentile,
+   *     or 0 if nothing was recorded.
+   */
+  public long percentileMicroseconds( final double percentile ) {
+    checkArgument( percentile >= 0 && percentile <= 100, "Incorrect percentile: " + percentile ) ;
+    final long count = total.get() ;
+    if( count == 0 ) {
+      return 0 ;
+    }
+    final long rank = Math.max( 1, ( long ) Math.ceil( count * percentile / 100 ) ) ;
+    long cumulated = 0 ;
+    for( int index = 0 ; index < BUCKET_COUNT ; index ++ ) {
+      cumulated += counts.get( index ) ;
+      if( cumulated >= rank ) {
+        return Math.min( upperBoundOf( index ), maximum.get() ) ;
+      }
+    }
+    return maximum.get() ;
+  }
+
+  static int indexOf( final long value ) {
+    if( value < EXACT_LIMIT ) {
+      return ( int ) value ;
+    }
+    final int magnitude = 63 - Long.numberOfLeadingZeros( value ) ;
+    final int shift = magnitude - SUB_BUCKET_BITS ;
+    return ( shift * SUB_BUCKET_COUNT ) + ( int ) ( value >>> shift ) ;
+  }
+
+  static long upperBoundOf( final int index ) {
+    if( index < EXACT_LIMIT ) {
+      return index ;
+    }
+    final int shift = index / SUB_BUCKET_COUNT - 1 ;
+    final long subBucket = index % SUB_BUCKET_COUNT + SUB_BUCKET_COUNT ;
+    return ( ( subBucket + 1 ) << shift ) - 1 ;
+  }
+
+  @Override
+  public String toString() {
+    return ToStringTools.nameAndCompactHash( this ) + "{" +
+        "count=" + count() + ";" +
+        "p50=" + percentileMicroseconds( 50 ) + "µs;" +
+        "p99=" + percentileMicroseconds( 99 ) + "µs;" +
+        "max=" + maximumMicroseconds() + "µs" +
+        "}"
+    ;
+  }
+}
@@ -0,0 +1,440 @@
+package com.otcdlink.chiron.lab.load;
+
+import com.otcdlink.chiron.downend.DownendStateTools;
+import com.otcdlink.chiron.downend.SignonMaterializer;
+import com.otcdlink.chiron.downend.Tracker;
+import com.otcdlink.chiron.fixture.tcp.forward.PortForwarder;
+import com.otcdlink.chiron.lab.downend.LabDownend;
+import com.otcdlink.chiron.lab.middle.LabDownwardDuty;
+import com.otcdlink.chiron.lab.upend.LabDaemon;
+import com.otcdlink.chiron.middle.CommandFailureNotice;
+import com.otcdlink.chiron.middle.TechnicalFailureNotice;
+import com.otcdlink.chiron.middle.session.SecondaryCode;
+import com.otcdlink.chiron.middle.session.SignonFailureNotice;
+import com.otcdlink.chiron.toolbox.Credential;
+import com.otcdlink.chiron.toolbox.TcpPortBooker;
+import com.otcdlink.chiron.toolbox.concurrent.ExecutorTools;
+import com.otcdlink.chiron.toolbox.internet.HostPort;
+import com.otcdlink.chiron.toolbox.internet.LocalAddressTools;
+import io.netty.channel.nio.NioEventLoopGroup;
+import io.netty.util.concurrent.EventExecutor;
+import io.netty.util.concurrent.ScheduledFuture;
+import org.joda.time.Duration;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static com.google.common.base.Preconditions.checkNotNull;
+
+/**
+ * Drives a lot of {@link LabDownend}s against one {@link LabDaemon} running
+ * {@link LoadUpendLogic}, optionally through a {@link PortForwarder} adding lag and jitter,
+ * and reports throughput and latency percentiles.
+ * All {@link LabDownend}s share the same {@link NioEventLoopGroup}, which also schedules
+ * the {@link com.otcdlink.chiron.command.Command}s at a fixed rate, so a few threads are
+ * enough for thousands of connections.
+ */
+public final class LoadGenerator {
+
+  private static final Logger LOGGER = LoggerFactory.getLogger( LoadGenerator.class ) ;
+
+  private final Setup setup ;
+
+  public LoadGenerator( final Setup setup ) {
+    this.setup = checkNotNull( setup ) ;
+  }
+
+  public static final class Setup {
+    public final int downendCount ;
+
+    /**
+     * Per {@link LabDownend}.
+     */
+    public final int commandsPerSecond ;
+
+    public final Duration duration ;
+
+    public final int lagMs ;
+
+    public final int jitterMs ;
+
+    public final int eventLoopThreads ;
+
+    public Setup(
+        final int downendCount,
+        final int commandsPerSecond,
+        final Duration duration,
+        final int lagMs,
+        final int jitterMs,
+        final int eventLoopThreads
+    ) {
+      checkArgument( downendCount > 0 ) ;
+      checkArgument( commandsPerSecond > 0 ) ;
+      checkArgument( duration.getMillis() > 0 ) ;
+      checkArgument( lagMs >= 0 ) ;
+      checkArgument( jitterMs >= 0 ) ;
+      checkArgument( eventLoopThreads > 0 ) ;
+      this.downendCount = downendCount ;
+      this.commandsPerSecond = commandsPerSecond ;
+      this.duration = checkNotNull( duration ) ;
+      this.lagMs = lagMs ;
+      this.jitterMs = jitterMs ;
+      this.eventLoopThreads = eventLoopThreads ;
+    }
+
+    public boolean degraded() {
+      return lagMs > 0 || jitterMs > 0 ;
+    }
+
+    @Override
+    public String toString() {
+      return getClass().getSimpleName() + "{" +
+          "downendCount=" + downendCount + ";" +
+          "commandsPerSecond=" + commandsPerSecond + ";" +
+          "duration=" + duration + ";" +
+          "lagMs=" + lagMs + ";" +
+          "jitterMs=" + jitterMs + ";" +
+          "eventLoopThreads=" + eventLoopThreads +
+          "}"
+      ;
+    }
+  }
+
+  /**
+   * Latency percentiles measure from the time each {@link com.otcdlink.chiron.command.Command}
+   * was supposed to be sent, so they include the delay of a saturated {@code EventLoop}.
+   */
+  public static final class Report {
+    public final long sent ;
+    public final long responded ;
+    public final long failed ;
+    public final long timedOut ;
+    public final Duration elapsed ;
+    public final long p50Microseconds ;
+    public final long p90Microseconds ;
+    public final long p99Microseconds ;
+    public final long p999Microseconds ;
+    public final long maximumMicroseconds ;
+
+    public Report(
+        final long sent,
+        final long responded,
+        final long failed,
+        final long timedOut,
+        final Duration elapsed,
+        final LatencyHistogram latencyHistogram
+    ) {
+      this.sent = sent ;
+      this.responded = responded ;
+      this.failed = failed ;
+      this.timedOut = timedOut ;
+      this.elapsed = checkNotNull( elapsed ) ;
+      this.p50Microseconds = latencyHistogram.percentileMicroseconds( 50 ) ;
+      this.p90Microseconds = latencyHistogram.percentileMicroseconds( 90 ) ;
+      this.p99Microseconds = latencyHistogram.percentileMicroseconds( 99 ) ;
+      this.p999Microseconds = latencyHistogram.percentileMicroseconds( 99.9 ) ;
+      this.maximumMicroseconds = latencyHistogram.maximumMicroseconds() ;
+    }
+
+    /**
+     * Responses per second.
+     */
+    public double throughput() {
+      return elapsed.getMillis() == 0 ? 0 : responded * 1000d / elapsed.getMillis() ;
+    }
+
+    @Override
+    public String toString() {
+      return getClass().getSimpleName() + "{" +
+          "sent=" + sent + ";" +
+          "responded=" + responded + ";" +
+          "failed=" + failed + ";" +
+          "timedOut=" + timedOut + ";" +
+          "elapsed=" + elapsed + ";" +
+          "throughput=" + String.format( "%.1f", throughput() ) + "/s;" +
+          "p50=" + p50Microseconds + "µs;" +
+          "p90=" + p90Microseconds + "µs;" +
+          "p99=" + p99Microseconds + "µs;" +
+          "p99.9=" + p999Microseconds + "µs;" +
+          "max=" + maximumMicroseconds + "µs" +
+          "}"
+      ;
+    }
+  }
+
+
+// ===
+// Run
+// ===
+
+  /**
+   * How long we wait for all {@link LabDownend}s to sign in, or for the last responses.
+   */
+  private static final long SETTLE_TIMEOUT_MS = 30_000 ;
+
+  private final LatencyHistogram latencyHistogram = new LatencyHistogram() ;
+  private final AtomicLong sent = new AtomicLong() ;
+  private final AtomicLong responded = new AtomicLong() ;
+  private final AtomicLong failed = new AtomicLong() ;
+  private final AtomicLong timedOut = new AtomicLong() ;
+
+  public Report run() throws Exception {
+    LOGGER.info( "Running with " + setup + " ..." ) ;
+    final HostPort upendHostPort = localHostPort() ;
+    final LabDaemon labDaemon = new LabDaemon( upendHostPort, null, LoadUpendLogic::new ) ;
+    labDaemon.start().join() ;
+
+    final NioEventLoopGroup eventLoopGroup = new NioEventLoopGroup(
+        setup.eventLoopThreads,
+        ExecutorTools.newCountingDaemonThreadFactory( LoadGenerator.class )
+    ) ;
+
+    final PortForwarder portForwarder ;
+    final HostPort downendHostPort ;
+    if( setup.degraded() ) {
+      downendHostPort = localHostPort() ;
+      portForwarder = PortForwarder.createAndStart(
+          eventLoopGroup,
+          downendHostPort.asInetSocketAddress(),
+          upendHostPort.asInetSocketAddress()
+      ) ;
+      portForwarder.lag( setup.lagMs ) ;
+      portForwarder.jitter( setup.jitterMs ) ;
+    } else {
+      downendHostPort = upendHostPort ;
+      portForwarder = null ;
+    }
+
+    final List< Driver > drivers = new ArrayList<>( setup.downendCount ) ;
+    final List< ScheduledFuture< ? > > schedules = new ArrayList<>( setup.downendCount ) ;
+    try {
+      for( int i = 0 ; i < setup.downendCount ; i ++ ) {
+        final Driver driver = new Driver( eventLoopGroup, downendHostPort, "user" + i ) ;
+        drivers.add( driver ) ;
+        driver.labDownend.start() ;
+      }
+      CompletableFuture.allOf( drivers.stream()
+          .map( driver -> driver.signedIn )
+          .toArray( CompletableFuture[]::new )
+      ).get( SETTLE_TIMEOUT_MS, TimeUnit.MILLISECONDS ) ;
+      LOGGER.info( "All " + drivers.size() + " " + LabDownend.class.getSimpleName() +
+          "s signed in, now sending." ) ;
+
+      final long periodNanoseconds = TimeUnit.SECONDS.toNanos( 1 ) / setup.commandsPerSecond ;
+      final long start = System.nanoTime() ;
+      for( final Driver driver : drivers ) {
+        // Spread initial delays so Downends don't send all at once.
+        schedules.add( driver.schedule(
+            eventLoopGroup.next(),
+            ThreadLocalRandom.current().nextLong( periodNanoseconds ),
+            periodNanoseconds
+        ) ) ;
+      }
+      Thread.sleep( setup.duration.getMillis() ) ;
+      schedules.forEach( schedule -> schedule.cancel( false ) ) ;
+      final long elapsed = TimeUnit.NANOSECONDS.toMillis( System.nanoTime() - start ) ;
+      awaitCompletion() ;
+
+      final Report report = new Report(
+          sent.get(),
+          responded.get(),
+          failed.get(),
+          timedOut.get(),
+          new Duration( elapsed ),
+          latencyHistogram
+      ) ;
+      LOGGER.info( "Got " + report + "." ) ;
+      return report ;
+    } finally {
+      schedules.forEach( schedule -> schedule.cancel( false ) ) ;
+      CompletableFuture.allOf( drivers.stream()
+          .map( driver -> driver.labDownend.stop() )
+          .toArray( CompletableFuture[]::new )
+      ).get( SETTLE_TIMEOUT_MS, TimeUnit.MILLISECONDS ) ;
+      if( portForwarder != null ) {
+        portForwarder.stop().join() ;
+      }
+      labDaemon.stop().join() ;
+      eventLoopGroup.shutdownGracefully() ;
+    }
+  }
+
+  private void awaitCompletion() throws InterruptedException {
+    final long deadline = System.currentTimeMillis() + SETTLE_TIMEOUT_MS ;
+    while( responded.get() + failed.get() + timedOut.get() < sent.get() ) {
+      if( System.currentTimeMillis() > deadline ) {
+        LOGGER.warn( "Some responses still missing after " + SETTLE_TIMEOUT_MS + " ms." ) ;
+        break ;
+      }
+      Thread.sleep( 10 ) ;
+    }
+  }
+
+  private static HostPort localHostPort() {
+    return LocalAddressTools.LOCALHOST_HOSTNAME.hostPort( TcpPortBooker.THIS.find() ) ;
+  }
+
+  /**
+   * One {@link LabDownend} with everything needed to sign in without human interaction.
+   */
+  private final class Driver {
+
+    final LabDownend labDownend ;
+
+    final CompletableFuture< ? > signedIn = new CompletableFuture<>() ;
+
+    Driver(
+        final NioEventLoopGroup eventLoopGroup,
+        final HostPort hostPort,
+        final String login
+    ) {
+      labDownend = new LabDownend(
+          eventLoopGroup,
+          hostPort,
+          new AutomaticSignonMaterializer( new Credential( login, login ) ),
+          new DownendStateTools.ChangeWatcherAdapter() {
+            @Override
+            protected void signedIn() {
+              signedIn.complete( null ) ;
+            }
+          },
+          NULL_DOWNWARD_DUTY
+      ) ;
+    }
+
+    private long periodNanoseconds ;
+
+    /**
+     * When {@link #sendOne()} should run, if the {@code EventLoop} was never late.
+     * Only {@link #sendOne()} updates it after {@link #schedule(EventExecutor, long, long)},
+     * and a periodic task never runs concurrently with itself.
+     */
+    private long intendedSendNanoseconds ;
+
+    ScheduledFuture< ? > schedule(
+        final EventExecutor eventExecutor,
+        final long firstDelayNanoseconds,
+        final long periodNanoseconds
+    ) {
+      this.periodNanoseconds = periodNanoseconds ;
+      intendedSendNanoseconds = System.nanoTime() + firstDelayNanoseconds ;
+      return eventExecutor.scheduleAtFixedRate(
+          this::sendOne,
+          firstDelayNanoseconds,
+          periodNanoseconds,
+          TimeUnit.NANOSECONDS
+      ) ;
+    }
+
+    /**
+     * Measures latency from the intended send time, not from the time this method actually
+     * runs. Under saturation the {@code EventLoop} (shared with Downends' I/O) runs it late,
+     * and measuring from actual start would hide that delay (coordinated omission).
+     * A fixed-rate schedule catches up after a delay, so the k-th run stays associated with
+     * the k-th period.
+     */
+    void sendOne() {
+      final long start = intendedSendNanoseconds ;
+      intendedSendNanoseconds += periodNanoseconds ;
+      sent.incrementAndGet() ;
+      labDownend.upwardDuty().increment( new Tracker.Adapter() {
+        @Override
+        public void afterResponseHandled() {
+          latencyHistogram.recordNanoseconds( System.nanoTime() - start ) ;
+          responded.incrementAndGet() ;
+        }
+
+        @Override
+        public void afterRemoteFailure( final CommandFailureNotice commandFailureNotice ) {
+          failed.incrementAndGet() ;
+        }
+
+        @Override
+        public void afterTimeout() {
+          timedOut.incrementAndGet() ;
+        }
+      }, 1 ) ;
+    }
+  }
+
+  /**
+   * {@link Tracker} does the counting.
+   */
+  private static final LabDownwardDuty< Tracker > NULL_DOWNWARD_DUTY =
+      new LabDownwardDuty< Tracker >() {
+        @Override
+        public void counter( final Tracker tracker, final int value ) { }
+
+        @Override
+        public void failure(
+            final Tracker tracker,
+            final TechnicalFailureNotice commandFailureNotice
+        ) { }
+      }
+  ;
+
+  private static final class AutomaticSignonMaterializer implements SignonMaterializer {
+
+    private final Credential credential ;
+
+    private AutomaticSignonMaterializer( final Credential credential ) {
+      this.credential = checkNotNull( credential ) ;
+    }
+
+    @Override
+    public void readCredential( final Consumer< Credential > credentialConsumer ) {
+      credentialConsumer.accept( credential ) ;
+    }
+
+    @Override
+    public void readSecondaryCode( final Consumer< SecondaryCode > secondaryCodeConsumer ) {
+      throw new UnsupportedOperationException( "No secondary authentication" ) ;
+    }
+
+    @Override
+    public void waitForCancellation( final Runnable afterCancelled ) { }
+
+    @Override
+    public void setProgressMessage( final String message ) { }
+
+    @Override
+    public void setProblemMessage( final SignonFailureNotice signonFailureNotice ) {
+      LOGGER.warn( "Signon problem for " + credential.getLogin() + ": " +
+          signonFailureNotice + "." ) ;
+    }
+
+    @Override
+    public void done() { }
+  }
+
+
+// ====
+// Main
+// ====
+
+  public static void main( final String... arguments ) throws Exception {
+    if( arguments.length < 3 || arguments.length > 5 ) {
+      throw new IllegalArgumentException( LoadGenerator.class.getSimpleName() +
+          " <downend-count> <commands-per-second> <duration-seconds> [<lag-ms> [<jitter-ms>]]" ) ;
+    }
+    final Setup setup = new Setup(
+        Integer.parseInt( arguments[ 0 ] ),
+        Integer.parseInt( arguments[ 1 ] ),
+        Duration.standardSeconds( Long.parseLong( arguments[ 2 ] ) ),
+        arguments.length > 3 ? Integer.parseInt( arguments[ 3 ] ) : 0,
+        arguments.length > 4 ? Integer.parseInt( arguments[ 4 ] ) : 0,
+        Runtime.getRuntime().availableProcessors()
+    ) ;
+    // Logs the Report with the same Logger as everything else, no need to print it.
+    new LoadGenerator( setup ).run() ;
+  }
+
+}
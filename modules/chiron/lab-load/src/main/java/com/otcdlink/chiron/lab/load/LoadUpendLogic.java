@@ -0,0 +1,125 @@
+package com.otcdlink.chiron.lab.load;
+
+import com.otcdlink.chiron.designator.Designator;
+import com.otcdlink.chiron.lab.middle.LabDownwardDuty;
+import com.otcdlink.chiron.lab.middle.LabUpwardDuty;
+import com.otcdlink.chiron.lab.upend.LabUpendLogic;
+import com.otcdlink.chiron.middle.TechnicalFailureNotice;
+import com.otcdlink.chiron.middle.session.SessionIdentifier;
+import com.otcdlink.chiron.middle.session.SignonDecision;
+import com.otcdlink.chiron.middle.session.SignonFailure;
+import com.otcdlink.chiron.middle.session.SignonFailureNotice;
+import com.otcdlink.chiron.middle.session.SignonSetback;
+import com.otcdlink.chiron.upend.TimeKit;
+import com.otcdlink.chiron.upend.session.SignonInwardDuty;
+import com.otcdlink.chiron.upend.session.SignonOutwardDuty;
+
+import static com.google.common.base.Preconditions.checkNotNull;
+
+/**
+ * Minimal Upend logic for {@link LoadGenerator}.
+ * Unlike {@link LabUpendLogic} it accepts any login (with the same password), and answers
+ * {@link #increment(Designator, int)} to the originating session only, so the cost of
+ * one {@link com.otcdlink.chiron.command.Command} doesn't depend on the number of sessions.
+ */
+public class LoadUpendLogic
+    implements
+    SignonInwardDuty,
+    LabUpwardDuty< Designator >
+{
+
+  private final TimeKit timeKit = TimeKit.fromSystemClock() ;
+
+  private final SignonOutwardDuty signonOutwardDuty ;
+  private final LabDownwardDuty< Designator > labDownwardDuty ;
+
+  private int counter = 0 ;
+
+  public LoadUpendLogic(
+      final SignonOutwardDuty signonOutwardDuty,
+      final LabDownwardDuty< Designator > labDownwardDuty
+  ) {
+    this.signonOutwardDuty = checkNotNull( signonOutwardDuty ) ;
+    this.labDownwardDuty = checkNotNull( labDownwardDuty ) ;
+  }
+
+
+// ====
+// Duty
+// ====
+
+  @Override
+  public void increment( final Designator upward, final int delta ) {
+    final Designator downward = timeKit.designatorFactory.downward( upward ) ;
+    if( delta <= 0 ) {
+      labDownwardDuty.failure(
+          downward,
+          new TechnicalFailureNotice( TechnicalFailureNotice.Kind.SERVER_ERROR, "Bad delta" )
+      ) ;
+    } else {
+      counter += delta ;
+      labDownwardDuty.counter( downward, counter ) ;
+    }
+  }
+
+
+// ======
+// Signon
+// ======
+
+  @Override
+  public void primarySignonAttempt(
+      final Designator designatorInternal,
+      final String login,
+      final String password
+  ) {
+    if( login.equals( password ) ) {
+      signonOutwardDuty.primarySignonAttempted(
+          designatorInternal, new SignonDecision<>( new LabUpendLogic.LabUserKey( login ) ) ) ;
+    } else {
+      signonOutwardDuty.primarySignonAttempted(
+          designatorInternal,
+          new SignonDecision<>( new SignonFailureNotice( SignonFailure.INVALID_CREDENTIAL ) )
+      ) ;
+    }
+  }
+
+  @Override
+  public void secondarySignonAttempt( final Designator designatorInternal, final String login ) {
+    signonOutwardDuty.secondarySignonAttempted( designatorInternal, null ) ;
+  }
+
+  @Override
+  public void failedSignonAttempt(
+      final Designator designatorInternal,
+      final String login,
+      final SignonSetback.Factor factor
+  ) { }
+
+  @Override
+  public void registerSession(
+      final Designator designatorInternal,
+      final SessionIdentifier sessionIdentifier,
+      final String login
+  ) {
+    signonOutwardDuty.sessionCreated( designatorInternal, sessionIdentifier, login, null ) ;
+  }
+
+  @Override
+  public void signout( final Designator designator ) {
+    signonOutwardDuty.terminateSession( designator, designator.sessionIdentifier ) ;
+  }
+
+  @Override
+  public void signoutQuiet(
+      final Designator designator,
+      final SessionIdentifier sessionIdentifier
+  ) { }
+
+  @Override
+  public void signoutAll( final Designator designatorInternal ) { }
+
+  @Override
+  public void resetSignonFailures( final Designator designatorInternal, final String login ) { }
+
+}
@@ -0,0 +1,55 @@
+package com.otcdlink.chiron.lab.load;
+
+import org.junit.Test;
+
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class LatencyHistogramTest {
+
+  @Test
+  public void empty() throws Exception {
+    final LatencyHistogram histogram = new LatencyHistogram() ;
+    assertThat( histogram.count() ).isEqualTo( 0 ) ;
+    assertThat( histogram.percentileMicroseconds( 99 ) ).isEqualTo( 0 ) ;
+    assertThat( histogram.maximumMicroseconds() ).isEqualTo( 0 ) ;
+  }
+
+  @Test
+  public void smallValuesAreExact() throws Exception {
+    final LatencyHistogram histogram = new LatencyHistogram() ;
+    for( int i = 1 ; i <= 50 ; i ++ ) {
+      histogram.recordMicroseconds( i ) ;
+    }
+    assertThat( histogram.count() ).isEqualTo( 50 ) ;
+    assertThat( histogram.percentileMicroseconds( 50 ) ).isEqualTo( 25 ) ;
+    assertThat( histogram.percentileMicroseconds( 100 ) ).isEqualTo( 50 ) ;
+    assertThat( histogram.maximumMicroseconds() ).isEqualTo( 50 ) ;
+  }
+
+  @Test
+  public void relativeErrorBelowOneThirtySecond() throws Exception {
+    final LatencyHistogram histogram = new LatencyHistogram() ;
+    for( int i = 1 ; i <= 1000 ; i ++ ) {
+      histogram.recordNanoseconds( TimeUnit.MILLISECONDS.toNanos( i ) ) ;
+    }
+    assertThat( histogram.percentileMicroseconds( 50 ) ).isBetween( 500_000L, 515_625L ) ;
+    assertThat( histogram.percentileMicroseconds( 99 ) ).isBetween( 990_000L, 1_020_938L ) ;
+    assertThat( histogram.percentileMicroseconds( 100 ) ).isEqualTo( 1_000_000 ) ;
+  }
+
+  @Test
+  public void bucketsAreContiguous() throws Exception {
+    long previous = -1 ;
+    for( long value = 0 ; value < 1_000_000 ; value ++ ) {
+      final int index = LatencyHistogram.indexOf( value ) ;
+      assertThat( index ).isBetween( ( int ) previous, ( int ) previous + 1 ) ;
+      assertThat( LatencyHistogram.upperBoundOf( index ) ).isGreaterThanOrEqualTo( value ) ;
+      previous = index ;
+    }
+    assertThat( LatencyHistogram.upperBoundOf( LatencyHistogram.indexOf( Long.MAX_VALUE ) ) )
+        .isEqualTo( Long.MAX_VALUE ) ;
+  }
+
+}
@@ -0,0 +1,37 @@
+package com.otcdlink.chiron.lab.load;
+
+import org.joda.time.Duration;
+import org.junit.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class LoadGeneratorTest {
+
+  @Test( timeout = 60_000 )
+  public void direct() throws Exception {
+    final LoadGenerator.Report report = new LoadGenerator(
+        new LoadGenerator.Setup( 3, 20, Duration.standardSeconds( 1 ), 0, 0, 2 ) ).run() ;
+    verify( report ) ;
+  }
+
+  @Test( timeout = 60_000 )
+  public void throughLaggingForwarder() throws Exception {
+    final LoadGenerator.Report report = new LoadGenerator(
+        new LoadGenerator.Setup( 3, 20, Duration.standardSeconds( 1 ), 20, 10, 2 ) ).run() ;
+    verify( report ) ;
+    assertThat( report.p50Microseconds ).isGreaterThanOrEqualTo( 20_000 ) ;
+  }
+
+
+// =======
+// Fixture
+// =======
+
+  private static void verify( final LoadGenerator.Report report ) {
+    assertThat( report.sent ).isGreaterThan( 0 ) ;
+    assertThat( report.responded ).isEqualTo( report.sent ) ;
+    assertThat( report.failed ).isEqualTo( 0 ) ;
+    assertThat( report.timedOut ).isEqualTo( 0 ) ;
+    assertThat( report.maximumMicroseconds ).isGreaterThanOrEqualTo( report.p50Microseconds ) ;
+  }
+}
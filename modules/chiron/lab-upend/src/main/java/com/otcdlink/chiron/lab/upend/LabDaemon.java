@@ -13,6 +13,7 @@ import com.otcdlink.chiron.middle.tier.TimeBoundary;
 import com.otcdlink.chiron.toolbox.Delegator;
 import com.otcdlink.chiron.toolbox.concurrent.ExecutorTools;
 import com.otcdlink.chiron.toolbox.internet.HostPort;
+import com.otcdlink.chiron.toolbox.metrics.MetricRegistry;
 import com.otcdlink.chiron.toolbox.netty.NettyTools;
 import com.otcdlink.chiron.upend.TimeKit;
 import com.otcdlink.chiron.upend.UpendConnector;
@@ -29,8 +30,10 @@ import org.joda.time.Duration;
 import java.net.InetAddress;
 import java.net.UnknownHostException;
 import java.util.concurrent.CompletableFuture;
-import java.util.concurrent.Executor;
-import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BiFunction;
 
 import static com.google.common.base.Preconditions.checkNotNull;
 
@@ -49,10 +52,24 @@ public class LabDaemon {
 
   private final HostPort hostPort ;
 
+  private final MetricRegistry metricRegistry = new MetricRegistry() ;
+
   public LabDaemon(
       final HostPort hostPort,
       final SecondaryAuthenticator secondaryAuthenticator
   ) throws UnknownHostException {
+    this( hostPort, secondaryAuthenticator, LabUpendLogic::new ) ;
+  }
+
+  /**
+   * @param logicFactory creates something else than {@link LabUpendLogic}, like for
+   *     load generation.
+   */
+  public < LOGIC extends SignonInwardDuty & LabUpwardDuty< Designator > > LabDaemon(
+      final HostPort hostPort,
+      final SecondaryAuthenticator secondaryAuthenticator,
+      final BiFunction< SignonOutwardDuty, LabDownwardDuty< Designator >, LOGIC > logicFactory
+  ) throws UnknownHostException {
 
     this.hostPort = checkNotNull( hostPort ) ;
 
@@ -99,17 +116,23 @@ public class LabDaemon {
         null,
         null,
         TimeBoundary.DEFAULT,
-        LabMiddleConstants.WEBSOCKET_FRAME_SIZER
+        LabMiddleConstants.WEBSOCKET_FRAME_SIZER,
+        metricRegistry
     ) ) ;
 
-    final LabUpendLogic labUpendLogic = new LabUpendLogic(
+    final LOGIC labUpendLogic = logicFactory.apply(
         outwardSessionSupervisor,
         new LabDownwardCommandCrafter<>( upendConnector::sendDownward )
     ) ;
 
     // The cheapest multi-producer, single-consumer queue.
-    final Executor logicExecutor = Executors.newSingleThreadExecutor(
-        ExecutorTools.newThreadFactory( LabUpendLogic.class.getSimpleName() ) ) ;
+    final LinkedBlockingQueue< Runnable > logicQueue = new LinkedBlockingQueue<>() ;
+    final ThreadPoolExecutor logicExecutor = new ThreadPoolExecutor(
+        1, 1, 0, TimeUnit.MILLISECONDS,
+        logicQueue,
+        ExecutorTools.newThreadFactory( LabUpendLogic.class.getSimpleName() )
+    ) ;
+    metricRegistry.gauge( "logic.queue", logicQueue::size ) ;
 
     inwardCommandConsumerDelegator.setDelegate( command -> logicExecutor.execute( () ->
         command.callReceiver( labUpendLogic ) ) ) ;
@@ -118,6 +141,13 @@ public class LabDaemon {
     signonInwardDutyDelegator.setDelegate( labUpendLogic ) ;
   }
 
+  /**
+   * What {@link UpendConnector} records, plus the size of the queue feeding the logic.
+   */
+  public MetricRegistry metricRegistry() {
+    return metricRegistry ;
+  }
+
   public CompletableFuture<?> start() {
     return upendConnector.start() ;
   }
@@ -28,4 +28,14 @@ public interface CommandBodyDecoder<
       PositionalFieldReader positionalFieldReader
   ) throws IOException;
 
+  /**
+   * Tells if {@link #decodeBody(Object, String, PositionalFieldReader)} expects a
+   * {@link com.otcdlink.chiron.designator.FlyweightDesignator} for given {@link Command} name,
+   * to obtain a {@link com.otcdlink.chiron.command.RecyclableCommand} from it.
+   * Only Upend supports this.
+   */
+  default boolean recycles( final String commandName ) {
+    return false ;
+  }
+
 }
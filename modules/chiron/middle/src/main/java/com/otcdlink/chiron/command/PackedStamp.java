@@ -0,0 +1,267 @@
+package com.otcdlink.chiron.command;
+
+import com.otcdlink.chiron.toolbox.clock.Clock;
+import io.netty.buffer.ByteBuf;
+
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static com.google.common.base.Preconditions.checkNotNull;
+
+/**
+ * Represents a {@link Stamp} as a primitive {@code long}, with
+ * {@link Stamp#flooredSeconds()} in the {@link #SECOND_BITS} most significant bits and
+ * the counter in the {@link #COUNTER_BITS} least significant bits.
+ * So packed values compare like {@link Stamp#COMPARATOR} does, for {@link Stamp}s with
+ * a timestamp rounded to the second (which is what {@link Stamp#asStringRoundedToFlooredSecond()}
+ * and {@link Stamp.Parser} support anyway).
+ * <p>
+ * This class only has static methods, except for {@link Generator}.
+ */
+public final class PackedStamp {
+
+  private PackedStamp() { }
+
+  public static final int COUNTER_BITS = 32 ;
+
+  public static final int SECOND_BITS = Long.SIZE - COUNTER_BITS ;
+
+  private static final long COUNTER_MASK = ( 1L << COUNTER_BITS ) - 1 ;
+
+  /**
+   * Returned by {@link #parse(ByteBuf)} and {@link #parse(CharSequence, int, int)}
+   * when there is no well-formed packed {@link Stamp}.
+   * No {@link Generator} can return it.
+   */
+  public static final long INVALID = -1 ;
+
+  /**
+   * @param flooredSeconds as returned by {@link Stamp#flooredSeconds()}.
+   */
+  public static long pack( final long flooredSeconds, final long counter ) {
+    if( flooredSeconds < 0 || flooredSeconds >>> SECOND_BITS != 0 ) {
+      throw new IllegalArgumentException( "Bad floored seconds: " + flooredSeconds ) ;
+    }
+    if( counter < 0 || counter > COUNTER_MASK ) {
+      throw new IllegalArgumentException( "Bad counter: " + counter ) ;
+    }
+    return ( flooredSeconds << COUNTER_BITS ) | counter ;
+  }
+
+  /**
+   * Drops the milliseconds of {@link Stamp#timestamp}.
+   */
+  public static long pack( final Stamp stamp ) {
+    return pack( stamp.flooredSeconds(), stamp.counter ) ;
+  }
+
+  public static long flooredSeconds( final long packed ) {
+    return packed >>> COUNTER_BITS ;
+  }
+
+  public static long counter( final long packed ) {
+    return packed & COUNTER_MASK ;
+  }
+
+  public static Stamp unpack( final long packed ) {
+    return Stamp.raw(
+        Stamp.FLOOR_MILLISECONDS + flooredSeconds( packed ) * 1000, counter( packed ) ) ;
+  }
+
+
+// =========
+// Generator
+// =========
+
+  /**
+   * Same contract as {@link Stamp.Generator} but keeps the last generated value in
+   * an {@link AtomicLong}, so generating a new value takes a single atomic increment and
+   * no allocation, unless the second changed.
+   * Should the counter overflow, the next value borrows from next second, which keeps
+   * generated values unique and always increasing.
+   */
+  public static final class Generator {
+
+    private final Clock clock ;
+
+    /**
+     * Starting with {@code -1} so the first increment in a {@link Stamp#FLOOR} second
+     * gives a counter of 0.
+     */
+    private final AtomicLong lastGenerated = new AtomicLong( -1 ) ;
+
+    public Generator( final Clock clock ) {
+      this.clock = checkNotNull( clock ) ;
+      checkArgument( clock.currentTimeMillis() >= Stamp.FLOOR_MILLISECONDS ) ;
+    }
+
+    public long generate() {
+      final long flooredSeconds =
+          ( clock.currentTimeMillis() - Stamp.FLOOR_MILLISECONDS ) / 1000 ;
+      final long incremented = lastGenerated.incrementAndGet() ;
+      if( incremented >> COUNTER_BITS >= flooredSeconds ) {
+        return incremented ;
+      }
+      // Slow path, once per second.
+      final long secondStart = flooredSeconds << COUNTER_BITS ;
+      return lastGenerated.accumulateAndGet(
+          secondStart, ( last, start ) -> last < start ? start : last + 1 ) ;
+    }
+
+    public Stamp generateStamp() {
+      return unpack( generate() ) ;
+    }
+  }
+
+
+// ==========
+// Formatting
+// ==========
+
+  private static final byte COLON = ':' ;
+
+  private static final byte[] DIGITS =
+      "0123456789abcdefghijklmnopqrstuvwxyz".getBytes( StandardCharsets.US_ASCII ) ;
+
+  /**
+   * Writes the same as {@link Stamp#asStringRoundedToFlooredSecond()} with no intermediary
+   * {@code String}.
+   */
+  public static void writeTo( final ByteBuf byteBuf, final long packed ) {
+    writeBase36( byteBuf, flooredSeconds( packed ) ) ;
+    byteBuf.writeByte( COLON ) ;
+    writeBase36( byteBuf, counter( packed ) ) ;
+  }
+
+  public static String asString( final long packed ) {
+    return Long.toString( flooredSeconds( packed ), 36 ) + ":" +
+        Long.toString( counter( packed ), 36 ) ;
+  }
+
+  private static void writeBase36( final ByteBuf byteBuf, final long value ) {
+    long divisor = 1 ;
+    while( value / divisor >= 36 ) {
+      divisor *= 36 ;
+    }
+    long remainder = value ;
+    while( divisor > 0 ) {
+      byteBuf.writeByte( DIGITS[ ( int ) ( remainder / divisor ) ] ) ;
+      remainder %= divisor ;
+      divisor /= 36 ;
+    }
+  }
+
+
+// =======
+// Parsing
+// =======
+
+  /**
+   * Reads what {@link #writeTo(ByteBuf, long)} wrote, stopping at the first byte that can't
+   * be part of it, which remains unread.
+   *
+   * @return {@link #INVALID} if there was no well-formed packed {@link Stamp}, in this case
+   *     the reader index doesn't change.
+   */
+  public static long parse( final ByteBuf byteBuf ) {
+    final int start = byteBuf.readerIndex() ;
+    final int end = byteBuf.writerIndex() ;
+    int index = start ;
+    long flooredSeconds = 0 ;
+    int digitCount = 0 ;
+    while( index < end ) {
+      final int digit = digit36( byteBuf.getByte( index ) ) ;
+      if( digit < 0 ) {
+        break ;
+      }
+      flooredSeconds = flooredSeconds * 36 + digit ;
+      if( flooredSeconds >>> SECOND_BITS != 0 ) {
+        return INVALID ;
+      }
+      digitCount ++ ;
+      index ++ ;
+    }
+    if( digitCount == 0 || index >= end || byteBuf.getByte( index ) != COLON ) {
+      return INVALID ;
+    }
+    index ++ ;
+    long counter = 0 ;
+    digitCount = 0 ;
+    while( index < end ) {
+      final int digit = digit36( byteBuf.getByte( index ) ) ;
+      if( digit < 0 ) {
+        break ;
+      }
+      counter = counter * 36 + digit ;
+      if( counter > COUNTER_MASK ) {
+        return INVALID ;
+      }
+      digitCount ++ ;
+      index ++ ;
+    }
+    if( digitCount == 0 ) {
+      return INVALID ;
+    }
+    byteBuf.readerIndex( index ) ;
+    return ( flooredSeconds << COUNTER_BITS ) | counter ;
+  }
+
+  /**
+   * Parses the whole range, like {@link Stamp.Parser} does.
+   *
+   * @return {@link #INVALID} if there was no well-formed packed {@link Stamp}.
+   */
+  public static long parse( final CharSequence chars, final int start, final int end ) {
+    final int colon = indexOfColon( chars, start, end ) ;
+    if( colon <= start || colon >= end - 1 ) {
+      return INVALID ;
+    }
+    final long flooredSeconds = parseBase36( chars, start, colon ) ;
+    final long counter = parseBase36( chars, colon + 1, end ) ;
+    if( flooredSeconds < 0 || counter < 0 || ! fits( flooredSeconds, counter ) ) {
+      return INVALID ;
+    }
+    return ( flooredSeconds << COUNTER_BITS ) | counter ;
+  }
+
+  static int indexOfColon( final CharSequence chars, final int start, final int end ) {
+    for( int i = start ; i < end ; i ++ ) {
+      if( chars.charAt( i ) == COLON ) {
+        return i ;
+      }
+    }
+    return -1 ;
+  }
+
+  /**
+   * @return a negative value if some character is not a lowercase base 36 digit,
+   *     or in case of overflow.
+   */
+  static long parseBase36( final CharSequence chars, final int start, final int end ) {
+    long value = 0 ;
+    for( int i = start ; i < end ; i ++ ) {
+      final int digit = digit36( chars.charAt( i ) ) ;
+      if( digit < 0 || value > ( Long.MAX_VALUE - digit ) / 36 ) {
+        return -1 ;
+      }
+      value = value * 36 + digit ;
+    }
+    return value ;
+  }
+
+  private static boolean fits( final long flooredSeconds, final long counter ) {
+    return flooredSeconds >>> SECOND_BITS == 0 && counter <= COUNTER_MASK ;
+  }
+
+  private static int digit36( final int c ) {
+    if( c >= '0' && c <= '9' ) {
+      return c - '0' ;
+    } else if( c >= 'a' && c <= 'z' ) {
+      return c - 'a' + 10 ;
+    } else {
+      return -1 ;
+    }
+  }
+
+}
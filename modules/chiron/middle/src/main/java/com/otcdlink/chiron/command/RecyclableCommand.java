@@ -0,0 +1,83 @@
+package com.otcdlink.chiron.command;
+
+import com.otcdlink.chiron.buffer.PositionalFieldReader;
+import com.otcdlink.chiron.buffer.PositionalFieldWriter;
+import com.otcdlink.chiron.designator.Designator;
+import com.otcdlink.chiron.designator.FlyweightDesignator;
+
+import java.io.IOException;
+import java.util.function.Function;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static com.google.common.base.Preconditions.checkState;
+
+/**
+ * A {@link Command} with a mutable body, that some {@link FlyweightDesignator} pools for reuse.
+ * Decoding obtains an instance with {@link FlyweightDesignator#obtain(Class, Function)}
+ * then calls {@link #readBody(PositionalFieldReader)}.
+ * After {@link #release()}, nobody should keep a reference on the {@link RecyclableCommand}
+ * or on anything read from its body.
+ *
+ * <h1>Who releases</h1>
+ * The framework only releases a {@link RecyclableCommand} it drops (like
+ * {@code CommandReceiverTier} does when not started). Otherwise it passes the
+ * {@link RecyclableCommand} to the Logic, which may run in another thread or keep the
+ * {@link Command} in a queue, so <em>releasing is the job of the Logic</em>, once
+ * {@link #callReceiver(Object)} returned and nothing references the body anymore.
+ * A Logic that never calls {@link #release()} still works, but loses the benefit of pooling
+ * because {@link FlyweightDesignator#obtain(Class, Function)} creates a new instance each time.
+ * Calling {@link #release()} twice without obtaining in between throws an
+ * {@link IllegalStateException}, because the same instance would appear twice in the pool.
+ * <p>
+ * Because its {@link FlyweightDesignator} has neither a unique {@link Stamp} nor a
+ * {@link Command.Tag}, a {@link RecyclableCommand} is never persisted, and its
+ * {@link Command.Description} must say it's not {@link Command.Description#tracked()}.
+ */
+public abstract class RecyclableCommand< CALLABLE_RECEIVER >
+    extends Command< Designator, CALLABLE_RECEIVER >
+{
+
+  /**
+   * Written by {@link #release()} and cleared by {@link #obtained()}, in different threads.
+   */
+  private volatile boolean released = false ;
+
+  protected RecyclableCommand( final FlyweightDesignator designator ) {
+    super( designator, false ) ;
+    checkArgument( ! description( getClass() ).tracked(),
+        getClass().getName() + " can't be tracked" ) ;
+  }
+
+  /**
+   * Sets every field of the body, as {@link #encodeBody(PositionalFieldWriter)} wrote them.
+   */
+  public abstract void readBody( PositionalFieldReader positionalFieldReader )
+      throws IOException ;
+
+  /**
+   * Resets every field of the body so it doesn't retain anything.
+   */
+  protected abstract void clearBody() ;
+
+  /**
+   * Makes this instance available for subsequent decoding.
+   *
+   * @throws IllegalStateException if already released.
+   */
+  public final void release() {
+    checkState( ! released, "Already released: " + this ) ;
+    released = true ;
+    clearBody() ;
+    ( ( FlyweightDesignator ) endpointSpecific ).giveBack( this ) ;
+  }
+
+  /**
+   * Only {@link FlyweightDesignator#obtain(Class, Function)} should call this method,
+   * when taking this instance from its pool.
+   */
+  public final void obtained() {
+    checkState( released, "Not released: " + this ) ;
+    released = false ;
+  }
+
+}
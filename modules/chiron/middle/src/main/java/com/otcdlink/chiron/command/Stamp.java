@@ -13,7 +13,6 @@ import org.slf4j.LoggerFactory;
 
 import java.util.Comparator;
 import java.util.concurrent.atomic.AtomicReference;
-import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 
 import static com.google.common.base.Preconditions.checkArgument;
@@ -142,6 +141,16 @@ public class Stamp implements Comparable< Stamp > {
 // Formatting
 // ==========
 
+  /**
+   * Same as {@link #timestampUtc()} without allocating anything.
+   */
+  public long timestampMillis() {
+    return timestamp ;
+  }
+
+  /**
+   * Allocates a new {@code DateTime}, use {@link #timestampMillis()} where it matters.
+   */
   public DateTime timestampUtc() {
     return new DateTime( timestamp, DateTimeZone.UTC ) ;
   }
@@ -150,7 +159,7 @@ public class Stamp implements Comparable< Stamp > {
   @Override
   public String toString() {
     return getClass().getSimpleName() + '{' +
-        DATE_TIME_FORMATTER.print( timestampUtc() ) + ';' +
+        DATE_TIME_FORMATTER.print( timestamp ) + ';' +
         asStringRoundedToFlooredSecond() +
         '}'
     ;
@@ -224,33 +233,34 @@ public class Stamp implements Comparable< Stamp > {
   public static final Pattern REGEX = Pattern.compile( "(-?[0-9a-z]+):([0-9a-z]+)" ) ;
 
   /**
-   * Not thread-safe as it caches previous {@link #timestamp}.
+   * Parses by hand, without {@link #REGEX}. Thread-safe since it keeps no state.
+   *
+   * @see PackedStamp#parse(io.netty.buffer.ByteBuf) for parsing with no {@code String}.
    */
   public static class Parser {
-    private long lastTimestamp = 0 ;
-    private String lastTimestampAsString = null ;
 
     /**
      * Relies on {@link #asStringRoundedToFlooredSecond()}'s format.
+     *
+     * @return {@code null} if given {@code CharSequence} doesn't match {@link #REGEX}
+     *     or exceeds {@code long} capacity.
      */
     public Stamp parse( final CharSequence charSequence ) {
-      final Matcher matcher = REGEX.matcher( charSequence ) ;
-      if( matcher.matches() ) {
-        final String timestampAsString = matcher.group( 1 ) ;
-        final String counterAsString = matcher.group( 2 ) ;
-        final long newTimestamp ;
-        if( timestampAsString.equals( lastTimestampAsString ) ) {
-          newTimestamp = lastTimestamp ;
-        } else {
-          newTimestamp = ( Long.parseLong( timestampAsString, 36 ) * 1000 ) + FLOOR_MILLISECONDS ;
-          lastTimestampAsString = timestampAsString ;
-          lastTimestamp = newTimestamp ;
-        }
-        final long newCounter = Long.parseLong( counterAsString, 36 ) ;
-        return raw( newTimestamp, newCounter ) ;
-      } else {
+      final int length = charSequence.length() ;
+      final boolean negative = length > 0 && charSequence.charAt( 0 ) == '-' ;
+      final int secondsStart = negative ? 1 : 0 ;
+      final int colon = PackedStamp.indexOfColon( charSequence, secondsStart, length ) ;
+      if( colon <= secondsStart || colon >= length - 1 ) {
+        return null ;
+      }
+      final long flooredSeconds = PackedStamp.parseBase36( charSequence, secondsStart, colon ) ;
+      final long counter = PackedStamp.parseBase36( charSequence, colon + 1, length ) ;
+      if( flooredSeconds < 0 || counter < 0 ) {
         return null ;
       }
+      final long newTimestamp =
+          ( negative ? - flooredSeconds : flooredSeconds ) * 1000 + FLOOR_MILLISECONDS ;
+      return raw( newTimestamp, counter ) ;
     }
   }
 
@@ -259,6 +269,9 @@ public class Stamp implements Comparable< Stamp > {
 // Generator
 // =========
 
+  /**
+   * @see PackedStamp.Generator for a contention-free alternative.
+   */
   public static class Generator {
     private final Clock clock ;
     private final AtomicReference< Stamp > lastGenerated = new AtomicReference<>() ;
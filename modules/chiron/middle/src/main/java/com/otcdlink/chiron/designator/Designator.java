@@ -242,6 +242,18 @@ public class Designator {
           Kind.UPWARD, uniqueTimestampGenerator.generate(), null, tag, sessionIdentifier ) ;
     }
 
+    /**
+     * Creates a {@link FlyweightDesignator} meant to be reused for every recyclable
+     * {@link Command} coming from the same session.
+     */
+    public FlyweightDesignator flyweight( final SessionIdentifier sessionIdentifier ) {
+      return new FlyweightDesignator(
+          uniqueTimestampGenerator.generate(),
+          sessionIdentifier,
+          FlyweightDesignator.DEFAULT_POOL_CAPACITY
+      ) ;
+    }
+
     public Designator downward( final Designator designator ) {
       if( designator instanceof Derivable ) {
         return ( ( Derivable ) designator )
@@ -0,0 +1,110 @@
+package com.otcdlink.chiron.designator;
+
+import com.otcdlink.chiron.command.Command;
+import com.otcdlink.chiron.command.RecyclableCommand;
+import com.otcdlink.chiron.command.Stamp;
+import com.otcdlink.chiron.middle.session.SessionIdentifier;
+
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.function.Function;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static com.google.common.base.Preconditions.checkNotNull;
+
+/**
+ * An {@link Kind#UPWARD} {@link Designator} shared by every {@link RecyclableCommand} coming
+ * from the same session, so decoding such a {@link Command} allocates no {@link Designator},
+ * no {@link Stamp}, and no {@link Command.Tag}.
+ * It also keeps a bounded pool of {@link RecyclableCommand}s per class, because a
+ * {@link RecyclableCommand} can only reference the {@link FlyweightDesignator} it was
+ * created with.
+ *
+ * <h1>What we lose</h1>
+ * <p>
+ * The {@link #stamp} no longer identifies a single {@link Command}, and there is no
+ * {@link #tag}. This is acceptable for {@link Command}s that are neither persisted nor tracked,
+ * which is what {@link RecyclableCommand} enforces.
+ *
+ * <h1>Threading</h1>
+ * <p>
+ * {@link #obtain(Class, Function)} happens in the {@link io.netty.channel.EventLoop} that
+ * decodes, while {@link RecyclableCommand#release()} happens wherever the Logic runs, so
+ * pools are synchronized. Contention should be rare because there is one
+ * {@link FlyweightDesignator} per session.
+ */
+public final class FlyweightDesignator extends Designator {
+
+  public static final int DEFAULT_POOL_CAPACITY = 16 ;
+
+  private final int poolCapacity ;
+
+  private final ConcurrentMap< Class< ? >, Deque< RecyclableCommand< ? > > > pools =
+      new ConcurrentHashMap<>() ;
+
+  FlyweightDesignator(
+      final Stamp stamp,
+      final SessionIdentifier sessionIdentifier,
+      final int poolCapacity
+  ) {
+    super( Kind.UPWARD, stamp, null, null, sessionIdentifier ) ;
+    checkArgument( poolCapacity > 0 ) ;
+    this.poolCapacity = poolCapacity ;
+  }
+
+  /**
+   * Returns a released instance of given class, or a new one if there is none.
+   * Caller must set the whole body of the {@link RecyclableCommand}.
+   *
+   * @param creator creates an instance referencing this {@link FlyweightDesignator}, should be
+   *     a non-capturing lambda like {@code MyCommand::new} so calling this method allocates
+   *     nothing once pool is warm.
+   */
+  public < COMMAND extends RecyclableCommand< ? > > COMMAND obtain(
+      final Class< COMMAND > commandClass,
+      final Function< FlyweightDesignator, COMMAND > creator
+  ) {
+    final Deque< RecyclableCommand< ? > > pool = pool( commandClass ) ;
+    final RecyclableCommand< ? > recycled ;
+    synchronized( pool ) {
+      recycled = pool.pollFirst() ;
+    }
+    if( recycled == null ) {
+      final COMMAND created = checkNotNull( creator.apply( this ) ) ;
+      checkArgument( created.getClass() == commandClass,
+          "Created " + created.getClass().getName() + " instead of " + commandClass.getName() ) ;
+      checkArgument( created.endpointSpecific == this,
+          "Created " + created + " with some other " + Designator.class.getSimpleName() ) ;
+      return created ;
+    } else {
+      recycled.obtained() ;
+      return commandClass.cast( recycled ) ;
+    }
+  }
+
+  /**
+   * Only {@link RecyclableCommand#release()} should call this method.
+   * If the pool is full, the {@link RecyclableCommand} just becomes garbage.
+   */
+  public void giveBack( final RecyclableCommand< ? > command ) {
+    checkArgument( command.endpointSpecific == this ) ;
+    final Deque< RecyclableCommand< ? > > pool = pool( command.getClass() ) ;
+    synchronized( pool ) {
+      if( pool.size() < poolCapacity ) {
+        pool.addFirst( command ) ;
+      }
+    }
+  }
+
+  private Deque< RecyclableCommand< ? > > pool( final Class< ? > commandClass ) {
+    final Deque< RecyclableCommand< ? > > pool = pools.get( commandClass ) ;
+    if( pool == null ) {
+      return pools.computeIfAbsent( commandClass, c -> new ArrayDeque<>( poolCapacity ) ) ;
+    } else {
+      return pool ;
+    }
+  }
+
+}
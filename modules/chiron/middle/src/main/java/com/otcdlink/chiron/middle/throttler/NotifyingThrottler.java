@@ -16,6 +16,9 @@ import static com.google.common.base.Preconditions.checkNotNull;
 /**
  * Notifies a {@link NotifyingThrottler.Watcher} when
  * no more {@link Restriction} apply on it.
+ * A {@link ThrottlerExpiryWheel}, which may be shared with other {@link NotifyingThrottler}s,
+ * removes expired {@link Restriction}s. Otherwise a {@link ScheduledExecutorService} runs
+ * a cleanup for each added {@link Restriction}.
  */
 public class NotifyingThrottler<
     COMMAND,
@@ -25,6 +28,10 @@ public class NotifyingThrottler<
 {
 
   private final Logger LOGGER = LoggerFactory.getLogger( NotifyingThrottler.class ) ;
+
+  /**
+   * {@code null} when there is a {@link ThrottlerExpiryWheel}.
+   */
   private final ScheduledExecutorService notificationRunner ;
 
   private final List< Watcher< RESTRICTION > > watchers = new ArrayList<>() ;
@@ -36,6 +43,18 @@ public class NotifyingThrottler<
   private final int biasMs ;
 
 
+  public NotifyingThrottler(
+      final Clock clock,
+      final RestrictionFactory< COMMAND, RESTRICTION > restrictionFactory,
+      final ThrottlerExpiryWheel expiryWheel,
+      final Duration initialThrottlingDuration,
+      final int biasMs
+  ) {
+    super( clock, restrictionFactory, checkNotNull( expiryWheel ), initialThrottlingDuration ) ;
+    this.notificationRunner = null ;
+    this.biasMs = biasMs ;
+  }
+
   public NotifyingThrottler(
       final Clock clock,
       final RestrictionFactory< COMMAND, RESTRICTION > restrictionFactory,
@@ -48,11 +67,18 @@ public class NotifyingThrottler<
     this.biasMs = biasMs ;
   }
 
+  @Override
+  protected final long expiryDelayMillis() {
+    return super.expiryDelayMillis() + biasMs ;
+  }
+
   @Override
   protected final void restrictionAdded( final RESTRICTION restriction ) {
-    final long delayMs = throttlingDuration().getMillis() + biasMs ;
-    LOGGER.debug( "Added " + restriction + ", scheduling cleanup in " + delayMs + " ms ..." ) ;
-    notificationRunner.schedule( this::cleanup, delayMs, TimeUnit.MILLISECONDS ) ;
+    if( notificationRunner != null ) {
+      final long delayMs = expiryDelayMillis() ;
+      LOGGER.debug( "Added " + restriction + ", scheduling cleanup in " + delayMs + " ms ..." ) ;
+      notificationRunner.schedule( this::cleanup, delayMs, TimeUnit.MILLISECONDS ) ;
+    }
   }
 
   @Override
@@ -3,11 +3,11 @@ package com.otcdlink.chiron.middle.throttler;
 import com.otcdlink.chiron.middle.tier.CommandInterceptor;
 import com.otcdlink.chiron.toolbox.ToStringTools;
 import com.otcdlink.chiron.toolbox.clock.Clock;
-import org.joda.time.DateTime;
 import org.joda.time.Duration;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.util.Arrays;
 import java.util.HashMap;
 import java.util.Iterator;
 import java.util.Map;
@@ -22,13 +22,19 @@ import static com.google.common.base.Preconditions.checkNotNull;
  * trust Downend blindly.
  * <p>
  * A {@link COMMAND} may or may not be {@link Restriction}-aware.
- * If it is, {@link #evaluateAndUpdate(DateTime, Object)} checks if there are some
+ * If it is, {@link #evaluateAndUpdate(Object)} checks if there are some
  * {@link Restriction} aware of it.
  * If there are such {@link Restriction}s, it evaluates {@link COMMAND}
  * validity as long as associated timestamp doesn't make it older than {@link #throttlingDuration}.
  * If no {@link Restriction} applied, the {@link COMMAND} is not throttled,
  * and it creates a new one that will apply next time.
  * <p>
+ * {@link Restriction}s are indexed by {@link RestrictionFactory#indexKey(Object)}, so
+ * evaluation only looks at the few {@link Restriction}s under the same key (by default
+ * there is only one key).
+ * Expired {@link Restriction}s get removed by a {@link ThrottlerExpiryWheel} if there is one,
+ * otherwise by a sweep happening at most once per {@link #throttlingDuration}.
+ * <p>
  * TODO: remove locking as soon as we run inside a {@link CommandInterceptor}.
  */
 public class SessionScopedThrottler<
@@ -40,24 +46,55 @@ public class SessionScopedThrottler<
 
   private final Clock clock ;
 
+  private final Object lock = ToStringTools.createLockWithNiceToString( getClass() ) ;
+
   private final RestrictionFactory< COMMAND, RESTRICTION > restrictionFactory ;
-  private final Map< RESTRICTION, DateTime > restrictions = new HashMap<>() ;
+
+  /**
+   * May be {@code null}.
+   */
+  private final ThrottlerExpiryWheel expiryWheel ;
+
+  private final Map< Object, Bucket > restrictions = new HashMap<>() ;
   private Duration throttlingDuration ;
+  private long throttlingMillis ;
+
+  /**
+   * Only meaningful when there is no {@link #expiryWheel}.
+   */
+  private long nextSweepMillis = Long.MIN_VALUE ;
+
+  public SessionScopedThrottler(
+      final Clock clock,
+      final RestrictionFactory< COMMAND, RESTRICTION > restrictionFactory,
+      final Duration initialThrottlingDuration
+  ) {
+    this( clock, restrictionFactory, null, initialThrottlingDuration ) ;
+  }
 
+  /**
+   * @param expiryWheel may be {@code null}.
+   */
   public SessionScopedThrottler(
       final Clock clock,
       final RestrictionFactory< COMMAND, RESTRICTION > restrictionFactory,
+      final ThrottlerExpiryWheel expiryWheel,
       final Duration initialThrottlingDuration
   ) {
     this.clock = checkNotNull( clock ) ;
     this.restrictionFactory = checkNotNull( restrictionFactory ) ;
+    this.expiryWheel = expiryWheel ;
     this.throttlingDuration = checkNotNull( initialThrottlingDuration ) ;
+    this.throttlingMillis = initialThrottlingDuration.getMillis() ;
   }
 
   @Override
   public void throttlingDuration( final Duration throttlingDuration ) {
     checkArgument( throttlingDuration.getMillis() >= 0 ) ;
-    this.throttlingDuration = checkNotNull( throttlingDuration ) ;
+    synchronized( lock ) {
+      this.throttlingDuration = checkNotNull( throttlingDuration ) ;
+      this.throttlingMillis = throttlingDuration.getMillis() ;
+    }
     LOGGER.info( "Throttling duration set to " + throttlingDuration + " for " + this + "." ) ;
   }
 
@@ -67,33 +104,58 @@ public class SessionScopedThrottler<
    */
   @Override
   public final Effect evaluateAndUpdate( final COMMAND command ) {
-//    if( Duration.ZERO.equals( throttlingDuration ) ) {
-//      return Throttling.PASSED ;
-//    } else {
-      return evaluateAndUpdate( clock.getCurrentDateTime(), command ) ;
-//    }
+    synchronized( lock ) {
+      return evaluateAndUpdate( clock.currentTimeMillis(), command ) ;
+    }
   }
 
   protected final Duration throttlingDuration() {
     return throttlingDuration ;
   }
 
-  private Effect evaluateAndUpdate( final DateTime now, final COMMAND command ) {
-    cleanup( now ) ;
+  /**
+   * Delay after which the {@link ThrottlerExpiryWheel} should remove a {@link RESTRICTION}.
+   */
+  protected long expiryDelayMillis() {
+    return throttlingMillis ;
+  }
+
+  private Effect evaluateAndUpdate( final long now, final COMMAND command ) {
+    if( expiryWheel == null && now >= nextSweepMillis ) {
+      cleanup( now ) ;
+      nextSweepMillis = now + throttlingMillis ;
+    }
     Effect effect = Effect.NOT_APPLICABLE ;
     if( restrictionFactory.supports( command ) ) {
       effect = Effect.PASSED ;
-      if( ! Duration.ZERO.equals( throttlingDuration ) ) {
-        for( final Map.Entry< RESTRICTION, DateTime > entry : restrictions.entrySet() ) {
-          if( entry.getKey().appliesTo( command ) ) {
+      final Object indexKey = restrictionFactory.indexKey( command ) ;
+      Bucket bucket = restrictions.get( indexKey ) ;
+      if( bucket != null && throttlingMillis != 0 ) {
+        int position = 0 ;
+        while( position < bucket.size ) {
+          final RESTRICTION restriction = ( RESTRICTION ) bucket.restrictions[ position ] ;
+          if( expired( bucket.creationMillis[ position ], now ) ) {
+            bucket.removeAt( position ) ;
+            removed( restriction ) ;
+          } else if( restriction.appliesTo( command ) ) {
             effect = Effect.THROTTLED ;
             break ;
+          } else {
+            position ++ ;
           }
         }
       }
       if( effect == Effect.PASSED ) {
         final RESTRICTION restriction = restrictionFactory.createFrom( command ) ;
-        restrictions.put( restriction, now ) ;
+        if( bucket == null ) {
+          bucket = new Bucket() ;
+          restrictions.put( indexKey, bucket ) ;
+        }
+        bucket.add( restriction, now ) ;
+        if( expiryWheel != null ) {
+          expiryWheel.schedule(
+              this, indexKey, restriction, now, now + expiryDelayMillis() + 1 ) ;
+        }
         LOGGER.debug( "Added " + restriction + " to " + this + "." ) ;
         restrictionAdded( restriction ) ;
       }
@@ -103,26 +165,71 @@ public class SessionScopedThrottler<
 
   protected void restrictionAdded( final RESTRICTION restriction ) { }
 
+  private boolean expired( final long creationMillis, final long now ) {
+    return now - throttlingMillis > creationMillis ;
+  }
+
   protected final void cleanup() {
-    cleanup( clock.getCurrentDateTime() ) ;
-  }
-
-  private void cleanup( final DateTime now ) {
-    if( ! restrictions.isEmpty() ) {
-      final DateTime latestValidCreationTime = now.minus( throttlingDuration ) ;
-      final Iterator< Map.Entry< RESTRICTION, DateTime > > iterator =
-          restrictions.entrySet().iterator() ;
-      while( iterator.hasNext() ) {
-        final Map.Entry< RESTRICTION, DateTime > entry = iterator.next() ;
-        if( latestValidCreationTime.isAfter( entry.getValue() ) ) {
-          iterator.remove() ;
-          LOGGER.debug( "Removed " + entry.getKey() + " from " + this + "." ) ;
-          restrictionRemoved( entry.getKey() ) ;
+    synchronized( lock ) {
+      cleanup( clock.currentTimeMillis() ) ;
+    }
+  }
+
+  private void cleanup( final long now ) {
+    final Iterator< Bucket > iterator = restrictions.values().iterator() ;
+    while( iterator.hasNext() ) {
+      final Bucket bucket = iterator.next() ;
+      int position = 0 ;
+      while( position < bucket.size ) {
+        if( expired( bucket.creationMillis[ position ], now ) ) {
+          final RESTRICTION restriction = ( RESTRICTION ) bucket.restrictions[ position ] ;
+          bucket.removeAt( position ) ;
+          if( bucket.size == 0 ) {
+            iterator.remove() ;
+          }
+          removed( restriction ) ;
+        } else {
+          position ++ ;
+        }
+      }
+    }
+  }
+
+  /**
+   * Called by {@link ThrottlerExpiryWheel}.
+   */
+  final void expired(
+      final Object indexKey,
+      final Object restriction,
+      final long creationMillis
+  ) {
+    synchronized( lock ) {
+      final Bucket bucket = restrictions.get( indexKey ) ;
+      if( bucket != null ) {
+        final int position = bucket.positionOf( restriction, creationMillis ) ;
+        if( position >= 0 ) {
+          final long now = clock.currentTimeMillis() ;
+          if( expired( creationMillis, now ) ) {
+            bucket.removeAt( position ) ;
+            if( bucket.size == 0 ) {
+              restrictions.remove( indexKey ) ;
+            }
+            removed( ( RESTRICTION ) restriction ) ;
+          } else {
+            // Throttling duration grew in the meantime.
+            expiryWheel.schedule( this, indexKey, restriction, creationMillis,
+                creationMillis + expiryDelayMillis() + 1 ) ;
+          }
         }
       }
     }
   }
 
+  private void removed( final RESTRICTION restriction ) {
+    LOGGER.debug( "Removed " + restriction + " from " + this + "." ) ;
+    restrictionRemoved( restriction ) ;
+  }
+
   protected void restrictionRemoved( final RESTRICTION restriction ) { }
 
   @Override
@@ -132,16 +239,76 @@ public class SessionScopedThrottler<
 
   protected final void visitAllRestrictions( final Function< RESTRICTION, Boolean > visitor ) {
     checkNotNull( visitor ) ;
-    for( final RESTRICTION restriction : restrictions.keySet() ) {
-      if( ! visitor.apply( restriction ) ) {
-        break ;
+    synchronized( lock ) {
+      for( final Bucket bucket : restrictions.values() ) {
+        for( int position = 0 ; position < bucket.size ; position ++ ) {
+          if( ! visitor.apply( ( RESTRICTION ) bucket.restrictions[ position ] ) ) {
+            return ;
+          }
+        }
       }
     }
   }
 
+  /**
+   * {@link Restriction}s with the same {@link RestrictionFactory#indexKey(Object)}, along with
+   * their creation time. Arrays grow but never shrink, so evaluating a {@link COMMAND} that
+   * gets throttled allocates nothing.
+   */
+  private static final class Bucket {
+    Object[] restrictions = new Object[ 2 ] ;
+    long[] creationMillis = new long[ 2 ] ;
+    int size = 0 ;
+
+    void add( final Object restriction, final long creation ) {
+      if( size == restrictions.length ) {
+        restrictions = Arrays.copyOf( restrictions, size * 2 ) ;
+        creationMillis = Arrays.copyOf( creationMillis, size * 2 ) ;
+      }
+      restrictions[ size ] = restriction ;
+      creationMillis[ size ] = creation ;
+      size ++ ;
+    }
+
+    void removeAt( final int position ) {
+      final int moved = size - position - 1 ;
+      System.arraycopy( restrictions, position + 1, restrictions, position, moved ) ;
+      System.arraycopy( creationMillis, position + 1, creationMillis, position, moved ) ;
+      size -- ;
+      restrictions[ size ] = null ;
+    }
+
+    int positionOf( final Object restriction, final long creation ) {
+      for( int position = 0 ; position < size ; position ++ ) {
+        if( restrictions[ position ] == restriction && creationMillis[ position ] == creation ) {
+          return position ;
+        }
+      }
+      return -1 ;
+    }
+  }
+
   public interface RestrictionFactory< COMMAND, RESTRICTION extends Restriction< COMMAND > > {
     boolean supports( COMMAND command ) ;
     RESTRICTION createFrom( COMMAND command ) ;
+
+    /**
+     * A {@link Restriction} created from a {@link COMMAND} can only apply to
+     * {@link COMMAND}s with an equal index key.
+     * Default is {@link #SINGLE_INDEX_KEY}, so every {@link Restriction} may apply to every
+     * {@link COMMAND}. A factory whose {@link Restriction}s never cross {@link COMMAND}
+     * classes can return {@link COMMAND}'s class, for instance.
+     */
+    default Object indexKey( final COMMAND command ) {
+      return SINGLE_INDEX_KEY ;
+    }
+
+    Object SINGLE_INDEX_KEY = new Object() {
+      @Override
+      public String toString() {
+        return RestrictionFactory.class.getSimpleName() + "#SINGLE_INDEX_KEY" ;
+      }
+    } ;
   }
 
   public interface Restriction< COMMAND > {
@@ -0,0 +1,186 @@
+package com.otcdlink.chiron.middle.throttler;
+
+import com.otcdlink.chiron.toolbox.ToStringTools;
+import com.otcdlink.chiron.toolbox.clock.Pulse;
+import org.joda.time.DateTime;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static com.google.common.base.Preconditions.checkNotNull;
+
+/**
+ * Hashed timing wheel lifting {@link SessionScopedThrottler.Restriction}s once they expired,
+ * shared by any number of {@link SessionScopedThrottler}s (typically one per session),
+ * so the number of scheduled tasks doesn't depend on how many sessions get throttled.
+ * <p>
+ * A {@link Pulse} with the same {@link Pulse.Resolution} drives the wheel by calling
+ * {@link #tick(DateTime)}, each tick processes the slots for elapsed ticks.
+ * An {@link Expiration} whose deadline is more than one revolution ahead just stays in its
+ * slot until a later revolution.
+ */
+public final class ThrottlerExpiryWheel implements Pulse.Tickee {
+
+  private static final Logger LOGGER = LoggerFactory.getLogger( ThrottlerExpiryWheel.class ) ;
+
+  public static final int DEFAULT_SLOT_COUNT = 512 ;
+
+  private static final long UNSTARTED = Long.MIN_VALUE ;
+
+  private final Object lock = ToStringTools.createLockWithNiceToString( getClass() ) ;
+
+  private final long tickMillis ;
+
+  private final int mask ;
+
+  /**
+   * Heads of singly-linked lists.
+   */
+  private final Expiration[] slots ;
+
+  /**
+   * Last tick processed by {@link #expire(long)}, slots of previous ticks are empty unless
+   * they contain {@link Expiration}s for some later revolution.
+   */
+  private long lastTick = UNSTARTED ;
+
+  private int scheduledCount = 0 ;
+
+  public ThrottlerExpiryWheel( final Pulse.Resolution resolution ) {
+    this( resolution, DEFAULT_SLOT_COUNT ) ;
+  }
+
+  /**
+   * @param slotCount a power of 2.
+   */
+  public ThrottlerExpiryWheel( final Pulse.Resolution resolution, final int slotCount ) {
+    checkArgument( resolution != Pulse.Resolution.NEVER, "Unsupported: " + resolution ) ;
+    checkArgument( Integer.bitCount( slotCount ) == 1, "Not a power of 2: " + slotCount ) ;
+    this.tickMillis = resolution.milliseconds ;
+    this.mask = slotCount - 1 ;
+    this.slots = new Expiration[ slotCount ] ;
+  }
+
+  private static final class Expiration {
+    final SessionScopedThrottler throttler ;
+    final Object indexKey ;
+    final Object restriction ;
+    final long creationMillis ;
+    final long deadlineMillis ;
+    Expiration next ;
+
+    Expiration(
+        final SessionScopedThrottler throttler,
+        final Object indexKey,
+        final Object restriction,
+        final long creationMillis,
+        final long deadlineMillis
+    ) {
+      this.throttler = throttler ;
+      this.indexKey = indexKey ;
+      this.restriction = restriction ;
+      this.creationMillis = creationMillis ;
+      this.deadlineMillis = deadlineMillis ;
+    }
+  }
+
+  /**
+   * Rounds up so the {@link Expiration} is never processed before its deadline.
+   */
+  private long tickOf( final long deadlineMillis ) {
+    return Math.floorDiv( deadlineMillis + tickMillis - 1, tickMillis ) ;
+  }
+
+  void schedule(
+      final SessionScopedThrottler throttler,
+      final Object indexKey,
+      final Object restriction,
+      final long creationMillis,
+      final long deadlineMillis
+  ) {
+    final Expiration expiration = new Expiration(
+        checkNotNull( throttler ), indexKey, restriction, creationMillis, deadlineMillis ) ;
+    synchronized( lock ) {
+      long tick = tickOf( deadlineMillis ) ;
+      if( lastTick != UNSTARTED && tick <= lastTick ) {
+        tick = lastTick + 1 ;
+      }
+      link( expiration, tick ) ;
+      scheduledCount ++ ;
+    }
+  }
+
+  private void link( final Expiration expiration, final long tick ) {
+    final int slot = ( int ) ( tick & mask ) ;
+    expiration.next = slots[ slot ] ;
+    slots[ slot ] = expiration ;
+  }
+
+  @Override
+  public void tick( final DateTime now ) {
+    expire( now.getMillis() ) ;
+  }
+
+  /**
+   * Notifies {@link SessionScopedThrottler}s out of the lock, so they can call
+   * {@link #schedule(SessionScopedThrottler, Object, Object, long, long)} again.
+   */
+  void expire( final long nowMillis ) {
+    Expiration expired = null ;
+    synchronized( lock ) {
+      final long currentTick = Math.floorDiv( nowMillis, tickMillis ) ;
+      if( lastTick != UNSTARTED && currentTick <= lastTick ) {
+        return ;
+      }
+      final long firstTick = lastTick == UNSTARTED
+          ? currentTick - mask
+          : Math.max( lastTick + 1, currentTick - mask )
+      ;
+      for( long tick = firstTick ; tick <= currentTick ; tick ++ ) {
+        final int slot = ( int ) ( tick & mask ) ;
+        Expiration current = slots[ slot ] ;
+        slots[ slot ] = null ;
+        while( current != null ) {
+          final Expiration next = current.next ;
+          if( current.deadlineMillis <= nowMillis ) {
+            current.next = expired ;
+            expired = current ;
+            scheduledCount -- ;
+          } else if( tickOf( current.deadlineMillis ) <= currentTick ) {
+            // Pulse ticked a bit early, don't wait for a whole revolution.
+            link( current, currentTick + 1 ) ;
+          } else {
+            link( current, tick ) ;
+          }
+          current = next ;
+        }
+      }
+      lastTick = currentTick ;
+    }
+    while( expired != null ) {
+      final Expiration next = expired.next ;
+      expired.next = null ;
+      try {
+        expired.throttler.expired( expired.indexKey, expired.restriction, expired.creationMillis ) ;
+      } catch( final RuntimeException e ) {
+        LOGGER.error( "Could not expire " + expired.restriction + " in " +
+            expired.throttler + ".", e ) ;
+      }
+      expired = next ;
+    }
+  }
+
+  @Override
+  public String toString() {
+    final int count ;
+    synchronized( lock ) {
+      count = scheduledCount ;
+    }
+    return ToStringTools.nameAndCompactHash( this ) + '{' +
+        "tickMillis=" + tickMillis + ";" +
+        "slots=" + slots.length + ";" +
+        "scheduled=" + count +
+        '}'
+    ;
+  }
+}
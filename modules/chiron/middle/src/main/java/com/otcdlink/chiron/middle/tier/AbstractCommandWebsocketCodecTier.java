@@ -33,6 +33,8 @@ public abstract class AbstractCommandWebsocketCodecTier<
 
   private final CommandBodyDecoder< INBOUND_ENDPOINT_SPECIFIC, INBOUND_DUTY > commandDecoder ;
 
+  private final WebsocketMetrics websocketMetrics ;
+
   /**
    * Need one {@link BytebufTools.Coating} for reading and one for writing because a
    * {@link io.netty.channel.Channel} may do both in response to an inbound message.
@@ -47,8 +49,16 @@ public abstract class AbstractCommandWebsocketCodecTier<
 
   protected AbstractCommandWebsocketCodecTier(
       final CommandBodyDecoder< INBOUND_ENDPOINT_SPECIFIC, INBOUND_DUTY > commandDecoder
+  ) {
+    this( commandDecoder, WebsocketMetrics.NULL ) ;
+  }
+
+  protected AbstractCommandWebsocketCodecTier(
+      final CommandBodyDecoder< INBOUND_ENDPOINT_SPECIFIC, INBOUND_DUTY > commandDecoder,
+      final WebsocketMetrics websocketMetrics
   ) {
     this.commandDecoder = checkNotNull( commandDecoder ) ;
+    this.websocketMetrics = checkNotNull( websocketMetrics ) ;
   }
 
   @Override
@@ -58,10 +68,14 @@ public abstract class AbstractCommandWebsocketCodecTier<
   ) throws Exception {
     try {
       NettyTools.touchMaybe( textWebSocketFrame, "About to decode inbound message" ) ;
+      final int frameSize = textWebSocketFrame.content().readableBytes() ;
+      websocketMetrics.framesIn.increment() ;
+      websocketMetrics.bytesIn.add( frameSize ) ;
+      websocketMetrics.frameSizesIn.record( frameSize ) ;
       final PositionalFieldReader fieldReader = readerCoating.coat( textWebSocketFrame.content() );
       final String commandName = fieldReader.readDelimitedString();
       final INBOUND_ENDPOINT_SPECIFIC endpointSpecific =
-          readEndpointSpecific( channelHandlerContext, fieldReader );
+          readEndpointSpecific( channelHandlerContext, commandName, fieldReader );
       if( endpointSpecific == null ) {
         LOGGER.error(
             "Obtained null endpointSpecific for '" + commandName + "' " +
@@ -95,6 +109,17 @@ public abstract class AbstractCommandWebsocketCodecTier<
       PositionalFieldReader fieldReader
   ) throws IOException;
 
+  /**
+   * Override to pick an {@link INBOUND_ENDPOINT_SPECIFIC} depending on the {@link Command}.
+   */
+  protected INBOUND_ENDPOINT_SPECIFIC readEndpointSpecific(
+      final ChannelHandlerContext channelHandlerContext,
+      final String commandName,
+      final PositionalFieldReader fieldReader
+  ) throws IOException {
+    return readEndpointSpecific( channelHandlerContext, fieldReader ) ;
+  }
+
   @Override
   protected final void outboundMessage(
       final ChannelHandlerContext channelHandlerContext,
@@ -111,6 +136,8 @@ public abstract class AbstractCommandWebsocketCodecTier<
         writeEndpointSpecific( channelHandlerContext, fieldWriter, null ) ;
       }
       command.encodeBody( fieldWriter ) ;
+      websocketMetrics.framesOut.increment() ;
+      websocketMetrics.bytesOut.add( byteBuf.readableBytes() ) ;
       forwardOutbound( channelHandlerContext, new TextWebSocketFrame( byteBuf ), promise ) ;
     } finally {
       writerCoating.recycle() ;
@@ -0,0 +1,30 @@
+package com.otcdlink.chiron.middle.tier;
+
+import io.netty.handler.codec.http.websocketx.WebSocketFrame;
+import io.netty.handler.codec.http.websocketx.WebSocketFrameAggregator;
+
+import static com.google.common.base.Preconditions.checkNotNull;
+
+/**
+ * A {@link WebSocketFrameAggregator} that counts {@link WebsocketMetrics#reassemblies}.
+ * Non-fragmented frames go through {@link WebSocketFrameAggregator} untouched, so they
+ * don't count.
+ */
+public class MeteredWebsocketFrameAggregator extends WebSocketFrameAggregator {
+
+  private final WebsocketMetrics websocketMetrics ;
+
+  public MeteredWebsocketFrameAggregator(
+      final int maxContentLength,
+      final WebsocketMetrics websocketMetrics
+  ) {
+    super( maxContentLength ) ;
+    this.websocketMetrics = checkNotNull( websocketMetrics ) ;
+  }
+
+  @Override
+  protected void finishAggregation( final WebSocketFrame aggregated ) throws Exception {
+    super.finishAggregation( aggregated ) ;
+    websocketMetrics.reassemblies.increment() ;
+  }
+}
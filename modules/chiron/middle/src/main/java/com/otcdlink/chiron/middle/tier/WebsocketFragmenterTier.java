@@ -13,6 +13,7 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import static com.google.common.base.Preconditions.checkArgument;
+import static com.google.common.base.Preconditions.checkNotNull;
 import static com.google.common.base.Preconditions.checkState;
 
 /**
@@ -25,11 +26,20 @@ public class WebsocketFragmenterTier extends ChannelOutboundHandlerAdapter {
 
   private final int maximumContentLength ;
   private final int maximumPayloadLength ;
+  private final WebsocketMetrics websocketMetrics ;
 
   public WebsocketFragmenterTier( final int maximumWebsocketLength ) {
+    this( maximumWebsocketLength, WebsocketMetrics.NULL ) ;
+  }
+
+  public WebsocketFragmenterTier(
+      final int maximumWebsocketLength,
+      final WebsocketMetrics websocketMetrics
+  ) {
     checkArgument( maximumWebsocketLength > 0 ) ;
     this.maximumContentLength = maximumWebsocketLength ;
     this.maximumPayloadLength = WebsocketFrameSizer.payloadSizeInt( maximumWebsocketLength ) ;
+    this.websocketMetrics = checkNotNull( websocketMetrics ) ;
   }
 
 
@@ -43,6 +53,7 @@ public class WebsocketFragmenterTier extends ChannelOutboundHandlerAdapter {
     if( outbound instanceof TextWebSocketFrame || outbound instanceof BinaryWebSocketFrame ) {
       final WebSocketFrame webSocketFrame = ( WebSocketFrame ) outbound ;
       if( webSocketFrame.content().readableBytes() > maximumPayloadLength ) {
+        websocketMetrics.fragmentations.increment() ;
         writeFragmented( channelHandlerContext, webSocketFrame,
             maximumPayloadLength, promise ) ;
         return ;
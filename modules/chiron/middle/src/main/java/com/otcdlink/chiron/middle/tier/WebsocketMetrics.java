@@ -0,0 +1,60 @@
+package com.otcdlink.chiron.middle.tier;
+
+import com.otcdlink.chiron.toolbox.metrics.Counter;
+import com.otcdlink.chiron.toolbox.metrics.Histogram;
+import com.otcdlink.chiron.toolbox.metrics.MetricRegistry;
+
+import static com.google.common.base.Preconditions.checkNotNull;
+
+/**
+ * {@link Counter}s that WebSocket-related tiers update, resolved once per connector so
+ * creating a {@link io.netty.channel.ChannelPipeline} costs no {@link MetricRegistry} lookup.
+ * Every {@link io.netty.channel.Channel} of a connector contributes to the same
+ * {@link Counter}s.
+ */
+public final class WebsocketMetrics {
+
+  public static final WebsocketMetrics NULL =
+      new WebsocketMetrics( MetricRegistry.NULL, "null" ) ;
+
+  /**
+   * Counted by {@link AbstractCommandWebsocketCodecTier}.
+   */
+  public final Counter framesIn ;
+  public final Counter framesOut ;
+  public final Counter bytesIn ;
+  public final Counter bytesOut ;
+
+  /**
+   * Recorded by {@link AbstractCommandWebsocketCodecTier}, in bytes, once per inbound frame
+   * (after reassembly). Tells if {@link WebsocketFrameSizer} settings fit actual traffic.
+   */
+  public final Histogram frameSizesIn ;
+
+  /**
+   * Counted by {@link WebsocketFragmenterTier}, once per outbound frame that needed
+   * fragmentation.
+   */
+  public final Counter fragmentations ;
+
+  /**
+   * Counted by {@link MeteredWebsocketFrameAggregator}, once per inbound frame rebuilt from
+   * fragments.
+   */
+  public final Counter reassemblies ;
+
+  /**
+   * @param prefix something like {@code upend.websocket}.
+   */
+  public WebsocketMetrics( final MetricRegistry metricRegistry, final String prefix ) {
+    checkNotNull( prefix ) ;
+    framesIn = metricRegistry.counter( prefix + ".frames.in" ) ;
+    framesOut = metricRegistry.counter( prefix + ".frames.out" ) ;
+    bytesIn = metricRegistry.counter( prefix + ".bytes.in" ) ;
+    bytesOut = metricRegistry.counter( prefix + ".bytes.out" ) ;
+    frameSizesIn = metricRegistry.histogram( prefix + ".frame.size.in" ) ;
+    fragmentations = metricRegistry.counter( prefix + ".fragmentations" ) ;
+    reassemblies = metricRegistry.counter( prefix + ".reassemblies" ) ;
+  }
+
+}
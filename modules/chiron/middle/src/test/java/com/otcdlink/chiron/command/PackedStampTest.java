@@ -0,0 +1,139 @@
+package com.otcdlink.chiron.command;
+
+import com.otcdlink.chiron.toolbox.clock.UpdateableClock;
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.Unpooled;
+import org.junit.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.concurrent.CountDownLatch;
+
+import static com.otcdlink.chiron.command.Stamp.FLOOR_MILLISECONDS;
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class PackedStampTest {
+
+  @Test
+  public void packAndUnpack() throws Exception {
+    final Stamp stamp = Stamp.raw( FLOOR_MILLISECONDS + 3_000, 7 ) ;
+    final long packed = PackedStamp.pack( stamp ) ;
+    assertThat( PackedStamp.flooredSeconds( packed ) ).isEqualTo( 3 ) ;
+    assertThat( PackedStamp.counter( packed ) ).isEqualTo( 7 ) ;
+    assertThat( PackedStamp.unpack( packed ) ).isEqualTo( stamp ) ;
+    assertThat( PackedStamp.asString( packed ) )
+        .isEqualTo( stamp.asStringRoundedToFlooredSecond() ) ;
+  }
+
+  @Test
+  public void orderingLikeStamp() throws Exception {
+    assertThat( PackedStamp.pack( 1, 0 ) ).isGreaterThan( PackedStamp.pack( 0, 999_999 ) ) ;
+    assertThat( PackedStamp.pack( 1, 1 ) ).isGreaterThan( PackedStamp.pack( 1, 0 ) ) ;
+  }
+
+  @Test( expected = IllegalArgumentException.class )
+  public void counterTooBig() throws Exception {
+    PackedStamp.pack( 0, 1L << PackedStamp.COUNTER_BITS ) ;
+  }
+
+  @Test
+  public void generateWithinSameSecond() throws Exception {
+    final UpdateableClock clock = UpdateableClock.newClock( FLOOR_MILLISECONDS ) ;
+    final PackedStamp.Generator generator = new PackedStamp.Generator( clock ) ;
+    assertThat( generator.generate() ).isEqualTo( PackedStamp.pack( 0, 0 ) ) ;
+    assertThat( generator.generate() ).isEqualTo( PackedStamp.pack( 0, 1 ) ) ;
+    clock.increment( 999 ) ;
+    assertThat( generator.generate() ).isEqualTo( PackedStamp.pack( 0, 2 ) ) ;
+    clock.increment( 1 ) ;
+    assertThat( generator.generate() ).isEqualTo( PackedStamp.pack( 1, 0 ) ) ;
+    clock.increment( 5_000 ) ;
+    assertThat( generator.generateStamp() )
+        .isEqualTo( Stamp.raw( FLOOR_MILLISECONDS + 6_000, 0 ) ) ;
+  }
+
+  @Test
+  public void concurrency() throws Exception {
+    final int threadCount = 4 ;
+    final int passCount = 10_000 ;
+    final PackedStamp.Generator generator =
+        new PackedStamp.Generator( UpdateableClock.newClock( FLOOR_MILLISECONDS ) ) ;
+    final long[][] generated = new long[ threadCount ][ passCount ] ;
+    final CountDownLatch start = new CountDownLatch( 1 ) ;
+    final Thread[] threads = new Thread[ threadCount ] ;
+    for( int t = 0 ; t < threadCount ; t ++ ) {
+      final long[] results = generated[ t ] ;
+      threads[ t ] = new Thread( () -> {
+        try {
+          start.await() ;
+        } catch( final InterruptedException e ) {
+          throw new RuntimeException( e ) ;
+        }
+        for( int i = 0 ; i < passCount ; i ++ ) {
+          results[ i ] = generator.generate() ;
+        }
+      } ) ;
+      threads[ t ].start() ;
+    }
+    start.countDown() ;
+    for( final Thread thread : threads ) {
+      thread.join() ;
+    }
+    final long[] all =
+        Arrays.stream( generated ).flatMapToLong( Arrays::stream ).sorted().toArray() ;
+    for( int i = 0 ; i < all.length ; i ++ ) {
+      assertThat( all[ i ] ).isEqualTo( PackedStamp.pack( 0, i ) ) ;
+    }
+  }
+
+  @Test
+  public void writeAndParseByteBuf() throws Exception {
+    final ByteBuf byteBuf = Unpooled.buffer() ;
+    final long packed = PackedStamp.pack( 0xFFFF_FFFFL, 9_999 ) ;
+    PackedStamp.writeTo( byteBuf, packed ) ;
+    byteBuf.writeByte( ' ' ) ;
+    assertThat( byteBuf.toString( StandardCharsets.US_ASCII ) )
+        .isEqualTo( PackedStamp.unpack( packed ).asStringRoundedToFlooredSecond() + " " ) ;
+    assertThat( PackedStamp.parse( byteBuf ) ).isEqualTo( packed ) ;
+    assertThat( byteBuf.readByte() ).isEqualTo( ( byte ) ' ' ) ;
+  }
+
+  @Test
+  public void parseZero() throws Exception {
+    final ByteBuf byteBuf = Unpooled.copiedBuffer( "0:0", StandardCharsets.US_ASCII ) ;
+    assertThat( PackedStamp.parse( byteBuf ) ).isEqualTo( 0 ) ;
+    assertThat( byteBuf.isReadable() ).isFalse() ;
+  }
+
+  @Test
+  public void parseMalformed() throws Exception {
+    checkInvalid( "" ) ;
+    checkInvalid( ":1" ) ;
+    checkInvalid( "1:" ) ;
+    checkInvalid( "1-1" ) ;
+    checkInvalid( "Z:1" ) ;
+    checkInvalid( Long.toString( 1L << PackedStamp.SECOND_BITS, 36 ) + ":1" ) ;
+    checkInvalid( "1:" + Long.toString( 1L << PackedStamp.COUNTER_BITS, 36 ) ) ;
+  }
+
+  @Test
+  public void parseCharSequence() throws Exception {
+    assertThat( PackedStamp.parse( "xx11lpbz:7pryy", 2, 12 ) )
+        .isEqualTo( PackedStamp.pack( Long.parseLong( "11lpbz", 36 ), 9_999 ) ) ;
+    assertThat( PackedStamp.parse( "1:", 0, 2 ) ).isEqualTo( PackedStamp.INVALID ) ;
+  }
+
+
+// =======
+// Fixture
+// =======
+
+  private static void checkInvalid( final String string ) {
+    final ByteBuf byteBuf = Unpooled.copiedBuffer( string, StandardCharsets.US_ASCII ) ;
+    assertThat( PackedStamp.parse( byteBuf ) ).describedAs( string )
+        .isEqualTo( PackedStamp.INVALID ) ;
+    assertThat( byteBuf.readerIndex() ).isEqualTo( 0 ) ;
+    assertThat( PackedStamp.parse( string, 0, string.length() ) ).describedAs( string )
+        .isEqualTo( PackedStamp.INVALID ) ;
+  }
+
+}
@@ -0,0 +1,85 @@
+package com.otcdlink.chiron.command;
+
+import com.otcdlink.chiron.command.time8.StampGenerator8;
+import com.otcdlink.chiron.toolbox.clock.Clock;
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.Unpooled;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+
+import java.time.Instant;
+
+/**
+ * Compares contended generation with {@link Stamp.Generator}, {@link PackedStamp.Generator}
+ * and {@link StampGenerator8}, then formatting and parsing with {@link Stamp.Parser} and
+ * {@link PackedStamp}.
+ */
+@State( Scope.Benchmark )
+public class StampGeneratorJmhBenchmark {
+
+  private final Stamp.Generator stampGenerator = new Stamp.Generator( Clock.SYSTEM_CLOCK ) ;
+
+  private final PackedStamp.Generator packedStampGenerator =
+      new PackedStamp.Generator( Clock.SYSTEM_CLOCK ) ;
+
+  private final StampGenerator8 stampGenerator8 =
+      new StampGenerator8( java.time.Clock.systemUTC() ) ;
+
+  @Benchmark
+  @Fork( value = 1, warmups = 1 )
+  @BenchmarkMode( Mode.Throughput )
+  @Threads( 4 )
+  public Stamp stampGenerator() {
+    return stampGenerator.generate() ;
+  }
+
+  @Benchmark
+  @Fork( value = 1, warmups = 1 )
+  @BenchmarkMode( Mode.Throughput )
+  @Threads( 4 )
+  public long packedStampGenerator() {
+    return packedStampGenerator.generate() ;
+  }
+
+  @Benchmark
+  @Fork( value = 1, warmups = 1 )
+  @BenchmarkMode( Mode.Throughput )
+  @Threads( 4 )
+  public Instant stampGenerator8() {
+    return stampGenerator8.newInstant() ;
+  }
+
+  @State( Scope.Thread )
+  public static class Codec {
+    final Stamp stamp = Stamp.raw( Stamp.FLOOR_MILLISECONDS + 100_000_000_000L, 1234 ) ;
+    final long packed = PackedStamp.pack( stamp ) ;
+    final Stamp.Parser parser = new Stamp.Parser() ;
+    final ByteBuf byteBuf = Unpooled.directBuffer( 32 ) ;
+  }
+
+  @Benchmark
+  @Fork( value = 1, warmups = 1 )
+  @BenchmarkMode( Mode.Throughput )
+  public Stamp stampFormatAndParse( final Codec codec ) {
+    return codec.parser.parse( codec.stamp.asStringRoundedToFlooredSecond() ) ;
+  }
+
+  @Benchmark
+  @Fork( value = 1, warmups = 1 )
+  @BenchmarkMode( Mode.Throughput )
+  public long packedStampFormatAndParse( final Codec codec ) {
+    codec.byteBuf.clear() ;
+    PackedStamp.writeTo( codec.byteBuf, codec.packed ) ;
+    return PackedStamp.parse( codec.byteBuf ) ;
+  }
+
+  public static void main( final String... arguments ) throws Exception {
+    org.openjdk.jmh.Main.main( arguments ) ;
+  }
+
+}
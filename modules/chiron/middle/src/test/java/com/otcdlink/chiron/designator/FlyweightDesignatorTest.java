@@ -0,0 +1,120 @@
+package com.otcdlink.chiron.designator;
+
+import com.otcdlink.chiron.buffer.PositionalFieldReader;
+import com.otcdlink.chiron.buffer.PositionalFieldWriter;
+import com.otcdlink.chiron.command.Command;
+import com.otcdlink.chiron.command.RecyclableCommand;
+import com.otcdlink.chiron.command.Stamp;
+import com.otcdlink.chiron.middle.session.SessionIdentifier;
+import com.otcdlink.chiron.toolbox.clock.Clock;
+import org.junit.Test;
+
+import java.io.IOException;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+public class FlyweightDesignatorTest {
+
+  @Test
+  public void flyweight() throws Exception {
+    final FlyweightDesignator designator = factory.flyweight( SESSION_ID_0 ) ;
+    assertThat( designator.kind ).isEqualTo( Designator.Kind.UPWARD ) ;
+    assertThat( designator.cause ).isNull() ;
+    assertThat( designator.tag ).isNull() ;
+    assertThat( designator.sessionIdentifier ).isEqualTo( SESSION_ID_0 ) ;
+  }
+
+  @Test
+  public void reuseAfterRelease() throws Exception {
+    final FlyweightDesignator designator = factory.flyweight( SESSION_ID_0 ) ;
+    final Ping< Void > ping1 = obtain( designator ) ;
+    ping1.counter = 1 ;
+    ping1.release() ;
+    assertThat( ping1.counter ).isEqualTo( 0 ) ;
+
+    final Ping< Void > ping2 = obtain( designator ) ;
+    assertThat( ping2 ).isSameAs( ping1 ) ;
+    assertThat( ping2.persist() ).isFalse() ;
+  }
+
+  @Test
+  public void noReuseWithoutRelease() throws Exception {
+    final FlyweightDesignator designator = factory.flyweight( SESSION_ID_0 ) ;
+    final Ping< Void > ping1 = obtain( designator ) ;
+    final Ping< Void > ping2 = obtain( designator ) ;
+    assertThat( ping2 ).isNotSameAs( ping1 ) ;
+  }
+
+  @Test
+  public void doubleReleaseRejected() throws Exception {
+    final FlyweightDesignator designator = factory.flyweight( SESSION_ID_0 ) ;
+    final Ping< Void > ping1 = obtain( designator ) ;
+    ping1.release() ;
+    assertThatThrownBy( ping1::release ).isInstanceOf( IllegalStateException.class ) ;
+
+    final Ping< Void > ping2 = obtain( designator ) ;
+    assertThat( ping2 ).isSameAs( ping1 ) ;
+    assertThat( obtain( designator ) ).isNotSameAs( ping1 ) ;
+    ping2.release() ;
+  }
+
+  @Test
+  public void trackedCommandRejected() throws Exception {
+    final FlyweightDesignator designator = factory.flyweight( SESSION_ID_0 ) ;
+    assertThatThrownBy( () -> designator.obtain( TrackedPing.class, TrackedPing::new ) )
+        .isInstanceOf( IllegalArgumentException.class ) ;
+  }
+
+
+// =======
+// Fixture
+// =======
+
+  private static final Clock CLOCK = () -> Stamp.FLOOR_MILLISECONDS ;
+
+  private static final SessionIdentifier SESSION_ID_0 = new SessionIdentifier( "s000" ) ;
+
+  private final Designator.Factory factory =
+      new Designator.Factory( new Stamp.Generator( CLOCK ) ) ;
+
+  @SuppressWarnings( "unchecked" )
+  private static Ping< Void > obtain( final FlyweightDesignator designator ) {
+    return designator.obtain( Ping.class, Ping::new ) ;
+  }
+
+  @Command.Description( name = "ping", tracked = false )
+  private static class Ping< CALLABLE_RECEIVER > extends RecyclableCommand< CALLABLE_RECEIVER > {
+
+    int counter ;
+
+    Ping( final FlyweightDesignator designator ) {
+      super( designator ) ;
+    }
+
+    @Override
+    public void readBody( final PositionalFieldReader positionalFieldReader ) throws IOException {
+      counter = positionalFieldReader.readIntegerPrimitive() ;
+    }
+
+    @Override
+    protected void clearBody() {
+      counter = 0 ;
+    }
+
+    @Override
+    public void callReceiver( final CALLABLE_RECEIVER callableReceiver ) { }
+
+    @Override
+    public void encodeBody( final PositionalFieldWriter positionalFieldWriter ) throws IOException {
+      positionalFieldWriter.writeIntegerPrimitive( counter ) ;
+    }
+  }
+
+  @Command.Description( name = "trackedPing" )
+  private static final class TrackedPing extends Ping< Void > {
+    TrackedPing( final FlyweightDesignator designator ) {
+      super( designator ) ;
+    }
+  }
+}
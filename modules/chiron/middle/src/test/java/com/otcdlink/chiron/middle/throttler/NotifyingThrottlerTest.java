@@ -1,16 +1,17 @@
 package com.otcdlink.chiron.middle.throttler;
 
-import com.google.common.util.concurrent.ThreadFactoryBuilder;
 import com.otcdlink.chiron.toolbox.ToStringTools;
 import com.otcdlink.chiron.toolbox.clock.Clock;
+import com.otcdlink.chiron.toolbox.clock.Pulse;
 import mockit.Expectations;
 import mockit.Injectable;
 import org.joda.time.Duration;
+import org.junit.After;
+import org.junit.Before;
 import org.junit.Test;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
-import java.util.concurrent.Executors;
 import java.util.concurrent.Semaphore;
 
 import static org.assertj.core.api.Assertions.assertThat;
@@ -39,6 +40,16 @@ public class NotifyingThrottlerTest {
     applyCommand( 1, Throttler.Effect.PASSED ) ;
   }
 
+  @Before
+  public void setUp() {
+    pulse.start() ;
+  }
+
+  @After
+  public void tearDown() {
+    pulse.stop() ;
+  }
+
 
 // =======
 // Fixture
@@ -48,15 +59,17 @@ public class NotifyingThrottlerTest {
 
   private final Clock clock = Clock.SYSTEM_CLOCK ;
 
+  private final ThrottlerExpiryWheel expiryWheel =
+      new ThrottlerExpiryWheel( Pulse.Resolution.DECISECOND ) ;
+
+  private final Pulse pulse =
+      Pulse.Factory.DEFAULT.create( Pulse.Resolution.DECISECOND, expiryWheel ) ;
+
   private final NotifyingThrottler< Number, ThrottlerFixture.NumberRestriction< Number > >
   throttler = new NotifyingThrottler<>(
         clock,
         new ThrottlerFixture.NumberRestrictionFactory(),
-        Executors.newSingleThreadScheduledExecutor( new ThreadFactoryBuilder()
-            .setNameFormat(
-                ToStringTools.getNiceName( NotifyingThrottler.Watcher.class ) + "-notifier" )
-            .build()
-        ),
+        expiryWheel,
         Duration.ZERO,
         0
     )
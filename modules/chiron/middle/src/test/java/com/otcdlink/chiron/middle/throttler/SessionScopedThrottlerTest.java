@@ -73,6 +73,29 @@ public class SessionScopedThrottlerTest {
         ThrottlerFixture.restrictions( 1 ), ThrottlerFixture.noRestriction() ) ;
   }
 
+  @Test
+  public void indexedByClass() throws Exception {
+    final NotificationRecordingThrottler<
+        Number,
+        ThrottlerFixture.NumberRestriction< Number >
+    > indexedThrottler = new NotificationRecordingThrottler<>(
+        new ThrottlerFixture.NumberRestrictionFactory() {
+          @Override
+          public Object indexKey( final Number number ) {
+            return number.getClass() ;
+          }
+        }
+    ) ;
+    indexedThrottler.throttlingDuration( ThrottlerFixture.DURATION_2 ) ;
+
+    updateableClock.set( ThrottlerFixture.TIMESTAMP_0.getMillis() ) ;
+    assertThat( indexedThrottler.evaluateAndUpdate( 1 ) ).isEqualTo( PASSED ) ;
+
+    // With per-class indexing, the Integer's Restriction no longer applies to Floats.
+    updateableClock.set( ThrottlerFixture.TIMESTAMP_1.getMillis() ) ;
+    assertThat( indexedThrottler.evaluateAndUpdate( 1.1f ) ).isEqualTo( PASSED ) ;
+    assertThat( indexedThrottler.evaluateAndUpdate( 1.1f ) ).isEqualTo( THROTTLED ) ;
+  }
 
 
 // =======
@@ -0,0 +1,103 @@
+package com.otcdlink.chiron.middle.throttler;
+
+import com.otcdlink.chiron.toolbox.clock.Pulse;
+import com.otcdlink.chiron.toolbox.clock.UpdateableClock;
+import org.joda.time.Duration;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static com.otcdlink.chiron.middle.throttler.Throttler.Effect.PASSED;
+import static com.otcdlink.chiron.middle.throttler.Throttler.Effect.THROTTLED;
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class ThrottlerExpiryWheelTest {
+
+  @Test
+  public void expireAfterDeadline() throws Exception {
+    final RecordingThrottler throttler = new RecordingThrottler( 250 ) ;
+    assertThat( throttler.evaluateAndUpdate( 1 ) ).isEqualTo( PASSED ) ;
+    assertThat( throttler.evaluateAndUpdate( 1.5f ) ).isEqualTo( THROTTLED ) ;
+
+    expireAt( 200 ) ;
+    assertThat( throttler.restrictionsRemoved ).isEmpty() ;
+
+    expireAt( 300 ) ;
+    assertThat( throttler.restrictionsRemoved ).isEqualTo( ThrottlerFixture.restrictions( 1 ) ) ;
+    assertThat( throttler.evaluateAndUpdate( 1.5f ) ).isEqualTo( PASSED ) ;
+  }
+
+  @Test
+  public void severalRevolutionsAndSeveralThrottlers() throws Exception {
+    final RecordingThrottler throttler1 = new RecordingThrottler( 1_000 ) ;
+    final RecordingThrottler throttler2 = new RecordingThrottler( 150 ) ;
+    throttler1.evaluateAndUpdate( 1 ) ;
+    throttler2.evaluateAndUpdate( 2 ) ;
+
+    expireAt( 400 ) ;
+    assertThat( throttler1.restrictionsRemoved ).isEmpty() ;
+    assertThat( throttler2.restrictionsRemoved ).isEqualTo( ThrottlerFixture.restrictions( 2 ) ) ;
+
+    expireAt( 800 ) ;
+    assertThat( throttler1.restrictionsRemoved ).isEmpty() ;
+
+    expireAt( 1_100 ) ;
+    assertThat( throttler1.restrictionsRemoved ).isEqualTo( ThrottlerFixture.restrictions( 1 ) ) ;
+  }
+
+  @Test
+  public void throttlingDurationIncreased() throws Exception {
+    final RecordingThrottler throttler = new RecordingThrottler( 100 ) ;
+    throttler.evaluateAndUpdate( 1 ) ;
+    throttler.throttlingDuration( new Duration( 500 ) ) ;
+
+    expireAt( 200 ) ;
+    assertThat( throttler.restrictionsRemoved ).isEmpty() ;
+
+    expireAt( 600 ) ;
+    assertThat( throttler.restrictionsRemoved ).isEqualTo( ThrottlerFixture.restrictions( 1 ) ) ;
+  }
+
+
+// =======
+// Fixture
+// =======
+
+  private final UpdateableClock clock = UpdateableClock.newClock( 0 ) ;
+
+  /**
+   * One revolution lasts 400 ms.
+   */
+  private final ThrottlerExpiryWheel expiryWheel =
+      new ThrottlerExpiryWheel( Pulse.Resolution.DECISECOND, 4 ) ;
+
+  private void expireAt( final long millis ) {
+    clock.set( millis ) ;
+    expiryWheel.expire( millis ) ;
+  }
+
+  private class RecordingThrottler
+      extends SessionScopedThrottler< Number, ThrottlerFixture.NumberRestriction< Number > >
+  {
+    public final List< ThrottlerFixture.NumberRestriction > restrictionsRemoved =
+        new ArrayList<>() ;
+
+    public RecordingThrottler( final long throttlingMillis ) {
+      super(
+          ThrottlerExpiryWheelTest.this.clock,
+          new ThrottlerFixture.NumberRestrictionFactory(),
+          expiryWheel,
+          new Duration( throttlingMillis )
+      ) ;
+    }
+
+    @Override
+    protected void restrictionRemoved(
+        final ThrottlerFixture.NumberRestriction< Number > restriction
+    ) {
+      restrictionsRemoved.add( restriction ) ;
+    }
+  }
+
+}
@@ -123,18 +123,34 @@ public class SshJavaDriver< SETUP extends SshJavaDriver.Setup > extends SshDrive
       throws IOException, ExecutionException, InterruptedException
   {
     final ExecutorService executorService =
-        Executors.newFixedThreadPool( MAXIMUM_SCP_SESSIONS, threadFactory( "scp" ) ) ;
+        Executors.newFixedThreadPool( scpSessions(), threadFactory( "scp" ) ) ;
 
     final Synchronizer synchronizer = new Synchronizer(
         sshService,
-        setup().localFileBundle.get().fileDetails,
+        () -> setup().localFileBundle.get().fileDetails,
         setup().remoteFileEnumerator,
-        executorService
+        executorService,
+        fileComparison()
     ) ;
 
     synchronizer.synchronize() ;
   }
 
+  /**
+   * Override to return {@link Synchronizer.Comparison#DIGEST} when build produces files with
+   * a new date but same content.
+   */
+  protected Synchronizer.Comparison fileComparison() {
+    return Synchronizer.Comparison.LIKELINESS ;
+  }
+
+  /**
+   * How many SSH sessions run in parallel for file synchronization.
+   */
+  protected int scpSessions() {
+    return MAXIMUM_SCP_SESSIONS ;
+  }
+
   protected final void addSystemProperties( final StringBuilder commandLineBuilder ) {
     if( ! setup().systemProperties.isEmpty() ) {
       commandLineBuilder
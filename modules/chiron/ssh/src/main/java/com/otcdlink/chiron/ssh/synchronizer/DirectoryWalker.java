@@ -0,0 +1,112 @@
+package com.otcdlink.chiron.ssh.synchronizer;
+
+import org.joda.time.DateTime;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.RecursiveAction;
+import java.util.function.Consumer;
+
+import static com.google.common.base.Preconditions.checkNotNull;
+
+/**
+ * Finds every file under a directory and feeds a {@link Consumer} with the corresponding
+ * {@link FileDetail}s, as soon as it finds them.
+ * Reading {@link BasicFileAttributes} at once costs one system call per file, instead of one
+ * for {@code isDirectory()}, one for {@code lastModified()}, and one for {@code length()}.
+ * With a {@link ForkJoinPool}, each subdirectory becomes a {@link RecursiveAction}, so the
+ * {@link Consumer} must be thread-safe.
+ */
+final class DirectoryWalker {
+
+  private final Path startPath ;
+  private final FileKind fileKind ;
+  private final Consumer< FileDetail > sink ;
+
+  /**
+   * @param startPath the {@link FileDetail#parentPath} for every {@link FileDetail}.
+   */
+  DirectoryWalker(
+      final Path startPath,
+      final FileKind fileKind,
+      final Consumer< FileDetail > sink
+  ) {
+    this.startPath = checkNotNull( startPath ) ;
+    this.fileKind = checkNotNull( fileKind ) ;
+    this.sink = checkNotNull( sink ) ;
+  }
+
+  public void walk( final Path subPath ) throws IOException {
+    final List< Path > subdirectories = walkOneLevel( subPath ) ;
+    for( final Path subdirectory : subdirectories ) {
+      walk( subdirectory ) ;
+    }
+  }
+
+  public void walk( final ForkJoinPool forkJoinPool, final Path subPath ) throws IOException {
+    try {
+      forkJoinPool.invoke( new WalkAction( subPath ) ) ;
+    } catch( final UncheckedIOException e ) {
+      throw e.getCause() ;
+    }
+  }
+
+  /**
+   * @return subdirectories to walk next.
+   */
+  private List< Path > walkOneLevel( final Path subPath ) throws IOException {
+    final List< Path > subdirectories = new ArrayList<>() ;
+    try( DirectoryStream< Path > stream = Files.newDirectoryStream( subPath ) ) {
+      for( final Path entry : stream ) {
+        final BasicFileAttributes attributes =
+            Files.readAttributes( entry, BasicFileAttributes.class ) ;
+        if( attributes.isDirectory() ) {
+          subdirectories.add( entry ) ;
+        } else {
+          sink.accept( new FileDetail(
+              startPath.toString(),
+              // startPath.relativize( entry ).toString(),
+              // Line above fails when dealing with paths of different origins.
+              entry.toString().substring( startPath.toString().length() + 1 ),
+              fileKind,
+              new DateTime( attributes.lastModifiedTime().toMillis() ),
+              attributes.size()
+          ) ) ;
+        }
+      }
+    }
+    return subdirectories ;
+  }
+
+  private final class WalkAction extends RecursiveAction {
+    private final Path subPath ;
+
+    private WalkAction( final Path subPath ) {
+      this.subPath = subPath ;
+    }
+
+    @Override
+    protected void compute() {
+      final List< Path > subdirectories ;
+      try {
+        subdirectories = walkOneLevel( subPath ) ;
+      } catch( final IOException e ) {
+        throw new UncheckedIOException( e ) ;
+      }
+      final List< WalkAction > actions = new ArrayList<>( subdirectories.size() ) ;
+      for( final Path subdirectory : subdirectories ) {
+        actions.add( new WalkAction( subdirectory ) ) ;
+      }
+      ForkJoinTask.invokeAll( actions ) ;
+    }
+  }
+
+}
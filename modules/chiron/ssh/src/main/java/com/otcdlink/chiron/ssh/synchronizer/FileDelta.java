@@ -4,14 +4,15 @@ import com.google.common.collect.ImmutableBiMap;
 import com.google.common.collect.ImmutableSet;
 import com.otcdlink.chiron.toolbox.collection.ImmutableKeyHolderMap;
 
+import java.util.Comparator;
 import java.util.Set;
 
 import static com.google.common.base.Preconditions.checkNotNull;
 
 /**
  * Computes what should be uploaded and what should be deleted and which directories to
- * create remotely, basing on {@link FileKey} and
- * {@link FileDetail#LIKELINESS_COMPARATOR}.
+ * create remotely, basing on {@link FileKey} and a {@link Comparator}, which is
+ * {@link FileDetail#LIKELINESS_COMPARATOR} unless told otherwise.
  */
 public class FileDelta {
 
@@ -28,6 +29,27 @@ public class FileDelta {
       final ImmutableKeyHolderMap< FileKey, FileDetail > localFiles,
       final ImmutableKeyHolderMap< FileKey, FileDetail > remoteFiles
   ) {
+    this(
+        remoteBaseDirectory,
+        parentDirectoryByKind,
+        localFiles,
+        remoteFiles,
+        FileDetail.LIKELINESS_COMPARATOR
+    ) ;
+  }
+
+  /**
+   * @param comparator returns 0 for a local and a remote {@link FileDetail}s with the same
+   *     {@link FileKey} when there is no need to upload.
+   */
+  public FileDelta(
+      final String remoteBaseDirectory,
+      final ImmutableBiMap< FileKind, String > parentDirectoryByKind,
+      final ImmutableKeyHolderMap< FileKey, FileDetail > localFiles,
+      final ImmutableKeyHolderMap< FileKey, FileDetail > remoteFiles,
+      final Comparator< FileDetail > comparator
+  ) {
+    checkNotNull( comparator ) ;
     this.remoteBaseDirectory = checkNotNull( remoteBaseDirectory ) ;
     this.parentDirectoryByKind = checkNotNull( parentDirectoryByKind ) ;
 
@@ -40,7 +62,7 @@ public class FileDelta {
     for( final FileDetail localFileDetail : localFiles.values() ) {
       final FileDetail remoteFileDetail = remoteFiles.get( localFileDetail.key ) ;
       if( remoteFileDetail == null ||
-          FileDetail.LIKELINESS_COMPARATOR.compare( localFileDetail, remoteFileDetail ) != 0
+          comparator.compare( localFileDetail, remoteFileDetail ) != 0
       ) {
         uploadListBuilder.add( localFileDetail.key ) ;
       }
@@ -9,6 +9,7 @@ import org.joda.time.DateTimeComparator;
 import java.util.Comparator;
 
 import static com.google.common.base.Preconditions.checkArgument;
+import static com.google.common.base.Preconditions.checkNotNull;
 
 /**
  * The characteristics associated with a {@link FileKey}.
@@ -26,18 +27,46 @@ public class FileDetail implements KeyHolder<FileKey > {
   public final DateTime lastChange ;
   public final long size ;
 
+  /**
+   * Hexadecimal representation of file content's {@link FileDigester#ALGORITHM}, may be
+   * {@code null} if nobody computed it.
+   */
+  public final String digest ;
+
   public FileDetail(
       final String parentPath,
       final String keyingPath,
       final FileKind kind,
       final DateTime lastChange,
       final long size
+  ) {
+    this( parentPath, new FileKey( keyingPath, kind ), lastChange, size, null ) ;
+  }
+
+  private FileDetail(
+      final String parentPath,
+      final FileKey key,
+      final DateTime lastChange,
+      final long size,
+      final String digest
   ) {
     checkArgument( ! Strings.isNullOrEmpty( parentPath ), "Bad parentPath: " + parentPath ) ;
     this.parentPath = parentPath ;
-    this.key = new FileKey( keyingPath, kind ) ;
+    this.key = checkNotNull( key ) ;
     this.lastChange = lastChange ;
     this.size = size ;
+    this.digest = digest ;
+  }
+
+  public FileDetail withDigest( final String digest ) {
+    return new FileDetail( parentPath, key, lastChange, size, checkNotNull( digest ) ) ;
+  }
+
+  /**
+   * Path of the file itself, relative to the same directory as {@link #parentPath}.
+   */
+  public String path() {
+    return parentPath + '/' + key.relativePath ;
   }
 
 
@@ -53,6 +82,7 @@ public class FileDetail implements KeyHolder<FileKey > {
         "parentPath='" + parentPath + "'; " +
         "lastChange=" + lastChange + "'; " +
         "size=" + size +
+        ( digest == null ? "" : "; digest=" + digest ) +
         '}'
     ;
   }
@@ -73,4 +103,28 @@ public class FileDetail implements KeyHolder<FileKey > {
         }
       }
   ;
+
+  /**
+   * Same as {@link #LIKELINESS_COMPARATOR} but when both {@link FileDetail}s have a
+   * {@link #digest} it replaces {@link #lastChange}, so we don't upload a file that was just
+   * touched, and we upload a file that changed without changing size nor date.
+   */
+  public static final Comparator< FileDetail > CONTENT_COMPARATOR =
+      new ComparatorTools.WithNull<FileDetail>() {
+        @Override
+        protected int compareNoNulls( final FileDetail first, final FileDetail second ) {
+          if( first.digest != null && second.digest != null ) {
+            final int sizeComparison =
+                ComparatorTools.LONG_COMPARATOR.compare( first.size, second.size ) ;
+            if( sizeComparison == 0 ) {
+              return first.digest.compareTo( second.digest ) ;
+            } else {
+              return sizeComparison ;
+            }
+          } else {
+            return LIKELINESS_COMPARATOR.compare( first, second ) ;
+          }
+        }
+      }
+  ;
 }
@@ -0,0 +1,302 @@
+package com.otcdlink.chiron.ssh.synchronizer;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.Iterables;
+import com.google.common.hash.Hashing;
+import com.google.common.io.Files;
+import com.otcdlink.chiron.ssh.SshService;
+import com.otcdlink.chiron.toolbox.collection.ImmutableKeyHolderMap;
+import net.schmizz.sshj.connection.channel.direct.Session;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import static com.google.common.base.Preconditions.checkNotNull;
+
+/**
+ * Computes {@link FileDetail#digest} for local and remote files that {@link FileDelta} can't
+ * tell apart with {@link FileDetail#size} alone, so {@link FileDetail#CONTENT_COMPARATOR} can
+ * skip identical files even if {@link FileDetail#lastChange} differs.
+ * Remote digests come from one {@link #REMOTE_COMMAND} per remote directory (or per chunk of
+ * {@link #MAXIMUM_FILES_PER_COMMAND} files), each running in its own {@link Session}
+ * so they can run in parallel on the same SSH connection.
+ */
+public class FileDigester {
+
+  private static final Logger LOGGER = LoggerFactory.getLogger( FileDigester.class ) ;
+
+  public static final String ALGORITHM = "SHA-256" ;
+
+  /**
+   * Part of GNU coreutils, gives the same result as {@link Hashing#sha256()}.
+   */
+  static final String REMOTE_COMMAND = "sha256sum" ;
+
+  /**
+   * Keeps command line far below usual {@code ARG_MAX}.
+   */
+  static final int MAXIMUM_FILES_PER_COMMAND = 500 ;
+
+  private final SshService sshService ;
+  private final ExecutorService executorService ;
+
+  public FileDigester( final SshService sshService, final ExecutorService executorService ) {
+    this.sshService = checkNotNull( sshService ) ;
+    this.executorService = checkNotNull( executorService ) ;
+  }
+
+  public static final class Digested {
+    public final ImmutableKeyHolderMap< FileKey, FileDetail > localFiles ;
+    public final ImmutableKeyHolderMap< FileKey, FileDetail > remoteFiles ;
+    public final int digestedPairs ;
+
+    private Digested(
+        final ImmutableKeyHolderMap< FileKey, FileDetail > localFiles,
+        final ImmutableKeyHolderMap< FileKey, FileDetail > remoteFiles,
+        final int digestedPairs
+    ) {
+      this.localFiles = checkNotNull( localFiles ) ;
+      this.remoteFiles = checkNotNull( remoteFiles ) ;
+      this.digestedPairs = digestedPairs ;
+    }
+  }
+
+  /**
+   * Digests only files existing on both sides with the same {@link FileDetail#size}, other
+   * files get uploaded anyway.
+   */
+  public Digested digest(
+      final ImmutableKeyHolderMap< FileKey, FileDetail > localFiles,
+      final ImmutableKeyHolderMap< FileKey, FileDetail > remoteFiles
+  ) throws IOException, InterruptedException, ExecutionException {
+    final List< FileKey > candidates = new ArrayList<>() ;
+    for( final FileDetail localFileDetail : localFiles.values() ) {
+      final FileDetail remoteFileDetail = remoteFiles.get( localFileDetail.key ) ;
+      if( remoteFileDetail != null && remoteFileDetail.size == localFileDetail.size ) {
+        candidates.add( localFileDetail.key ) ;
+      }
+    }
+    if( candidates.isEmpty() ) {
+      return new Digested( localFiles, remoteFiles, 0 ) ;
+    }
+    LOGGER.info( "About to compute " + ALGORITHM + " of " + candidates.size() +
+        " local and remote files ..." ) ;
+
+    final Map< FileKey, Future< String > > localDigestFutures = new HashMap<>() ;
+    for( final FileKey fileKey : candidates ) {
+      final File file = new File( localFiles.get( fileKey ).path() ) ;
+      localDigestFutures.put( fileKey, executorService.submit( () -> localDigest( file ) ) ) ;
+    }
+
+    // Keys are remote directories, values are remote file names.
+    final Map< String, Map< String, FileKey > > remoteKeysByDirectory = new LinkedHashMap<>() ;
+    for( final FileKey fileKey : candidates ) {
+      final String remotePath = remoteFiles.get( fileKey ).path() ;
+      final int lastSlash = remotePath.lastIndexOf( '/' ) ;
+      remoteKeysByDirectory
+          .computeIfAbsent( remotePath.substring( 0, lastSlash ), d -> new HashMap<>() )
+          .put( remotePath.substring( lastSlash + 1 ), fileKey )
+      ;
+    }
+    final List< Future< Map< FileKey, String > > > remoteDigestFutures = new ArrayList<>() ;
+    for( final Map.Entry< String, Map< String, FileKey > > entry :
+        remoteKeysByDirectory.entrySet()
+    ) {
+      for( final List< String > fileNames : Iterables.partition(
+          entry.getValue().keySet(), MAXIMUM_FILES_PER_COMMAND )
+      ) {
+        final String commandLine = remoteCommandLine( entry.getKey(), fileNames ) ;
+        final Map< String, FileKey > keysByName = entry.getValue() ;
+        remoteDigestFutures.add( executorService.submit(
+            () -> remoteDigests( commandLine, keysByName ) ) ) ;
+      }
+    }
+
+    final Map< FileKey, String > remoteDigests = new HashMap<>() ;
+    for( final Future< Map< FileKey, String > > future : remoteDigestFutures ) {
+      remoteDigests.putAll( future.get() ) ;
+    }
+
+    final ImmutableKeyHolderMap.Builder< FileKey, FileDetail > localBuilder =
+        ImmutableKeyHolderMap.builder() ;
+    final ImmutableKeyHolderMap.Builder< FileKey, FileDetail > remoteBuilder =
+        ImmutableKeyHolderMap.builder() ;
+    int digestedPairs = 0 ;
+    for( final FileDetail localFileDetail : localFiles.values() ) {
+      final Future< String > localDigestFuture = localDigestFutures.get( localFileDetail.key ) ;
+      final String remoteDigest = remoteDigests.get( localFileDetail.key ) ;
+      if( localDigestFuture == null || remoteDigest == null ) {
+        localBuilder.put( localFileDetail ) ;
+      } else {
+        localBuilder.put( localFileDetail.withDigest( localDigestFuture.get() ) ) ;
+        digestedPairs ++ ;
+      }
+    }
+    for( final FileDetail remoteFileDetail : remoteFiles.values() ) {
+      final String remoteDigest = remoteDigests.get( remoteFileDetail.key ) ;
+      remoteBuilder.put( remoteDigest == null ?
+          remoteFileDetail : remoteFileDetail.withDigest( remoteDigest ) ) ;
+    }
+    LOGGER.info( "Computed " + ALGORITHM + " of " + digestedPairs + " pairs of files." ) ;
+    return new Digested( localBuilder.build(), remoteBuilder.build(), digestedPairs ) ;
+  }
+
+  static String localDigest( final File file ) throws IOException {
+    return Files.asByteSource( file ).hash( Hashing.sha256() ).toString() ;
+  }
+
+  private Map< FileKey, String > remoteDigests(
+      final String commandLine,
+      final Map< String, FileKey > keysByName
+  ) throws IOException {
+    LOGGER.debug( "Running digest: " + commandLine ) ;
+    final Map< FileKey, String > digests = new HashMap<>() ;
+    try( Session session = sshService.newSession() ) {
+      final Session.Command command = session.exec( commandLine ) ;
+      for( final Map.Entry< String, String > entry :
+          parseRemoteOutput( command.getInputStream() ).entrySet()
+      ) {
+        final FileKey fileKey = keysByName.get( entry.getKey() ) ;
+        if( fileKey == null ) {
+          LOGGER.warn( "Unexpected file name in " + REMOTE_COMMAND + " output: '" +
+              entry.getKey() + "'." ) ;
+        } else {
+          digests.put( fileKey, entry.getValue() ) ;
+        }
+      }
+      command.join() ;
+      if( command.getExitStatus() != null && command.getExitStatus() != 0 ) {
+        LOGGER.warn( "Digest on " + sshService.remoteHost().asString() +
+            " terminated with exit status " + command.getExitStatus() + ", files with no " +
+            "digest will be compared by size and last change." ) ;
+      }
+    }
+    return digests ;
+  }
+
+  static String remoteCommandLine( final String directory, final Iterable< String > fileNames ) {
+    final StringBuilder builder = new StringBuilder() ;
+    builder.append( "cd " ).append( quote( directory ) ).append( " && " )
+        .append( REMOTE_COMMAND ).append( " --" ) ;
+    for( final String fileName : fileNames ) {
+      builder.append( ' ' ).append( quote( fileName ) ) ;
+    }
+    return builder.toString() ;
+  }
+
+  /**
+   * Single quotes for a POSIX shell, where a single quote becomes {@code '\''}.
+   */
+  static String quote( final String unquoted ) {
+    return '\'' + unquoted.replace( "'", "'\\''" ) + '\'' ;
+  }
+
+
+// =======
+// Parsing
+// =======
+
+  /**
+   * Matches lines like {@code <64 hex digits>  <file name>}, with a star instead of the second
+   * space when {@link #REMOTE_COMMAND} runs in binary mode.
+   * If the file name contains a backslash, a newline or a carriage return, the line starts
+   * with a backslash and the file name gets escaped, see {@link #unescape(String)}.
+   */
+  private static final Pattern OUTPUT_LINE_PATTERN =
+      Pattern.compile( "(\\\\)?([0-9a-f]{64}) [ *](.+)" ) ;
+
+  /**
+   * @return a {@code Map} with file names as keys, and digests as values.
+   */
+  static ImmutableMap< String, String > parseRemoteOutput( final InputStream inputStream )
+      throws IOException
+  {
+    return parseRemoteOutput( ImmutableList.copyOf( readLines( inputStream ) ) ) ;
+  }
+
+  static ImmutableMap< String, String > parseRemoteOutput( final Iterable< String > lines ) {
+    final Map< String, String > digests = new LinkedHashMap<>() ;
+    for( final String line : lines ) {
+      final Matcher matcher = OUTPUT_LINE_PATTERN.matcher( line ) ;
+      if( matcher.matches() ) {
+        final String fileName = matcher.group( 1 ) == null ?
+            matcher.group( 3 ) : unescape( matcher.group( 3 ) ) ;
+        if( fileName == null ) {
+          LOGGER.warn( "Bad escaping in " + REMOTE_COMMAND + " output line: '" + line + "'." ) ;
+        } else {
+          digests.put( fileName, matcher.group( 2 ) ) ;
+        }
+      } else {
+        LOGGER.debug( "Ignoring " + REMOTE_COMMAND + " output line: '" + line + "'." ) ;
+      }
+    }
+    return ImmutableMap.copyOf( digests ) ;
+  }
+
+  /**
+   * Reverts what GNU coreutils do: {@code \\} for a backslash, {@code \n} for a newline,
+   * {@code \r} for a carriage return.
+   *
+   * @return {@code null} if there is some other escape sequence.
+   */
+  static String unescape( final String escaped ) {
+    final StringBuilder builder = new StringBuilder( escaped.length() ) ;
+    for( int i = 0 ; i < escaped.length() ; i ++ ) {
+      final char c = escaped.charAt( i ) ;
+      if( c == '\\' ) {
+        if( ++ i == escaped.length() ) {
+          return null ;
+        }
+        switch( escaped.charAt( i ) ) {
+          case '\\' :
+            builder.append( '\\' ) ;
+            break ;
+          case 'n' :
+            builder.append( '\n' ) ;
+            break ;
+          case 'r' :
+            builder.append( '\r' ) ;
+            break ;
+          default :
+            return null ;
+        }
+      } else {
+        builder.append( c ) ;
+      }
+    }
+    return builder.toString() ;
+  }
+
+  private static List< String > readLines( final InputStream inputStream ) throws IOException {
+    final List< String > lines = new ArrayList<>() ;
+    try( BufferedReader bufferedReader = new BufferedReader(
+        new InputStreamReader( inputStream ) )
+    ) {
+      while( true ) {
+        final String line = bufferedReader.readLine() ;
+        if( line == null ) {
+          break ;
+        }
+        lines.add( line ) ;
+      }
+    }
+    return lines ;
+  }
+
+}
@@ -12,22 +12,25 @@ import org.slf4j.LoggerFactory;
 
 import java.io.File;
 import java.io.IOException;
-import java.nio.file.DirectoryStream;
-import java.nio.file.Files;
 import java.nio.file.Path;
 import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.Queue;
 import java.util.Set;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ForkJoinPool;
 
 import static com.google.common.base.Preconditions.checkArgument;
 import static com.google.common.base.Preconditions.checkNotNull;
 
 /**
  * Scans the classpath.
- * Running file scan on several threads doesn't seem to make it run any faster.
+ * Given a {@link ForkJoinPool}, it walks subdirectories in parallel, which helps with
+ * hundreds of thousands of files on a disk that handles concurrent requests (like an SSD).
+ * Otherwise running on several threads doesn't make it run any faster.
  */
 public class LocalFileEnumerator {
 
@@ -37,11 +40,24 @@ public class LocalFileEnumerator {
   private final String classpath ;
   private final ImmutableSet< File > projectModuleDirectories ;
 
+  /**
+   * May be {@code null}, which means walking directories on the calling thread.
+   */
+  private final ForkJoinPool forkJoinPool ;
+
   public LocalFileEnumerator( final ImmutableSet< File >  projectModuleDirectories ) {
+    this( projectModuleDirectories, null ) ;
+  }
+
+  public LocalFileEnumerator(
+      final ImmutableSet< File >  projectModuleDirectories,
+      final ForkJoinPool forkJoinPool
+  ) {
     this(
         correctJavaHome(),
         javaClasspath(),
-        projectModuleDirectories
+        projectModuleDirectories,
+        forkJoinPool
     ) ;
   }
 
@@ -58,12 +74,22 @@ public class LocalFileEnumerator {
       final String javaHome,
       final String classpath,
       final ImmutableSet< File > projectModuleDirectories
+  ) {
+    this( javaHome, classpath, projectModuleDirectories, null ) ;
+  }
+
+  public LocalFileEnumerator(
+      final String javaHome,
+      final String classpath,
+      final ImmutableSet< File > projectModuleDirectories,
+      final ForkJoinPool forkJoinPool
   ) {
     checkArgument( ! Strings.isNullOrEmpty( javaHome ) ) ;
     this.javaHome = javaHome ;
     checkArgument( ! Strings.isNullOrEmpty( classpath ) ) ;
     this.classpath = classpath ;
     this.projectModuleDirectories = checkNotNull( projectModuleDirectories ) ;
+    this.forkJoinPool = forkJoinPool ;
     LOGGER.info( "javaHome='" + javaHome + "'."  ) ;
     LOGGER.info( "projectModulesDirectories=" + projectModuleDirectories + "."  ) ;
   }
@@ -77,10 +103,21 @@ public class LocalFileEnumerator {
   public static Lazy< FileBundle > lazy(
       final ImmutableSet< File > projectModuleDirectories,
       final ImmutableKeyHolderMap< FileKey, FileDetail > otherFiles
+  ) {
+    return lazy( projectModuleDirectories, otherFiles, null ) ;
+  }
+
+  /**
+   * @param forkJoinPool may be {@code null}.
+   */
+  public static Lazy< FileBundle > lazy(
+      final ImmutableSet< File > projectModuleDirectories,
+      final ImmutableKeyHolderMap< FileKey, FileDetail > otherFiles,
+      final ForkJoinPool forkJoinPool
   ) {
     return new Lazy<>( () -> {
       try {
-        return new LocalFileEnumerator( projectModuleDirectories )
+        return new LocalFileEnumerator( projectModuleDirectories, forkJoinPool )
             .enumerate().addFiles( otherFiles ) ;
       } catch( IOException e ) {
         throw new RuntimeException( e ) ;
@@ -181,7 +218,8 @@ public class LocalFileEnumerator {
             addCompiledFiles(
                 collector,
                 projectModulesDirectory.toPath().toAbsolutePath(),
-                startPath
+                startPath,
+                forkJoinPool
             ) ;
             break ;
           case PACKAGED :
@@ -219,42 +257,23 @@ public class LocalFileEnumerator {
       final ImmutableKeyHolderMap.Builder< FileKey, FileDetail > collector,
       final Path startPath
   ) throws IOException {
-    addFiles( collector, startPath, startPath.resolve( "" ), FileKind.OTHER ) ;
+    new DirectoryWalker( startPath, FileKind.OTHER, collector::put )
+        .walk( startPath.resolve( "" ) ) ;
   }
 
   private static void addCompiledFiles(
-      final ImmutableKeyHolderMap.Builder< FileKey, FileDetail > collector,
-      final Path startPath,
-      final Path subPath
-  ) throws IOException {
-    addFiles( collector, startPath, subPath, FileKind.COMPILED ) ;
-  }
-
-  private static void addFiles(
       final ImmutableKeyHolderMap.Builder< FileKey, FileDetail > collector,
       final Path startPath,
       final Path subPath,
-      final FileKind fileKind
+      final ForkJoinPool forkJoinPool
   ) throws IOException {
-    try( DirectoryStream< Path > stream = Files.newDirectoryStream( subPath ) ) {
-      for( final Path entry : stream ) {
-        if( Files.isDirectory( entry ) ) {
-          addFiles( collector, startPath, entry, fileKind ) ;
-        } else {
-          final File file = entry.toFile() ;
-          final FileDetail fileDetail = new FileDetail(
-              startPath.toString(),
-              // startPath.relativize( entry ).toString(),
-              // Line above fails when dealing with paths of different origins.
-              entry.toString().substring( startPath.toString().length() + 1 ),
-              fileKind,
-              new DateTime( file.lastModified() ),
-              file.length()
-          ) ;
-          // LOGGER.debug( "Adding " + fileDetail ) ;
-          collector.put( fileDetail ) ;
-        }
-      }
+    if( forkJoinPool == null ) {
+      new DirectoryWalker( startPath, FileKind.COMPILED, collector::put ).walk( subPath ) ;
+    } else {
+      final Queue< FileDetail > fileDetails = new ConcurrentLinkedQueue<>() ;
+      new DirectoryWalker( startPath, FileKind.COMPILED, fileDetails::add )
+          .walk( forkJoinPool, subPath ) ;
+      collector.putAll( fileDetails ) ;
     }
   }
 
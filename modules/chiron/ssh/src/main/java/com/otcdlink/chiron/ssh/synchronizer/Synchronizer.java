@@ -17,37 +17,87 @@ import java.io.InputStream;
 import java.io.InputStreamReader;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.ExecutionException;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
 import java.util.concurrent.Future;
+import java.util.function.Supplier;
 
 import static com.google.common.base.Preconditions.checkNotNull;
 
+/**
+ * Makes remote files look like local ones.
+ * Each upload (and each remote digest computation) runs in its own {@link Session} on the
+ * connection behind {@link SshService}, the {@link ExecutorService} sets how many of them
+ * run in parallel.
+ */
 public class Synchronizer {
 
   private static final Logger LOGGER = LoggerFactory.getLogger( Synchronizer.class ) ;
   private static final int UPLOADING_THREADS = 8 ;
 
+  /**
+   * How to decide that a local file is the same as the remote one.
+   */
+  public enum Comparison {
+
+    /**
+     * Same {@link FileDetail#size} and {@link FileDetail#lastChange}, using
+     * {@link FileDetail#LIKELINESS_COMPARATOR}.
+     */
+    LIKELINESS,
+
+    /**
+     * Same {@link FileDetail#size} and {@link FileDetail#digest}, using
+     * {@link FileDigester} and {@link FileDetail#CONTENT_COMPARATOR}.
+     * This costs reading every file with the same size on both sides but avoids uploading
+     * files that were only rebuilt.
+     */
+    DIGEST,
+    ;
+  }
+
   private final SshService sshService ;
-  private final ImmutableKeyHolderMap< FileKey, FileDetail > localFiles ;
+  private final Supplier< ImmutableKeyHolderMap< FileKey, FileDetail > > localFiles ;
   private final RemoteFileEnumerator remoteFileEnumerator ;
   private final ExecutorService executorService ;
+  private final Comparison comparison ;
 
   public Synchronizer(
       final SshService sshService,
       final ImmutableKeyHolderMap< FileKey, FileDetail > localFiles,
       final RemoteFileEnumerator remoteFileEnumerator
+  ) {
+    this(
+        sshService,
+        localFiles,
+        remoteFileEnumerator,
+        Comparison.LIKELINESS,
+        UPLOADING_THREADS
+    ) ;
+  }
+
+  /**
+   * @param parallelism how many SSH sessions may run at the same time.
+   */
+  public Synchronizer(
+      final SshService sshService,
+      final ImmutableKeyHolderMap< FileKey, FileDetail > localFiles,
+      final RemoteFileEnumerator remoteFileEnumerator,
+      final Comparison comparison,
+      final int parallelism
   ) {
     this(
         sshService,
         localFiles,
         remoteFileEnumerator,
         Executors.newFixedThreadPool(
-            UPLOADING_THREADS,
+            parallelism,
             new ThreadFactoryBuilder()
                 .setNameFormat( Synchronizer.class.getSimpleName() + "-upload-%s" ).build()
-        )
+        ),
+        comparison
     ) ;
   }
 
@@ -56,30 +106,90 @@ public class Synchronizer {
       final ImmutableKeyHolderMap< FileKey, FileDetail > localFiles,
       final RemoteFileEnumerator remoteFileEnumerator,
       final ExecutorService executorService
+  ) {
+    this(
+        sshService,
+        localFiles,
+        remoteFileEnumerator,
+        executorService,
+        Comparison.LIKELINESS
+    ) ;
+  }
+
+  public Synchronizer(
+      final SshService sshService,
+      final ImmutableKeyHolderMap< FileKey, FileDetail > localFiles,
+      final RemoteFileEnumerator remoteFileEnumerator,
+      final ExecutorService executorService,
+      final Comparison comparison
+  ) {
+    this(
+        sshService,
+        constant( localFiles ),
+        remoteFileEnumerator,
+        executorService,
+        comparison
+    ) ;
+  }
+
+  private static < T > Supplier< T > constant( final T value ) {
+    checkNotNull( value ) ;
+    return () -> value ;
+  }
+
+  /**
+   * @param localFiles evaluated on a thread of the {@code executorService}, while remote file
+   *     enumeration happens, so a {@link LocalFileEnumerator#lazy(ImmutableSet)} doesn't delay
+   *     remote enumeration.
+   */
+  public Synchronizer(
+      final SshService sshService,
+      final Supplier< ImmutableKeyHolderMap< FileKey, FileDetail > > localFiles,
+      final RemoteFileEnumerator remoteFileEnumerator,
+      final ExecutorService executorService,
+      final Comparison comparison
   ) {
     this.sshService = checkNotNull( sshService ) ;
     this.localFiles = checkNotNull( localFiles ) ;
     this.remoteFileEnumerator = checkNotNull( remoteFileEnumerator ) ;
     this.executorService = checkNotNull( executorService ) ;
+    this.comparison = checkNotNull( comparison ) ;
   }
 
   public void synchronize() throws IOException, ExecutionException, InterruptedException {
 
-    // Nice-to-have: pass localFiles as a Lazy so we can resolve local and remote files in parallel.
+    final CompletableFuture< ImmutableKeyHolderMap< FileKey, FileDetail > > localFilesFuture =
+        CompletableFuture.supplyAsync( this.localFiles, executorService ) ;
     final ImmutableKeyHolderMap< FileKey, FileDetail > remoteFiles =
         remoteFileEnumerator.enumerate( sshService.newSession() ) ;
+    final ImmutableKeyHolderMap< FileKey, FileDetail > localFiles = localFilesFuture.get() ;
     LOGGER.info( "Enumerated " + localFiles.size() + " local files." ) ;
     LOGGER.info( "Enumerated " + remoteFiles.size() + " remote files." ) ;
 
-    final FileDelta fileDelta = new FileDelta(
-        remoteFileEnumerator.baseDirectory,
-        remoteFileEnumerator.parentDirectoryByKind,
-        localFiles,
-        remoteFiles
-    ) ;
+    final FileDelta fileDelta ;
+    if( comparison == Comparison.DIGEST ) {
+      final FileDigester.Digested digested =
+          new FileDigester( sshService, executorService ).digest( localFiles, remoteFiles ) ;
+      fileDelta = new FileDelta(
+          remoteFileEnumerator.baseDirectory,
+          remoteFileEnumerator.parentDirectoryByKind,
+          digested.localFiles,
+          digested.remoteFiles,
+          FileDetail.CONTENT_COMPARATOR
+      ) ;
+    } else {
+      fileDelta = new FileDelta(
+          remoteFileEnumerator.baseDirectory,
+          remoteFileEnumerator.parentDirectoryByKind,
+          localFiles,
+          remoteFiles
+      ) ;
+    }
     LOGGER.info( "Computed " + fileDelta.remoteDirectoriesToCreate.size() +
         " directories to create." ) ;
-    LOGGER.info( "Computed " + fileDelta.localFilesToUpload.size() + " local files to upload." ) ;
+    LOGGER.info( "Computed " + fileDelta.localFilesToUpload.size() + " local files to upload, " +
+        ( localFiles.size() - fileDelta.localFilesToUpload.size() ) + " unchanged (" +
+        comparison + ")." ) ;
     LOGGER.info( "Computed " + fileDelta.remoteFilesToDelete.size() + " remote files to delete." ) ;
 
     deleteRemoteFiles( fileDelta.remoteFilesToDelete ) ;
@@ -55,6 +55,30 @@ public class FileDeltaTest {
     assertThat( fileDelta.remoteFilesToDelete ).contains( REMOTE_B_1_1.key ) ;
   }
 
+  @Test
+  public void sameDigestDespiteDifferentDate() throws Exception {
+    final FileDelta fileDelta = newContentFileDelta(
+        ImmutableKeyHolderMap.of( LOCAL_A_1_1.withDigest( DIGEST_1 ) ),
+        ImmutableKeyHolderMap.of( REMOTE_A_2_1.withDigest( DIGEST_1 ) )
+    ) ;
+    assertThat( fileDelta.localFilesToUpload ).isEmpty() ;
+  }
+
+  @Test
+  public void differentDigestDespiteSameDate() throws Exception {
+    final FileDelta fileDelta = newContentFileDelta(
+        ImmutableKeyHolderMap.of( LOCAL_A_1_1.withDigest( DIGEST_1 ) ),
+        ImmutableKeyHolderMap.of( REMOTE_A_1_1.withDigest( DIGEST_2 ) )
+    ) ;
+    assertThat( fileDelta.localFilesToUpload ).containsOnly( LOCAL_A_1_1.key ) ;
+  }
+
+  @Test
+  public void noDigestFallsBackToLikeliness() throws Exception {
+    final FileDelta fileDelta = newContentFileDelta( LOCALS_A11, REMOTES_A21 ) ;
+    assertThat( fileDelta.localFilesToUpload ).containsOnly( LOCAL_A_1_1.key ) ;
+  }
+
 // =======
 // Fixture
 // =======
@@ -62,6 +86,11 @@ public class FileDeltaTest {
   private static final DateTime DATETIME_1 = new DateTime( 2011, 1, 1, 1, 1, 1, DateTimeZone.UTC ) ;
   private static final DateTime DATETIME_2 = new DateTime( 2022, 2, 2, 2, 2, 2, DateTimeZone.UTC ) ;
 
+  private static final String DIGEST_1 =
+      "1111111111111111111111111111111111111111111111111111111111111111" ;
+  private static final String DIGEST_2 =
+      "2222222222222222222222222222222222222222222222222222222222222222" ;
+
   private static final ImmutableKeyHolderMap< FileKey, FileDetail > NO_FILES =
       ImmutableKeyHolderMap.of() ;
 
@@ -114,4 +143,17 @@ public class FileDeltaTest {
     ) ;
   }
 
-}
\ No newline at end of file
+  private static FileDelta newContentFileDelta(
+      final ImmutableKeyHolderMap< FileKey, FileDetail > localFiles,
+      final ImmutableKeyHolderMap< FileKey, FileDetail > remoteFiles
+  ) {
+    return new FileDelta(
+        "rider",
+        FileKind.shortDirectoryNameMap(),
+        localFiles,
+        remoteFiles,
+        FileDetail.CONTENT_COMPARATOR
+    ) ;
+  }
+
+}
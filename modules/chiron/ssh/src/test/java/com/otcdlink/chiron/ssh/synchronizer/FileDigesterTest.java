@@ -0,0 +1,63 @@
+package com.otcdlink.chiron.ssh.synchronizer;
+
+import com.google.common.base.Charsets;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
+import com.google.common.io.Files;
+import org.junit.Test;
+
+import java.io.File;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.entry;
+
+public class FileDigesterTest {
+
+  @Test
+  public void parseRemoteOutput() throws Exception {
+    final ImmutableMap< String, String > digests = FileDigester.parseRemoteOutput(
+        ImmutableList.of(
+            DIGEST_ABC + "  ClassA.class",
+            DIGEST_EMPTY + " *with space.jar",
+            "\\" + DIGEST_ABC + "  back\\\\slash\\nnewline.txt",
+            "\\" + DIGEST_ABC + "  bad\\escape.txt",
+            "sha256sum: Missing.class: No such file or directory"
+        )
+    ) ;
+    assertThat( digests ).containsOnly(
+        entry( "ClassA.class", DIGEST_ABC ),
+        entry( "with space.jar", DIGEST_EMPTY ),
+        entry( "back\\slash\nnewline.txt", DIGEST_ABC )
+    ) ;
+  }
+
+  @Test
+  public void remoteCommandLine() throws Exception {
+    assertThat( FileDigester.remoteCommandLine(
+        "rider/compiled/my", ImmutableList.of( "ClassA.class", "It's.class" ) ) )
+        .isEqualTo( "cd 'rider/compiled/my' && sha256sum -- 'ClassA.class' 'It'\\''s.class'" ) ;
+  }
+
+  @Test
+  public void localDigest() throws Exception {
+    final File file = File.createTempFile( getClass().getName(), ".txt" ) ;
+    try {
+      Files.asCharSink( file, Charsets.US_ASCII ).write( "abc" ) ;
+      assertThat( FileDigester.localDigest( file ) ).isEqualTo( DIGEST_ABC ) ;
+    } finally {
+      file.delete() ;
+    }
+  }
+
+
+// =======
+// Fixture
+// =======
+
+  private static final String DIGEST_ABC =
+      "ba7816bf8f01cfea414140de5dae2223b00361a396177a9cb410ff61f20015ad" ;
+
+  private static final String DIGEST_EMPTY =
+      "e3b0c44298fc1c149afbf4c8996fb92427ae41e4649b934ca495991b7852b855" ;
+
+}
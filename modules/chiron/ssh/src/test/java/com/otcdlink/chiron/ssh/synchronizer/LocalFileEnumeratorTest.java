@@ -15,6 +15,7 @@ import org.slf4j.LoggerFactory;
 
 import java.io.File;
 import java.io.IOException;
+import java.util.concurrent.ForkJoinPool;
 
 import static org.assertj.core.api.Assertions.assertThat;
 
@@ -23,35 +24,18 @@ public class LocalFileEnumeratorTest {
 
   @Test
   public void enumerate() throws Exception {
-    createRepofiles() ;
-    createM1files() ;
-    createM2files() ;
-    createM3files() ;
-
-    final LocalFileEnumerator.FileBundle fileBundle = new LocalFileEnumerator(
-        "noJavaHome",
-        Joiner.on( File.pathSeparator ).join(
-            mavenRepo_jar1.getAbsolutePath(),
-            modules_a_m1_.getAbsolutePath(),
-            modules_a_m2_.getAbsolutePath(),
-            modules_b_m3_.getAbsolutePath()
-        ),
-        ImmutableSet.of( modules_a_, modules_b_ )
-    ).enumerate() ;
-
-    logFilesFound( fileBundle.fileDetails ) ;
-
-    Assertions.assertThat( fileBundle.fileDetails.keySet() ).containsOnly(
-        fileKey_jar1,
-        fileKey_a_m1_p_c1,
-        fileKey_a_m2_p_c1,
-        fileKey_a_m2_p_c2,
-        fileKey_a_m3_p_c3
-    ) ;
+    enumerate( null ) ;
+  }
 
-    assertThat( fileBundle.classpathRelativeRoots )
-        // .containsOnly( "a/m1", "a/m2", "b/m3" ) ; TODO: make it work.
-        .containsOnly( "m1", "m2", "m3" ) ;
+  @Test
+  public void enumerateInParallel() throws Exception {
+    final ForkJoinPool forkJoinPool = new ForkJoinPool( 4 ) ;
+    try {
+      final LocalFileEnumerator.FileBundle fileBundle = enumerate( forkJoinPool ) ;
+      assertThat( fileBundle.fileDetails.get( fileKey_a_m2_p_c2 ).size ).isEqualTo( 2 ) ;
+    } finally {
+      forkJoinPool.shutdown() ;
+    }
   }
 
 
@@ -85,6 +69,42 @@ public class LocalFileEnumeratorTest {
 // Fixture
 // =======
 
+  private LocalFileEnumerator.FileBundle enumerate( final ForkJoinPool forkJoinPool )
+      throws IOException
+  {
+    createRepofiles() ;
+    createM1files() ;
+    createM2files() ;
+    createM3files() ;
+
+    final LocalFileEnumerator.FileBundle fileBundle = new LocalFileEnumerator(
+        "noJavaHome",
+        Joiner.on( File.pathSeparator ).join(
+            mavenRepo_jar1.getAbsolutePath(),
+            modules_a_m1_.getAbsolutePath(),
+            modules_a_m2_.getAbsolutePath(),
+            modules_b_m3_.getAbsolutePath()
+        ),
+        ImmutableSet.of( modules_a_, modules_b_ ),
+        forkJoinPool
+    ).enumerate() ;
+
+    logFilesFound( fileBundle.fileDetails ) ;
+
+    Assertions.assertThat( fileBundle.fileDetails.keySet() ).containsOnly(
+        fileKey_jar1,
+        fileKey_a_m1_p_c1,
+        fileKey_a_m2_p_c1,
+        fileKey_a_m2_p_c2,
+        fileKey_a_m3_p_c3
+    ) ;
+
+    assertThat( fileBundle.classpathRelativeRoots )
+        // .containsOnly( "a/m1", "a/m2", "b/m3" ) ; TODO: make it work.
+        .containsOnly( "m1", "m2", "m3" ) ;
+    return fileBundle ;
+  }
+
   private static final Logger LOGGER = LoggerFactory.getLogger( LocalFileEnumeratorTest.class ) ;
 
   private final File mavenRepo_jar1 ;
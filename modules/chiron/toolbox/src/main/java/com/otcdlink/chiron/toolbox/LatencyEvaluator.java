@@ -1,7 +1,6 @@
 package com.otcdlink.chiron.toolbox;
 
 import com.otcdlink.chiron.toolbox.clock.Clock;
-import org.joda.time.DateTime;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -32,13 +31,16 @@ public class LatencyEvaluator< TOPIC > {
     this.clock = clock ;
   }
 
-  private final Map< TOPIC, DateTime > measurements = new HashMap<>() ;
+  /**
+   * Values are {@link Clock#currentTimeMillis()}.
+   */
+  private final Map< TOPIC, Long > measurements = new HashMap<>() ;
 
 
   public void begin( final TOPIC topic ) {
     synchronized( lock ) {
       checkArgument(
-          measurements.put( topic, clock.getCurrentDateTime() ) == null,
+          measurements.put( topic, clock.currentTimeMillis() ) == null,
           "Already measuring " + topic
       ) ;
     }
@@ -48,11 +50,11 @@ public class LatencyEvaluator< TOPIC > {
       new LatencyEvaluator.MeasurementInProgress() ;
 
   public void end( final TOPIC topic ) {
-    final DateTime endTime = clock.getCurrentDateTime() ;
+    final long endTime = clock.currentTimeMillis() ;
     synchronized( lock ) {
-      final DateTime startTime = measurements.remove( topic ) ;
+      final Long startTime = measurements.remove( topic ) ;
       checkState( startTime != null, "Could not find measurement for " + topic ) ;
-      ongoingLatencyMeasurement.add( startTime.getMillis(), endTime.getMillis() ) ;
+      ongoingLatencyMeasurement.add( startTime, endTime ) ;
     }
 
   }
@@ -5,9 +5,16 @@ import org.joda.time.DateTimeZone;
 
 /**
  * Mockable access to system time.
+ * Code running for every message should call {@link #currentTimeMillis()}, and create
+ * a {@code DateTime} only for logging or formatting.
+ *
+ * @see CoarseClock
  */
 public interface Clock {
 
+  /**
+   * Allocates a new {@code DateTime} at each call.
+   */
   default DateTime getCurrentDateTime() {
     return new DateTime( currentTimeMillis(), DateTimeZone.UTC ) ;
   }
@@ -0,0 +1,79 @@
+package com.otcdlink.chiron.toolbox.clock;
+
+import com.otcdlink.chiron.toolbox.ToStringTools;
+
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static com.google.common.base.Preconditions.checkNotNull;
+import static com.google.common.base.Preconditions.checkState;
+
+/**
+ * A {@link Clock} returning a cached value of some other {@link Clock}, refreshed every
+ * {@link #resolutionMs} by a {@link ScheduledExecutorService} (typically a Netty
+ * {@code EventLoop}). Reading it costs a volatile read, which makes sense for code reading
+ * time for every message but tolerating an error of {@link #resolutionMs}, like timeouts
+ * and inactivity tracking.
+ * <p>
+ * Reading {@link #currentTimeMillis()} before {@link #start(ScheduledExecutorService)} returns
+ * the value at construction time.
+ */
+public final class CoarseClock implements Clock {
+
+  public static final long DEFAULT_RESOLUTION_MS = 10 ;
+
+  private final Clock source ;
+
+  public final long resolutionMs ;
+
+  private volatile long current ;
+
+  /**
+   * Only {@link #start(ScheduledExecutorService)} and {@link #stop()} access it, they should
+   * not run concurrently.
+   */
+  private ScheduledFuture< ? > refresher = null ;
+
+  public CoarseClock() {
+    this( SYSTEM_CLOCK, DEFAULT_RESOLUTION_MS ) ;
+  }
+
+  public CoarseClock( final Clock source, final long resolutionMs ) {
+    this.source = checkNotNull( source ) ;
+    checkArgument( resolutionMs > 0 ) ;
+    this.resolutionMs = resolutionMs ;
+    refresh() ;
+  }
+
+  public void start( final ScheduledExecutorService scheduledExecutorService ) {
+    checkState( refresher == null, "Already started" ) ;
+    refresh() ;
+    refresher = scheduledExecutorService.scheduleAtFixedRate(
+        this::refresh, resolutionMs, resolutionMs, TimeUnit.MILLISECONDS ) ;
+  }
+
+  public void stop() {
+    checkState( refresher != null, "Not started" ) ;
+    refresher.cancel( false ) ;
+    refresher = null ;
+  }
+
+  /**
+   * Called by the {@link ScheduledExecutorService}, tests may call it directly.
+   */
+  public void refresh() {
+    current = source.currentTimeMillis() ;
+  }
+
+  @Override
+  public long currentTimeMillis() {
+    return current ;
+  }
+
+  @Override
+  public String toString() {
+    return ToStringTools.nameAndCompactHash( this ) + "{resolutionMs=" + resolutionMs + "}" ;
+  }
+}
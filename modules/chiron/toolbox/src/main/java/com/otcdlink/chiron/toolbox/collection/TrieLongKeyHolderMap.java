@@ -0,0 +1,498 @@
+package com.otcdlink.chiron.toolbox.collection;
+
+import com.google.common.base.Joiner;
+import com.google.common.collect.ImmutableCollection;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableSet;
+import com.otcdlink.chiron.toolbox.random.UniqueLongGenerator;
+
+import javax.annotation.Nonnull;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.function.LongPredicate;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static com.google.common.base.Preconditions.checkNotNull;
+
+/**
+ * Persistent alternative to {@link ImmutableLongKeyHolderMap}, with the same
+ * {@link #copyAdd(KeyHolder)} and {@link #copyReplace(KeyHolder)} methods, but backed by
+ * a 32-way radix trie with path copying, so a change costs O(log32(n)) instead of copying
+ * the whole array.
+ * <p>
+ * A {@link Branch} dispatches on 5 bits of {@link KeyHolder.LongKey#index()}, starting with
+ * least significant bits so sequential and random keys spread evenly. Only present children
+ * are allocated, with a bitmap telling which ones.
+ * A {@link Leaf} holds up to {@link #LEAF_CAPACITY} entries, with key indices in a sorted
+ * {@code long[]} parallel to values, so lookups don't dereference keys.
+ * A {@link Leaf} becomes a {@link Branch} when it overflows.
+ * <p>
+ * Trie traversal doesn't follow key ordering, so collection views get sorted lazily,
+ * once per instance. This class doesn't support {@code null} values.
+ *
+ * <h1>Cost of collection views</h1>
+ * Dispatching on least significant bits first is what keeps the trie balanced, but then
+ * no walk yields keys in order. So the first call to {@link #keySet()}, {@link #values()},
+ * {@link #entrySet()} or {@link #toString()} on a given instance costs O(n log(n)) and
+ * allocates O(n), even if the instance results from a single {@link #copyAdd(KeyHolder)}.
+ * Each {@link Leaf} is already sorted so the sort only merges runs of up to
+ * {@link #LEAF_CAPACITY} values, but this remains way above the O(log32(n)) of a change.
+ * Code that creates a new instance for each change should stick to
+ * {@link #getByKeyIndex(long)} and {@link #containsKeyWithIndex(long)}, and avoid
+ * collection views on the hot path. {@link #equals(Object)} and {@link #hashCode()}
+ * walk the trie without sorting.
+ */
+public final class TrieLongKeyHolderMap<
+    KEY extends KeyHolder.LongKey< KEY >,
+    VALUE extends KeyHolder< KEY >
+> implements Map< KEY, VALUE > {
+
+  private final Object root ;
+  private final int size ;
+
+  private TrieLongKeyHolderMap( final Object root, final int size ) {
+    this.root = checkNotNull( root ) ;
+    this.size = size ;
+  }
+
+  public TrieLongKeyHolderMap( final Collection< VALUE > collection ) {
+    final Object[] values = new Object[ collection.size() ] ;
+    int position = 0 ;
+    for( final VALUE value : collection ) {
+      values[ position ++ ] = checkNotNull( value ) ;
+    }
+    Arrays.sort( values, ( Comparator ) COMPARATOR_BY_LONG_KEY ) ;
+    final long[] keys = new long[ values.length ] ;
+    for( position = 0 ; position < values.length ; position ++ ) {
+      keys[ position ] = ( ( VALUE ) values[ position ] ).key().index() ;
+      if( position > 0 ) {
+        checkArgument( keys[ position - 1 ] < keys[ position ],
+            "Collision: " + values[ position ] + " and " + values[ position - 1 ] ) ;
+      }
+    }
+    this.root = leafOrBranch( keys, values, 0 ) ;
+    this.size = values.length ;
+  }
+
+
+// =========
+// Structure
+// =========
+
+  private static final int BITS = 5 ;
+
+  private static final int MASK = ( 1 << BITS ) - 1 ;
+
+  /**
+   * Above this, a {@link Leaf} turns into a {@link Branch}, unless there are no bits left
+   * to dispatch on (which can't happen with distinct keys).
+   */
+  static final int LEAF_CAPACITY = 1 << BITS ;
+
+  private static final Comparator< KeyHolder< ? extends KeyHolder.LongKey > >
+      COMPARATOR_BY_LONG_KEY = Comparator.comparingLong( value -> value.key().index() ) ;
+
+  private static final class Branch {
+    final int bitmap ;
+    final Object[] children ;
+
+    Branch( final int bitmap, final Object[] children ) {
+      this.bitmap = bitmap ;
+      this.children = children ;
+    }
+
+    /**
+     * Position of the child in {@link #children}, which is meaningful only if
+     * {@link #bitmap} has the bit.
+     */
+    int position( final int bit ) {
+      return Integer.bitCount( bitmap & ( bit - 1 ) ) ;
+    }
+  }
+
+  private static final class Leaf {
+    final long[] keys ;
+    final Object[] values ;
+
+    Leaf( final long[] keys, final Object[] values ) {
+      this.keys = keys ;
+      this.values = values ;
+    }
+  }
+
+  private static final Leaf EMPTY_LEAF = new Leaf( new long[ 0 ], new Object[ 0 ] ) ;
+
+  private static int bit( final long index, final int shift ) {
+    return 1 << ( ( int ) ( index >>> shift ) & MASK ) ;
+  }
+
+  /**
+   * @param keys sorted, with no duplicates; after dispatching on lowest bits a subsequence
+   *     of keys is still sorted.
+   */
+  private static Object leafOrBranch( final long[] keys, final Object[] values, final int shift ) {
+    if( keys.length <= LEAF_CAPACITY || shift >= Long.SIZE ) {
+      return new Leaf( keys, values ) ;
+    }
+    final int[] counts = new int[ LEAF_CAPACITY ] ;
+    int bitmap = 0 ;
+    for( final long key : keys ) {
+      final int digit = ( int ) ( key >>> shift ) & MASK ;
+      counts[ digit ] ++ ;
+      bitmap |= 1 << digit ;
+    }
+    final Object[] children = new Object[ Integer.bitCount( bitmap ) ] ;
+    int childPosition = 0 ;
+    for( int digit = 0 ; digit < LEAF_CAPACITY ; digit ++ ) {
+      if( counts[ digit ] > 0 ) {
+        final long[] childKeys = new long[ counts[ digit ] ] ;
+        final Object[] childValues = new Object[ counts[ digit ] ] ;
+        int position = 0 ;
+        for( int i = 0 ; i < keys.length ; i ++ ) {
+          if( ( ( int ) ( keys[ i ] >>> shift ) & MASK ) == digit ) {
+            childKeys[ position ] = keys[ i ] ;
+            childValues[ position ] = values[ i ] ;
+            position ++ ;
+          }
+        }
+        children[ childPosition ++ ] = leafOrBranch( childKeys, childValues, shift + BITS ) ;
+      }
+    }
+    return new Branch( bitmap, children ) ;
+  }
+
+
+// ===============
+// Factory methods
+// ===============
+
+  private static final TrieLongKeyHolderMap EMPTY_TRIE_MAP =
+      new TrieLongKeyHolderMap( EMPTY_LEAF, 0 ) ;
+
+  public static <
+      KEY extends KeyHolder.LongKey< KEY >,
+      VALUE extends KeyHolder< KEY >
+  > TrieLongKeyHolderMap< KEY, VALUE > of() {
+    return ( TrieLongKeyHolderMap< KEY, VALUE > ) EMPTY_TRIE_MAP ;
+  }
+
+  public static <
+      KEY extends KeyHolder.LongKey< KEY >,
+      VALUE extends KeyHolder< KEY >
+  > TrieLongKeyHolderMap< KEY, VALUE > copyOf( final Collection< VALUE > values ) {
+    return new TrieLongKeyHolderMap<>( values ) ;
+  }
+
+
+// =================
+// Key index lookups
+// =================
+
+  /**
+   * @see UniqueLongGenerator#nextRandomValue(LongPredicate)
+   */
+  public boolean containsKeyWithIndex( final long index ) {
+    return getByKeyIndex( index ) != null ;
+  }
+
+  /**
+   * @return {@code null} if not found, the value otherwise.
+   */
+  public VALUE getByKeyIndex( final long index ) {
+    checkArgument( index >= 0 ) ;
+    Object node = root ;
+    int shift = 0 ;
+    while( node instanceof Branch ) {
+      final Branch branch = ( Branch ) node ;
+      final int bit = bit( index, shift ) ;
+      if( ( branch.bitmap & bit ) == 0 ) {
+        return null ;
+      }
+      node = branch.children[ branch.position( bit ) ] ;
+      shift += BITS ;
+    }
+    final Leaf leaf = ( Leaf ) node ;
+    final int position = Arrays.binarySearch( leaf.keys, index ) ;
+    return position < 0 ? null : ( VALUE ) leaf.values[ position ] ;
+  }
+
+
+// ==============
+// Copy-on-change
+// ==============
+
+  public TrieLongKeyHolderMap< KEY, VALUE > copyReplace( final VALUE value ) {
+    final long index = value.key().index() ;
+    if( getByKeyIndex( index ) == null ) {
+      throw new IllegalArgumentException( "No existing key for " + value ) ;
+    }
+    return new TrieLongKeyHolderMap<>( copyPut( root, 0, index, value ), size ) ;
+  }
+
+  public TrieLongKeyHolderMap< KEY, VALUE > copyAdd( final VALUE value ) {
+    return copyAdd(
+        value,
+        v -> new IllegalArgumentException(
+            "Value already at " + v.key().index() + ", currently " + v )
+    ) ;
+  }
+
+  public < EXCEPTION extends Exception > TrieLongKeyHolderMap< KEY, VALUE > copyAdd(
+      final VALUE value,
+      final Function< VALUE, EXCEPTION > exceptionThrower
+  ) throws EXCEPTION {
+    final long index = value.key().index() ;
+    final VALUE existing = getByKeyIndex( index ) ;
+    if( existing == null ) {
+      return new TrieLongKeyHolderMap<>( copyPut( root, 0, index, value ), size + 1 ) ;
+    } else {
+      throw exceptionThrower.apply( existing ) ;
+    }
+  }
+
+  /**
+   * Copies the path to the {@link Leaf} receiving the value, sharing every other node.
+   */
+  private static Object copyPut(
+      final Object node,
+      final int shift,
+      final long index,
+      final Object value
+  ) {
+    if( node instanceof Branch ) {
+      final Branch branch = ( Branch ) node ;
+      final int bit = bit( index, shift ) ;
+      final int position = branch.position( bit ) ;
+      final Object[] children ;
+      if( ( branch.bitmap & bit ) == 0 ) {
+        children = new Object[ branch.children.length + 1 ] ;
+        System.arraycopy( branch.children, 0, children, 0, position ) ;
+        children[ position ] = new Leaf( new long[] { index }, new Object[] { value } ) ;
+        System.arraycopy( branch.children, position, children, position + 1,
+            branch.children.length - position ) ;
+        return new Branch( branch.bitmap | bit, children ) ;
+      } else {
+        children = branch.children.clone() ;
+        children[ position ] = copyPut( children[ position ], shift + BITS, index, value ) ;
+        return new Branch( branch.bitmap, children ) ;
+      }
+    } else {
+      final Leaf leaf = ( Leaf ) node ;
+      final int position = Arrays.binarySearch( leaf.keys, index ) ;
+      if( position >= 0 ) {
+        final Object[] values = leaf.values.clone() ;
+        values[ position ] = value ;
+        return new Leaf( leaf.keys, values ) ;
+      }
+      final int insertionPoint = - position - 1 ;
+      final int length = leaf.keys.length ;
+      final long[] keys = new long[ length + 1 ] ;
+      final Object[] values = new Object[ length + 1 ] ;
+      System.arraycopy( leaf.keys, 0, keys, 0, insertionPoint ) ;
+      System.arraycopy( leaf.values, 0, values, 0, insertionPoint ) ;
+      keys[ insertionPoint ] = index ;
+      values[ insertionPoint ] = value ;
+      System.arraycopy( leaf.keys, insertionPoint, keys, insertionPoint + 1,
+          length - insertionPoint ) ;
+      System.arraycopy( leaf.values, insertionPoint, values, insertionPoint + 1,
+          length - insertionPoint ) ;
+      return leafOrBranch( keys, values, shift ) ;
+    }
+  }
+
+
+// =========
+// Traversal
+// =========
+
+  private static void forEachValue( final Object node, final Consumer< Object > consumer ) {
+    if( node instanceof Branch ) {
+      for( final Object child : ( ( Branch ) node ).children ) {
+        forEachValue( child, consumer ) ;
+      }
+    } else {
+      for( final Object value : ( ( Leaf ) node ).values ) {
+        consumer.accept( value ) ;
+      }
+    }
+  }
+
+  /**
+   * Unsynchronized access to be faster, two concurrent read on an unintialized value may
+   * trigger two constructions, but it is safe because the construction result is always the same.
+   */
+  private ImmutableList< VALUE > sortedValues = null ;
+
+  /**
+   * Costs O(n log(n)) on first call, see class comment. Values are appended leaf by leaf,
+   * so {@link Arrays#sort(Object[], Comparator)} finds sorted runs and just merges them.
+   */
+  private ImmutableList< VALUE > sortedValues() {
+    if( sortedValues == null ) {
+      final Object[] values = new Object[ size ] ;
+      final int[] position = { 0 } ;
+      forEachValue( root, value -> values[ position[ 0 ] ++ ] = value ) ;
+      Arrays.sort( values, ( Comparator ) COMPARATOR_BY_LONG_KEY ) ;
+      sortedValues = ( ImmutableList ) ImmutableList.copyOf( values ) ;
+    }
+    return sortedValues ;
+  }
+
+
+// ===============
+// Object contract
+// ===============
+
+  @Override
+  public String toString() {
+    return '{' + Joiner.on( ", " ).withKeyValueSeparator( '=' ).join( entrySet() ) + '}' ;
+  }
+
+  @Override
+  public boolean equals( final Object other ) {
+    if( this == other ) {
+      return true ;
+    }
+    if( other instanceof Map ) {
+      final Map thatMap = ( Map ) other ;
+      if( thatMap.size() != size() ) {
+        return false ;
+      }
+      final boolean[] equal = { true } ;
+      forEachValue( root, value -> {
+        if( equal[ 0 ] && ! value.equals( thatMap.get( ( ( VALUE ) value ).key() ) ) ) {
+          equal[ 0 ] = false ;
+        }
+      } ) ;
+      return equal[ 0 ] ;
+    }
+    return false ;
+  }
+
+  @Override
+  public int hashCode() {
+    final int[] hashcode = { 0 } ;
+    forEachValue( root, value -> hashcode[ 0 ] +=
+        ( ( VALUE ) value ).key().hashCode() ^ value.hashCode() ) ;
+    return hashcode[ 0 ] ;
+  }
+
+
+// ============
+// Map contract
+// ============
+
+  @Override
+  public int size() {
+    return size ;
+  }
+
+  @Override
+  public boolean isEmpty() {
+    return size == 0 ;
+  }
+
+  @Override
+  public boolean containsKey( final Object key ) {
+    if( key instanceof KeyHolder.LongKey ) {
+      return getByKeyIndex( ( ( KeyHolder.LongKey ) key ).index() ) != null ;
+    } else {
+      return false ;
+    }
+  }
+
+  @Override
+  public boolean containsValue( final Object value ) {
+    if( value instanceof KeyHolder ) {
+      final KeyHolder.Key key = ( ( KeyHolder ) value ).key() ;
+      if( key instanceof KeyHolder.LongKey ) {
+        return value.equals( get( key ) ) ;
+      }
+    }
+    return false ;
+  }
+
+  @Override
+  public VALUE get( final Object key ) {
+    if( key instanceof KeyHolder.LongKey ) {
+      return getByKeyIndex( ( ( KeyHolder.LongKey ) key ).index() ) ;
+    }
+    return null ;
+  }
+
+  /**
+   * Unsynchronized access to be faster, two concurrent read on an unintialized value may
+   * trigger two constructions, but it is safe because the construction result is always the same.
+   */
+  private ImmutableSet< KEY > keySet = null ;
+
+  @Override
+  public @Nonnull ImmutableSet< KEY > keySet() {
+    if( keySet == null ) {
+      final ImmutableSet.Builder< KEY > builder = ImmutableSet.builder() ;
+      for( final VALUE value : sortedValues() ) {
+        builder.add( value.key() ) ;
+      }
+      keySet = builder.build() ;
+    }
+    return keySet ;
+  }
+
+  @Override
+  public @Nonnull ImmutableCollection< VALUE > values() {
+    return sortedValues() ;
+  }
+
+  /**
+   * Unsynchronized access to be faster, two concurrent read on an unintialized value may
+   * trigger two constructions, but it is safe because the construction result is always the same.
+   */
+  private ImmutableSet< Map.Entry< KEY, VALUE > > entrySet = null ;
+
+  @Override
+  public @Nonnull Set< Map.Entry< KEY, VALUE > > entrySet() {
+    if( entrySet == null ) {
+      final ImmutableSet.Builder< Map.Entry< KEY, VALUE > > builder = ImmutableSet.builder() ;
+      for( final VALUE value : sortedValues() ) {
+        builder.add( new ImmutableLongKeyHolderMap.Entry<>( value ) ) ;
+      }
+      entrySet = builder.build() ;
+    }
+    return entrySet ;
+  }
+
+
+// ================
+// Mutating methods
+// ================
+
+  @Override
+  @Deprecated
+  public VALUE put( final KEY key, final VALUE value ) {
+    throw new UnsupportedOperationException( "Do not call" ) ;
+  }
+
+  @Override
+  @Deprecated
+  public VALUE remove( final Object key ) {
+    throw new UnsupportedOperationException( "Do not call" ) ;
+  }
+
+  @Override
+  @Deprecated
+  public void putAll( @Nonnull final Map< ? extends KEY, ? extends VALUE > m ) {
+    throw new UnsupportedOperationException( "Do not call" ) ;
+  }
+
+  @Override
+  @Deprecated
+  public void clear() {
+    throw new UnsupportedOperationException( "Do not call" ) ;
+  }
+
+}
@@ -2,6 +2,7 @@ package com.otcdlink.chiron.toolbox.concurrent;
 
 import com.google.common.base.Strings;
 import com.google.common.base.Throwables;
+import com.otcdlink.chiron.toolbox.metrics.MetricRegistry;
 import io.netty.channel.EventLoopGroup;
 import io.netty.util.internal.PlatformDependent;
 
@@ -127,6 +128,42 @@ public final class ExecutorPartitioner< KEY > {
     ) ;
   }
 
+// =======
+// Metrics
+// =======
+
+  /**
+   * Tasks submitted but not completed yet (including those running), for all partitions.
+   * Reading this value doesn't lock anything, so it may be slightly off.
+   */
+  public int pendingTaskCount() {
+    int total = 0 ;
+    for( final PartitionedExecutor partitionedExecutor : partitionedExecutors ) {
+      total += partitionedExecutor.counter.get() ;
+    }
+    return total ;
+  }
+
+  /**
+   * Same as {@link #pendingTaskCount()} but for the partition with most pending tasks,
+   * which tells if {@link #keyHasher} spreads {@link KEY}s evenly.
+   */
+  public int busiestPartitionPendingTaskCount() {
+    int busiest = 0 ;
+    for( final PartitionedExecutor partitionedExecutor : partitionedExecutors ) {
+      busiest = Math.max( busiest, partitionedExecutor.counter.get() ) ;
+    }
+    return busiest ;
+  }
+
+  /**
+   * Registers {@code <prefix>.pending} and {@code <prefix>.pending.busiest} gauges.
+   */
+  public void registerGauges( final MetricRegistry metricRegistry, final String prefix ) {
+    metricRegistry.gauge( prefix + ".pending", this::pendingTaskCount ) ;
+    metricRegistry.gauge( prefix + ".pending.busiest", this::busiestPartitionPendingTaskCount ) ;
+  }
+
 // =========
 // Internals
 // =========
@@ -6,6 +6,7 @@ import com.google.common.util.concurrent.Monitor;
 import com.otcdlink.chiron.toolbox.ToStringTools;
 
 import java.util.Map;
+import java.util.concurrent.TimeUnit;
 
 import static com.google.common.base.Preconditions.checkNotNull;
 import static com.google.common.base.Preconditions.checkState;
@@ -57,6 +58,24 @@ public final class ThreadFreezer< KEY > {
     }
   }
 
+  /**
+   * @return {@code null} if some thread didn't freeze before the timeout.
+   */
+  public ImmutableMap< KEY, Object > waitForAllFrozen( final long timeout, final TimeUnit unit ) {
+    if( ! allMonitor.enterWhenUninterruptibly( allFrozen, timeout, unit ) ) {
+      return null ;
+    }
+    try {
+      final ImmutableMap.Builder< KEY, Object > builder = ImmutableMap.builder() ;
+      for( final Map.Entry< KEY, InternalFreezeControl > entry : freezeControls.entrySet() ) {
+        builder.put( entry.getKey(), entry.getValue().frozen ) ;
+      }
+      return builder.build() ;
+    } finally {
+      allMonitor.leave() ;
+    }
+  }
+
   public < FROZEN > FreezeControl< FROZEN > internalControl( final KEY key ) {
     return freezeControls.get( key ) ;
   }
@@ -72,7 +91,22 @@ public final class ThreadFreezer< KEY > {
     }
   }
 
-
+  /**
+   * Unfreezes the threads that froze, without waiting for the other ones, typically after
+   * {@link #waitForAllFrozen(long, TimeUnit)} timed out.
+   */
+  public void unfreezeFrozen() {
+    allMonitor.enter() ;
+    try {
+      for( final InternalFreezeControl freezeControl : freezeControls.values() ) {
+        if( ! freezeControl.warm() ) {
+          freezeControl.unfreeze() ;
+        }
+      }
+    } finally {
+      allMonitor.leave() ;
+    }
+  }
 
   private class InternalFreezeControl implements FreezeControl {
 
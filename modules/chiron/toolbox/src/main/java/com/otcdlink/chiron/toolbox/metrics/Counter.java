@@ -0,0 +1,34 @@
+package com.otcdlink.chiron.toolbox.metrics;
+
+import com.otcdlink.chiron.toolbox.ToStringTools;
+
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * A monotonic count of events, cheap to update from many threads at once.
+ * Obtain one with {@link MetricRegistry#counter(String)} at construction time, then update it
+ * from hot paths.
+ */
+public final class Counter {
+
+  private final LongAdder adder = new LongAdder() ;
+
+  Counter() { }
+
+  public void increment() {
+    adder.increment() ;
+  }
+
+  public void add( final long delta ) {
+    adder.add( delta ) ;
+  }
+
+  public long value() {
+    return adder.sum() ;
+  }
+
+  @Override
+  public String toString() {
+    return ToStringTools.nameAndCompactHash( this ) + "{" + value() + "}" ;
+  }
+}
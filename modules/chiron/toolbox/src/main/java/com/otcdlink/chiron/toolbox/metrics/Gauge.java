@@ -0,0 +1,13 @@
+package com.otcdlink.chiron.toolbox.metrics;
+
+/**
+ * Reads some value only when exporting, like the size of a queue.
+ * Implementations must be thread-safe, and cheap because JMX or HTTP export calls them
+ * from their own threads.
+ */
+@FunctionalInterface
+public interface Gauge {
+
+  long value() ;
+
+}
@@ -0,0 +1,94 @@
+package com.otcdlink.chiron.toolbox.metrics;
+
+import com.otcdlink.chiron.toolbox.ToStringTools;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+import static com.google.common.base.Preconditions.checkArgument;
+
+/**
+ * Distribution of non-negative values (like sizes or durations) into power-of-two buckets,
+ * so {@link #record(long)} costs a few atomic operations and allocates nothing.
+ * The price is precision: {@link #valueAtPercentile(double)} returns the upper bound of
+ * the bucket, so it may be up to twice the real value.
+ */
+public final class Histogram {
+
+  /**
+   * Bucket 0 holds values {@code <= 0}, bucket {@code i} holds values in
+   * {@code [ 2^(i-1), 2^i - 1 ]}.
+   */
+  private static final int BUCKET_COUNT = Long.SIZE ;
+
+  private final AtomicLongArray buckets = new AtomicLongArray( BUCKET_COUNT ) ;
+  private final LongAdder count = new LongAdder() ;
+  private final LongAdder sum = new LongAdder() ;
+  private final LongAccumulator max = new LongAccumulator( Math::max, 0 ) ;
+
+  Histogram() { }
+
+  public void record( final long value ) {
+    buckets.incrementAndGet( bucketIndex( value ) ) ;
+    count.increment() ;
+    sum.add( value ) ;
+    max.accumulate( value ) ;
+  }
+
+  public long count() {
+    return count.sum() ;
+  }
+
+  public long sum() {
+    return sum.sum() ;
+  }
+
+  public long max() {
+    return max.get() ;
+  }
+
+  /**
+   * Reads buckets without locking, so the result may be slightly off when
+   * {@link #record(long)} happens concurrently.
+   *
+   * @param percentile a value in {@code ]0, 100]}.
+   * @return 0 if nothing was recorded.
+   */
+  public long valueAtPercentile( final double percentile ) {
+    checkArgument( percentile > 0 && percentile <= 100, "Bad percentile: " + percentile ) ;
+    long total = 0 ;
+    for( int i = 0 ; i < BUCKET_COUNT ; i ++ ) {
+      total += buckets.get( i ) ;
+    }
+    if( total == 0 ) {
+      return 0 ;
+    }
+    final long rank = ( long ) Math.ceil( total * percentile / 100 ) ;
+    long cumulated = 0 ;
+    for( int i = 0 ; i < BUCKET_COUNT ; i ++ ) {
+      cumulated += buckets.get( i ) ;
+      if( cumulated >= rank ) {
+        return Math.min( bucketUpperBound( i ), max() ) ;
+      }
+    }
+    return max() ;
+  }
+
+  static int bucketIndex( final long value ) {
+    return value <= 0 ? 0 : Long.SIZE - Long.numberOfLeadingZeros( value ) ;
+  }
+
+  static long bucketUpperBound( final int bucketIndex ) {
+    return bucketIndex >= Long.SIZE - 1 ? Long.MAX_VALUE : ( 1L << bucketIndex ) - 1 ;
+  }
+
+  @Override
+  public String toString() {
+    return ToStringTools.nameAndCompactHash( this ) + "{" +
+        "count=" + count() + ";" +
+        "max=" + max() +
+        "}"
+    ;
+  }
+}
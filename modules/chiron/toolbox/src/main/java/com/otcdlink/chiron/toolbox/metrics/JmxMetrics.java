@@ -0,0 +1,128 @@
+package com.otcdlink.chiron.toolbox.metrics;
+
+import com.google.common.collect.ImmutableSortedMap;
+
+import javax.management.Attribute;
+import javax.management.AttributeList;
+import javax.management.AttributeNotFoundException;
+import javax.management.DynamicMBean;
+import javax.management.JMException;
+import javax.management.MBeanAttributeInfo;
+import javax.management.MBeanInfo;
+import javax.management.MBeanNotificationInfo;
+import javax.management.MBeanOperationInfo;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import javax.management.ReflectionException;
+import java.lang.management.ManagementFactory;
+import java.util.Map;
+
+import static com.google.common.base.Preconditions.checkNotNull;
+
+/**
+ * Exposes a {@link MetricRegistry} as one read-only MBean, with one {@code long} attribute
+ * per value of {@link MetricRegistry#snapshot()}.
+ * The list of attributes is computed again each time a JMX client asks for it, so metrics
+ * registered after {@link #register(MetricRegistry, String)} show up as well.
+ */
+public final class JmxMetrics implements DynamicMBean {
+
+  private final MetricRegistry metricRegistry ;
+
+  private JmxMetrics( final MetricRegistry metricRegistry ) {
+    this.metricRegistry = checkNotNull( metricRegistry ) ;
+  }
+
+  /**
+   * Registers into the {@link ManagementFactory#getPlatformMBeanServer() platform MBeanServer}.
+   *
+   * @param objectName something like {@code com.otcdlink.chiron:type=Metrics,name=upend}.
+   */
+  public static ObjectName register(
+      final MetricRegistry metricRegistry,
+      final String objectName
+  ) throws JMException {
+    return register( ManagementFactory.getPlatformMBeanServer(), metricRegistry, objectName ) ;
+  }
+
+  public static ObjectName register(
+      final MBeanServer mBeanServer,
+      final MetricRegistry metricRegistry,
+      final String objectName
+  ) throws JMException {
+    return mBeanServer.registerMBean(
+        new JmxMetrics( metricRegistry ), new ObjectName( objectName ) ).getObjectName() ;
+  }
+
+  @Override
+  public Object getAttribute( final String attribute ) throws AttributeNotFoundException {
+    final Long value = metricRegistry.snapshot().get( attribute ) ;
+    if( value == null ) {
+      throw new AttributeNotFoundException( attribute ) ;
+    }
+    return value ;
+  }
+
+  @Override
+  public AttributeList getAttributes( final String[] attributes ) {
+    final ImmutableSortedMap< String, Long > snapshot = metricRegistry.snapshot() ;
+    final AttributeList attributeList = new AttributeList() ;
+    for( final String attribute : attributes ) {
+      final Long value = snapshot.get( attribute ) ;
+      if( value != null ) {
+        attributeList.add( new Attribute( attribute, value ) ) ;
+      }
+    }
+    return attributeList ;
+  }
+
+  @Override
+  public MBeanInfo getMBeanInfo() {
+    final ImmutableSortedMap< String, Long > snapshot = metricRegistry.snapshot() ;
+    final MBeanAttributeInfo[] attributeInfos = new MBeanAttributeInfo[ snapshot.size() ] ;
+    int i = 0 ;
+    for( final Map.Entry< String, Long > entry : snapshot.entrySet() ) {
+      attributeInfos[ i ++ ] = new MBeanAttributeInfo(
+          entry.getKey(), "long", entry.getKey(), true, false, false ) ;
+    }
+    return new MBeanInfo(
+        getClass().getName(),
+        "Metrics from " + metricRegistry,
+        attributeInfos,
+        null,
+        new MBeanOperationInfo[ 0 ],
+        new MBeanNotificationInfo[ 0 ]
+    ) ;
+  }
+
+  /**
+   * @throws AttributeNotFoundException if there is no such attribute.
+   * @throws ReflectionException wrapping an {@link UnsupportedOperationException} otherwise,
+   *     because every attribute is read-only.
+   */
+  @Override
+  public void setAttribute( final Attribute attribute )
+      throws AttributeNotFoundException, ReflectionException
+  {
+    if( ! metricRegistry.snapshot().containsKey( attribute.getName() ) ) {
+      throw new AttributeNotFoundException( attribute.getName() ) ;
+    }
+    throw new ReflectionException( new UnsupportedOperationException(
+        "Read-only: '" + attribute.getName() + "'" ) ) ;
+  }
+
+  @Override
+  public AttributeList setAttributes( final AttributeList attributes ) {
+    return new AttributeList() ;
+  }
+
+  @Override
+  public Object invoke(
+      final String actionName,
+      final Object[] params,
+      final String[] signature
+  ) throws ReflectionException {
+    throw new ReflectionException( new NoSuchMethodException( actionName ),
+        "No operation: '" + actionName + "'" ) ;
+  }
+}
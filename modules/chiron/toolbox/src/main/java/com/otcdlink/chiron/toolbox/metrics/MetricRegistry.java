@@ -0,0 +1,217 @@
+package com.otcdlink.chiron.toolbox.metrics;
+
+import com.google.common.collect.ImmutableSortedMap;
+import com.otcdlink.chiron.toolbox.ToStringTools;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static com.google.common.base.Preconditions.checkNotNull;
+
+/**
+ * Holds named {@link Counter}s, {@link Gauge}s and {@link Histogram}s, so {@link JmxMetrics}
+ * or some HTTP endpoint can export them.
+ * Components resolve their metrics by name once, at construction time (or when creating
+ * a {@link io.netty.channel.ChannelPipeline}), so updating them costs no lookup and
+ * no allocation.
+ * Asking twice for the same name returns the same {@link Counter} or {@link Histogram},
+ * so every {@link io.netty.channel.Channel} contributes to the same figure.
+ *
+ * <h1>Naming</h1>
+ * <p>
+ * Names are dot-separated, lowercase, like {@code upend.frames.in}. Components accept
+ * a prefix so two instances can report separately into the same {@link MetricRegistry}.
+ * Registration fails if a name clashes with an exported one, like a {@link Counter} named
+ * {@code x.count} besides a {@link Histogram} named {@code x}, so {@link #snapshot()}
+ * always has one value per name.
+ *
+ * <h1>Threading</h1>
+ * <p>
+ * Registration of a new name is synchronized, so concurrent registrations can't
+ * introduce a clash. Getting an existing metric and {@link #snapshot()} don't lock.
+ */
+public final class MetricRegistry {
+
+  /**
+   * Returns metrics that work as usual but never get exported.
+   * This is the default for components created without a {@link MetricRegistry}, so they
+   * don't need to check for {@code null}.
+   */
+  public static final MetricRegistry NULL = new MetricRegistry( false ) ;
+
+  private final boolean retaining ;
+
+  /**
+   * Keeps names sorted, making export more readable.
+   */
+  private final ConcurrentMap< String, Object > metrics = new ConcurrentSkipListMap<>() ;
+
+  public MetricRegistry() {
+    this( true ) ;
+  }
+
+  private MetricRegistry( final boolean retaining ) {
+    this.retaining = retaining ;
+  }
+
+  public Counter counter( final String name ) {
+    return resolve( name, Counter.class ) ;
+  }
+
+  public Histogram histogram( final String name ) {
+    return resolve( name, Histogram.class ) ;
+  }
+
+  /**
+   * Replaces any previous {@link Gauge} with the same name, because a {@link Gauge} usually
+   * captures some object that a restart may recreate.
+   */
+  public void gauge( final String name, final Gauge gauge ) {
+    checkName( name ) ;
+    checkNotNull( gauge ) ;
+    if( retaining ) {
+      synchronized( metrics ) {
+        final Object previous = metrics.get( name ) ;
+        if( previous == null ) {
+          checkNoClash( name, false ) ;
+        } else {
+          checkArgument( previous instanceof Gauge,
+              "Already registered as " + previous + ": '" + name + "'" ) ;
+        }
+        metrics.put( name, gauge ) ;
+      }
+    }
+  }
+
+  private < METRIC > METRIC resolve( final String name, final Class< METRIC > metricClass ) {
+    checkName( name ) ;
+    Object metric ;
+    if( retaining ) {
+      metric = metrics.get( name ) ;
+      if( metric == null ) {
+        synchronized( metrics ) {
+          metric = metrics.get( name ) ;
+          if( metric == null ) {
+            checkNoClash( name, metricClass == Histogram.class ) ;
+            metric = newMetric( metricClass ) ;
+            metrics.put( name, metric ) ;
+          }
+        }
+      }
+    } else {
+      metric = newMetric( metricClass ) ;
+    }
+    checkArgument( metricClass.isInstance( metric ),
+        "Already registered as " + metric + ": '" + name + "'" ) ;
+    return metricClass.cast( metric ) ;
+  }
+
+  /**
+   * Must run while holding the lock on {@link #metrics}, for a name not registered yet.
+   *
+   * @throws IllegalArgumentException if some exported name of the new metric would be
+   *     the same as one of an existing metric.
+   */
+  private void checkNoClash( final String name, final boolean histogram ) {
+    if( histogram ) {
+      for( final String suffix : HISTOGRAM_SUFFIXES ) {
+        checkNoClash( name, name + suffix ) ;
+      }
+    } else {
+      checkNoClash( name, name ) ;
+    }
+  }
+
+  private void checkNoClash( final String name, final String exportedName ) {
+    final Object existing = metrics.get( exportedName ) ;
+    checkArgument( existing == null || existing instanceof Histogram,
+        "Registering '" + name + "' clashes with existing '" + exportedName + "'" ) ;
+    for( final String suffix : HISTOGRAM_SUFFIXES ) {
+      if( exportedName.endsWith( suffix ) ) {
+        final String histogramName =
+            exportedName.substring( 0, exportedName.length() - suffix.length() ) ;
+        checkArgument( ! ( metrics.get( histogramName ) instanceof Histogram ),
+            "Registering '" + name + "' clashes with '" + exportedName + "' exported by " +
+            "existing " + Histogram.class.getSimpleName() + " '" + histogramName + "'"
+        ) ;
+      }
+    }
+  }
+
+  private static Object newMetric( final Class< ? > metricClass ) {
+    if( metricClass == Counter.class ) {
+      return new Counter() ;
+    } else if( metricClass == Histogram.class ) {
+      return new Histogram() ;
+    } else {
+      throw new IllegalArgumentException( "Unsupported: " + metricClass ) ;
+    }
+  }
+
+  private static void checkName( final String name ) {
+    checkArgument( name != null && ! name.isEmpty(), "Bad name: '" + name + "'" ) ;
+  }
+
+
+// ======
+// Export
+// ======
+
+  public static final String COUNT_SUFFIX = ".count" ;
+  public static final String SUM_SUFFIX = ".sum" ;
+  public static final String MAX_SUFFIX = ".max" ;
+  public static final String P50_SUFFIX = ".p50" ;
+  public static final String P99_SUFFIX = ".p99" ;
+  public static final String P999_SUFFIX = ".p999" ;
+
+  private static final String[] HISTOGRAM_SUFFIXES = {
+      COUNT_SUFFIX, SUM_SUFFIX, MAX_SUFFIX, P50_SUFFIX, P99_SUFFIX, P999_SUFFIX } ;
+
+  /**
+   * Reads every metric, turning each {@link Histogram} into several values whose names end
+   * with {@link #COUNT_SUFFIX}, {@link #SUM_SUFFIX}, {@link #MAX_SUFFIX}, {@link #P50_SUFFIX},
+   * {@link #P99_SUFFIX} and {@link #P999_SUFFIX}.
+   */
+  public ImmutableSortedMap< String, Long > snapshot() {
+    final ImmutableSortedMap.Builder< String, Long > builder =
+        ImmutableSortedMap.naturalOrder() ;
+    for( final Map.Entry< String, Object > entry : metrics.entrySet() ) {
+      final String name = entry.getKey() ;
+      final Object metric = entry.getValue() ;
+      if( metric instanceof Counter ) {
+        builder.put( name, ( ( Counter ) metric ).value() ) ;
+      } else if( metric instanceof Gauge ) {
+        builder.put( name, ( ( Gauge ) metric ).value() ) ;
+      } else if( metric instanceof Histogram ) {
+        final Histogram histogram = ( Histogram ) metric ;
+        builder.put( name + COUNT_SUFFIX, histogram.count() ) ;
+        builder.put( name + SUM_SUFFIX, histogram.sum() ) ;
+        builder.put( name + MAX_SUFFIX, histogram.max() ) ;
+        builder.put( name + P50_SUFFIX, histogram.valueAtPercentile( 50 ) ) ;
+        builder.put( name + P99_SUFFIX, histogram.valueAtPercentile( 99 ) ) ;
+        builder.put( name + P999_SUFFIX, histogram.valueAtPercentile( 99.9 ) ) ;
+      }
+    }
+    return builder.build() ;
+  }
+
+  /**
+   * One {@code name value} pair per line, easy to read by humans and by {@code grep}.
+   */
+  public String asText() {
+    final StringBuilder stringBuilder = new StringBuilder() ;
+    for( final Map.Entry< String, Long > entry : snapshot().entrySet() ) {
+      stringBuilder.append( entry.getKey() ).append( ' ' ).append( entry.getValue() )
+          .append( '\n' ) ;
+    }
+    return stringBuilder.toString() ;
+  }
+
+  @Override
+  public String toString() {
+    return ToStringTools.nameAndCompactHash( this ) + "{" +
+        ( retaining ? metrics.size() : "NULL" ) + "}" ;
+  }
+}
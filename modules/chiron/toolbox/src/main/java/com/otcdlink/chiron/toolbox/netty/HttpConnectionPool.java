@@ -0,0 +1,456 @@
+package com.otcdlink.chiron.toolbox.netty;
+
+import com.otcdlink.chiron.toolbox.ToStringTools;
+import com.otcdlink.chiron.toolbox.internet.SchemeHostPort;
+import io.netty.channel.Channel;
+import io.netty.channel.ChannelFuture;
+import io.netty.channel.ChannelFutureListener;
+import io.netty.util.AttributeKey;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.nio.channels.ClosedChannelException;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static com.google.common.base.Preconditions.checkNotNull;
+
+/**
+ * Keeps {@link Channel}s of a {@link NettyHttpClient} open between requests, for each
+ * {@link SchemeHostPort}.
+ * A request goes to an idle {@link Channel} if there is one; otherwise to a new
+ * {@link Channel} if {@link NettyHttpClient.Pooling#maximumConnectionsPerRoute} allows it;
+ * otherwise to the least busy {@link Channel} if
+ * {@link NettyHttpClient.Pooling#maximumPipelinedRequests} allows it; otherwise it waits
+ * for a {@link Channel} to become available.
+ * Time spent waiting counts against the request timeout: a request still waiting when the
+ * timeout elapses leaves the queue and gets {@link NettyHttpClient.Watcher#timeout}, and a
+ * request leaving the queue only gets the remaining time once sent.
+ *
+ * <h1>Threading</h1>
+ * Each {@link Route} guards its state with its own monitor, and never calls
+ * {@link NettyHttpClient.Watcher} or closes a {@link Channel} while holding it.
+ */
+final class HttpConnectionPool {
+
+  private static final Logger LOGGER = LoggerFactory.getLogger( HttpConnectionPool.class ) ;
+
+  private static final AttributeKey< Connection > CONNECTION =
+      AttributeKey.valueOf( HttpConnectionPool.class.getName() + ".CONNECTION" ) ;
+
+  interface Connector {
+
+    ChannelFuture connect( SchemeHostPort schemeHostPort ) ;
+
+    /**
+     * Called in the {@link io.netty.channel.EventLoop} of the {@link Channel}.
+     */
+    void send(
+        Channel channel,
+        Hypermessage.Request request,
+        NettyHttpClient.Watcher watcher,
+        long remainingTimeoutMs
+    ) ;
+
+    /**
+     * Runs timeouts of requests waiting for a {@link Channel}.
+     */
+    ScheduledExecutorService scheduler() ;
+  }
+
+  private final NettyHttpClient.Pooling pooling ;
+  private final long timeoutMs ;
+  private final Connector connector ;
+  private final ConcurrentMap< SchemeHostPort, Route > routes = new ConcurrentHashMap<>() ;
+
+  private final LongAdder connectionsOpened = new LongAdder() ;
+  private final LongAdder requestsSent = new LongAdder() ;
+  private final LongAdder idleEvictions = new LongAdder() ;
+
+  HttpConnectionPool(
+      final NettyHttpClient.Pooling pooling,
+      final long timeoutMs,
+      final Connector connector
+  ) {
+    this.pooling = checkNotNull( pooling ) ;
+    checkArgument( timeoutMs >= 0 ) ;
+    this.timeoutMs = timeoutMs ;
+    this.connector = checkNotNull( connector ) ;
+  }
+
+  void send( final Hypermessage.Request request, final NettyHttpClient.Watcher watcher ) {
+    routes.computeIfAbsent( request.schemeHostPort, Route::new )
+        .send( new Pending( request, watcher ) ) ;
+  }
+
+  /**
+   * Called by {@link NettyHttpClient}'s {@link io.netty.channel.ChannelHandler} once it
+   * notified the {@link NettyHttpClient.Watcher} of a response.
+   */
+  void exchangeDone( final Channel channel, final boolean keepAlive ) {
+    final Connection connection = channel.attr( CONNECTION ).get() ;
+    if( connection != null ) {
+      connection.route.exchangeDone( connection, keepAlive ) ;
+    }
+  }
+
+  /**
+   * Closes every {@link Channel}, cancels waiting requests.
+   */
+  void close() {
+    for( final Route route : routes.values() ) {
+      route.close() ;
+    }
+    routes.clear() ;
+  }
+
+  NettyHttpClient.PoolMetrics metrics() {
+    int open = 0 ;
+    int waiting = 0 ;
+    for( final Route route : routes.values() ) {
+      synchronized( route ) {
+        open += route.connections.size() ;
+        waiting += route.waiting.size() ;
+      }
+    }
+    return new NettyHttpClient.PoolMetrics(
+        connectionsOpened.sum(),
+        requestsSent.sum(),
+        idleEvictions.sum(),
+        open,
+        waiting
+    ) ;
+  }
+
+  @Override
+  public String toString() {
+    return ToStringTools.getNiceClassName( this ) + "{" + pooling + "}" ;
+  }
+
+
+// =====
+// Parts
+// =====
+
+  private static final class Pending {
+    final Hypermessage.Request request ;
+    final NettyHttpClient.Watcher watcher ;
+    final long creationNanos = System.nanoTime() ;
+
+    /**
+     * Set once queued, {@code null} if scheduling failed.
+     */
+    volatile ScheduledFuture< ? > queueTimeout = null ;
+
+    Pending( final Hypermessage.Request request, final NettyHttpClient.Watcher watcher ) {
+      this.request = checkNotNull( request ) ;
+      this.watcher = checkNotNull( watcher ) ;
+    }
+
+    void leftQueue() {
+      final ScheduledFuture< ? > future = queueTimeout ;
+      if( future != null ) {
+        future.cancel( false ) ;
+      }
+    }
+  }
+
+  private static final class Connection {
+    final Route route ;
+    final Channel channel ;
+
+    /**
+     * Guarded by {@link #route}.
+     */
+    int inFlight = 0 ;
+
+    /**
+     * Guarded by {@link #route}.
+     */
+    long idleSinceNanos = 0 ;
+
+    Connection( final Route route, final Channel channel ) {
+      this.route = checkNotNull( route ) ;
+      this.channel = checkNotNull( channel ) ;
+    }
+  }
+
+  private final class Route {
+
+    private final SchemeHostPort schemeHostPort ;
+    private final List< Connection > connections = new ArrayList<>() ;
+    private final Deque< Pending > waiting = new ArrayDeque<>() ;
+    private int connecting = 0 ;
+    private boolean closed = false ;
+
+    Route( final SchemeHostPort schemeHostPort ) {
+      this.schemeHostPort = checkNotNull( schemeHostPort ) ;
+    }
+
+    void send( final Pending pending ) {
+      final Connection connection ;
+      final boolean connect ;
+      final boolean cancel ;
+      final boolean queued ;
+      synchronized( this ) {
+        cancel = closed ;
+        if( closed ) {
+          connection = null ;
+          connect = false ;
+          queued = false ;
+        } else {
+          final Connection idle = leastBusy( 1 ) ;
+          if( idle != null ) {
+            connection = idle ;
+            connect = false ;
+          } else if( canConnect() ) {
+            connection = null ;
+            connect = true ;
+          } else {
+            connection = leastBusy( pooling.maximumPipelinedRequests ) ;
+            connect = false ;
+          }
+          queued = connection == null ;
+          if( queued ) {
+            waiting.addLast( pending ) ;
+            if( connect ) {
+              connecting ++ ;
+            }
+          } else {
+            connection.inFlight ++ ;
+          }
+        }
+      }
+      if( queued ) {
+        scheduleQueueTimeout( pending ) ;
+      }
+      if( connection != null ) {
+        dispatch( connection, pending ) ;
+      } else if( connect ) {
+        openConnection() ;
+      } else if( cancel ) {
+        pending.watcher.cancelled( pending.request ) ;
+      }
+    }
+
+    /**
+     * The {@link Pending} may have left {@link #waiting} already, then the timeout does
+     * nothing.
+     */
+    private void scheduleQueueTimeout( final Pending pending ) {
+      try {
+        pending.queueTimeout = connector.scheduler().schedule(
+            () -> queueTimedOut( pending ), timeoutMs, TimeUnit.MILLISECONDS ) ;
+      } catch( final RejectedExecutionException ignore ) { }
+    }
+
+    private void queueTimedOut( final Pending pending ) {
+      final boolean removed ;
+      synchronized( this ) {
+        removed = waiting.remove( pending ) ;
+      }
+      if( removed ) {
+        LOGGER.debug( "Timed out while waiting for a connection to " +
+            schemeHostPort.uriString() + ": " + pending.request + "." ) ;
+        pending.watcher.timeout( pending.request ) ;
+      }
+    }
+
+    /**
+     * Guarded by {@code this}.
+     *
+     * @return an active {@link Connection} with less than given in-flight requests.
+     */
+    private Connection leastBusy( final int inFlightLimit ) {
+      Connection best = null ;
+      for( final Connection connection : connections ) {
+        if( connection.channel.isActive() &&
+            connection.inFlight < inFlightLimit &&
+            ( best == null || connection.inFlight < best.inFlight )
+        ) {
+          best = connection ;
+        }
+      }
+      return best ;
+    }
+
+    /**
+     * Guarded by {@code this}.
+     */
+    private boolean canConnect() {
+      return connections.size() + connecting < pooling.maximumConnectionsPerRoute ;
+    }
+
+    private void openConnection() {
+      connector.connect( schemeHostPort ).addListener( ( ChannelFutureListener ) future -> {
+        if( future.isSuccess() ) {
+          connectionOpened( future.channel() ) ;
+        } else {
+          connectionFailed( future.cause() ) ;
+        }
+      } ) ;
+    }
+
+    private void connectionOpened( final Channel channel ) {
+      connectionsOpened.increment() ;
+      final Connection connection = new Connection( this, channel ) ;
+      channel.attr( CONNECTION ).set( connection ) ;
+      channel.closeFuture().addListener( future -> connectionClosed( connection ) ) ;
+      final boolean close ;
+      final List< Pending > dispatchable = new ArrayList<>() ;
+      synchronized( this ) {
+        connecting -- ;
+        close = closed ;
+        if( ! closed ) {
+          connections.add( connection ) ;
+          while( ! waiting.isEmpty() && connection.inFlight < pooling.maximumPipelinedRequests ) {
+            connection.inFlight ++ ;
+            dispatchable.add( waiting.removeFirst() ) ;
+          }
+          if( connection.inFlight == 0 ) {
+            connection.idleSinceNanos = System.nanoTime() ;
+          }
+        }
+      }
+      LOGGER.debug( "Opened " + channel + " for " + schemeHostPort.uriString() + "." ) ;
+      if( close ) {
+        channel.close() ;
+      } else if( dispatchable.isEmpty() ) {
+        scheduleEviction( connection ) ;
+      } else {
+        dispatchable.forEach( pending -> dispatch( connection, pending ) ) ;
+      }
+    }
+
+    private void connectionFailed( final Throwable cause ) {
+      final List< Pending > failed = new ArrayList<>() ;
+      synchronized( this ) {
+        connecting -- ;
+        if( connections.isEmpty() && connecting == 0 ) {
+          failed.addAll( waiting ) ;
+          waiting.clear() ;
+        }
+      }
+      LOGGER.info( "Failed to connect to " + schemeHostPort.uriString() + "." ) ;
+      failed.forEach( pending -> {
+        pending.leftQueue() ;
+        pending.watcher.failed( pending.request, cause ) ;
+      } ) ;
+    }
+
+    private void connectionClosed( final Connection connection ) {
+      final boolean connect ;
+      synchronized( this ) {
+        connections.remove( connection ) ;
+        connect = ! closed && ! waiting.isEmpty() && canConnect() ;
+        if( connect ) {
+          connecting ++ ;
+        }
+      }
+      LOGGER.debug( "Closed " + connection.channel + "." ) ;
+      if( connect ) {
+        openConnection() ;
+      }
+    }
+
+    void exchangeDone( final Connection connection, final boolean keepAlive ) {
+      Pending next = null ;
+      final boolean becameIdle ;
+      synchronized( this ) {
+        connection.inFlight -- ;
+        if( keepAlive && ! closed && connections.contains( connection ) ) {
+          next = waiting.pollFirst() ;
+          if( next != null ) {
+            connection.inFlight ++ ;
+          }
+        } else {
+          connections.remove( connection ) ;
+        }
+        becameIdle = connection.inFlight == 0 && connections.contains( connection ) ;
+        if( becameIdle ) {
+          connection.idleSinceNanos = System.nanoTime() ;
+        }
+      }
+      if( ! keepAlive ) {
+        // Closing triggers connectionClosed(), which may open a new one.
+        connection.channel.close() ;
+      } else if( next != null ) {
+        dispatch( connection, next ) ;
+      } else if( becameIdle ) {
+        scheduleEviction( connection ) ;
+      }
+    }
+
+    private void dispatch( final Connection connection, final Pending pending ) {
+      pending.leftQueue() ;
+      requestsSent.increment() ;
+      final Channel channel = connection.channel ;
+      final long remainingTimeoutMs = Math.max( 0, timeoutMs -
+          TimeUnit.NANOSECONDS.toMillis( System.nanoTime() - pending.creationNanos ) ) ;
+      try {
+        channel.eventLoop().execute( () -> {
+          if( channel.isActive() ) {
+            connector.send( channel, pending.request, pending.watcher, remainingTimeoutMs ) ;
+          } else {
+            pending.watcher.failed( pending.request, new ClosedChannelException() ) ;
+            exchangeDone( connection, false ) ;
+          }
+        } ) ;
+      } catch( final RejectedExecutionException e ) {
+        pending.watcher.cancelled( pending.request ) ;
+      }
+    }
+
+    private void scheduleEviction( final Connection connection ) {
+      try {
+        connection.channel.eventLoop().schedule(
+            () -> evictIfStillIdle( connection ),
+            pooling.idleTimeoutMs,
+            TimeUnit.MILLISECONDS
+        ) ;
+      } catch( final RejectedExecutionException ignore ) { }
+    }
+
+    private void evictIfStillIdle( final Connection connection ) {
+      final boolean evict ;
+      synchronized( this ) {
+        evict = connection.inFlight == 0 &&
+            System.nanoTime() - connection.idleSinceNanos >=
+                TimeUnit.MILLISECONDS.toNanos( pooling.idleTimeoutMs ) &&
+            connections.remove( connection )
+        ;
+      }
+      if( evict ) {
+        idleEvictions.increment() ;
+        connection.channel.close() ;
+      }
+    }
+
+    void close() {
+      final List< Connection > closing ;
+      final List< Pending > cancelled ;
+      synchronized( this ) {
+        closed = true ;
+        closing = new ArrayList<>( connections ) ;
+        connections.clear() ;
+        cancelled = new ArrayList<>( waiting ) ;
+        waiting.clear() ;
+      }
+      closing.forEach( connection -> connection.channel.close() ) ;
+      cancelled.forEach( pending -> {
+        pending.leftQueue() ;
+        pending.watcher.cancelled( pending.request ) ;
+      } ) ;
+    }
+  }
+}
@@ -4,9 +4,11 @@ import com.google.common.collect.ImmutableList;
 import com.google.common.collect.ImmutableMultimap;
 import com.otcdlink.chiron.toolbox.ToStringTools;
 import com.otcdlink.chiron.toolbox.UrxTools;
+import com.otcdlink.chiron.toolbox.internet.HostPort;
 import com.otcdlink.chiron.toolbox.internet.SchemeHostPort;
 import com.otcdlink.chiron.toolbox.security.SslEngineFactory;
 import io.netty.channel.Channel;
+import io.netty.channel.ChannelFuture;
 import io.netty.channel.ChannelFutureListener;
 import io.netty.channel.ChannelHandlerContext;
 import io.netty.channel.ChannelInitializer;
@@ -22,8 +24,8 @@ import io.netty.handler.codec.http.HttpRequestEncoder;
 import io.netty.handler.codec.http.HttpResponseDecoder;
 import io.netty.handler.codec.http.HttpResponseStatus;
 import io.netty.handler.codec.http.HttpStatusClass;
+import io.netty.handler.codec.http.HttpUtil;
 import io.netty.handler.codec.http.LastHttpContent;
-import io.netty.handler.ssl.SslHandler;
 import io.netty.handler.stream.ChunkedWriteHandler;
 import io.netty.util.concurrent.ScheduledFuture;
 import org.slf4j.Logger;
@@ -31,8 +33,11 @@ import org.slf4j.LoggerFactory;
 
 import java.net.URI;
 import java.net.URL;
+import java.nio.channels.ClosedChannelException;
+import java.util.ArrayDeque;
 import java.util.ArrayList;
 import java.util.Collection;
+import java.util.Deque;
 import java.util.concurrent.BlockingQueue;
 import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.LinkedBlockingQueue;
@@ -65,6 +70,10 @@ import static com.otcdlink.chiron.toolbox.UrxTools.safePort;
 
  * </pre>
  *
+ * By default, each request gets its own connection, closed after the response.
+ * With {@link Pooling}, connections stay open and serve subsequent requests to the same
+ * {@link SchemeHostPort}, see {@link HttpConnectionPool}.
+ *
  * @see Hypermessage.Request
  * @see Watcher the callback notifying of request's status, including timeout.
  * @see Recorder#nextOutcome() for waiting until something happens (including timeout).
@@ -82,6 +91,11 @@ public class NettyHttpClient extends NettySocketClient {
 
   private final SslEngineFactory.ForClient sslEngineFactory ;
 
+  /**
+   * {@code null} if no {@link Pooling}.
+   */
+  private final HttpConnectionPool connectionPool ;
+
   public NettyHttpClient( final EventLoopGroup eventLoopGroup, final int timeoutMs ) {
     this( null, checkNotNull( eventLoopGroup ), timeoutMs, null ) ;
   }
@@ -112,16 +126,70 @@ public class NettyHttpClient extends NettySocketClient {
     this( eventLoopGroupFactoryResolver, null, timeoutMs, sslEngineFactory ) ;
   }
 
+  /**
+   * @param pooling {@code null} for a new connection for each request.
+   */
+  public NettyHttpClient(
+      final Function< String, EventLoopGroupFactory > eventLoopGroupFactoryResolver,
+      final int timeoutMs,
+      final SslEngineFactory.ForClient sslEngineFactory,
+      final Pooling pooling
+  ) {
+    this( eventLoopGroupFactoryResolver, null, timeoutMs, sslEngineFactory, pooling ) ;
+  }
+
   protected NettyHttpClient(
       final Function< String, EventLoopGroupFactory > eventLoopGroupFactorySupplier,
       final EventLoopGroup eventLoopGroup,
       final int timeoutMs,
       final SslEngineFactory.ForClient sslEngineFactory
+  ) {
+    this( eventLoopGroupFactorySupplier, eventLoopGroup, timeoutMs, sslEngineFactory, null ) ;
+  }
+
+  protected NettyHttpClient(
+      final Function< String, EventLoopGroupFactory > eventLoopGroupFactorySupplier,
+      final EventLoopGroup eventLoopGroup,
+      final int timeoutMs,
+      final SslEngineFactory.ForClient sslEngineFactory,
+      final Pooling pooling
   ) {
     super( eventLoopGroupFactorySupplier, eventLoopGroup ) ;
     checkArgument( timeoutMs >= 0 ) ;
     this.timeoutMs = timeoutMs ;
     this.sslEngineFactory = sslEngineFactory ;
+    this.connectionPool = pooling == null ? null : new HttpConnectionPool(
+        pooling,
+        timeoutMs,
+        new HttpConnectionPool.Connector() {
+          @Override
+          public ChannelFuture connect( final SchemeHostPort schemeHostPort ) {
+            return NettyHttpClient.this.connect( schemeHostPort ) ;
+          }
+
+          @Override
+          public void send(
+              final Channel channel,
+              final Hypermessage.Request request,
+              final Watcher watcher,
+              final long remainingTimeoutMs
+          ) {
+            NettyHttpClient.this.send( channel, request, watcher, remainingTimeoutMs ) ;
+          }
+
+          @Override
+          public ScheduledExecutorService scheduler() {
+            return eventLoopGroup() ;
+          }
+        }
+    ) ;
+  }
+
+  @Override
+  protected void customStop() {
+    if( connectionPool != null ) {
+      connectionPool.close() ;
+    }
   }
 
   public final ScheduledExecutorService scheduledExecutorService() {
@@ -129,20 +197,25 @@ public class NettyHttpClient extends NettySocketClient {
   }
 
 
+  /**
+   * @param sslEngineFactory may be {@code null}.
+   */
   private ChannelInitializer< Channel > channelInitializer(
-      final SslEngineFactory sslEngineFactory
+      final SslEngineFactory sslEngineFactory,
+      final HostPort hostPort
   ) {
     return new ChannelInitializer< Channel >() {
       @Override
       protected void initChannel( Channel channel ) throws Exception {
         if( sslEngineFactory != null ) {
-          channel.pipeline().addFirst( new SslHandler( sslEngineFactory.newSslEngine() ) ) ;
+          channel.pipeline().addFirst( sslEngineFactory.newSslHandler(
+              hostPort.hostname.asString(), hostPort.port ) ) ;
         }
         channel.pipeline().addLast( new HttpResponseDecoder() ) ;
         channel.pipeline().addLast( new HttpRequestEncoder() ) ;
         channel.pipeline().addLast( new HttpObjectAggregator( MAX_CONTENT_LENGTH ) ) ;
         channel.pipeline().addLast( new ChunkedWriteHandler() ) ;
-        channel.pipeline().addLast( new HttpResponseTier() ) ;
+        channel.pipeline().addLast( new HttpResponseTier( connectionPool ) ) ;
 
       }
     } ;
@@ -223,6 +296,107 @@ public class NettyHttpClient extends NettySocketClient {
   }
 
 
+// =======
+// Pooling
+// =======
+
+  public static final class Pooling {
+
+    public final int maximumConnectionsPerRoute ;
+
+    /**
+     * HTTP/1.1 pipelining: how many requests a connection may carry before getting
+     * their responses. 1 means no pipelining, which is the safe choice with servers
+     * we don't know.
+     */
+    public final int maximumPipelinedRequests ;
+
+    /**
+     * Closes a connection that carried no request during this delay.
+     * Should be shorter than server's keep-alive timeout, otherwise a request could
+     * go to a connection the server is closing.
+     */
+    public final long idleTimeoutMs ;
+
+    public Pooling(
+        final int maximumConnectionsPerRoute,
+        final int maximumPipelinedRequests,
+        final long idleTimeoutMs
+    ) {
+      checkArgument( maximumConnectionsPerRoute > 0 ) ;
+      checkArgument( maximumPipelinedRequests > 0 ) ;
+      checkArgument( idleTimeoutMs > 0 ) ;
+      this.maximumConnectionsPerRoute = maximumConnectionsPerRoute ;
+      this.maximumPipelinedRequests = maximumPipelinedRequests ;
+      this.idleTimeoutMs = idleTimeoutMs ;
+    }
+
+    public static final Pooling DEFAULT = new Pooling( 8, 1, 30_000 ) ;
+
+    @Override
+    public String toString() {
+      return ToStringTools.getNiceClassName( this ) + "{" +
+          "maximumConnectionsPerRoute=" + maximumConnectionsPerRoute + ";" +
+          "maximumPipelinedRequests=" + maximumPipelinedRequests + ";" +
+          "idleTimeoutMs=" + idleTimeoutMs +
+          "}"
+      ;
+    }
+  }
+
+  public static final class PoolMetrics {
+
+    /**
+     * Since {@link NettyHttpClient}'s creation.
+     */
+    public final long connectionsOpened ;
+
+    /**
+     * Since {@link NettyHttpClient}'s creation, so
+     * {@code requestsSent - connectionsOpened} tells about connection reuse.
+     */
+    public final long requestsSent ;
+
+    /**
+     * Since {@link NettyHttpClient}'s creation.
+     */
+    public final long idleEvictions ;
+
+    public final int openConnections ;
+
+    /**
+     * Requests waiting for a connection to become available.
+     */
+    public final int waitingRequests ;
+
+    public PoolMetrics(
+        final long connectionsOpened,
+        final long requestsSent,
+        final long idleEvictions,
+        final int openConnections,
+        final int waitingRequests
+    ) {
+      this.connectionsOpened = connectionsOpened ;
+      this.requestsSent = requestsSent ;
+      this.idleEvictions = idleEvictions ;
+      this.openConnections = openConnections ;
+      this.waitingRequests = waitingRequests ;
+    }
+
+    @Override
+    public String toString() {
+      return ToStringTools.getNiceClassName( this ) + "{" +
+          "connectionsOpened=" + connectionsOpened + ";" +
+          "requestsSent=" + requestsSent + ";" +
+          "idleEvictions=" + idleEvictions + ";" +
+          "openConnections=" + openConnections + ";" +
+          "waitingRequests=" + waitingRequests +
+          "}"
+      ;
+    }
+  }
+
+
 // =======
 // Outcome
 // =======
@@ -480,28 +654,17 @@ public class NettyHttpClient extends NettySocketClient {
     }
     checkStarted() ;
 
-    connect(
-        request.schemeHostPort.hostPort.asInetSocketAddressQuiet(),
-        channelInitializer( request.schemeHostPort.scheme.secure ? sslEngineFactory : null )
-    )
+    if( connectionPool != null ) {
+      connectionPool.send( request, watcher ) ;
+      return ;
+    }
+
+    connect( request.schemeHostPort )
         .addListener( ( ChannelFutureListener ) future -> {
           @SuppressWarnings( "ThrowableResultOfMethodCallIgnored" )
           final Throwable cause = future.cause() ;
           if( cause == null ) {
-            final Channel channel = future.channel() ;
-            final ScheduledFuture< ? > timeoutFuture ;
-            try {
-              timeoutFuture = channel.eventLoop().schedule(
-                  () -> timeout( channel, watcher, request ),
-                  timeoutMs,
-                  TimeUnit.MILLISECONDS
-              ) ;
-              extractHandler( channel ).configure( request, watcher, timeoutFuture ) ;
-              request.sendTo( channel ) ;
-              LOGGER.debug( "Sent " + request + "." ) ;
-            } catch( final RejectedExecutionException e ) {
-              watcher.cancelled( request ) ;
-            }
+            send( future.channel(), request, watcher, timeoutMs ) ;
           } else {
             LOGGER.info( "Failed to connect to " + request.uri + "." ) ;
             watcher.failed( request, cause ) ;
@@ -510,6 +673,50 @@ public class NettyHttpClient extends NettySocketClient {
     ;
   }
 
+  private ChannelFuture connect( final SchemeHostPort schemeHostPort ) {
+    return connect(
+        schemeHostPort.hostPort.asInetSocketAddressQuiet(),
+        channelInitializer(
+            schemeHostPort.scheme.secure ? sslEngineFactory : null,
+            schemeHostPort.hostPort
+        )
+    ) ;
+  }
+
+  /**
+   * Call from {@code channel}'s {@link io.netty.channel.EventLoop}.
+   *
+   * @param remainingTimeoutMs {@link #timeoutMs} minus the time the request spent waiting
+   *     for a {@link Channel}.
+   */
+  private void send(
+      final Channel channel,
+      final Hypermessage.Request request,
+      final Watcher watcher,
+      final long remainingTimeoutMs
+  ) {
+    final ScheduledFuture< ? > timeoutFuture ;
+    try {
+      timeoutFuture = channel.eventLoop().schedule(
+          () -> timeout( channel, watcher, request ),
+          remainingTimeoutMs,
+          TimeUnit.MILLISECONDS
+      ) ;
+      extractHandler( channel ).enqueue( request, watcher, timeoutFuture ) ;
+      request.sendTo( channel ) ;
+      LOGGER.debug( "Sent " + request + "." ) ;
+    } catch( final RejectedExecutionException e ) {
+      watcher.cancelled( request ) ;
+    }
+  }
+
+  /**
+   * @return {@code null} if no {@link Pooling}.
+   */
+  public PoolMetrics poolMetrics() {
+    return connectionPool == null ? null : connectionPool.metrics() ;
+  }
+
 
   public CompletableFuture< CompleteResponse > httpRequest(
       final Hypermessage.Request request
@@ -594,23 +801,47 @@ public class NettyHttpClient extends NettySocketClient {
 // Netty ChannelHandler
 // ====================
 
+  /**
+   * Responses come in the same order as requests, even with pipelining.
+   */
   private static class HttpResponseTier extends SimpleChannelInboundHandler< HttpObject > {
 
-    private Watcher watcher = null ;
-    private Hypermessage.Request httpRequest = null ;
-    private ScheduledFuture< ? > timeoutFuture = null ;
+    /**
+     * {@code null} if no {@link Pooling}, then there is only one {@link Exchange}.
+     */
+    private final HttpConnectionPool connectionPool ;
+
+    private final Deque< Exchange > exchanges = new ArrayDeque<>() ;
 
     private Integer statusCode = null ;
     private String contentAsString = null ;
 
-    public void configure(
+    HttpResponseTier( final HttpConnectionPool connectionPool ) {
+      this.connectionPool = connectionPool ;
+    }
+
+    private static final class Exchange {
+      final Hypermessage.Request httpRequest ;
+      final Watcher watcher ;
+      final ScheduledFuture< ? > timeoutFuture ;
+
+      Exchange(
+          final Hypermessage.Request httpRequest,
+          final Watcher watcher,
+          final ScheduledFuture< ? > timeoutFuture
+      ) {
+        this.httpRequest = checkNotNull( httpRequest ) ;
+        this.watcher = checkNotNull( watcher ) ;
+        this.timeoutFuture = checkNotNull( timeoutFuture ) ;
+      }
+    }
+
+    public void enqueue(
         final Hypermessage.Request httpRequest,
         final Watcher watcher,
         final ScheduledFuture< ? > timeoutFuture
     ) {
-      this.httpRequest = checkNotNull( httpRequest ) ;
-      this.watcher = checkNotNull( watcher ) ;
-      this.timeoutFuture = checkNotNull( timeoutFuture ) ;
+      exchanges.addLast( new Exchange( httpRequest, watcher, timeoutFuture ) ) ;
     }
 
     /**
@@ -622,15 +853,15 @@ public class NettyHttpClient extends NettySocketClient {
         final ChannelHandlerContext channelHandlerContext,
         final HttpObject httpObject
     ) {
-      checkState( watcher != null ) ;
-      checkState( httpRequest != null ) ;
+      final Exchange exchange = exchanges.peekFirst() ;
+      checkState( exchange != null ) ;
 
       if( httpObject instanceof FullHttpResponse ) {
         final FullHttpResponse fullHttpResponse = ( FullHttpResponse ) httpObject ;
         statusCode = fullHttpResponse.status().code() ;
         contentAsString = fullHttpResponse.content().toString( Hypermessage.CONTENT_ENCODING ) ;
         LOGGER.debug(
-            "Received as a response to " + httpRequest + " a " +
+            "Received as a response to " + exchange.httpRequest + " a " +
                 FullHttpResponse.class.getSimpleName() + " with: " +
                 "status code=" + statusCode + ", " +
                 "content='" +
@@ -640,16 +871,23 @@ public class NettyHttpClient extends NettySocketClient {
 
       if( httpObject instanceof LastHttpContent ) {
         if( ! ( httpObject instanceof FullHttpResponse ) ) {
-          LOGGER.debug( "End of content for the response to " + httpRequest + " handled by " +
-              this + "." ) ;
+          LOGGER.debug( "End of content for the response to " + exchange.httpRequest +
+              " handled by " + this + "." ) ;
+        }
+        exchanges.removeFirst() ;
+        final boolean keepAlive = connectionPool != null &&
+            httpObject instanceof HttpMessage &&
+            HttpUtil.isKeepAlive( ( HttpMessage ) httpObject )
+        ;
+        if( connectionPool == null ) {
+          channelHandlerContext.close() ;
         }
-        channelHandlerContext.close() ;
         if( statusCode != null && contentAsString != null ) {
-          if( timeoutFuture.cancel( false ) ) {
+          if( exchange.timeoutFuture.cancel( false ) ) {
             final ImmutableMultimap< String, String > headers =
                 NettyTools.headers( ( HttpMessage ) httpObject ) ;
-            watcher.complete(
-                httpRequest,
+            exchange.watcher.complete(
+                exchange.httpRequest,
                 new Hypermessage.Response(
                     HttpResponseStatus.valueOf( statusCode ),
                     headers,
@@ -658,6 +896,37 @@ public class NettyHttpClient extends NettySocketClient {
             ) ;
           }
         }
+        statusCode = null ;
+        contentAsString = null ;
+        if( connectionPool != null ) {
+          connectionPool.exchangeDone( channelHandlerContext.channel(), keepAlive ) ;
+        }
+      }
+    }
+
+    /**
+     * Only with {@link Pooling}, otherwise {@link Watcher#timeout(Hypermessage.Request)} will
+     * tell, as it always did.
+     */
+    @Override
+    public void channelInactive( final ChannelHandlerContext channelHandlerContext )
+        throws Exception
+    {
+      if( connectionPool != null ) {
+        failAll( new ClosedChannelException() ) ;
+      }
+      super.channelInactive( channelHandlerContext ) ;
+    }
+
+    /**
+     * Notifies only once for each {@link Exchange}, thanks to {@link Exchange#timeoutFuture}.
+     */
+    private void failAll( final Throwable cause ) {
+      Exchange exchange ;
+      while( ( exchange = exchanges.pollFirst() ) != null ) {
+        if( exchange.timeoutFuture.cancel( false ) ) {
+          exchange.watcher.failed( exchange.httpRequest, cause ) ;
+        }
       }
     }
 
@@ -673,15 +942,16 @@ public class NettyHttpClient extends NettySocketClient {
         final Throwable cause
     ) {
       LOGGER.warn( "Caught exception from " + this + ".", cause ) ;
-      watcher.failed( httpRequest, cause ) ;
+      failAll( cause ) ;
       channelHandlerContext.close() ;
     }
 
     @Override
     public String toString() {
+      final Exchange exchange = exchanges.peekFirst() ;
       return
           ToStringTools.nameAndCompactHash( this ) + '{' +
-              ( httpRequest == null ? null : httpRequest.uri.toASCIIString() ) +
+              ( exchange == null ? null : exchange.httpRequest.uri.toASCIIString() ) +
               '}'
           ;
     }
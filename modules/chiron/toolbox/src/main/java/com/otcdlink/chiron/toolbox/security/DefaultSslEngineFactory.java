@@ -2,6 +2,18 @@ package com.otcdlink.chiron.toolbox.security;
 
 import com.google.common.base.Throwables;
 import com.google.common.collect.ImmutableList;
+import com.otcdlink.chiron.toolbox.ToStringTools;
+import io.netty.buffer.ByteBufAllocator;
+import io.netty.handler.ssl.OpenSsl;
+import io.netty.handler.ssl.OpenSslSessionContext;
+import io.netty.handler.ssl.OpenSslSessionTicketKey;
+import io.netty.handler.ssl.SslContext;
+import io.netty.handler.ssl.SslContextBuilder;
+import io.netty.handler.ssl.SslHandler;
+import io.netty.handler.ssl.SslProvider;
+import io.netty.handler.ssl.SupportedCipherSuiteFilter;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 
 import javax.net.ssl.KeyManager;
 import javax.net.ssl.KeyManagerFactory;
@@ -10,6 +22,7 @@ import javax.net.ssl.ManagerFactoryParameters;
 import javax.net.ssl.SSLContext;
 import javax.net.ssl.SSLEngine;
 import javax.net.ssl.SSLException;
+import javax.net.ssl.SSLSessionContext;
 import javax.net.ssl.TrustManagerFactory;
 import javax.net.ssl.X509ExtendedKeyManager;
 import java.io.File;
@@ -26,15 +39,34 @@ import java.security.PrivateKey;
 import java.security.UnrecoverableKeyException;
 import java.security.cert.CertificateException;
 import java.security.cert.X509Certificate;
+import java.util.Arrays;
 
+import static com.google.common.base.Preconditions.checkNotNull;
+
+/**
+ * Keeps one {@link SSLContext} for all the {@link SSLEngine}s it creates, so they share
+ * its TLS session cache, as configured by {@link TlsTuning}.
+ */
 public abstract class DefaultSslEngineFactory implements SslEngineFactory {
 
+  private static final Logger LOGGER = LoggerFactory.getLogger( DefaultSslEngineFactory.class ) ;
+
   private static final String PROTOCOL = "TLS" ;
   private static final String KEY_ALGORITHM = "SunX509" ;
   private static final char[] EMPTY_CHAR_ARRAY = new char[ 0 ] ;
   protected final SSLContext sslContext ;
+  protected final TlsTuning tlsTuning ;
+  private final HandshakeMeter handshakeMeter = new HandshakeMeter() ;
+
+  /**
+   * Non-{@code null} if {@link TlsTuning#openSslWhenAvailable} and OpenSSL is available,
+   * then it replaces {@link #sslContext}.
+   * Set only by constructors.
+   */
+  private SslContext openSslContext = null ;
 
-  private DefaultSslEngineFactory() throws SSLException {
+  private DefaultSslEngineFactory( final TlsTuning tlsTuning ) throws SSLException {
+    this.tlsTuning = checkNotNull( tlsTuning ) ;
     try {
       sslContext = SSLContext.getInstance( PROTOCOL ) ;
     } catch( final NoSuchAlgorithmException e ) {
@@ -44,14 +76,54 @@ public abstract class DefaultSslEngineFactory implements SslEngineFactory {
 
   protected abstract boolean isClient() ;
 
+  /**
+   * Call after {@link SSLContext#init}.
+   */
+  private static void tuneSessionCache(
+      final SSLSessionContext sslSessionContext,
+      final TlsTuning tlsTuning
+  ) {
+    sslSessionContext.setSessionCacheSize( tlsTuning.sessionCacheSize ) ;
+    sslSessionContext.setSessionTimeout( tlsTuning.sessionTimeoutSeconds ) ;
+  }
+
   @Override
   public SSLEngine newSslEngine() {
-    final SSLEngine sslEngine = sslContext.createSSLEngine() ;
+    return newSslEngine( null, -1 ) ;
+  }
+
+  @Override
+  public SSLEngine newSslEngine( final String peerHost, final int peerPort ) {
+    if( openSslContext != null ) {
+      return openSslContext.newEngine( ByteBufAllocator.DEFAULT, peerHost, peerPort ) ;
+    }
+    final SSLEngine sslEngine = peerHost == null ?
+        sslContext.createSSLEngine() : sslContext.createSSLEngine( peerHost, peerPort ) ;
     sslEngine.setUseClientMode( isClient() ) ;
-    sslEngine.setEnabledCipherSuites( KeystoreTools.getIncludedCipherSuites() ) ;
+    tlsTuning.profile.applyTo( sslEngine ) ;
     return sslEngine ;
   }
 
+  @Override
+  public SslHandler newSslHandler( final String peerHost, final int peerPort ) {
+    final SslHandler sslHandler = new SslHandler( newSslEngine( peerHost, peerPort ) ) ;
+    handshakeMeter.watch( sslHandler ) ;
+    return sslHandler ;
+  }
+
+  /**
+   * Counts handshakes of {@link SslHandler}s created by {@link #newSslHandler(String, int)}.
+   */
+  public HandshakeMeter handshakeMeter() {
+    return handshakeMeter ;
+  }
+
+  @Override
+  public String toString() {
+    return ToStringTools.getNiceClassName( this ) + "{" + tlsTuning +
+        ( openSslContext == null ? "" : ";OpenSSL" ) + "}" ;
+  }
+
 
 
 // =========
@@ -63,12 +135,33 @@ public abstract class DefaultSslEngineFactory implements SslEngineFactory {
   {
 
     public ForServer( final KeystoreAccess keystoreAccess ) throws SSLException {
-      this( loadQuiet( keystoreAccess ), keystoreAccess.alias, keystoreAccess.password ) ;
+      this( keystoreAccess, TlsTuning.DEFAULT ) ;
+    }
+
+    public ForServer( final KeystoreAccess keystoreAccess, final TlsTuning tlsTuning )
+        throws SSLException
+    {
+      this(
+          loadQuiet( keystoreAccess ),
+          keystoreAccess.alias,
+          keystoreAccess.password,
+          tlsTuning
+      ) ;
     }
 
     public ForServer( final KeyStore keyStore, final String alias, final String keypass )
         throws SSLException
     {
+      this( keyStore, alias, keypass, TlsTuning.DEFAULT ) ;
+    }
+
+    public ForServer(
+        final KeyStore keyStore,
+        final String alias,
+        final String keypass,
+        final TlsTuning tlsTuning
+    ) throws SSLException {
+      super( tlsTuning ) ;
       try {
         final KeyManagerFactory keyManagerFactory =
             createAndFixKeyManagers( keyStore, alias, keypass ) ;
@@ -77,6 +170,15 @@ public abstract class DefaultSslEngineFactory implements SslEngineFactory {
             null,
             null
         ) ;
+        tuneSessionCache( sslContext.getServerSessionContext(), tlsTuning ) ;
+        if( tlsTuning.openSslWhenAvailable ) {
+          if( OpenSsl.isAvailable() ) {
+            super.openSslContext = newOpenSslContext( keyManagerFactory, tlsTuning ) ;
+          } else {
+            LOGGER.warn( "OpenSSL not available, using JDK's TLS implementation.",
+                OpenSsl.unavailabilityCause() ) ;
+          }
+        }
       } catch( final NoSuchAlgorithmException | UnrecoverableKeyException | KeyStoreException |
           KeyManagementException e )
       {
@@ -90,6 +192,33 @@ public abstract class DefaultSslEngineFactory implements SslEngineFactory {
     protected boolean isClient() {
       return false ;
     }
+
+    private static SslContext newOpenSslContext(
+        final KeyManagerFactory keyManagerFactory,
+        final TlsTuning tlsTuning
+    ) throws SSLException {
+      final SslContext openSslContext = SslContextBuilder.forServer( keyManagerFactory )
+          .sslProvider( SslProvider.OPENSSL )
+          .protocols( tlsTuning.profile.protocols == null ?
+              null : tlsTuning.profile.protocols.toArray( new String[ 0 ] ) )
+          .ciphers( tlsTuning.profile.cipherSuites(), SupportedCipherSuiteFilter.INSTANCE )
+          .sessionCacheSize( tlsTuning.sessionCacheSize )
+          .sessionTimeout( tlsTuning.sessionTimeoutSeconds )
+          .build()
+      ;
+      final byte[] sessionTicketKey = tlsTuning.sessionTicketKey() ;
+      if( sessionTicketKey != null ) {
+        ( ( OpenSslSessionContext ) openSslContext.sessionContext() ).setTicketKeys(
+            new OpenSslSessionTicketKey(
+                Arrays.copyOfRange( sessionTicketKey, 0, 16 ),
+                Arrays.copyOfRange( sessionTicketKey, 16, 32 ),
+                Arrays.copyOfRange( sessionTicketKey, 32, 48 )
+            )
+        ) ;
+      }
+      LOGGER.info( "Using OpenSSL " + OpenSsl.versionString() + " with " + tlsTuning + "." ) ;
+      return openSslContext ;
+    }
   }
 
 
@@ -261,11 +390,22 @@ public abstract class DefaultSslEngineFactory implements SslEngineFactory {
     }
 
     public ForClient( final KeyStore truststore ) throws SSLException {
+      this( truststore, TlsTuning.DEFAULT ) ;
+    }
+
+    /**
+     * Ignores {@link TlsTuning#openSslWhenAvailable}.
+     */
+    public ForClient( final KeyStore truststore, final TlsTuning tlsTuning )
+        throws SSLException
+    {
+      super( tlsTuning ) ;
       try {
         final TrustManagerFactory trustManagerFactory =
             TrustManagerFactory.getInstance( TrustManagerFactory.getDefaultAlgorithm() ) ;
         trustManagerFactory.init( truststore ) ;
         sslContext.init( null , trustManagerFactory.getTrustManagers(), null ) ;
+        tuneSessionCache( sslContext.getClientSessionContext(), tlsTuning ) ;
       } catch( final NoSuchAlgorithmException | KeyStoreException | KeyManagementException e ) {
         throw new SSLException( e ) ;
       }
@@ -0,0 +1,85 @@
+package com.otcdlink.chiron.toolbox.security;
+
+import io.netty.handler.ssl.SslHandler;
+
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Counts TLS handshakes, telling full ones from resumed ones, so we can check session
+ * resumption works, and see how fast handshakes happen during a reconnection storm.
+ */
+public final class HandshakeMeter {
+
+  private final LongAdder full = new LongAdder() ;
+  private final LongAdder resumed = new LongAdder() ;
+  private final LongAdder failed = new LongAdder() ;
+
+  /**
+   * Call before the handshake starts.
+   * A resumed session was created before this call, while a full handshake creates one.
+   */
+  public void watch( final SslHandler sslHandler ) {
+    final long startMilliseconds = System.currentTimeMillis() ;
+    sslHandler.handshakeFuture().addListener( future -> {
+      if( future.isSuccess() ) {
+        if( sslHandler.engine().getSession().getCreationTime() < startMilliseconds ) {
+          resumed.increment() ;
+        } else {
+          full.increment() ;
+        }
+      } else {
+        failed.increment() ;
+      }
+    } ) ;
+  }
+
+  public Snapshot snapshot() {
+    return new Snapshot(
+        System.currentTimeMillis(), full.sum(), resumed.sum(), failed.sum() ) ;
+  }
+
+  @Override
+  public String toString() {
+    return getClass().getSimpleName() + "{" + snapshot().toStringBody() + "}" ;
+  }
+
+  public static final class Snapshot {
+    public final long timestampMilliseconds ;
+    public final long full ;
+    public final long resumed ;
+    public final long failed ;
+
+    private Snapshot(
+        final long timestampMilliseconds,
+        final long full,
+        final long resumed,
+        final long failed
+    ) {
+      this.timestampMilliseconds = timestampMilliseconds ;
+      this.full = full ;
+      this.resumed = resumed ;
+      this.failed = failed ;
+    }
+
+    /**
+     * Successful handshakes (full or resumed) per second since an earlier {@link Snapshot}.
+     */
+    public double handshakesPerSecondSince( final Snapshot earlier ) {
+      final long elapsed = timestampMilliseconds - earlier.timestampMilliseconds ;
+      if( elapsed <= 0 ) {
+        return 0 ;
+      }
+      final long handshakes = ( full + resumed ) - ( earlier.full + earlier.resumed ) ;
+      return handshakes * 1000.0 / elapsed ;
+    }
+
+    private String toStringBody() {
+      return "full=" + full + ";resumed=" + resumed + ";failed=" + failed ;
+    }
+
+    @Override
+    public String toString() {
+      return getClass().getSimpleName() + "{" + toStringBody() + "}" ;
+    }
+  }
+}
@@ -1,20 +1,42 @@
 package com.otcdlink.chiron.toolbox.security;
 
+import io.netty.handler.ssl.SslHandler;
+
 import javax.net.ssl.SSLEngine;
 
 /**
  * Creates an {@link SSLEngine}, as needed by {@code io.netty.handler.ssl.SslHandler}.
- * This class has the same role as Netty's {@code io.netty.handler.ssl.SslHandler}, which
- * supports a lot of features we don't need, like delegation to OpenSSL, or
+ * This class has the same role as Netty's {@code io.netty.handler.ssl.SslContext}, which
+ * supports a lot of features we don't need, like
  * <a href="https://en.wikipedia.org/wiki/Application-Layer_Protocol_Negotiation">Application-Layer Protocol Negotiation</a>.
- * In addition, {@code io.netty.handler.ssl.SslHandler} expects the {@code java.security.KeyStore}
+ * In addition, {@code io.netty.handler.ssl.SslContext} expects the {@code java.security.KeyStore}
  * to be in a file, while we prefer an URL stream (when loaded from a jar resource), or
  * the Keystore instance itself ({@link Autosigner} can skip file creation).
+ * {@link DefaultSslEngineFactory} may still delegate to it for OpenSSL, see {@link TlsTuning}.
  */
 public interface SslEngineFactory {
 
   SSLEngine newSslEngine() ;
 
+  /**
+   * Telling the peer lets a client resume a previous TLS session with it, instead of
+   * performing a full handshake.
+   *
+   * @param peerHost may be {@code null} if unknown.
+   * @param peerPort meaningless if {@code peerHost} is {@code null}.
+   */
+  default SSLEngine newSslEngine( final String peerHost, final int peerPort ) {
+    return newSslEngine() ;
+  }
+
+  /**
+   * Same parameters as {@link #newSslEngine(String, int)}, so implementations
+   * can watch the handshake.
+   */
+  default SslHandler newSslHandler( final String peerHost, final int peerPort ) {
+    return new SslHandler( newSslEngine( peerHost, peerPort ) ) ;
+  }
+
   interface ForClient extends SslEngineFactory { }
 
   interface ForServer extends SslEngineFactory { }
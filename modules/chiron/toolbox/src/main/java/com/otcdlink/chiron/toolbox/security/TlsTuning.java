@@ -0,0 +1,152 @@
+package com.otcdlink.chiron.toolbox.security;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableSet;
+
+import javax.net.ssl.SSLEngine;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static com.google.common.base.Preconditions.checkNotNull;
+
+/**
+ * What {@link DefaultSslEngineFactory} needs beyond keys and certificates.
+ *
+ * <h1>Session resumption</h1>
+ * A client reconnecting to the same host and port can resume a TLS session from the cache
+ * of both sides, which skips the asymmetric cryptography of a full handshake.
+ * This matters when a lot of {@code DownendConnector}s reconnect at the same time.
+ * Session tickets (where the client keeps the session state, encrypted with a key shared
+ * by a cluster of servers) require OpenSSL, see {@link #openSslWhenAvailable}.
+ */
+public final class TlsTuning {
+
+  public final Profile profile ;
+
+  /**
+   * Maximum number of cached sessions, 0 for no limit.
+   */
+  public final int sessionCacheSize ;
+
+  public final int sessionTimeoutSeconds ;
+
+  /**
+   * Only for {@link DefaultSslEngineFactory.ForServer}, use Netty's
+   * {@code io.netty.handler.ssl.SslContext} backed by OpenSSL if {@code netty-tcnative}
+   * is in the classpath.
+   */
+  public final boolean openSslWhenAvailable ;
+
+  /**
+   * Only with OpenSSL, 48 bytes: name, HMAC secret, and AES key, 16 bytes each;
+   * {@code null} for a random key generated by OpenSSL.
+   */
+  private final byte[] sessionTicketKey ;
+
+  public TlsTuning(
+      final Profile profile,
+      final int sessionCacheSize,
+      final int sessionTimeoutSeconds,
+      final boolean openSslWhenAvailable,
+      final byte[] sessionTicketKey
+  ) {
+    checkArgument( sessionCacheSize >= 0 ) ;
+    checkArgument( sessionTimeoutSeconds > 0 ) ;
+    checkArgument( sessionTicketKey == null || sessionTicketKey.length == 48,
+        "Session ticket key must have 48 bytes" ) ;
+    this.profile = checkNotNull( profile ) ;
+    this.sessionCacheSize = sessionCacheSize ;
+    this.sessionTimeoutSeconds = sessionTimeoutSeconds ;
+    this.openSslWhenAvailable = openSslWhenAvailable ;
+    this.sessionTicketKey = sessionTicketKey == null ? null : sessionTicketKey.clone() ;
+  }
+
+  /**
+   * Same cipher suites as before {@link TlsTuning} existed, sessions live for one day.
+   */
+  public static final TlsTuning DEFAULT = new TlsTuning(
+      Profile.COMPATIBLE, 20_000, 24 * 60 * 60, false, null ) ;
+
+  /**
+   * @return a copy, may be {@code null}.
+   */
+  public byte[] sessionTicketKey() {
+    return sessionTicketKey == null ? null : sessionTicketKey.clone() ;
+  }
+
+  @Override
+  public String toString() {
+    return getClass().getSimpleName() + "{" +
+        profile.name() + ";" +
+        "sessionCacheSize=" + sessionCacheSize + ";" +
+        "sessionTimeoutSeconds=" + sessionTimeoutSeconds + ";" +
+        "openSslWhenAvailable=" + openSslWhenAvailable + ";" +
+        "sessionTicketKey=" + ( sessionTicketKey == null ? "random" : "set" ) +
+        "}"
+    ;
+  }
+
+
+// =======
+// Profile
+// =======
+
+  public enum Profile {
+
+    /**
+     * Protocols enabled by the JVM, and {@link KeystoreTools#getIncludedCipherSuites()}.
+     */
+    COMPATIBLE( null ) {
+      @Override
+      public ImmutableList< String > cipherSuites() {
+        return ImmutableList.copyOf( KeystoreTools.getIncludedCipherSuites() ) ;
+      }
+    },
+
+    /**
+     * TLS 1.2 with forward secrecy and authenticated encryption only, for clients we control.
+     */
+    MODERN( ImmutableList.of( "TLSv1.2" ) ) {
+      @Override
+      public ImmutableList< String > cipherSuites() {
+        return ImmutableList.of(
+            "TLS_ECDHE_ECDSA_WITH_AES_128_GCM_SHA256",
+            "TLS_ECDHE_RSA_WITH_AES_128_GCM_SHA256",
+            "TLS_ECDHE_ECDSA_WITH_AES_256_GCM_SHA384",
+            "TLS_ECDHE_RSA_WITH_AES_256_GCM_SHA384"
+        ) ;
+      }
+    },
+    ;
+
+    /**
+     * {@code null} means JVM's defaults.
+     */
+    public final ImmutableList< String > protocols ;
+
+    Profile( final ImmutableList< String > protocols ) {
+      this.protocols = protocols ;
+    }
+
+    public abstract ImmutableList< String > cipherSuites() ;
+
+    /**
+     * Silently ignores what the {@link SSLEngine} doesn't support, because it depends
+     * on the JVM.
+     */
+    public void applyTo( final SSLEngine sslEngine ) {
+      if( protocols != null ) {
+        sslEngine.setEnabledProtocols( supported( protocols, sslEngine.getSupportedProtocols() ) ) ;
+      }
+      sslEngine.setEnabledCipherSuites(
+          supported( cipherSuites(), sslEngine.getSupportedCipherSuites() ) ) ;
+    }
+
+    private static String[] supported(
+        final ImmutableList< String > wanted,
+        final String[] supported
+    ) {
+      final ImmutableSet< String > supportedSet = ImmutableSet.copyOf( supported ) ;
+      return wanted.stream().filter( supportedSet::contains ).toArray( String[]::new ) ;
+    }
+  }
+}
@@ -0,0 +1,57 @@
+package com.otcdlink.chiron.toolbox.clock;
+
+import org.junit.Test;
+
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+public class CoarseClockTest {
+
+  @Test
+  public void staleUntilRefresh() throws Exception {
+    final UpdateableClock source = UpdateableClock.newClock( 1_000 ) ;
+    final CoarseClock coarseClock = new CoarseClock( source, 10 ) ;
+    assertThat( coarseClock.currentTimeMillis() ).isEqualTo( 1_000 ) ;
+
+    source.increment( 5 ) ;
+    assertThat( coarseClock.currentTimeMillis() ).isEqualTo( 1_000 ) ;
+
+    coarseClock.refresh() ;
+    assertThat( coarseClock.currentTimeMillis() ).isEqualTo( 1_005 ) ;
+    assertThat( coarseClock.getCurrentDateTime().getMillis() ).isEqualTo( 1_005 ) ;
+  }
+
+  @Test( timeout = TIMEOUT_MS )
+  public void refreshWithScheduler() throws Exception {
+    final UpdateableClock source = UpdateableClock.newClock( 1_000 ) ;
+    final CoarseClock coarseClock = new CoarseClock( source, 1 ) ;
+    final ScheduledExecutorService scheduler = Executors.newSingleThreadScheduledExecutor() ;
+    try {
+      coarseClock.start( scheduler ) ;
+      source.increment( 1 ) ;
+      while( coarseClock.currentTimeMillis() != 1_001 ) {
+        TimeUnit.MILLISECONDS.sleep( 1 ) ;
+      }
+      coarseClock.stop() ;
+    } finally {
+      scheduler.shutdownNow() ;
+    }
+  }
+
+  @Test
+  public void badResolution() throws Exception {
+    assertThatThrownBy( () -> new CoarseClock( Clock.SYSTEM_CLOCK, 0 ) )
+        .isInstanceOf( IllegalArgumentException.class ) ;
+  }
+
+// =======
+// Fixture
+// =======
+
+  private static final long TIMEOUT_MS = 5_000 ;
+
+}
@@ -5,10 +5,15 @@ import com.otcdlink.chiron.toolbox.collection.ImmutableLongKeyHolderMapFixture.E
 import org.openjdk.jmh.annotations.Benchmark;
 import org.openjdk.jmh.annotations.BenchmarkMode;
 import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
 import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.Param;
 import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
 import org.openjdk.jmh.annotations.State;
 
+import java.util.ArrayList;
+import java.util.List;
 import java.util.Map;
 import java.util.function.BiFunction;
 import java.util.function.Supplier;
@@ -27,6 +32,17 @@ public class ImmutableLongKeyHolderMapJmhBenchmark {
     ) ;
   }
 
+  @Benchmark
+  @Fork( value = 1, warmups = 1 )
+  @BenchmarkMode( Mode.Throughput )
+  public void trieLongKeyHolderMap() {
+    applyChanges(
+        TrieLongKeyHolderMap::of,
+        TrieLongKeyHolderMap::copyAdd,
+        TrieLongKeyHolderMap::containsKeyWithIndex
+    ) ;
+  }
+
   @Benchmark
   @Fork( value = 1, warmups = 1 )
   @BenchmarkMode( Mode.Throughput )
@@ -63,6 +79,103 @@ public class ImmutableLongKeyHolderMapJmhBenchmark {
     }
   }
 
+
+// =========
+// Populated
+// =========
+
+  /**
+   * Maps already containing {@link #size} {@link Entity}s, so we measure one change or
+   * one lookup at a given size, instead of building up from an empty map.
+   */
+  @State( Scope.Benchmark )
+  public static class Populated {
+
+    @Param( { "10000", "100000", "1000000" } )
+    public int size ;
+
+    ImmutableLongKeyHolderMap< Entity.Key, Entity > immutableLongKeyHolderMap ;
+    TrieLongKeyHolderMap< Entity.Key, Entity > trieLongKeyHolderMap ;
+    Entity absent ;
+
+    /**
+     * Spreads keys like {@link com.otcdlink.chiron.toolbox.random.UniqueLongGenerator}
+     * would do, with no clustering.
+     */
+    static long keyIndex( final int position ) {
+      return ( position * 0x9E3779B97F4A7C15L ) >>> 1 ;
+    }
+
+    @Setup( Level.Trial )
+    public void setUp() {
+      final List< Entity > entities = new ArrayList<>( size ) ;
+      for( int i = 0 ; i < size ; i ++ ) {
+        entities.add( new Entity( keyIndex( i ) ) ) ;
+      }
+      immutableLongKeyHolderMap = new ImmutableLongKeyHolderMap<>( entities ) ;
+      trieLongKeyHolderMap = new TrieLongKeyHolderMap<>( entities ) ;
+      absent = new Entity( keyIndex( size ) ) ;
+    }
+  }
+
+  @State( Scope.Thread )
+  public static class Probe {
+    private int position = 0 ;
+
+    long nextKeyIndex( final Populated populated ) {
+      position = ( position + 7919 ) % populated.size ;
+      return Populated.keyIndex( position ) ;
+    }
+  }
+
+  @Benchmark
+  @Fork( value = 1, warmups = 1 )
+  @BenchmarkMode( Mode.Throughput )
+  public Object immutableLongKeyHolderMapCopyAdd( final Populated populated ) {
+    return populated.immutableLongKeyHolderMap.copyAdd( populated.absent ) ;
+  }
+
+  @Benchmark
+  @Fork( value = 1, warmups = 1 )
+  @BenchmarkMode( Mode.Throughput )
+  public Object trieLongKeyHolderMapCopyAdd( final Populated populated ) {
+    return populated.trieLongKeyHolderMap.copyAdd( populated.absent ) ;
+  }
+
+  @Benchmark
+  @Fork( value = 1, warmups = 1 )
+  @BenchmarkMode( Mode.Throughput )
+  public Object immutableLongKeyHolderMapCopyReplace(
+      final Populated populated,
+      final Probe probe
+  ) {
+    return populated.immutableLongKeyHolderMap.copyReplace(
+        new Entity( probe.nextKeyIndex( populated ) ) ) ;
+  }
+
+  @Benchmark
+  @Fork( value = 1, warmups = 1 )
+  @BenchmarkMode( Mode.Throughput )
+  public Object trieLongKeyHolderMapCopyReplace( final Populated populated, final Probe probe ) {
+    return populated.trieLongKeyHolderMap.copyReplace(
+        new Entity( probe.nextKeyIndex( populated ) ) ) ;
+  }
+
+  @Benchmark
+  @Fork( value = 1, warmups = 1 )
+  @BenchmarkMode( Mode.Throughput )
+  public Entity immutableLongKeyHolderMapLookup( final Populated populated, final Probe probe ) {
+    return populated.immutableLongKeyHolderMap.getByKeyIndex(
+        probe.nextKeyIndex( populated ) ) ;
+  }
+
+  @Benchmark
+  @Fork( value = 1, warmups = 1 )
+  @BenchmarkMode( Mode.Throughput )
+  public Entity trieLongKeyHolderMapLookup( final Populated populated, final Probe probe ) {
+    return populated.trieLongKeyHolderMap.getByKeyIndex( probe.nextKeyIndex( populated ) ) ;
+  }
+
   public static void main( final String... arguments ) throws Exception {
     org.openjdk.jmh.Main.main( arguments ) ;
   }
@@ -0,0 +1,94 @@
+package com.otcdlink.chiron.toolbox.collection;
+
+import com.google.common.collect.ImmutableList;
+import com.otcdlink.chiron.toolbox.collection.ImmutableLongKeyHolderMapFixture.Entity;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class TrieLongKeyHolderMapTest {
+
+  @Test
+  void addToEmpty() {
+    final TrieLongKeyHolderMap< Entity.Key, Entity > mapEmpty = TrieLongKeyHolderMap.of() ;
+    final TrieLongKeyHolderMap< Entity.Key, Entity > map1 = mapEmpty.copyAdd( E1 ) ;
+    assertThat( map1.values() ).containsExactly( E1 ) ;
+    assertThat( mapEmpty ).isEmpty() ;
+  }
+
+  @Test
+  void addKeepsOrdering() {
+    final TrieLongKeyHolderMap< Entity.Key, Entity > map02 =
+        new TrieLongKeyHolderMap<>( ImmutableList.of( E2, E0 ) ) ;
+    final TrieLongKeyHolderMap< Entity.Key, Entity > map012 = map02.copyAdd( E1 ) ;
+    assertThat( map012.values() ).containsExactly( E0, E1, E2 ) ;
+    assertThat( map02.values() ).containsExactly( E0, E2 ) ;
+  }
+
+  @Test
+  void addExisting() {
+    final TrieLongKeyHolderMap< Entity.Key, Entity > map02 =
+        new TrieLongKeyHolderMap<>( ImmutableList.of( E0, E2 ) ) ;
+    assertThatThrownBy( () -> map02.copyAdd( E2 ) ).isInstanceOf( IllegalArgumentException.class ) ;
+  }
+
+  @Test
+  void replace() {
+    final TrieLongKeyHolderMap< Entity.Key, Entity > map02 =
+        new TrieLongKeyHolderMap<>( ImmutableList.of( E0, E2 ) ) ;
+    final Entity other2 = new Entity( 2 ) ;
+    assertThat( map02.copyReplace( other2 ).getByKeyIndex( 2 ) ).isSameAs( other2 ) ;
+    assertThat( map02.getByKeyIndex( 2 ) ).isSameAs( E2 ) ;
+    assertThatThrownBy( () -> map02.copyReplace( E1 ) )
+        .isInstanceOf( IllegalArgumentException.class ) ;
+  }
+
+  @Test
+  void containsKeyWithIndex() {
+    final TrieLongKeyHolderMap< Entity.Key, Entity > map02 =
+        new TrieLongKeyHolderMap<>( ImmutableList.of( E0, E2 ) ) ;
+    assertThat( map02.containsKeyWithIndex( E0.key().index() ) ).isTrue() ;
+    assertThat( map02.containsKeyWithIndex( E1.key().index() ) ).isFalse() ;
+    assertThat( map02.containsKeyWithIndex( E2.key().index() ) ).isTrue() ;
+  }
+
+  /**
+   * Enough entries to split leaves several times, with some keys sharing low bits.
+   */
+  @Test
+  void sameAsImmutableLongKeyHolderMap() {
+    final Random random = new Random( 0 ) ;
+    final List< Entity > entities = new ArrayList<>() ;
+    TrieLongKeyHolderMap< Entity.Key, Entity > trieMap = TrieLongKeyHolderMap.of() ;
+    for( int i = 0 ; i < 5_000 ; i ++ ) {
+      final long index = i % 2 == 0 ? ( ( long ) i ) << 20 : random.nextLong() >>> 1 ;
+      if( ! trieMap.containsKeyWithIndex( index ) ) {
+        final Entity entity = new Entity( index ) ;
+        entities.add( entity ) ;
+        trieMap = trieMap.copyAdd( entity ) ;
+      }
+    }
+    final ImmutableLongKeyHolderMap< Entity.Key, Entity > arrayMap =
+        new ImmutableLongKeyHolderMap<>( entities ) ;
+    assertThat( trieMap.size() ).isEqualTo( entities.size() ) ;
+    assertThat( trieMap.values() ).containsExactlyElementsOf( arrayMap.values() ) ;
+    assertThat( trieMap ).isEqualTo( arrayMap ) ;
+    assertThat( trieMap.hashCode() ).isEqualTo( arrayMap.hashCode() ) ;
+    assertThat( new TrieLongKeyHolderMap<>( entities ) ).isEqualTo( trieMap ) ;
+    assertThat( trieMap.containsKeyWithIndex( 1 ) ).isFalse() ;
+  }
+
+// =======
+// Fixture
+// =======
+
+  private static final Entity E0 = new Entity( 0 ) ;
+  private static final Entity E1 = new Entity( 1 ) ;
+  private static final Entity E2 = new Entity( 2 ) ;
+
+}
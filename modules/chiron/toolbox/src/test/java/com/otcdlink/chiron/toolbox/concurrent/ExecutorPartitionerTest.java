@@ -1,5 +1,6 @@
 package com.otcdlink.chiron.toolbox.concurrent;
 
+import com.otcdlink.chiron.toolbox.metrics.MetricRegistry;
 import com.otcdlink.chiron.toolbox.netty.NettyTools;
 import io.netty.channel.nio.NioEventLoopGroup;
 import io.netty.util.internal.PlatformDependent;
@@ -99,6 +100,27 @@ public class ExecutorPartitionerTest {
 
   }
 
+  @Test( timeout = 5_000 )
+  public void pendingTaskCount() throws Exception {
+    final ExecutorPartitioner< Integer > executorPartitioner = newExecutorPartitioner( 2 ) ;
+    final MetricRegistry metricRegistry = new MetricRegistry() ;
+    executorPartitioner.registerGauges( metricRegistry, "partitioner" ) ;
+    final Semaphore blockingSemaphore = new Semaphore( 0 ) ;
+    executorPartitioner.execute( 0, blockingSemaphore::acquireUninterruptibly ) ;
+    executorPartitioner.execute( 0, () -> { } ) ;
+    executorPartitioner.execute( 1, () -> { } ) ;
+
+    /** The task for key 1 completes, those for key 0 wait for {@code blockingSemaphore}. */
+    waitForPendingTaskCount( executorPartitioner, 2 ) ;
+    assertThat( metricRegistry.snapshot() )
+        .containsEntry( "partitioner.pending", 2L )
+        .containsEntry( "partitioner.pending.busiest", 2L )
+    ;
+
+    blockingSemaphore.release() ;
+    waitForPendingTaskCount( executorPartitioner, 0 ) ;
+  }
+
 
 
 // =======
@@ -107,6 +129,15 @@ public class ExecutorPartitionerTest {
 
   private static final Logger LOGGER = LoggerFactory.getLogger( ExecutorPartitioner.class ) ;
 
+  private static void waitForPendingTaskCount(
+      final ExecutorPartitioner< ? > executorPartitioner,
+      final int expected
+  ) throws InterruptedException {
+    while( executorPartitioner.pendingTaskCount() != expected ) {
+      Thread.sleep( 1 ) ;
+    }
+  }
+
   private static ExecutorPartitioner< Integer > newExecutorPartitioner(
       final int partitionCount
   ) {
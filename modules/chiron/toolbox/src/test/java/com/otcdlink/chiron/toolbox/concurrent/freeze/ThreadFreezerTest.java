@@ -96,6 +96,22 @@ public class ThreadFreezerTest {
     freezerOperator2.waitForContinued() ;
   }
 
+  @Test
+  public void timeoutThenUnfreezeFrozen() throws Exception {
+    final ThreadFreezer< MyKey > threadFreezer = new ThreadFreezer<>( MyKey.ALL ) ;
+    final FreezerOperator freezerOperator =
+        new FreezerOperator( threadFreezer.internalControl( MyKey.FIRST ), "first" ) ;
+    freezerOperator.start() ;
+    freezerOperator.allowFreeze() ;
+    freezerOperator.waitForFreezeDone() ;
+    freezerOperator.allowContinueWhenWarm() ;
+
+    // SECOND never freezes.
+    assertThat( threadFreezer.waitForAllFrozen( 10, TimeUnit.MILLISECONDS ) ).isNull() ;
+    threadFreezer.unfreezeFrozen() ;
+    freezerOperator.waitForContinued() ;
+  }
+
 
 // =======
 // Fixture
@@ -0,0 +1,128 @@
+package com.otcdlink.chiron.toolbox.metrics;
+
+import org.junit.Test;
+
+import javax.management.Attribute;
+import javax.management.AttributeNotFoundException;
+import javax.management.MBeanServer;
+import javax.management.MBeanServerFactory;
+import javax.management.ObjectName;
+import javax.management.ReflectionException;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+public class MetricRegistryTest {
+
+  @Test
+  public void counter() throws Exception {
+    final MetricRegistry metricRegistry = new MetricRegistry() ;
+    final Counter counter = metricRegistry.counter( "some.counter" ) ;
+    counter.increment() ;
+    counter.add( 2 ) ;
+    assertThat( metricRegistry.counter( "some.counter" ) ).isSameAs( counter ) ;
+    assertThat( metricRegistry.snapshot() ).containsEntry( "some.counter", 3L ) ;
+  }
+
+  @Test
+  public void gauge() throws Exception {
+    final MetricRegistry metricRegistry = new MetricRegistry() ;
+    final AtomicLong value = new AtomicLong( 1 ) ;
+    metricRegistry.gauge( "some.gauge", value::get ) ;
+    assertThat( metricRegistry.snapshot() ).containsEntry( "some.gauge", 1L ) ;
+    value.set( 2 ) ;
+    assertThat( metricRegistry.snapshot() ).containsEntry( "some.gauge", 2L ) ;
+  }
+
+  @Test
+  public void histogram() throws Exception {
+    final MetricRegistry metricRegistry = new MetricRegistry() ;
+    final Histogram histogram = metricRegistry.histogram( "some.histogram" ) ;
+    for( int i = 1 ; i <= 100 ; i ++ ) {
+      histogram.record( i ) ;
+    }
+    assertThat( histogram.count() ).isEqualTo( 100 ) ;
+    assertThat( histogram.sum() ).isEqualTo( 5050 ) ;
+    assertThat( histogram.max() ).isEqualTo( 100 ) ;
+    assertThat( histogram.valueAtPercentile( 50 ) ).isEqualTo( 63 ) ;
+    assertThat( histogram.valueAtPercentile( 100 ) ).isEqualTo( 100 ) ;
+    assertThat( metricRegistry.snapshot() )
+        .containsEntry( "some.histogram" + MetricRegistry.COUNT_SUFFIX, 100L )
+        .containsEntry( "some.histogram" + MetricRegistry.P50_SUFFIX, 63L )
+    ;
+  }
+
+  @Test
+  public void bucketBoundaries() throws Exception {
+    assertThat( Histogram.bucketIndex( 0 ) ).isEqualTo( 0 ) ;
+    assertThat( Histogram.bucketIndex( 1 ) ).isEqualTo( 1 ) ;
+    assertThat( Histogram.bucketIndex( 2 ) ).isEqualTo( 2 ) ;
+    assertThat( Histogram.bucketIndex( 3 ) ).isEqualTo( 2 ) ;
+    assertThat( Histogram.bucketIndex( 4 ) ).isEqualTo( 3 ) ;
+    assertThat( Histogram.bucketIndex( Long.MAX_VALUE ) ).isEqualTo( 63 ) ;
+    assertThat( Histogram.bucketUpperBound( 2 ) ).isEqualTo( 3 ) ;
+    assertThat( Histogram.bucketUpperBound( 63 ) ).isEqualTo( Long.MAX_VALUE ) ;
+  }
+
+  @Test
+  public void typeClash() throws Exception {
+    final MetricRegistry metricRegistry = new MetricRegistry() ;
+    metricRegistry.counter( "some.metric" ) ;
+    assertThatThrownBy( () -> metricRegistry.histogram( "some.metric" ) )
+        .isInstanceOf( IllegalArgumentException.class ) ;
+    assertThatThrownBy( () -> metricRegistry.gauge( "some.metric", () -> 0 ) )
+        .isInstanceOf( IllegalArgumentException.class ) ;
+  }
+
+  @Test
+  public void exportedNameClash() throws Exception {
+    final MetricRegistry metricRegistry = new MetricRegistry() ;
+    metricRegistry.histogram( "x" ) ;
+    assertThatThrownBy( () -> metricRegistry.counter( "x.count" ) )
+        .isInstanceOf( IllegalArgumentException.class ) ;
+    assertThatThrownBy( () -> metricRegistry.gauge( "x.p99", () -> 0 ) )
+        .isInstanceOf( IllegalArgumentException.class ) ;
+    metricRegistry.counter( "y.max" ) ;
+    assertThatThrownBy( () -> metricRegistry.histogram( "y" ) )
+        .isInstanceOf( IllegalArgumentException.class ) ;
+    metricRegistry.counter( "x.other" ) ;
+    metricRegistry.histogram( "x.count" ) ;
+    assertThat( metricRegistry.snapshot() ).containsKeys( "x.count", "x.count.count" ) ;
+  }
+
+  @Test
+  public void nullRegistryRetainsNothing() throws Exception {
+    final Counter counter = MetricRegistry.NULL.counter( "some.counter" ) ;
+    counter.increment() ;
+    assertThat( counter.value() ).isEqualTo( 1 ) ;
+    assertThat( MetricRegistry.NULL.counter( "some.counter" ) ).isNotSameAs( counter ) ;
+    assertThat( MetricRegistry.NULL.snapshot() ).isEmpty() ;
+  }
+
+  @Test
+  public void asText() throws Exception {
+    final MetricRegistry metricRegistry = new MetricRegistry() ;
+    metricRegistry.counter( "b" ).increment() ;
+    metricRegistry.gauge( "a", () -> 2 ) ;
+    assertThat( metricRegistry.asText() ).isEqualTo( "a 2\nb 1\n" ) ;
+  }
+
+  @Test
+  public void jmx() throws Exception {
+    final MetricRegistry metricRegistry = new MetricRegistry() ;
+    final MBeanServer mBeanServer = MBeanServerFactory.newMBeanServer() ;
+    final ObjectName objectName = JmxMetrics.register(
+        mBeanServer, metricRegistry, "com.otcdlink.chiron:type=Metrics,name=test" ) ;
+    metricRegistry.counter( "some.counter" ).add( 5 ) ;
+    assertThat( mBeanServer.getAttribute( objectName, "some.counter" ) ).isEqualTo( 5L ) ;
+    assertThat( mBeanServer.getMBeanInfo( objectName ).getAttributes() ).hasSize( 1 ) ;
+    assertThatThrownBy( () -> mBeanServer.setAttribute(
+        objectName, new Attribute( "some.counter", 6L ) ) )
+        .isInstanceOf( ReflectionException.class ) ;
+    assertThatThrownBy( () -> mBeanServer.setAttribute(
+        objectName, new Attribute( "unknown", 6L ) ) )
+        .isInstanceOf( AttributeNotFoundException.class ) ;
+  }
+
+}
@@ -12,13 +12,17 @@ import com.otcdlink.chiron.middle.CommandFailureDuty;
 import com.otcdlink.chiron.middle.session.SessionIdentifier;
 import com.otcdlink.chiron.middle.tier.CommandInterceptor;
 import com.otcdlink.chiron.middle.tier.ConnectionDescriptor;
+import com.otcdlink.chiron.middle.tier.MeteredWebsocketFrameAggregator;
 import com.otcdlink.chiron.middle.tier.TimeBoundary;
 import com.otcdlink.chiron.middle.tier.WebsocketFragmenterTier;
 import com.otcdlink.chiron.middle.tier.WebsocketFrameSizer;
+import com.otcdlink.chiron.middle.tier.WebsocketMetrics;
 import com.otcdlink.chiron.toolbox.StateHolder;
 import com.otcdlink.chiron.toolbox.ToStringTools;
 import com.otcdlink.chiron.toolbox.UrxTools;
 import com.otcdlink.chiron.toolbox.catcher.Catcher;
+import com.otcdlink.chiron.toolbox.metrics.Counter;
+import com.otcdlink.chiron.toolbox.metrics.MetricRegistry;
 import com.otcdlink.chiron.toolbox.netty.NettyTools;
 import com.otcdlink.chiron.toolbox.netty.RichHttpRequest;
 import com.otcdlink.chiron.toolbox.security.SslEngineFactory;
@@ -58,10 +62,8 @@ import io.netty.handler.codec.http.HttpServerCodec;
 import io.netty.handler.codec.http.HttpUtil;
 import io.netty.handler.codec.http.websocketx.CloseWebSocketFrame;
 import io.netty.handler.codec.http.websocketx.WebSocketFrame;
-import io.netty.handler.codec.http.websocketx.WebSocketFrameAggregator;
 import io.netty.handler.logging.LogLevel;
 import io.netty.handler.logging.LoggingHandler;
-import io.netty.handler.ssl.SslHandler;
 import io.netty.handler.stream.ChunkedWriteHandler;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -144,12 +146,56 @@ public class UpendConnector<
 
     public final WebsocketFrameSizer websocketFrameSizer ;
 
+    /**
+     * Receives metrics whose names start with {@link UpendConnector#METRIC_PREFIX}, so two
+     * {@link UpendConnector}s should not share the same {@link MetricRegistry}.
+     */
+    public final MetricRegistry metricRegistry ;
+
 
     private static final Pattern WEBSOCKET_PATH_PATTERN =
         Pattern.compile( "(/([a-zA-Z0-9\\-_]+))*/?" ) ;
 
 
 
+    /**
+     * Same as the other constructor, with {@link MetricRegistry#NULL}.
+     */
+    public Setup(
+        final EventLoopGroup eventLoopGroup,
+        final InetSocketAddress listenAddress,
+        final SslEngineFactory.ForServer sslEngineFactory,
+        final String websocketUrlPath,
+        final String applicationVersion,
+        final OutwardSessionSupervisor< Channel, InetAddress, SESSION_PRIMER > sessionSupervisor,
+        final CommandConsumer< Command< Designator, UPWARD_DUTY > > commandConsumer,
+        final Designator.Factory designatorFactory,
+        final CommandBodyDecoder< Designator, UPWARD_DUTY > websocketCommandDecoder,
+        final HttpRequestRelayer immediateHttpRequestRelayer,
+        final HttpRequestRelayer authenticatedHttpRequestRelayer,
+        final CommandInterceptor.Factory commandInterceptorFactory,
+        final TimeBoundary.ForAll initialTimeBoundary,
+        final WebsocketFrameSizer websocketFrameSizer
+    ) {
+      this(
+          eventLoopGroup,
+          listenAddress,
+          sslEngineFactory,
+          websocketUrlPath,
+          applicationVersion,
+          sessionSupervisor,
+          commandConsumer,
+          designatorFactory,
+          websocketCommandDecoder,
+          immediateHttpRequestRelayer,
+          authenticatedHttpRequestRelayer,
+          commandInterceptorFactory,
+          initialTimeBoundary,
+          websocketFrameSizer,
+          MetricRegistry.NULL
+      ) ;
+    }
+
     /**
      * This constructor supports the {@link #channelRegistrationHacker} for hacking a {@link Channel}
      * from tests; production code should not call it directly.
@@ -169,7 +215,8 @@ public class UpendConnector<
         final HttpRequestRelayer authenticatedHttpRequestRelayer,
         final CommandInterceptor.Factory commandInterceptorFactory,
         final TimeBoundary.ForAll initialTimeBoundary,
-        final WebsocketFrameSizer websocketFrameSizer
+        final WebsocketFrameSizer websocketFrameSizer,
+        final MetricRegistry metricRegistry
     ) {
 
       // Socket stuff
@@ -231,6 +278,8 @@ public class UpendConnector<
       }
       this.immediateHttpRequestRelayer = immediateHttpRequestRelayer ;
       this.authenticatedHttpRequestRelayer = authenticatedHttpRequestRelayer;
+
+      this.metricRegistry = checkNotNull( metricRegistry ) ;
     }
 
     public boolean websocketEnabled() {
@@ -293,6 +342,11 @@ public class UpendConnector<
   private final ChannelRegistrationHacker channelRegistrationHacker ;
   private final ChannelGroup channels ;
 
+  public static final String METRIC_PREFIX = "upend" ;
+
+  private final Counter acceptedChannels ;
+  private final WebsocketMetrics websocketMetrics ;
+
 
   public UpendConnector( final Setup< UPWARD_DUTY, SESSION_PRIMER > setup ) {
     this( setup, null ) ;
@@ -310,6 +364,15 @@ public class UpendConnector<
     this.channelRegistrationHacker = channelRegistrationHacker ;
     LOGGER.info( "Created " + this + " using " + setup + "." ) ;
     channels = new DefaultChannelGroup( setup.eventLoopGroup.next() ) ;
+    acceptedChannels = setup.metricRegistry.counter( METRIC_PREFIX + ".channels.accepted" ) ;
+    websocketMetrics = new WebsocketMetrics( setup.metricRegistry, METRIC_PREFIX + ".websocket" ) ;
+
+    // Includes the ServerChannel once started.
+    setup.metricRegistry.gauge( METRIC_PREFIX + ".channels.open", channels::size ) ;
+
+    // Only Channels with a SessionIdentifier.
+    setup.metricRegistry.gauge(
+        METRIC_PREFIX + ".channels.registered", sessionChannelMap::size ) ;
   }
 
   @Override
@@ -385,10 +448,15 @@ public class UpendConnector<
 
   private void buildPipeline( final SocketChannel socketChannel ) {
     channels.add( socketChannel ) ;
+    acceptedChannels.increment() ;
     final ChannelPipeline pipeline = socketChannel.pipeline() ;
     if( setup.tlsEnabled() ) {
       pipeline.addLast( UpendTierName.TLS.tierName(),
-          new SslHandler( setup.sslEngineFactory.newSslEngine() ) ) ;
+          setup.sslEngineFactory.newSslHandler(
+              socketChannel.remoteAddress().getHostString(),
+              socketChannel.remoteAddress().getPort()
+          )
+      ) ;
     }
 
     pipeline.addLast( UpendTierName.HTTP_SERVER_CODEC.tierName(), new HttpServerCodec() ) ;
@@ -556,19 +624,24 @@ public class UpendConnector<
       pipeline.addAfter(
           UpendTierName.WSDECODER.tierName(),
           UpendTierName.WEBSOCKET_FRAME_AGGREGATOR.tierName(),
-          new WebSocketFrameAggregator( setup.websocketFrameSizer.maximumAggregatedSize )
+          new MeteredWebsocketFrameAggregator(
+              setup.websocketFrameSizer.maximumAggregatedSize,
+              websocketMetrics
+          )
       ) ;
       pipeline.addAfter(
           UpendTierName.WSENCODER.tierName(),
           UpendTierName.WEBSOCKET_FRAME_FRAGMENTER.tierName(),
           new WebsocketFragmenterTier(
-              setup.websocketFrameSizer.fragmentSize
+              setup.websocketFrameSizer.fragmentSize,
+              websocketMetrics
           )
       ) ;
       final CommandWebsocketCodecUpendTier< UPWARD_DUTY, DOWNWARD_DUTY >
           websocketCodecUpendTier = new CommandWebsocketCodecUpendTier<>(
               setup.websocketCommandDecoder,
-              setup.designatorFactory
+              setup.designatorFactory,
+              websocketMetrics
           )
       ;
       if( pipeline.get( UpendTierName.COMMAND_RECEIVER.tierName() ) == null ) {
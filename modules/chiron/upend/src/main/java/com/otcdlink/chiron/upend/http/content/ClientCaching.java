@@ -0,0 +1,84 @@
+package com.otcdlink.chiron.upend.http.content;
+
+import com.otcdlink.chiron.toolbox.ToStringTools;
+import com.otcdlink.chiron.toolbox.netty.NettyTools;
+
+import static com.google.common.base.Preconditions.checkArgument;
+
+/**
+ * Tells how to help HTTP clients to not download the same {@link StaticContent} again.
+ *
+ * @see ClientCachingTools
+ */
+public final class ClientCaching {
+
+  /**
+   * Sets headers of {@link NettyTools#noCache(io.netty.handler.codec.http.HttpResponse)}
+   * and always sends the whole content. This is the default.
+   */
+  public static final ClientCaching NONE = new ClientCaching( false, false, false, -1 ) ;
+
+  /**
+   * Client may keep a copy but must revalidate it (which costs a round-trip but no
+   * download if content didn't change).
+   * This is safe even if served content changes with no change in its URL.
+   */
+  public static final ClientCaching REVALIDATE = new ClientCaching( true, true, true, -1 ) ;
+
+  /**
+   * Adds {@code ETag} and {@code Last-Modified} headers to responses, and honors
+   * {@code If-None-Match} and {@code If-Modified-Since} headers of requests by responding
+   * with a 304 status and no content.
+   */
+  public final boolean validators ;
+
+  /**
+   * Honors a single range in {@code Range} header, with a 206 status.
+   */
+  public final boolean ranges ;
+
+  /**
+   * Sends a gzipped variant when the client accepts it.
+   * Only cached content supports this, because it gets compressed once.
+   */
+  public final boolean gzip ;
+
+  /**
+   * Used for {@code Cache-Control} header if {@link #validators} is {@code true}.
+   * A negative value means {@code no-cache} so client revalidates on every use.
+   */
+  public final int maxAgeSeconds ;
+
+  public ClientCaching(
+      final boolean validators,
+      final boolean ranges,
+      final boolean gzip,
+      final int maxAgeSeconds
+  ) {
+    checkArgument( validators || maxAgeSeconds < 0,
+        "Can't use max-age=" + maxAgeSeconds + " with no validators" ) ;
+    this.validators = validators ;
+    this.ranges = ranges ;
+    this.gzip = gzip ;
+    this.maxAgeSeconds = maxAgeSeconds ;
+  }
+
+  /**
+   * Value for {@code Cache-Control} header, meaningful only if {@link #validators} is
+   * {@code true}.
+   */
+  public String cacheControl() {
+    return maxAgeSeconds < 0 ? "no-cache" : "public, max-age=" + maxAgeSeconds ;
+  }
+
+  @Override
+  public String toString() {
+    return ToStringTools.getNiceClassName( this ) + "{" +
+        "validators=" + validators + ";" +
+        "ranges=" + ranges + ";" +
+        "gzip=" + gzip + ";" +
+        "maxAgeSeconds=" + maxAgeSeconds +
+        "}"
+    ;
+  }
+}
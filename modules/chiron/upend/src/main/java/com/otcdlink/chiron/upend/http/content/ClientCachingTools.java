@@ -0,0 +1,318 @@
+package com.otcdlink.chiron.upend.http.content;
+
+import com.google.common.hash.HashCode;
+import com.otcdlink.chiron.toolbox.netty.NettyTools;
+import io.netty.handler.codec.DateFormatter;
+import io.netty.handler.codec.http.HttpHeaderNames;
+import io.netty.handler.codec.http.HttpHeaderValues;
+import io.netty.handler.codec.http.HttpHeaders;
+import io.netty.handler.codec.http.HttpResponse;
+
+import java.util.Date;
+import java.util.Locale;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static com.google.common.base.Preconditions.checkNotNull;
+
+/**
+ * Reads and writes HTTP headers for {@link ClientCaching}, as defined by
+ * <a href="https://tools.ietf.org/html/rfc7232" >RFC 7232</a> (conditional requests) and
+ * <a href="https://tools.ietf.org/html/rfc7233" >RFC 7233</a> (range requests).
+ * Request headers may be {@code null}, which is like having none of them.
+ */
+public final class ClientCachingTools {
+
+  private ClientCachingTools() { }
+
+
+// ==========
+// Validators
+// ==========
+
+  public static String strongEtag( final HashCode hashCode ) {
+    return '"' + hashCode.toString() + '"' ;
+  }
+
+  /**
+   * Cheap {@code ETag} for a file, that doesn't require to read it.
+   */
+  public static String fileEtag( final long length, final long lastModifiedMs ) {
+    return '"' + Long.toHexString( length ) + '-' + Long.toHexString( lastModifiedMs ) + '"' ;
+  }
+
+  /**
+   * Gzipped representation needs its own {@code ETag}, otherwise a cache could serve
+   * it to a client that doesn't accept it.
+   */
+  public static String gzipEtag( final String etag ) {
+    checkArgument( etag.length() > 2 && etag.endsWith( "\"" ) ) ;
+    return etag.substring( 0, etag.length() - 1 ) + "-gzip\"" ;
+  }
+
+  public static void setValidators(
+      final HttpResponse httpResponse,
+      final ClientCaching clientCaching,
+      final String etag,
+      final long lastModifiedMs
+  ) {
+    if( clientCaching.validators ) {
+      final HttpHeaders headers = httpResponse.headers() ;
+      headers.set( HttpHeaderNames.ETAG, etag ) ;
+      headers.set(
+          HttpHeaderNames.LAST_MODIFIED, DateFormatter.format( new Date( lastModifiedMs ) ) ) ;
+      headers.set( HttpHeaderNames.CACHE_CONTROL, clientCaching.cacheControl() ) ;
+    } else {
+      NettyTools.noCache( httpResponse ) ;
+    }
+    if( clientCaching.ranges ) {
+      httpResponse.headers().set( HttpHeaderNames.ACCEPT_RANGES, HttpHeaderValues.BYTES ) ;
+    }
+  }
+
+  /**
+   * @return {@code true} if a 304 response is enough. {@code If-None-Match} takes precedence
+   *     over {@code If-Modified-Since}, and uses weak comparison.
+   */
+  public static boolean notModified(
+      final HttpHeaders requestHeaders,
+      final String etag,
+      final long lastModifiedMs
+  ) {
+    checkNotNull( etag ) ;
+    if( requestHeaders == null ) {
+      return false ;
+    }
+    final String ifNoneMatch = requestHeaders.get( HttpHeaderNames.IF_NONE_MATCH ) ;
+    if( ifNoneMatch != null ) {
+      return anyEtagMatches( ifNoneMatch, etag ) ;
+    }
+    final String ifModifiedSince = requestHeaders.get( HttpHeaderNames.IF_MODIFIED_SINCE ) ;
+    if( ifModifiedSince != null ) {
+      final Date date = DateFormatter.parseHttpDate( ifModifiedSince ) ;
+      return date != null && seconds( lastModifiedMs ) <= seconds( date.getTime() ) ;
+    }
+    return false ;
+  }
+
+  private static boolean anyEtagMatches( final String headerValue, final String etag ) {
+    final String opaqueEtag = withoutWeakPrefix( etag ) ;
+    for( final String candidate : headerValue.split( "," ) ) {
+      final String trimmed = candidate.trim() ;
+      if( "*".equals( trimmed ) || withoutWeakPrefix( trimmed ).equals( opaqueEtag ) ) {
+        return true ;
+      }
+    }
+    return false ;
+  }
+
+  private static String withoutWeakPrefix( final String etag ) {
+    return etag.startsWith( "W/" ) ? etag.substring( 2 ) : etag ;
+  }
+
+  /**
+   * HTTP dates have a precision of one second.
+   */
+  private static long seconds( final long timeMs ) {
+    return timeMs / 1000 ;
+  }
+
+
+// ======
+// Ranges
+// ======
+
+  /**
+   * Interprets {@code Range} and {@code If-Range} headers. Multiple ranges are not supported,
+   * so the response should contain the whole content (RFC 7233 allows this).
+   *
+   * @return {@code null} if the response should contain the whole content,
+   *     {@link ByteRange#UNSATISFIABLE} if it should have a 416 status, or a satisfiable
+   *     {@link ByteRange}.
+   */
+  public static ByteRange byteRange(
+      final HttpHeaders requestHeaders,
+      final String etag,
+      final long lastModifiedMs,
+      final long contentLength
+  ) {
+    if( requestHeaders == null ) {
+      return null ;
+    }
+    final String range = requestHeaders.get( HttpHeaderNames.RANGE ) ;
+    if( range == null ) {
+      return null ;
+    }
+    final String ifRange = requestHeaders.get( HttpHeaderNames.IF_RANGE ) ;
+    if( ifRange != null ) {
+      final String trimmed = ifRange.trim() ;
+      if( trimmed.startsWith( "\"" ) || trimmed.startsWith( "W/" ) ) {
+        // Strong comparison, a weak ETag never matches.
+        if( ! trimmed.equals( etag ) ) {
+          return null ;
+        }
+      } else {
+        final Date date = DateFormatter.parseHttpDate( trimmed ) ;
+        if( date == null || seconds( date.getTime() ) != seconds( lastModifiedMs ) ) {
+          return null ;
+        }
+      }
+    }
+    return parseRange( range, contentLength ) ;
+  }
+
+  static ByteRange parseRange( final String range, final long contentLength ) {
+    final String unit = "bytes=" ;
+    if( ! range.regionMatches( true, 0, unit, 0, unit.length() ) ) {
+      return null ;
+    }
+    final String specifier = range.substring( unit.length() ).trim() ;
+    if( specifier.indexOf( ',' ) >= 0 ) {
+      return null ;
+    }
+    final int dash = specifier.indexOf( '-' ) ;
+    if( dash < 0 ) {
+      return null ;
+    }
+    final String firstAsString = specifier.substring( 0, dash ).trim() ;
+    final String lastAsString = specifier.substring( dash + 1 ).trim() ;
+    try {
+      if( firstAsString.isEmpty() ) {
+        final long suffixLength = Long.parseLong( lastAsString ) ;
+        if( suffixLength <= 0 || contentLength == 0 ) {
+          return ByteRange.UNSATISFIABLE ;
+        }
+        return new ByteRange(
+            Math.max( 0, contentLength - suffixLength ), contentLength - 1 ) ;
+      } else {
+        final long first = Long.parseLong( firstAsString ) ;
+        final long last = lastAsString.isEmpty() ?
+            contentLength - 1 : Long.parseLong( lastAsString ) ;
+        if( first < 0 || last < first ) {
+          return null ;
+        }
+        if( first >= contentLength ) {
+          return ByteRange.UNSATISFIABLE ;
+        }
+        return new ByteRange( first, Math.min( last, contentLength - 1 ) ) ;
+      }
+    } catch( final NumberFormatException e ) {
+      return null ;
+    }
+  }
+
+  /**
+   * Inclusive bounds, like in HTTP headers.
+   */
+  public static final class ByteRange {
+
+    public static final ByteRange UNSATISFIABLE = new ByteRange() ;
+
+    public final long first ;
+    public final long last ;
+
+    public ByteRange( final long first, final long last ) {
+      checkArgument( first >= 0 ) ;
+      checkArgument( last >= first ) ;
+      this.first = first ;
+      this.last = last ;
+    }
+
+    private ByteRange() {
+      this.first = -1 ;
+      this.last = -1 ;
+    }
+
+    public long length() {
+      return last - first + 1 ;
+    }
+
+    /**
+     * Value of {@code Content-Range} header.
+     */
+    public String contentRange( final long contentLength ) {
+      if( this == UNSATISFIABLE ) {
+        return "bytes */" + contentLength ;
+      } else {
+        return "bytes " + first + "-" + last + "/" + contentLength ;
+      }
+    }
+
+    @Override
+    public boolean equals( final Object other ) {
+      if( this == other ) {
+        return true ;
+      }
+      if( other == null || getClass() != other.getClass() ) {
+        return false ;
+      }
+      final ByteRange that = ( ByteRange ) other ;
+      return first == that.first && last == that.last ;
+    }
+
+    @Override
+    public int hashCode() {
+      return 31 * Long.hashCode( first ) + Long.hashCode( last ) ;
+    }
+
+    @Override
+    public String toString() {
+      return getClass().getSimpleName() + "{" +
+          ( this == UNSATISFIABLE ? "UNSATISFIABLE" : first + "-" + last ) + "}" ;
+    }
+  }
+
+
+// ===========
+// Compression
+// ===========
+
+  /**
+   * @return {@code true} if {@code Accept-Encoding} contains {@code gzip} with a non-zero
+   *     quality value.
+   */
+  public static boolean acceptsGzip( final HttpHeaders requestHeaders ) {
+    if( requestHeaders == null ) {
+      return false ;
+    }
+    final String acceptEncoding = requestHeaders.get( HttpHeaderNames.ACCEPT_ENCODING ) ;
+    if( acceptEncoding == null ) {
+      return false ;
+    }
+    for( final String coding : acceptEncoding.split( "," ) ) {
+      final String[] parameters = coding.split( ";" ) ;
+      final String name = parameters[ 0 ].trim().toLowerCase( Locale.ROOT ) ;
+      if( "gzip".equals( name ) || "x-gzip".equals( name ) ) {
+        return quality( parameters ) > 0 ;
+      }
+    }
+    return false ;
+  }
+
+  private static float quality( final String[] parameters ) {
+    for( int i = 1 ; i < parameters.length ; i ++ ) {
+      final String parameter = parameters[ i ].trim() ;
+      if( parameter.startsWith( "q=" ) ) {
+        try {
+          return Float.parseFloat( parameter.substring( 2 ) ) ;
+        } catch( final NumberFormatException e ) {
+          return 0 ;
+        }
+      }
+    }
+    return 1 ;
+  }
+
+  /**
+   * @return {@code true} for textual MIME types, which compress well. Other ones (images,
+   *     fonts) are usually already compressed.
+   */
+  public static boolean compressible( final String mimeType ) {
+    final String lowerCase = mimeType.toLowerCase( Locale.ROOT ) ;
+    return lowerCase.startsWith( "text/" ) ||
+        lowerCase.contains( "javascript" ) ||
+        lowerCase.contains( "json" ) ||
+        lowerCase.contains( "xml" )
+    ;
+  }
+
+}
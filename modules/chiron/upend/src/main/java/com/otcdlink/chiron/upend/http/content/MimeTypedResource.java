@@ -11,17 +11,14 @@ import static com.google.common.base.Preconditions.checkArgument;
 /**
  * Base class representing resources as byte sequence to be served over HTTP.
  *
- * <h1>TODO: support client caching</h1>
- * There are plenty of explainations on the Web but Netty's
- * <a href="https://netty.io/4.1/xref/io/netty/example/http/file/HttpStaticFileServerHandler.html">one</a>
- * is a good start.
- * Each served {@link StaticContent} should have a creation date along with its MIME type.
+ * <h1>Client caching</h1>
  * Content-serving methods like
  * {@link HttpDispatcher#resourceMatch(StaticContentCache)} or
- * {@link HttpDispatcher#file(StaticFileContentProvider)}
- * should support an option to activate caching (cache deactivation should be the default).
+ * {@link HttpDispatcher#file(StaticFileContentProvider, ClientCaching)}
+ * support {@link ClientCaching} (deactivated by default).
  * By the way, a system time set to the future on a server could cause overaggressive caching
- * (with update misses as a consequence).
+ * (with update misses as a consequence), this is why {@link ClientCaching#REVALIDATE}
+ * relies on {@code ETag} rather than on {@code max-age}.
  *
  */
 public abstract class MimeTypedResource {
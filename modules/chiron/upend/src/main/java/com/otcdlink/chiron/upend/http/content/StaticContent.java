@@ -26,6 +26,14 @@ public abstract class StaticContent extends MimeTypedResource {
   public static final class Streamed extends StaticContent {
     public final ByteSource byteSource ;
 
+    /**
+     * Modification time of the original resource (like a file), or
+     * {@link #UNKNOWN_LAST_MODIFIED}.
+     */
+    public final long lastModifiedMs ;
+
+    public static final long UNKNOWN_LAST_MODIFIED = -1 ;
+
     public Streamed( final ByteSource byteSource, final String mimeType ) {
       this( null, byteSource, mimeType ) ;
     }
@@ -34,9 +42,20 @@ public abstract class StaticContent extends MimeTypedResource {
         final String resourceName,
         final ByteSource byteSource,
         final String mimeType
+    ) {
+      this( resourceName, byteSource, mimeType, UNKNOWN_LAST_MODIFIED ) ;
+    }
+
+    public Streamed(
+        final String resourceName,
+        final ByteSource byteSource,
+        final String mimeType,
+        final long lastModifiedMs
     ) {
       super( resourceName, mimeType ) ;
       this.byteSource = checkNotNull( byteSource ) ;
+      checkArgument( lastModifiedMs >= 0 || lastModifiedMs == UNKNOWN_LAST_MODIFIED ) ;
+      this.lastModifiedMs = lastModifiedMs ;
     }
 
     protected String bodyAsString() {
@@ -1,12 +1,16 @@
 package com.otcdlink.chiron.upend.http.content.caching;
 
+import com.google.common.hash.Hashing;
 import com.otcdlink.chiron.toolbox.ToStringTools;
 import com.otcdlink.chiron.toolbox.netty.NettyTools;
+import com.otcdlink.chiron.upend.http.content.ClientCachingTools;
 import com.otcdlink.chiron.upend.http.content.MimeTypedResource;
 import io.netty.buffer.ByteBuf;
 import io.netty.buffer.ByteBufAllocator;
 import io.netty.channel.ChannelPipeline;
 
+import java.util.concurrent.atomic.AtomicInteger;
+
 import static com.google.common.base.Preconditions.checkArgument;
 
 /**
@@ -16,16 +20,53 @@ import static com.google.common.base.Preconditions.checkArgument;
  * <p>
  * This class is {@code public} because {@link StaticContentCache#staticContent(java.lang.String)}
  * return an instance of it, and Netty-dependant code should get access to the {@link ByteBuf}.
+ * <p>
+ * The {@link #etag} derives from the content, so it stays the same after a restart.
+ * <p>
+ * Reference-counting applies to both {@link #bytebuf()} and {@link #gzipBytebuf()} together.
+ * The {@link StaticContentCache} holds one reference, which it gives up with
+ * {@link #releaseCacheReference()}. Since a pooled {@link ByteBuf} may be recycled once
+ * released, {@link #tryRetain()} never calls {@link ByteBuf#retain()} after the cache's
+ * reference is gone.
  */
 public class BytebufContent extends MimeTypedResource {
 
   private final ByteBuf byteBuf ;
 
+  /**
+   * May be {@code null}.
+   */
+  private final ByteBuf gzipByteBuf ;
+
+  public final String etag ;
+
+  public final long lastModifiedMs ;
+
+  /**
+   * 1 while the cache's reference is alive, plus the number of {@link #tryRetain()} calls
+   * in progress. Whoever brings it to 0 releases the cache's reference on the buffers.
+   */
+  private final AtomicInteger cacheGate = new AtomicInteger( 1 ) ;
+
   BytebufContent( final ByteBuf byteBuf, final String mimeType ) {
+    this( byteBuf, null, mimeType, System.currentTimeMillis() ) ;
+  }
+
+  BytebufContent(
+      final ByteBuf byteBuf,
+      final ByteBuf gzipByteBuf,
+      final String mimeType,
+      final long lastModifiedMs
+  ) {
     super( null, mimeType ) ;
     checkArgument( byteBuf.isReadable() ) ;
     checkArgument( ! byteBuf.isWritable() ) ;
+    checkArgument( gzipByteBuf == null || ! gzipByteBuf.isWritable() ) ;
     this.byteBuf = byteBuf ;
+    this.gzipByteBuf = gzipByteBuf ;
+    this.etag = ClientCachingTools.strongEtag(
+        Hashing.murmur3_128().hashBytes( byteBuf.nioBuffer() ) ) ;
+    this.lastModifiedMs = lastModifiedMs ;
   }
 
   @Override
@@ -36,4 +77,86 @@ public class BytebufContent extends MimeTypedResource {
   public ByteBuf bytebuf() {
     return NettyTools.unmodifiableBufferSafe( byteBuf ) ;
   }
+
+  public int length() {
+    return byteBuf.readableBytes() ;
+  }
+
+  public boolean hasGzip() {
+    return gzipByteBuf != null ;
+  }
+
+  /**
+   * @return {@code null} if there is no gzipped variant.
+   */
+  public ByteBuf gzipBytebuf() {
+    return gzipByteBuf == null ? null : NettyTools.unmodifiableBufferSafe( gzipByteBuf ) ;
+  }
+
+  public String gzipEtag() {
+    return ClientCachingTools.gzipEtag( etag ) ;
+  }
+
+  /**
+   * Size in bytes, for bounding the cache.
+   */
+  int weight() {
+    return byteBuf.capacity() + ( gzipByteBuf == null ? 0 : gzipByteBuf.capacity() ) ;
+  }
+
+  /**
+   * @return {@code false} if the cache already gave up its reference, so caller should
+   *     obtain a fresh instance.
+   */
+  public boolean tryRetain() {
+    while( true ) {
+      final int gate = cacheGate.get() ;
+      if( gate == 0 ) {
+        return false ;
+      }
+      if( cacheGate.compareAndSet( gate, gate + 1 ) ) {
+        break ;
+      }
+    }
+    try {
+      // Safe: the cache's reference can't go away until we leave the gate.
+      byteBuf.retain() ;
+      if( gzipByteBuf != null ) {
+        gzipByteBuf.retain() ;
+      }
+    } finally {
+      leaveCacheGate() ;
+    }
+    return true ;
+  }
+
+  /**
+   * Called by {@link StaticContentCache} upon eviction.
+   */
+  void releaseCacheReference() {
+    leaveCacheGate() ;
+  }
+
+  private void leaveCacheGate() {
+    if( cacheGate.decrementAndGet() == 0 ) {
+      release() ;
+    }
+  }
+
+  public void release() {
+    release( true, true ) ;
+  }
+
+  /**
+   * Releases only some buffers, because the other one(s) went into an HTTP response
+   * which releases them once written.
+   */
+  public void release( final boolean identity, final boolean gzip ) {
+    if( identity ) {
+      byteBuf.release() ;
+    }
+    if( gzip && gzipByteBuf != null ) {
+      gzipByteBuf.release() ;
+    }
+  }
 }
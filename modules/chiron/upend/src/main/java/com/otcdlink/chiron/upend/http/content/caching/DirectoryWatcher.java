@@ -0,0 +1,137 @@
+package com.otcdlink.chiron.upend.http.content.caching;
+
+import com.otcdlink.chiron.toolbox.concurrent.ExecutorTools;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.FileSystems;
+import java.nio.file.FileVisitResult;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.SimpleFileVisitor;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Consumer;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static com.google.common.base.Preconditions.checkNotNull;
+
+/**
+ * Watches a directory tree with a {@link WatchService} and tells which resource paths
+ * (relative to base directory, with a {@code '/'} separator) changed, so a
+ * {@link StaticContentCache} can drop them.
+ * When events were lost, it tells that every resource path changed.
+ * Runs in its own daemon thread.
+ */
+final class DirectoryWatcher implements AutoCloseable {
+
+  private static final Logger LOGGER = LoggerFactory.getLogger( DirectoryWatcher.class ) ;
+
+  private final Path baseDirectory ;
+  private final Consumer< String > changedResourceConsumer ;
+  private final Runnable everythingChanged ;
+  private final WatchService watchService ;
+  private final Map< WatchKey, Path > watchedDirectories = new ConcurrentHashMap<>() ;
+  private final Thread thread ;
+
+  /**
+   * @param changedResourceConsumer receives the path of a file that was created, modified,
+   *     or deleted; or the path of a directory that was created or deleted.
+   * @param everythingChanged called when some event was lost.
+   */
+  DirectoryWatcher(
+      final Path baseDirectory,
+      final Consumer< String > changedResourceConsumer,
+      final Runnable everythingChanged
+  ) throws IOException {
+    checkArgument( Files.isDirectory( baseDirectory ),
+        "Not a directory: '" + baseDirectory + "'" ) ;
+    this.baseDirectory = baseDirectory ;
+    this.changedResourceConsumer = checkNotNull( changedResourceConsumer ) ;
+    this.everythingChanged = checkNotNull( everythingChanged ) ;
+    this.watchService = FileSystems.getDefault().newWatchService() ;
+    registerRecursively( baseDirectory ) ;
+    thread = ExecutorTools.newCountingDaemonThreadFactory( DirectoryWatcher.class )
+        .newThread( this::loop ) ;
+    thread.start() ;
+    LOGGER.info( "Watching '" + baseDirectory + "' for changes." ) ;
+  }
+
+  private void registerRecursively( final Path directory ) throws IOException {
+    Files.walkFileTree( directory, new SimpleFileVisitor< Path >() {
+      @Override
+      public FileVisitResult preVisitDirectory(
+          final Path visited,
+          final BasicFileAttributes attributes
+      ) throws IOException {
+        final WatchKey watchKey = visited.register(
+            watchService,
+            StandardWatchEventKinds.ENTRY_CREATE,
+            StandardWatchEventKinds.ENTRY_MODIFY,
+            StandardWatchEventKinds.ENTRY_DELETE
+        ) ;
+        watchedDirectories.put( watchKey, visited ) ;
+        return FileVisitResult.CONTINUE ;
+      }
+    } ) ;
+  }
+
+  private void loop() {
+    try {
+      while( true ) {
+        final WatchKey watchKey = watchService.take() ;
+        final Path directory = watchedDirectories.get( watchKey ) ;
+        for( final WatchEvent< ? > watchEvent : watchKey.pollEvents() ) {
+          if( watchEvent.kind() == StandardWatchEventKinds.OVERFLOW || directory == null ) {
+            everythingChanged.run() ;
+          } else {
+            final Path changed = directory.resolve( ( Path ) watchEvent.context() ) ;
+            if( Files.isDirectory( changed ) ) {
+              if( watchEvent.kind() == StandardWatchEventKinds.ENTRY_CREATE ) {
+                registerRecursively( changed ) ;
+              } else {
+                // Some file changed in a subdirectory, there will be an event for it.
+                continue ;
+              }
+            }
+            final String resourcePath =
+                baseDirectory.relativize( changed ).toString().replace( '\\', '/' ) ;
+            LOGGER.debug( "Detected " + watchEvent.kind().name() + " for '" +
+                resourcePath + "'." ) ;
+            changedResourceConsumer.accept( resourcePath ) ;
+          }
+        }
+        if( ! watchKey.reset() ) {
+          watchedDirectories.remove( watchKey ) ;
+        }
+      }
+    } catch( final InterruptedException | ClosedWatchServiceException e ) {
+      LOGGER.debug( "Stopped watching '" + baseDirectory + "'." ) ;
+    } catch( final IOException | RuntimeException e ) {
+      LOGGER.error( "Stopped watching '" + baseDirectory + "' after failure.", e ) ;
+      everythingChanged.run() ;
+    }
+  }
+
+  @Override
+  public void close() {
+    try {
+      watchService.close() ;
+    } catch( final IOException e ) {
+      LOGGER.warn( "Could not close " + watchService + ".", e ) ;
+    }
+    thread.interrupt() ;
+  }
+
+  @Override
+  public String toString() {
+    return getClass().getSimpleName() + "{" + baseDirectory + "}" ;
+  }
+}
@@ -1,78 +1,274 @@
 package com.otcdlink.chiron.upend.http.content.caching;
 
+import com.google.common.base.Throwables;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.RemovalListener;
 import com.google.common.io.ByteSource;
 import com.otcdlink.chiron.toolbox.netty.NettyTools;
+import com.otcdlink.chiron.upend.http.content.ClientCaching;
+import com.otcdlink.chiron.upend.http.content.ClientCachingTools;
 import com.otcdlink.chiron.upend.http.content.StaticContent;
 import io.netty.buffer.ByteBuf;
 import io.netty.buffer.ByteBufAllocator;
 import io.netty.buffer.ByteBufOutputStream;
 
 import java.io.IOException;
-import java.util.concurrent.ConcurrentMap;
-import java.util.function.Function;
+import java.io.OutputStream;
+import java.util.concurrent.ExecutionException;
+import java.util.zip.GZIPOutputStream;
 
 import static com.google.common.base.Preconditions.checkArgument;
 import static com.google.common.base.Preconditions.checkNotNull;
 
 /**
- * Keeps "small" content (less than 2 TB) in Heap/native buffer.
+ * Keeps "small" content (less than 2 TB) in native buffers, up to a maximum total size
+ * in bytes. Least recently used content gets evicted first.
+ * If {@link ClientCaching#gzip} is set, compressible content also gets a gzipped variant,
+ * computed once.
+ *
+ * <h1>Reference counting</h1>
+ * The cache holds one reference on each {@link BytebufContent} and releases it upon eviction,
+ * with {@link BytebufContent#releaseCacheReference()} so a concurrent
+ * {@link BytebufContent#tryRetain()} can't touch a released buffer.
+ * Code that outlives the call to {@link #staticContent(String)} (like writing an HTTP response)
+ * should use {@link #retainedStaticContent(String)}, which never returns a released
+ * {@link BytebufContent}.
+ *
+ * <h1>Concurrency</h1>
+ * Concurrent misses for the same resource path load the resource only once.
  */
-public final class StaticContentCache {
+public final class StaticContentCache implements AutoCloseable {
+
+  /**
+   * Below this size, gzip headers and HTTP header overhead eat most of the gain.
+   */
+  private static final int GZIP_MINIMUM_SIZE = 1024 ;
 
   private final ByteBufAllocator bytebufAllocator ;
 
   private final StaticContentResolver< StaticContent.Streamed > staticContentResolver ;
 
-  private final ConcurrentMap< String, BytebufContent > bytebufMap ;
+  private final Cache< String, BytebufContent > bytebufCache ;
+
+  private final ClientCaching clientCaching ;
+
+  /**
+   * May be {@code null}.
+   */
+  private final DirectoryWatcher directoryWatcher ;
+
+  StaticContentCache(
+      final Cache< String, BytebufContent > bytebufCache,
+      final StaticContentResolver< StaticContent.Streamed > staticContentResolver,
+      final ByteBufAllocator bytebufAllocator,
+      final ClientCaching clientCaching
+  ) {
+    this( bytebufCache, staticContentResolver, bytebufAllocator, clientCaching, null ) ;
+  }
 
+  /**
+   * @param directoryWatcher if non-{@code null}, {@link #close()} closes it.
+   */
   StaticContentCache(
-      final ConcurrentMap< String, BytebufContent > bytebufMap,
+      final Cache< String, BytebufContent > bytebufCache,
       final StaticContentResolver< StaticContent.Streamed > staticContentResolver,
-      final ByteBufAllocator bytebufAllocator
+      final ByteBufAllocator bytebufAllocator,
+      final ClientCaching clientCaching,
+      final DirectoryWatcher directoryWatcher
   ) {
-    this.bytebufMap = checkNotNull( bytebufMap ) ;
+    this.bytebufCache = checkNotNull( bytebufCache ) ;
     this.staticContentResolver = checkNotNull( staticContentResolver ) ;
     this.bytebufAllocator = checkNotNull( bytebufAllocator ) ;
+    this.clientCaching = checkNotNull( clientCaching ) ;
+    this.directoryWatcher = directoryWatcher ;
+  }
+
+  static Cache< String, BytebufContent > newBytebufCache( final long maximumBytes ) {
+    checkArgument( maximumBytes > 0 ) ;
+    return CacheBuilder.newBuilder()
+        // Reads don't lock anyway. More segments would split maximum weight between them.
+        .concurrencyLevel( 1 )
+        .maximumWeight( maximumBytes )
+        .< String, BytebufContent >weigher( ( resourcePath, content ) -> content.weight() )
+        .removalListener( ( RemovalListener< String, BytebufContent > )
+            notification -> notification.getValue().releaseCacheReference() )
+        .build()
+    ;
+  }
+
+  public ClientCaching clientCaching() {
+    return clientCaching ;
+  }
+
+  private BytebufContent createCacheableContent(
+      final String resourcePath,
+      final StaticContent.Streamed staticContent
+  ) throws IOException {
+    final ByteSource byteSource = staticContent.byteSource ;
+    final long resourceSize = byteSource.size() ;
+    checkArgument( resourceSize < Integer.MAX_VALUE,
+        "Requested resource too large (" + resourceSize + ") for '" + resourcePath + "'" ) ;
+    final ByteBuf byteBuf = bytebufAllocator.directBuffer( ( int ) resourceSize ) ;
+    try {
+      try( final ByteBufOutputStream outputStream = new ByteBufOutputStream( byteBuf ) ) {
+        byteSource.copyTo( outputStream ) ;
+      }
+      final ByteBuf gzipByteBuf = clientCaching.gzip &&
+          ClientCachingTools.compressible( staticContent.mimeType ) &&
+          resourceSize >= GZIP_MINIMUM_SIZE ? gzip( byteBuf ) : null
+      ;
+      return new BytebufContent(
+          NettyTools.unmodifiableBufferSafe( byteBuf ),
+          gzipByteBuf == null ? null : NettyTools.unmodifiableBufferSafe( gzipByteBuf ),
+          staticContent.mimeType,
+          // HTTP dates have a precision of one second.
+          ( lastModifiedMs( staticContent ) / 1000 ) * 1000
+      ) ;
+    } catch( final IOException | RuntimeException e ) {
+      byteBuf.release() ;
+      throw e ;
+    }
   }
 
   /**
-   * This method could take a long to execute and throw an {@code IOException} so it's
-   * not well-suited for {@link java.util.Map#computeIfAbsent(Object, Function)}
-   * but we'll see. The {@code ConcurrentHashMap} brings a lot of goodness (speed, simplicity),
-   * we shouldn't give it up with no serious reason.
+   * Falls back to load time for content that doesn't tell, which is fine as long as it
+   * doesn't change before a restart.
    */
-  private BytebufContent createCacheableContent( final String resourcePath ) {
-    final StaticContent staticContent = staticContentResolver.apply( resourcePath ) ;
-    if( staticContent == null ) {
-      return null ;
+  private static long lastModifiedMs( final StaticContent.Streamed staticContent ) {
+    return staticContent.lastModifiedMs == StaticContent.Streamed.UNKNOWN_LAST_MODIFIED ?
+        System.currentTimeMillis() : staticContent.lastModifiedMs ;
+  }
+
+  /**
+   * @return {@code null} if compression brings no gain.
+   */
+  private ByteBuf gzip( final ByteBuf original ) throws IOException {
+    final ByteBuf compressed = bytebufAllocator.directBuffer( original.readableBytes() / 2 ) ;
+    try( final OutputStream outputStream =
+             new GZIPOutputStream( new ByteBufOutputStream( compressed ) )
+    ) {
+      original.getBytes( original.readerIndex(), outputStream, original.readableBytes() ) ;
+    } catch( final IOException | RuntimeException e ) {
+      compressed.release() ;
+      throw e ;
+    }
+    if( compressed.readableBytes() < original.readableBytes() ) {
+      return compressed.capacity( compressed.writerIndex() ) ;
     } else {
-      try {
-        final ByteSource byteSource = ( ( StaticContent.Streamed ) staticContent ).byteSource ;
-        final long resourceSize = byteSource.size() ;
-        checkArgument( resourceSize < Integer.MAX_VALUE,
-            "Requested resource too large (" + resourceSize + ") for '" + resourcePath + "'" ) ;
-        final ByteBuf byteBuf = bytebufAllocator.buffer( ( int ) resourceSize ) ;
-        try( final ByteBufOutputStream outputStream = new ByteBufOutputStream( byteBuf ) ) {
-          byteSource.copyTo( outputStream ) ;
+      compressed.release() ;
+      return null ;
+    }
+  }
+
+  /**
+   * A hit doesn't call {@link #staticContentResolver}, which may cost a system call.
+   *
+   * @return {@code null} if there is no such resource. Returned object may be released
+   *     anytime after eviction.
+   */
+  public BytebufContent staticContent( final String resourcePath ) {
+    checkNotNull( resourcePath ) ;
+    final BytebufContent cached = bytebufCache.getIfPresent( resourcePath ) ;
+    if( cached != null ) {
+      return cached ;
+    }
+    try {
+      return bytebufCache.get( resourcePath, () -> {
+        final StaticContent.Streamed staticContent = staticContentResolver.apply( resourcePath ) ;
+        if( staticContent == null ) {
+          // Don't cache negative lookups, or arbitrary URLs would fill the cache.
+          throw NoSuchResourceException.INSTANCE ;
         }
-        final BytebufContent staticContentAsByteBuf = new BytebufContent(
-            NettyTools.unmodifiableBufferSafe( byteBuf ),
-            staticContent.mimeType
-        ) ;
-        staticContentAsByteBuf.bytebuf().retain() ;
-        return staticContentAsByteBuf ;
-      } catch( final IOException e ) {
-        throw new RuntimeException( "Should not happen with in-memory resources", e ) ;
+        return createCacheableContent( resourcePath, staticContent ) ;
+      } ) ;
+    } catch( final ExecutionException e ) {
+      if( e.getCause() instanceof NoSuchResourceException ) {
+        return null ;
       }
+      Throwables.throwIfUnchecked( e.getCause() ) ;
+      throw new RuntimeException( "Could not load '" + resourcePath + "'", e.getCause() ) ;
     }
   }
 
+  /**
+   * Thrown by the loader so {@link Cache} keeps nothing, cheap because it has no stack trace.
+   */
+  private static final class NoSuchResourceException extends Exception {
+    static final NoSuchResourceException INSTANCE = new NoSuchResourceException() ;
 
-  public BytebufContent staticContent( final String resourcePath ) {
-    checkNotNull( resourcePath ) ;
-    final BytebufContent cached =
-        bytebufMap.computeIfAbsent( resourcePath, this::createCacheableContent ) ;
-    return cached == null ? null : cached ;
+    private NoSuchResourceException() {
+      super( "No such resource", null, false, false ) ;
+    }
+  }
+
+  /**
+   * @return {@code null} if there is no such resource, or a {@link BytebufContent} which
+   *     caller must release with {@link BytebufContent#release()} (or
+   *     {@link BytebufContent#release(boolean, boolean)}).
+   */
+  public BytebufContent retainedStaticContent( final String resourcePath ) {
+    for( int attempt = 0 ; attempt < RETAIN_ATTEMPTS ; attempt ++ ) {
+      final BytebufContent bytebufContent = staticContent( resourcePath ) ;
+      if( bytebufContent == null || bytebufContent.tryRetain() ) {
+        return bytebufContent ;
+      }
+      // Evicted in the meantime, remove it in case it's still there.
+      bytebufCache.asMap().remove( resourcePath, bytebufContent ) ;
+    }
+    throw new IllegalStateException( "Could not retain '" + resourcePath + "' after " +
+        RETAIN_ATTEMPTS + " attempts, is it larger than the whole cache?" ) ;
+  }
+
+  /**
+   * Content heavier than cache's maximum weight gets evicted as soon as loaded.
+   */
+  private static final int RETAIN_ATTEMPTS = 3 ;
+
+  public void invalidate( final String resourcePath ) {
+    bytebufCache.invalidate( resourcePath ) ;
+  }
+
+  /**
+   * Invalidates given resource path and everything below, in case it was a directory.
+   */
+  static void invalidateTree(
+      final Cache< String, BytebufContent > bytebufCache,
+      final String resourcePath
+  ) {
+    bytebufCache.invalidate( resourcePath ) ;
+    final String directoryPrefix = resourcePath + "/" ;
+    bytebufCache.asMap().keySet().removeIf( key -> key.startsWith( directoryPrefix ) ) ;
+  }
+
+  /**
+   * Releases every cached {@link ByteBuf}, this affects other {@link StaticContentCache}s
+   * sharing the same underlying cache.
+   */
+  public void invalidateAll() {
+    bytebufCache.invalidateAll() ;
+  }
+
+  /**
+   * Approximative total size of cached content, in bytes.
+   */
+  public long weight() {
+    long weight = 0 ;
+    for( final BytebufContent bytebufContent : bytebufCache.asMap().values() ) {
+      weight += bytebufContent.weight() ;
+    }
+    return weight ;
+  }
+
+  /**
+   * Stops watching files (if there was a {@link DirectoryWatcher}), but keeps cached content,
+   * which may be shared.
+   */
+  @Override
+  public void close() {
+    if( directoryWatcher != null ) {
+      directoryWatcher.close() ;
+    }
   }
 
 }
@@ -1,19 +1,22 @@
 package com.otcdlink.chiron.upend.http.content.caching;
 
+import com.google.common.cache.Cache;
 import com.google.common.collect.ImmutableMap;
 import com.google.common.io.ByteSource;
+import com.google.common.io.Files;
 import com.google.common.util.concurrent.MoreExecutors;
+import com.otcdlink.chiron.upend.http.content.ClientCaching;
 import com.otcdlink.chiron.upend.http.content.StaticContent;
 import io.netty.buffer.ByteBufAllocator;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.io.File;
+import java.io.IOException;
 import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
-import java.util.concurrent.ConcurrentHashMap;
-import java.util.concurrent.ConcurrentMap;
 import java.util.concurrent.Executor;
 import java.util.concurrent.Semaphore;
 
@@ -21,20 +24,42 @@ import static com.google.common.base.Preconditions.checkArgument;
 import static com.google.common.base.Preconditions.checkNotNull;
 
 /**
- * Utilities for creating {@link StaticContentCache}s, that can share a {@code ConcurrentMap}
+ * Utilities for creating {@link StaticContentCache}s, that can share a {@link Cache}
  * for common served resources.
  * <p>
  * When sharing, consistency rules apply. If the key-value parts resolve differently between
  * {@link StaticContentCache}s, this is detected and creation fails. We can achieve this only
  * when passed {@link ImmutableMap}s which can list all the cache content in advance.
+ * <p>
+ * Every {@link StaticContentCache} created by the same {@link StaticContentCacheFactory}
+ * instance shares its {@link ClientCaching}, which defaults to {@link ClientCaching#NONE},
+ * and its maximum size in bytes, which defaults to {@link #DEFAULT_MAXIMUM_BYTES}.
  */
 public final class StaticContentCacheFactory {
 
   private static final Logger LOGGER = LoggerFactory.getLogger( StaticContentCacheFactory.class ) ;
 
-  private final ConcurrentMap< String, BytebufContent > bytebufMap =
-      new ConcurrentHashMap<>() ;
+  public static final long DEFAULT_MAXIMUM_BYTES = 256 * 1024 * 1024 ;
+
+  private final Cache< String, BytebufContent > bytebufCache ;
+
+  private final ClientCaching clientCaching ;
+
+  public StaticContentCacheFactory() {
+    this( ClientCaching.NONE ) ;
+  }
+
+  public StaticContentCacheFactory( final ClientCaching clientCaching ) {
+    this( clientCaching, DEFAULT_MAXIMUM_BYTES ) ;
+  }
 
+  public StaticContentCacheFactory(
+      final ClientCaching clientCaching,
+      final long maximumBytes
+  ) {
+    this.clientCaching = checkNotNull( clientCaching ) ;
+    this.bytebufCache = StaticContentCache.newBytebufCache( maximumBytes ) ;
+  }
 
 
 // =======
@@ -57,15 +82,16 @@ public final class StaticContentCacheFactory {
         new CacheDeclaration( mimeTypeForExtension, resourceMap ) ;
     verify( cacheDeclaration ) ;
     declarationList.add( cacheDeclaration ) ;
-    return new StaticContentCache( bytebufMap, cacheDeclaration.asResolver(), byteBufAllocator ) ;
+    return new StaticContentCache(
+        bytebufCache, cacheDeclaration.asResolver(), byteBufAllocator, clientCaching ) ;
   }
 
   /**
-   * Flushes the {@code Map} shared between {@link StaticContentCache} instances created by
-   * {@link #sharedCache(ImmutableMap, ImmutableMap, ByteBufAllocator)}.
+   * Flushes the {@link Cache} shared between {@link StaticContentCache} instances created by
+   * {@link #sharedCache(ImmutableMap, ImmutableMap, ByteBufAllocator)}, releasing its buffers.
    */
   public void flushShare() {
-    bytebufMap.clear() ;
+    bytebufCache.invalidateAll() ;
   }
 
 // ======================
@@ -77,16 +103,32 @@ public final class StaticContentCacheFactory {
       final ImmutableMap< String, String > mimeTypeForExtension,
       final ImmutableMap< String, ByteSource > resourceMap
   ) {
-    return newCache( mimeTypeForExtension, resourceMap,
-        ByteBufAllocator.DEFAULT, StaticContentPreloading.SEQUENTIAL, null ) ;
+    return newCacheWithPreload( mimeTypeForExtension, resourceMap, ClientCaching.NONE ) ;
+  }
+
+  public static StaticContentCache newCacheWithPreload(
+      final ImmutableMap< String, String > mimeTypeForExtension,
+      final ImmutableMap< String, ByteSource > resourceMap,
+      final ClientCaching clientCaching
+  ) {
+    return newCache( mimeTypeForExtension, resourceMap, ByteBufAllocator.DEFAULT,
+        clientCaching, StaticContentPreloading.SEQUENTIAL, null ) ;
   }
 
   public static StaticContentCache newCache(
       final ImmutableMap< String, String > mimeTypeForExtension,
       final ImmutableMap< String, ByteSource > resourceMap
   ) {
-    return newCache( mimeTypeForExtension, resourceMap,
-        ByteBufAllocator.DEFAULT, StaticContentPreloading.LAZY, null ) ;
+    return newCache( mimeTypeForExtension, resourceMap, ClientCaching.NONE ) ;
+  }
+
+  public static StaticContentCache newCache(
+      final ImmutableMap< String, String > mimeTypeForExtension,
+      final ImmutableMap< String, ByteSource > resourceMap,
+      final ClientCaching clientCaching
+  ) {
+    return newCache( mimeTypeForExtension, resourceMap, ByteBufAllocator.DEFAULT,
+        clientCaching, StaticContentPreloading.LAZY, null ) ;
   }
 
   public static StaticContentCache newCache(
@@ -94,8 +136,8 @@ public final class StaticContentCacheFactory {
       final ImmutableMap< String, ByteSource > resourceMap,
       final Executor executor
   ) {
-    return newCache( mimeTypeForExtension, resourceMap,
-        ByteBufAllocator.DEFAULT, StaticContentPreloading.EXECUTOR_NOWAIT , executor ) ;
+    return newCache( mimeTypeForExtension, resourceMap, ByteBufAllocator.DEFAULT,
+        ClientCaching.NONE, StaticContentPreloading.EXECUTOR_NOWAIT , executor ) ;
   }
 
   @SuppressWarnings( "unused" )
@@ -110,17 +152,74 @@ public final class StaticContentCacheFactory {
       final StaticContentResolver< StaticContent.Streamed > resolver,
       final ByteBufAllocator byteBufAllocator
   ) {
-    return new StaticContentCache( new ConcurrentHashMap<>(), resolver, byteBufAllocator ) ;
+    return newCache( resolver, byteBufAllocator, ClientCaching.NONE ) ;
+  }
+
+  public static StaticContentCache newCache(
+      final StaticContentResolver< StaticContent.Streamed > resolver,
+      final ByteBufAllocator byteBufAllocator,
+      final ClientCaching clientCaching
+  ) {
+    return new StaticContentCache(
+        StaticContentCache.newBytebufCache( DEFAULT_MAXIMUM_BYTES ),
+        resolver,
+        byteBufAllocator,
+        clientCaching
+    ) ;
+  }
+
+  /**
+   * Serves files under a directory, loading them on first request only, so serving cached
+   * content touches no file. A {@link java.nio.file.WatchService} invalidates cached content
+   * when files change. {@link BytebufContent#lastModifiedMs} is the one of the file.
+   * Only a miss stats the file, including for a resource that doesn't exist.
+   * Resource names resolving outside of the directory (with {@code ..} segments)
+   * are not served.
+   * Caller should {@link StaticContentCache#close()} returned object to stop watching.
+   *
+   * @param mimeTypeForExtension a {@code Map} with file extensions (without the dot)
+   *     as keys, MIME type as value. Files with other extensions are not served.
+   */
+  public static StaticContentCache newDirectoryCache(
+      final File directory,
+      final ImmutableMap< String, String > mimeTypeForExtension,
+      final ClientCaching clientCaching,
+      final long maximumBytes
+  ) throws IOException {
+    checkArgument( directory.isDirectory(),
+        "Not a directory: '" + directory.getAbsolutePath() + "'" ) ;
+    checkArgument( ! mimeTypeForExtension.isEmpty() ) ;
+    final Cache< String, BytebufContent > bytebufCache =
+        StaticContentCache.newBytebufCache( maximumBytes ) ;
+    final StaticContentResolver< StaticContent.Streamed > resolver = resourceName -> {
+      final String mimeType = mimeTypeForExtension.get( Files.getFileExtension( resourceName ) ) ;
+      if( mimeType != null ) {
+        final File file = StaticContentTools.fileUnder( directory, resourceName ) ;
+        if( file != null && file.isFile() ) {
+          return new StaticContent.Streamed(
+              resourceName, Files.asByteSource( file ), mimeType, file.lastModified() ) ;
+        }
+      }
+      return null ;
+    } ;
+    final DirectoryWatcher directoryWatcher = new DirectoryWatcher(
+        directory.toPath(),
+        resourcePath -> StaticContentCache.invalidateTree( bytebufCache, resourcePath ),
+        bytebufCache::invalidateAll
+    ) ;
+    return new StaticContentCache(
+        bytebufCache, resolver, ByteBufAllocator.DEFAULT, clientCaching, directoryWatcher ) ;
   }
 
   /**
-   * Should not be public because it doesn't check what could be in {@link #bytebufMap},
+   * Should not be public because it doesn't check what could be in {@link #bytebufCache},
    * use {@link #sharedCache(ImmutableMap, ImmutableMap, ByteBufAllocator)} for {@code Map} sharing.
    */
   private static StaticContentCache newCache(
       final ImmutableMap< String, String > mimeTypeForExtension,
       final ImmutableMap< String, ByteSource > resourceMap,
       final ByteBufAllocator byteBufAllocator,
+      final ClientCaching clientCaching,
       final StaticContentPreloading staticContentPreloading,
       final Executor executor
   ) {
@@ -133,9 +232,10 @@ public final class StaticContentCacheFactory {
     final long start = System.currentTimeMillis() ;
 
     final StaticContentCache staticContentCache = new StaticContentCache(
-        new ConcurrentHashMap<>(),
+        StaticContentCache.newBytebufCache( DEFAULT_MAXIMUM_BYTES ),
         asResolver( mimeTypeForExtension, resourceMap ),
-        byteBufAllocator
+        byteBufAllocator,
+        clientCaching
     ) ;
 
     if( staticContentPreloading != StaticContentPreloading.LAZY ) {
@@ -6,12 +6,13 @@ import com.google.common.io.Resources;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.io.File;
 import java.nio.charset.Charset;
+import java.nio.file.Path;
 
 public final class StaticContentTools {
   private StaticContentTools() { }
 
-  @SuppressWarnings( "unused" )
   private static final Logger LOGGER = LoggerFactory.getLogger( StaticContentTools.class ) ;
 
   /**
@@ -46,4 +47,22 @@ public final class StaticContentTools {
         Resources.getResource( resourceContextClass, resourceName ), charset ) ;
   }
 
+  /**
+   * Resolves a resource name against a directory, after normalization so {@code ..}
+   * segments can't escape from it.
+   *
+   * @return {@code null} if the normalized path is not strictly under given directory,
+   *     a {@code File} which may not exist otherwise.
+   */
+  public static File fileUnder( final File directory, final String resourceName ) {
+    final Path root = directory.toPath().toAbsolutePath().normalize() ;
+    final Path resolved = root.resolve( resourceName ).normalize() ;
+    if( resolved.startsWith( root ) && ! resolved.equals( root ) ) {
+      return resolved.toFile() ;
+    } else {
+      LOGGER.warn( "Rejected '" + resourceName + "' which resolves outside of '" + root + "'." ) ;
+      return null ;
+    }
+  }
+
 }
@@ -2,7 +2,10 @@ package com.otcdlink.chiron.upend.http.content.file;
 
 import com.google.common.collect.ImmutableMap;
 import com.google.common.io.Files;
+import com.otcdlink.chiron.upend.http.content.ClientCaching;
 import com.otcdlink.chiron.upend.http.content.StaticContent;
+import com.otcdlink.chiron.upend.http.content.caching.StaticContentCacheFactory;
+import com.otcdlink.chiron.upend.http.content.caching.StaticContentTools;
 
 import java.io.File;
 
@@ -11,6 +14,16 @@ import static com.google.common.base.Preconditions.checkNotNull;
 /**
  * Resolves a resource name into a {@link StaticContent.FromFile} which is
  * {@code File}-based HTTP-streamable content.
+ * <p>
+ * There is no caching: each request stats the file, then
+ * {@link com.otcdlink.chiron.upend.http.dispatch.UsualHttpCommands.JustFile} opens it and
+ * streams it without copying it into memory. This suits large files, or files
+ * served rarely. For small files served often, prefer
+ * {@link StaticContentCacheFactory#newDirectoryCache(File, ImmutableMap, ClientCaching, long)}
+ * which serves hot files from memory without system calls.
+ * <p>
+ * Resource names resolving outside of {@link #baseDirectory} (with {@code ..} segments)
+ * are not served.
  */
 public class StaticFileContentProvider {
 
@@ -32,8 +45,8 @@ public class StaticFileContentProvider {
     if( fileExtension != null ) {
       mimeType = mimeTypeMap.get( fileExtension ) ;
       if( mimeType != null ) {
-        final File file = new File( baseDirectory, resourceName ) ;
-        if( file.isFile() ) {
+        final File file = StaticContentTools.fileUnder( baseDirectory, resourceName ) ;
+        if( file != null && file.isFile() ) {
           return new StaticContent.FromFile( file, mimeType ) ;
         }
       }
@@ -5,6 +5,7 @@ import com.otcdlink.chiron.command.Command;
 import com.otcdlink.chiron.command.CommandConsumer;
 import com.otcdlink.chiron.designator.Designator;
 import com.otcdlink.chiron.designator.RenderingAwareDesignator;
+import com.otcdlink.chiron.toolbox.metrics.MetricRegistry;
 import com.otcdlink.chiron.toolbox.netty.NettyTools;
 import com.otcdlink.chiron.toolbox.netty.RichHttpRequest;
 import io.netty.channel.ChannelFuture;
@@ -63,6 +64,11 @@ import static io.netty.channel.ChannelFutureListener.CLOSE;
      ;
  * </pre>
  *
+ * <h1>Resolution</h1>
+ * Rules apply in declaration order, first {@link HttpRequestRelayer} returning {@code true}
+ * wins. {@link #build()} flattens them into a {@link RouteTrie} so only the rules that
+ * may apply to the request path get evaluated.
+ *
  * <h1>Typing</h1>
  * Type parameters are only here to propagate the concrete type of
  * {@link HttpResponder.DutyCaller} (the Duty interface that makes creation of
@@ -108,12 +114,57 @@ public class BareHttpDispatcher<
     return ( THIS ) this ;
   }
 
+  /**
+   * @return a {@link RouteTrie}, so resolving a request path costs one lookup per segment,
+   *     whatever the number of rules.
+   */
   public HttpRequestRelayer build() {
     if( currentBuildContext.parent != null ) {
       throw new ContextException( "Unclosed context, current is " + currentBuildContext ) ;
     }
-    final BuildContext frozen = currentBuildContext.freeze() ;
-    return frozen ;
+    final RouteTrie.Builder routeTrieBuilder = new RouteTrie.Builder() ;
+    compile( currentBuildContext.freeze(), new ArrayList<>(), routeTrieBuilder ) ;
+    return routeTrieBuilder.build() ;
+  }
+
+  /**
+   * For tests and benchmarks: same behavior as {@link #build()}, but walks the whole tree
+   * of rules for each request.
+   */
+  HttpRequestRelayer buildUncompiled() {
+    if( currentBuildContext.parent != null ) {
+      throw new ContextException( "Unclosed context, current is " + currentBuildContext ) ;
+    }
+    return currentBuildContext.freeze() ;
+  }
+
+  /**
+   * Flattens the tree of {@link BuildContext}s, depth-first so leaves come in
+   * declaration order.
+   * {@link PathContext}s turn into a position in the {@link RouteTrie}, and
+   * {@link ConditionContext}s into {@link RouteTrie.Guard}s.
+   * {@link ActionContext}s and {@link RootContext} always apply so they just vanish.
+   */
+  private void compile(
+      final BuildContext buildContext,
+      final List< RouteTrie.Guard > guards,
+      final RouteTrie.Builder routeTrieBuilder
+  ) {
+    final List< HttpRequestRelayer > relayers = buildContext.relayers ;
+    for( final HttpRequestRelayer relayer : relayers ) {
+      if( relayer instanceof BuildContext ) {
+        final BuildContext child = ( BuildContext ) relayer ;
+        if( child instanceof ConditionContext ) {
+          guards.add( child::contextAppliesTo ) ;
+          compile( child, guards, routeTrieBuilder ) ;
+          guards.remove( guards.size() - 1 ) ;
+        } else {
+          compile( child, guards, routeTrieBuilder ) ;
+        }
+      } else {
+        routeTrieBuilder.add( buildContext.contextPath(), guards, relayer ) ;
+      }
+    }
   }
 
 // =======
@@ -540,6 +591,16 @@ public class BareHttpDispatcher<
     return genericThis() ;
   }
 
+  /**
+   * Responds with {@link MetricRegistry#asText()}, read again for each request.
+   * Metrics tell a lot about internals, so this should happen inside some condition like
+   * {@link UsualConditions#IS_LOCALHOST}.
+   */
+  public final THIS metrics( final MetricRegistry metricRegistry ) {
+    checkNotNull( metricRegistry ) ;
+    return response( UsualHttpCommands.PlainText.outbound( metricRegistry::asText ) ) ;
+  }
+
   public final < RESULT > THIS command(
       final HttpResponder.DutyCaller< DUTY > explicitDutyCaller,
       final HttpResponder.Renderer< RESULT > renderer
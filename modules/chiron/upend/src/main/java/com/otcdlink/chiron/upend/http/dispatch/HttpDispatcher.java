@@ -5,6 +5,7 @@ import com.otcdlink.chiron.command.CommandConsumer;
 import com.otcdlink.chiron.designator.Designator;
 import com.otcdlink.chiron.toolbox.UrxTools;
 import com.otcdlink.chiron.toolbox.internet.SchemeHostPort;
+import com.otcdlink.chiron.upend.http.content.ClientCaching;
 import com.otcdlink.chiron.upend.http.content.StaticContent;
 import com.otcdlink.chiron.upend.http.content.caching.BytebufContent;
 import com.otcdlink.chiron.upend.http.content.caching.StaticContentCache;
@@ -85,6 +86,14 @@ public class HttpDispatcher<
 // ================
 
   public final THIS file( final StaticFileContentProvider fileContentProvider ) {
+    return file( fileContentProvider, ClientCaching.NONE ) ;
+  }
+
+  public final THIS file(
+      final StaticFileContentProvider fileContentProvider,
+      final ClientCaching clientCaching
+  ) {
+    checkNotNull( clientCaching ) ;
     return response( ( evaluationContext, httpRequest ) -> {
 
       /**
@@ -100,7 +109,8 @@ public class HttpDispatcher<
       if( staticContentFromFile == null ) {
         return null ;
       } else {
-        return new UsualHttpCommands.JustFile( staticContentFromFile, httpRequest ) ;
+        return new UsualHttpCommands.JustFile(
+            staticContentFromFile, httpRequest, clientCaching ) ;
       }
     } ) ;
   }
@@ -113,14 +123,15 @@ public class HttpDispatcher<
           .relativizeFromSlashedPath( httpRequest.uriPath ) ;
 
       final BytebufContent staticContentAsByteBuf =
-          contentCache.staticContent( cleanRelativeUriPath ) ;
+          contentCache.retainedStaticContent( cleanRelativeUriPath ) ;
 
       if( staticContentAsByteBuf == null ) {
         return null ;
       } else {
         return new UsualHttpCommands.JustBytebuf(
             staticContentAsByteBuf,
-            httpRequest.uriPath
+            httpRequest,
+            contentCache.clientCaching()
         ) ;
       }
     } ) ;
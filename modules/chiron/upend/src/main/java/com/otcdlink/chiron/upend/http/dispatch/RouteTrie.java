@@ -0,0 +1,273 @@
+package com.otcdlink.chiron.upend.http.dispatch;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
+import com.otcdlink.chiron.toolbox.netty.RichHttpRequest;
+import io.netty.channel.ChannelHandlerContext;
+import io.netty.handler.codec.http.HttpUtil;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+
+import static com.google.common.base.Preconditions.checkNotNull;
+import static com.google.common.base.Preconditions.checkState;
+
+/**
+ * Flattened form of the rule tree of a {@link BareHttpDispatcher}, giving the same result
+ * as evaluating every rule in declaration order.
+ * Each leaf {@link HttpRequestRelayer} sits in a {@link Node} keyed by the path segments
+ * of its context, along with the {@link Guard}s of enclosing conditions.
+ * Each {@link Node} also knows, in declaration order, the leaves of its ancestors
+ * because they also apply to a request path that reaches it.
+ * So resolving a request walks down one {@link Node} per path segment, then evaluates
+ * only the leaves that could apply.
+ *
+ * <h1>Guard evaluation</h1>
+ * A {@link Guard} gets evaluated at most once per request, even if it encloses several
+ * leaves, and only if some leaf it encloses matches the path. A {@link Guard} represents
+ * a {@link HttpResponder.Condition} passed to {@link BareHttpDispatcher#beginCondition},
+ * so it gets evaluated like with a tree walk, only less often.
+ * Conditions passed along with a leaf (like {@link BareHttpDispatcher#responseIf}) are part
+ * of the leaf itself.
+ */
+final class RouteTrie implements HttpRequestRelayer {
+
+  private static final Logger LOGGER = LoggerFactory.getLogger( RouteTrie.class ) ;
+
+  private final Node root ;
+  private final int guardCount ;
+  private final int leafCount ;
+
+  private RouteTrie( final Node root, final int guardCount, final int leafCount ) {
+    this.root = checkNotNull( root ) ;
+    this.guardCount = guardCount ;
+    this.leafCount = leafCount ;
+  }
+
+  /**
+   * Same as {@link UriPath#pathMatch(String)}: a request path matches a context path
+   * if it starts with all of its segments.
+   */
+  Node deepestNode( final String uriPath ) {
+    Node node = root ;
+    if( ! uriPath.startsWith( "/" ) ) {
+      return node ;
+    }
+    int start = 1 ;
+    while( start < uriPath.length() ) {
+      int end = uriPath.indexOf( '/', start ) ;
+      if( end < 0 ) {
+        end = uriPath.length() ;
+      }
+      final Node child = node.children.get( uriPath.substring( start, end ) ) ;
+      if( child == null ) {
+        break ;
+      }
+      node = child ;
+      start = end + 1 ;
+    }
+    return node ;
+  }
+
+  @Override
+  public boolean relay(
+      final RichHttpRequest httpRequest,
+      final ChannelHandlerContext channelHandlerContext
+  ) {
+    try {
+      final ImmutableList< Leaf > candidates = deepestNode( httpRequest.uriPath ).candidates ;
+      final byte[] guardStates = guardCount == 0 ? null : new byte[ guardCount ] ;
+      for( int i = 0 ; i < candidates.size() ; i ++ ) {
+        final Leaf leaf = candidates.get( i ) ;
+        if( leaf.guardsApply( httpRequest, guardStates ) &&
+            leaf.relayer.relay( httpRequest, channelHandlerContext )
+        ) {
+          return true ;
+        }
+      }
+      return false ;
+    } catch( final Exception e ) {
+      LOGGER.error( "Error while processing " + httpRequest, e ) ;
+      final boolean keepAlive = HttpUtil.isKeepAlive( httpRequest ) ;
+      new UsualHttpCommands.ServerError(
+          "<p>Error while processing request.</p><pre>" +
+          httpRequest.toString() + "</pre>"
+      ).feed( channelHandlerContext, keepAlive ) ;
+      return true ;
+    }
+  }
+
+  @Override
+  public String toString() {
+    return getClass().getSimpleName() + "{leaves=" + leafCount + ";guards=" + guardCount + "}" ;
+  }
+
+
+// =====
+// Parts
+// =====
+
+  /**
+   * Tells if a request fulfills the condition of some enclosing context.
+   * Identity matters: the same instance for several leaves means evaluating it once.
+   */
+  interface Guard {
+    boolean appliesTo( RichHttpRequest httpRequest ) ;
+  }
+
+  private static final byte GUARD_UNKNOWN = 0 ;
+  private static final byte GUARD_APPLIES = 1 ;
+  private static final byte GUARD_DOES_NOT_APPLY = 2 ;
+
+  private static final class Leaf {
+    final int ordinal ;
+    final HttpRequestRelayer relayer ;
+
+    /**
+     * Outermost first, so we evaluate them in the same order as a tree walk would.
+     */
+    final Guard[] guards ;
+
+    /**
+     * Parallel to {@link #guards}.
+     */
+    final int[] guardIndexes ;
+
+    private Leaf(
+        final int ordinal,
+        final HttpRequestRelayer relayer,
+        final Guard[] guards,
+        final int[] guardIndexes
+    ) {
+      this.ordinal = ordinal ;
+      this.relayer = checkNotNull( relayer ) ;
+      this.guards = guards ;
+      this.guardIndexes = guardIndexes ;
+    }
+
+    boolean guardsApply( final RichHttpRequest httpRequest, final byte[] guardStates ) {
+      for( int i = 0 ; i < guards.length ; i ++ ) {
+        final int guardIndex = guardIndexes[ i ] ;
+        byte state = guardStates[ guardIndex ] ;
+        if( state == GUARD_UNKNOWN ) {
+          state = guards[ i ].appliesTo( httpRequest ) ? GUARD_APPLIES : GUARD_DOES_NOT_APPLY ;
+          guardStates[ guardIndex ] = state ;
+        }
+        if( state == GUARD_DOES_NOT_APPLY ) {
+          return false ;
+        }
+      }
+      return true ;
+    }
+  }
+
+  static final class Node {
+
+    /**
+     * Leaves of this {@link Node} and of all its ancestors, in declaration order.
+     */
+    final ImmutableList< Leaf > candidates ;
+
+    final ImmutableMap< String, Node > children ;
+
+    private Node(
+        final ImmutableList< Leaf > candidates,
+        final ImmutableMap< String, Node > children
+    ) {
+      this.candidates = candidates ;
+      this.children = children ;
+    }
+
+    int candidateCount() {
+      return candidates.size() ;
+    }
+  }
+
+
+// =======
+// Builder
+// =======
+
+  static final class Builder {
+
+    private final MutableNode root = new MutableNode() ;
+    private final Map< Guard, Integer > guardIndexes = new IdentityHashMap<>() ;
+    private int leafCount = 0 ;
+    private boolean built = false ;
+
+    /**
+     * Call in declaration order.
+     *
+     * @param guards outermost first.
+     */
+    Builder add(
+        final UriPath uriPath,
+        final List< Guard > guards,
+        final HttpRequestRelayer relayer
+    ) {
+      checkState( ! built ) ;
+      final Guard[] guardArray = guards.toArray( new Guard[ guards.size() ] ) ;
+      final int[] indexArray = new int[ guardArray.length ] ;
+      for( int i = 0 ; i < guardArray.length ; i ++ ) {
+        indexArray[ i ] = guardIndexes.computeIfAbsent(
+            checkNotNull( guardArray[ i ] ), guard -> guardIndexes.size() ) ;
+      }
+      MutableNode node = root ;
+      if( ! uriPath.isRoot() ) {
+        for( final String segment : uriPath.fullPath.substring( 1 ).split( "/" ) ) {
+          node = node.children.computeIfAbsent( segment, s -> new MutableNode() ) ;
+        }
+      }
+      node.leaves.add( new Leaf( leafCount ++, relayer, guardArray, indexArray ) ) ;
+      return this ;
+    }
+
+    RouteTrie build() {
+      checkState( ! built ) ;
+      built = true ;
+      return new RouteTrie( root.freeze( ImmutableList.of() ), guardIndexes.size(), leafCount ) ;
+    }
+
+    private static final class MutableNode {
+      final List< Leaf > leaves = new ArrayList<>() ;
+      final Map< String, MutableNode > children = new HashMap<>() ;
+
+      Node freeze( final List< Leaf > inherited ) {
+        final ImmutableList< Leaf > candidates = merge( inherited, leaves ) ;
+        final ImmutableMap.Builder< String, Node > frozenChildren = ImmutableMap.builder() ;
+        for( final Map.Entry< String, MutableNode > entry : children.entrySet() ) {
+          frozenChildren.put( entry.getKey(), entry.getValue().freeze( candidates ) ) ;
+        }
+        return new Node( candidates, frozenChildren.build() ) ;
+      }
+    }
+
+    /**
+     * Merges two lists sorted by {@link Leaf#ordinal}.
+     */
+    private static ImmutableList< Leaf > merge(
+        final List< Leaf > first,
+        final List< Leaf > second
+    ) {
+      final ImmutableList.Builder< Leaf > builder = ImmutableList.builder() ;
+      int i = 0 ;
+      int j = 0 ;
+      while( i < first.size() || j < second.size() ) {
+        if( j >= second.size() ||
+            ( i < first.size() && first.get( i ).ordinal < second.get( j ).ordinal )
+        ) {
+          builder.add( first.get( i ++ ) ) ;
+        } else {
+          builder.add( second.get( j ++ ) ) ;
+        }
+      }
+      return builder.build() ;
+    }
+  }
+
+}
@@ -6,11 +6,14 @@ import com.otcdlink.chiron.toolbox.ToStringTools;
 import com.otcdlink.chiron.toolbox.netty.NettyTools;
 import com.otcdlink.chiron.toolbox.netty.RichHttpRequest;
 import com.otcdlink.chiron.toolbox.text.Plural;
+import com.otcdlink.chiron.upend.http.content.ClientCaching;
+import com.otcdlink.chiron.upend.http.content.ClientCachingTools;
 import com.otcdlink.chiron.upend.http.content.StaticContent;
 import com.otcdlink.chiron.upend.http.content.caching.BytebufContent;
 import com.otcdlink.chiron.upend.http.content.caching.StaticContentCache;
 import com.otcdlink.chiron.upend.http.content.caching.StaticContentResolver;
 import io.netty.buffer.ByteBufAllocator;
+import io.netty.buffer.Unpooled;
 import io.netty.channel.ChannelFuture;
 import io.netty.channel.ChannelFutureListener;
 import io.netty.channel.ChannelHandlerContext;
@@ -23,6 +26,7 @@ import io.netty.handler.codec.http.FullHttpResponse;
 import io.netty.handler.codec.http.HttpChunkedInput;
 import io.netty.handler.codec.http.HttpHeaderNames;
 import io.netty.handler.codec.http.HttpHeaderValues;
+import io.netty.handler.codec.http.HttpHeaders;
 import io.netty.handler.codec.http.HttpMethod;
 import io.netty.handler.codec.http.HttpResponseStatus;
 import io.netty.handler.codec.http.HttpUtil;
@@ -36,6 +40,7 @@ import org.slf4j.LoggerFactory;
 import java.io.FileNotFoundException;
 import java.io.IOException;
 import java.io.RandomAccessFile;
+import java.util.function.Supplier;
 
 import static com.google.common.base.Preconditions.checkArgument;
 import static com.google.common.base.Preconditions.checkNotNull;
@@ -44,7 +49,10 @@ import static io.netty.handler.codec.http.HttpResponseStatus.BAD_REQUEST;
 import static io.netty.handler.codec.http.HttpResponseStatus.FORBIDDEN;
 import static io.netty.handler.codec.http.HttpResponseStatus.INTERNAL_SERVER_ERROR;
 import static io.netty.handler.codec.http.HttpResponseStatus.NOT_FOUND;
+import static io.netty.handler.codec.http.HttpResponseStatus.NOT_MODIFIED;
 import static io.netty.handler.codec.http.HttpResponseStatus.OK;
+import static io.netty.handler.codec.http.HttpResponseStatus.PARTIAL_CONTENT;
+import static io.netty.handler.codec.http.HttpResponseStatus.REQUESTED_RANGE_NOT_SATISFIABLE;
 import static io.netty.handler.codec.http.HttpResponseStatus.SERVICE_UNAVAILABLE;
 
 public final class UsualHttpCommands {
@@ -191,6 +199,53 @@ public final class UsualHttpCommands {
   }
 
 
+  /**
+   * Unlike {@link AbstractAnymlResponse}, sets the {@code Content-Type} to
+   * {@link #MIME_TYPE}, so browsers and {@code curl} show the text as it is.
+   */
+  public static class PlainText implements PipelineFeeder {
+
+    public static final String MIME_TYPE = "text/plain; charset=UTF-8" ;
+
+    public final String content ;
+
+    public PlainText( final String content ) {
+      this.content = checkNotNull( content ) ;
+    }
+
+    @Override
+    public void feed(
+        final ChannelHandlerContext channelHandlerContext,
+        final boolean keepAlive
+    ) {
+      final FullHttpResponse httpResponse = newHttpResponse(
+          channelHandlerContext.alloc(),
+          OK,
+          content,
+          HttpHeaderNames.CONTENT_TYPE.toString(),
+          MIME_TYPE
+      ) ;
+      NettyTools.setHeadersForKeepAliveIfNeeded( httpResponse, keepAlive ) ;
+      final ChannelFuture channelFuture = channelHandlerContext.writeAndFlush( httpResponse ) ;
+      if( ! keepAlive ) {
+        channelFuture.addListener( ChannelFutureListener.CLOSE ) ;
+      }
+    }
+
+    /**
+     * Calls the {@link Supplier} for each request.
+     */
+    public static HttpResponder.Outbound outbound( final Supplier< String > contentSupplier ) {
+      checkNotNull( contentSupplier ) ;
+      return ( evaluationContext, httpRequest ) -> new PlainText( contentSupplier.get() ) ;
+    }
+
+    @Override
+    public String toString() {
+      return ToStringTools.getNiceClassName( this ) + "{" + content.length() + " chars}" ;
+    }
+  }
+
   public static class Redirect implements PipelineFeeder {
 
     /**
@@ -303,6 +358,7 @@ public final class UsualHttpCommands {
    * Serves resources obtained from {@link StaticContentResolver} then {@link StaticContentCache}
    * that caches binary blobs.
    * Resources are held as {@link ByteSource}s because it's more convenient than an URL.
+   * Response depends on {@link ClientCaching} and on request headers.
    */
   public static class JustBytebuf implements PipelineFeeder {
     private final BytebufContent staticContentAsByteBuf ;
@@ -312,26 +368,62 @@ public final class UsualHttpCommands {
      */
     private final String absoluteUriPath ;
 
+    /**
+     * May be {@code null}.
+     */
+    private final HttpHeaders requestHeaders ;
+
+    private final ClientCaching clientCaching ;
+
+    /**
+     * Tells if {@link #staticContentAsByteBuf} was already retained on our behalf.
+     */
+    private final boolean retained ;
+
     public JustBytebuf(
         final BytebufContent staticContentAsByteBuf,
         final String absoluteUriPath
+    ) {
+      this( staticContentAsByteBuf, absoluteUriPath, null, ClientCaching.NONE, false ) ;
+    }
+
+    /**
+     * @param retainedStaticContent obtained from
+     *     {@link StaticContentCache#retainedStaticContent(String)}, this object releases it.
+     */
+    public JustBytebuf(
+        final BytebufContent retainedStaticContent,
+        final RichHttpRequest httpRequest,
+        final ClientCaching clientCaching
+    ) {
+      this( retainedStaticContent, httpRequest.uriPath, httpRequest.headers(), clientCaching,
+          true ) ;
+    }
+
+    private JustBytebuf(
+        final BytebufContent staticContentAsByteBuf,
+        final String absoluteUriPath,
+        final HttpHeaders requestHeaders,
+        final ClientCaching clientCaching,
+        final boolean retained
     ) {
       this.staticContentAsByteBuf = staticContentAsByteBuf ;
       this.absoluteUriPath = checkNotNull( absoluteUriPath ) ;
+      this.requestHeaders = requestHeaders ;
+      this.clientCaching = checkNotNull( clientCaching ) ;
+      this.retained = retained ;
     }
 
     @Override
     public void feed( final ChannelHandlerContext channelHandlerContext, boolean keepAlive ) {
       if( staticContentAsByteBuf == null ) {
         new NotFound( absoluteUriPath ).feed( channelHandlerContext, keepAlive ) ;
+      } else if( ! retained && ! staticContentAsByteBuf.tryRetain() ) {
+        new ServiceUnavailable( "Evicted from cache: '" + absoluteUriPath + "'" )
+            .feed( channelHandlerContext, keepAlive ) ;
       } else {
-        final FullHttpResponse httpResponse = new DefaultFullHttpResponse(
-            HttpVersion.HTTP_1_1, OK, staticContentAsByteBuf.bytebuf() ) ;
-        httpResponse.headers().set(
-            HttpHeaderNames.CONTENT_TYPE, staticContentAsByteBuf.mimeType ) ;
-        NettyTools.noCache( httpResponse ) ;  // One day we'll be less brutal.
+        final FullHttpResponse httpResponse = newHttpResponse() ;
         NettyTools.setHeadersForKeepAliveIfNeeded( httpResponse, keepAlive ) ;
-        httpResponse.retain() ;
         ChannelFuture channelFuture = channelHandlerContext.writeAndFlush( httpResponse ) ;
         if( ! keepAlive ) {
           channelFuture.addListener( CLOSE ) ;
@@ -339,12 +431,77 @@ public final class UsualHttpCommands {
       }
     }
 
+    /**
+     * Takes ownership of references retained on {@link #staticContentAsByteBuf}: the one
+     * of the representation that goes into the response gets released after write,
+     * other ones get released here.
+     */
+    private FullHttpResponse newHttpResponse() {
+      final BytebufContent content = staticContentAsByteBuf ;
+      final boolean gzip = clientCaching.gzip && content.hasGzip() &&
+          ClientCachingTools.acceptsGzip( requestHeaders ) &&
+          // Ranges apply to identity representation only.
+          ( ! clientCaching.ranges || ! requestHeaders.contains( HttpHeaderNames.RANGE ) )
+      ;
+      final String etag = gzip ? content.gzipEtag() : content.etag ;
+      final int contentLength = content.length() ;
+      final FullHttpResponse httpResponse ;
+
+      if( clientCaching.validators &&
+          ClientCachingTools.notModified( requestHeaders, etag, content.lastModifiedMs )
+      ) {
+        content.release() ;
+        httpResponse = new DefaultFullHttpResponse(
+            HttpVersion.HTTP_1_1, NOT_MODIFIED, Unpooled.EMPTY_BUFFER ) ;
+      } else {
+        final ClientCachingTools.ByteRange byteRange = clientCaching.ranges && ! gzip ?
+            ClientCachingTools.byteRange(
+                requestHeaders, etag, content.lastModifiedMs, contentLength ) :
+            null
+        ;
+        if( byteRange == ClientCachingTools.ByteRange.UNSATISFIABLE ) {
+          content.release() ;
+          httpResponse = new DefaultFullHttpResponse(
+              HttpVersion.HTTP_1_1, REQUESTED_RANGE_NOT_SATISFIABLE, Unpooled.EMPTY_BUFFER ) ;
+          httpResponse.headers().set(
+              HttpHeaderNames.CONTENT_RANGE, byteRange.contentRange( contentLength ) ) ;
+        } else if( byteRange != null ) {
+          content.release( false, true ) ;
+          httpResponse = new DefaultFullHttpResponse(
+              HttpVersion.HTTP_1_1,
+              PARTIAL_CONTENT,
+              content.bytebuf().slice( ( int ) byteRange.first, ( int ) byteRange.length() )
+          ) ;
+          httpResponse.headers().set(
+              HttpHeaderNames.CONTENT_RANGE, byteRange.contentRange( contentLength ) ) ;
+        } else if( gzip ) {
+          content.release( true, false ) ;
+          httpResponse = new DefaultFullHttpResponse(
+              HttpVersion.HTTP_1_1, OK, content.gzipBytebuf() ) ;
+          httpResponse.headers().set( HttpHeaderNames.CONTENT_ENCODING, HttpHeaderValues.GZIP ) ;
+        } else {
+          content.release( false, true ) ;
+          httpResponse = new DefaultFullHttpResponse(
+              HttpVersion.HTTP_1_1, OK, content.bytebuf() ) ;
+        }
+        httpResponse.headers().set( HttpHeaderNames.CONTENT_TYPE, content.mimeType ) ;
+      }
+
+      ClientCachingTools.setValidators(
+          httpResponse, clientCaching, etag, content.lastModifiedMs ) ;
+      if( clientCaching.gzip && content.hasGzip() && clientCaching.validators ) {
+        httpResponse.headers().set( HttpHeaderNames.VARY, HttpHeaderNames.ACCEPT_ENCODING ) ;
+      }
+      return httpResponse ;
+    }
+
   }
 
 
   /**
    * Serves resources obtained from a plain {@code File} from local filesystem.
    * The purpose of this class is to avoid caching, using Netty streaming instead.
+   * {@link ClientCaching} applies, except for {@link ClientCaching#gzip}.
    */
   public static final class JustFile implements PipelineFeeder {
 
@@ -360,16 +517,33 @@ public final class UsualHttpCommands {
     private final boolean keepAlive ;
     private final boolean tls ;
 
+    /**
+     * May be {@code null}.
+     */
+    private final HttpHeaders requestHeaders ;
+
+    private final ClientCaching clientCaching ;
+
     public JustFile(
         final StaticContent.FromFile staticContentFromFile,
         final RichHttpRequest httpRequest
+    ) {
+      this( staticContentFromFile, httpRequest, ClientCaching.NONE ) ;
+    }
+
+    public JustFile(
+        final StaticContent.FromFile staticContentFromFile,
+        final RichHttpRequest httpRequest,
+        final ClientCaching clientCaching
     ) {
       this(
           staticContentFromFile,
           httpRequest.uriPath,
           HttpMethod.HEAD.equals( httpRequest.method() ),
           HttpUtil.isKeepAlive( httpRequest ),
-          httpRequest.channel().pipeline().get( SslHandler.class ) != null
+          httpRequest.channel().pipeline().get( SslHandler.class ) != null,
+          httpRequest.headers(),
+          clientCaching
       ) ;
     }
 
@@ -385,12 +559,27 @@ public final class UsualHttpCommands {
         final boolean justHead,
         final boolean keepAlive,
         final boolean tls
+    ) {
+      this( staticContentFromFile, requestUri, justHead, keepAlive, tls, null,
+          ClientCaching.NONE ) ;
+    }
+
+    private JustFile(
+        final StaticContent.FromFile staticContentFromFile,
+        final String requestUri,
+        final boolean justHead,
+        final boolean keepAlive,
+        final boolean tls,
+        final HttpHeaders requestHeaders,
+        final ClientCaching clientCaching
     ) {
       this.staticContentFromFile = staticContentFromFile ;
       this.requestUri = checkNotNull( requestUri ) ;
       this.justHead = justHead ;
       this.keepAlive = keepAlive ;
       this.tls = tls ;
+      this.requestHeaders = requestHeaders ;
+      this.clientCaching = checkNotNull( clientCaching ) ;
     }
 
     @Override
@@ -400,6 +589,29 @@ public final class UsualHttpCommands {
         return ;
       }
 
+      final long fileLength = staticContentFromFile.file.length() ;
+      final long lastModifiedMs = staticContentFromFile.file.lastModified() ;
+      final String etag = ClientCachingTools.fileEtag( fileLength, lastModifiedMs ) ;
+
+      if( clientCaching.validators &&
+          ClientCachingTools.notModified( requestHeaders, etag, lastModifiedMs )
+      ) {
+        writeEmptyResponse( channelHandlerContext, NOT_MODIFIED, etag, lastModifiedMs, null ) ;
+        return ;
+      }
+
+      final ClientCachingTools.ByteRange byteRange = clientCaching.ranges ?
+          ClientCachingTools.byteRange( requestHeaders, etag, lastModifiedMs, fileLength ) :
+          null
+      ;
+      if( byteRange == ClientCachingTools.ByteRange.UNSATISFIABLE ) {
+        writeEmptyResponse( channelHandlerContext, REQUESTED_RANGE_NOT_SATISFIABLE, etag,
+            lastModifiedMs, byteRange.contentRange( fileLength ) ) ;
+        return ;
+      }
+      final long offset = byteRange == null ? 0 : byteRange.first ;
+      final long length = byteRange == null ? fileLength : byteRange.length() ;
+
       final RandomAccessFile randomAccessFile ;
       try {
         randomAccessFile = new RandomAccessFile( staticContentFromFile.file, "r" ) ;
@@ -407,16 +619,19 @@ public final class UsualHttpCommands {
         new NotFound( requestUri ).feed( channelHandlerContext, keepAlive ) ;
         return ;
       }
-      final long fileLength = staticContentFromFile.file.length() ;
       LOGGER.debug( "Ready to send '" + staticContentFromFile.file.getAbsolutePath() + "' " +
-          "(" + Plural.bytes( fileLength ) + ") to " + channelHandlerContext + "." ) ;
+          "(" + Plural.bytes( length ) + ") to " + channelHandlerContext + "." ) ;
 
       final DefaultHttpResponse httpResponse = new DefaultHttpResponse(
-          HttpVersion.HTTP_1_1, OK ) ;
-      HttpUtil.setContentLength( httpResponse, fileLength ) ;
+          HttpVersion.HTTP_1_1, byteRange == null ? OK : PARTIAL_CONTENT ) ;
+      HttpUtil.setContentLength( httpResponse, length ) ;
       httpResponse.headers().set(
           HttpHeaderNames.CONTENT_TYPE, staticContentFromFile.mimeType ) ;
-      NettyTools.noCache( httpResponse ) ;
+      if( byteRange != null ) {
+        httpResponse.headers().set(
+            HttpHeaderNames.CONTENT_RANGE, byteRange.contentRange( fileLength ) ) ;
+      }
+      ClientCachingTools.setValidators( httpResponse, clientCaching, etag, lastModifiedMs ) ;
 
       if( this.keepAlive ) {
         httpResponse.headers().set( HttpHeaderNames.CONNECTION, HttpHeaderValues.KEEP_ALIVE ) ;
@@ -435,7 +650,7 @@ public final class UsualHttpCommands {
         if( tls ) {
           final ChunkedFile chunkedFile ;
           try {
-            chunkedFile = new ChunkedFile( randomAccessFile, 0, fileLength, 8192 ) ;
+            chunkedFile = new ChunkedFile( randomAccessFile, offset, length, 8192 ) ;
           } catch( final IOException e ) {
             LOGGER.error( "Could not load '" +
                 staticContentFromFile.file.getAbsolutePath() + "'", e ) ;
@@ -456,7 +671,7 @@ public final class UsualHttpCommands {
           /** {@link HttpChunkedInput} will write the end marker ({@link LastHttpContent}) for us. */
         } else {
           sendFileFuture = channelHandlerContext.pipeline().write(
-              new DefaultFileRegion( randomAccessFile.getChannel(), 0, fileLength ),
+              new DefaultFileRegion( randomAccessFile.getChannel(), offset, length ),
               channelHandlerContext.newProgressivePromise()
           ) ;
           lastContentFuture = channelHandlerContext.pipeline().writeAndFlush(
@@ -491,12 +706,46 @@ public final class UsualHttpCommands {
       }
     }
 
+    /**
+     * @param contentRange may be {@code null}.
+     */
+    private void writeEmptyResponse(
+        final ChannelHandlerContext channelHandlerContext,
+        final HttpResponseStatus httpResponseStatus,
+        final String etag,
+        final long lastModifiedMs,
+        final String contentRange
+    ) {
+      final FullHttpResponse httpResponse = new DefaultFullHttpResponse(
+          HttpVersion.HTTP_1_1, httpResponseStatus, Unpooled.EMPTY_BUFFER ) ;
+      ClientCachingTools.setValidators( httpResponse, clientCaching, etag, lastModifiedMs ) ;
+      if( contentRange != null ) {
+        httpResponse.headers().set( HttpHeaderNames.CONTENT_RANGE, contentRange ) ;
+      }
+      HttpUtil.setContentLength( httpResponse, 0 ) ;
+      if( this.keepAlive ) {
+        httpResponse.headers().set( HttpHeaderNames.CONNECTION, HttpHeaderValues.KEEP_ALIVE ) ;
+      }
+      final ChannelFuture channelFuture = channelHandlerContext.writeAndFlush( httpResponse ) ;
+      if( ! this.keepAlive ) {
+        channelFuture.addListener( CLOSE ) ;
+      }
+    }
+
     public static HttpResponder.Outbound outbound(
         final StaticContent.FromFile staticContentFromFile
+    ) {
+      return outbound( staticContentFromFile, ClientCaching.NONE ) ;
+    }
+
+    public static HttpResponder.Outbound outbound(
+        final StaticContent.FromFile staticContentFromFile,
+        final ClientCaching clientCaching
     ) {
       return ( evaluationContext, httpRequest ) -> new JustFile(
           staticContentFromFile,
-          httpRequest
+          httpRequest,
+          clientCaching
       ) ;
     }
 
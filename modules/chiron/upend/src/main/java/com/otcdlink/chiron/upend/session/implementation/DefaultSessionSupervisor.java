@@ -41,6 +41,7 @@ import static com.google.common.base.Preconditions.checkNotNull;
  * Instances of this class are single-threaded, they do not support concurrent access.
  * Callbacks are called in the same trade as the calling thread. It's callers' responsability
  * to provide a callback wrapped in an {@code Executor} for instance.
+ * {@link ShardedSessionSupervisor} runs several instances, each one in its own thread.
  *
  * <h1>Generics</h1>
  * Generic types are here to define the contract (or the absence of special contract) with used
@@ -830,14 +831,24 @@ public class DefaultSessionSupervisor< CHANNEL, ADDRESS, SESSION_PRIMER >
     LOGGER.info( "Closed (with " + ( terminateSession ? "" : "no " ) + "session termination) " +
         "for " + sessionIdentifier + ": " + channel + "." ) ;
     signonInwardDuty.signoutQuiet( designatorFactory.internal(), sessionIdentifier ) ;
-    final boolean removed = sessionBook.removeChannel(
-        channel, terminateSession ? null : now ) ;
-    if( terminateSession && ! removed ) {
+    final boolean removed = removeChannel( channel, terminateSession ? null : now ) ;
+    if( terminateSession && ! removed && sessionIdentifier != null ) {
       /** If removal did not happen, this means we already removed the {@link CHANNEL} */
       sessionBook.removeSession( sessionIdentifier ) ;
     }
   }
 
+  /**
+   * Does the {@link SessionBook} part of {@link #closed(Object, SessionIdentifier, boolean)},
+   * for a {@link ShardedSessionSupervisor} which doesn't know which shard references
+   * the {@link CHANNEL}.
+   *
+   * @see SessionBook#removeChannel(Object, DateTime)
+   */
+  boolean removeChannel( final CHANNEL channel, final DateTime now ) {
+    return sessionBook.removeChannel( channel, now ) ;
+  }
+
   @Override
   public void kickoutAll() {
     final ImmutableSet< CHANNEL > removedChannels = sessionBook.removeAllChannels() ;
@@ -877,6 +888,15 @@ public class DefaultSessionSupervisor< CHANNEL, ADDRESS, SESSION_PRIMER >
     }
   }
 
+  /**
+   * Removes outdated objects, including sessions inactive for too long which would otherwise
+   * stay until some access to them.
+   */
+  void sweep() {
+    scavenge() ;
+    sessionBook.removeInactive( clock.getCurrentDateTime() ) ;
+  }
+
   /**
    * Remove outdated objects.
    */
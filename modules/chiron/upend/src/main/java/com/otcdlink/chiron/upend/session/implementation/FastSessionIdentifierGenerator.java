@@ -0,0 +1,105 @@
+package com.otcdlink.chiron.upend.session.implementation;
+
+import com.otcdlink.chiron.middle.session.SessionIdentifier;
+import com.otcdlink.chiron.upend.session.SessionIdentifierGenerator;
+
+import java.security.SecureRandom;
+import java.util.Arrays;
+import java.util.Random;
+import java.util.function.Supplier;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static com.google.common.base.Preconditions.checkNotNull;
+
+/**
+ * Generates the same kind of {@link SessionIdentifier} as
+ * {@link DefaultSessionIdentifierGenerator} (16 bytes from a {@link SecureRandom} as uppercase
+ * hexadecimal, never equal to one of the last 1000 ones) but supports many concurrent
+ * calls, like when every client reconnects at the same time.
+ * <ul>
+ *   <li>
+ *     Each thread has its own {@link SecureRandom}, so there is no contention on the lock
+ *     inside {@link SecureRandom#nextBytes(byte[])}.
+ *     Each call to it fills a buffer for several {@link SessionIdentifier}s.
+ *     Consumed bytes get zeroed.
+ *   </li><li>
+ *     Hexadecimal encoding uses a lookup table and a reusable {@code char} array.
+ *   </li><li>
+ *     {@link TabooSet} detects collisions in constant time.
+ *   </li>
+ * </ul>
+ */
+public class FastSessionIdentifierGenerator implements SessionIdentifierGenerator {
+
+  private static final char[] HEXADECIMAL_DIGITS = "0123456789ABCDEF".toCharArray() ;
+
+  /**
+   * How many {@link SessionIdentifier}s one call to {@link Random#nextBytes(byte[])}
+   * prepares.
+   */
+  private static final int IDENTIFIERS_PER_REFILL = 64 ;
+
+  private final int byteCount ;
+  private final TabooSet< SessionIdentifier > taboo ;
+  private final ThreadLocal< PerThread > perThread ;
+
+  public FastSessionIdentifierGenerator() {
+    this( 1000 ) ;
+  }
+
+  public FastSessionIdentifierGenerator( final int tabooSize ) {
+    this( 16, SecureRandom::new, tabooSize ) ;
+  }
+
+  /**
+   * @param randomFactory called once per thread.
+   */
+  public FastSessionIdentifierGenerator(
+      final int byteCount,
+      final Supplier< ? extends Random > randomFactory,
+      final int tabooSize
+  ) {
+    checkArgument( byteCount > 0 ) ;
+    checkNotNull( randomFactory ) ;
+    this.byteCount = byteCount ;
+    this.taboo = new TabooSet<>( tabooSize ) ;
+    this.perThread = ThreadLocal.withInitial( () -> new PerThread( randomFactory.get() ) ) ;
+  }
+
+  @Override
+  public SessionIdentifier generate() {
+    final PerThread current = perThread.get() ;
+    SessionIdentifier sessionIdentifier ;
+    do {
+      sessionIdentifier = new SessionIdentifier( current.nextHexadecimal() ) ;
+    } while( ! taboo.offer( sessionIdentifier ) ) ;
+    return sessionIdentifier ;
+  }
+
+  private final class PerThread {
+    private final Random random ;
+    private final byte[] randomBytes = new byte[ byteCount * IDENTIFIERS_PER_REFILL ] ;
+    private int position = randomBytes.length ;
+    private final char[] hexadecimal = new char[ byteCount * 2 ] ;
+
+    private PerThread( final Random random ) {
+      this.random = checkNotNull( random ) ;
+    }
+
+    String nextHexadecimal() {
+      if( position == randomBytes.length ) {
+        random.nextBytes( randomBytes ) ;
+        position = 0 ;
+      }
+      for( int i = 0 ; i < byteCount ; i ++ ) {
+        final int b = randomBytes[ position + i ] & 0xFF ;
+        hexadecimal[ i * 2 ] = HEXADECIMAL_DIGITS[ b >>> 4 ] ;
+        hexadecimal[ i * 2 + 1 ] = HEXADECIMAL_DIGITS[ b & 0x0F ] ;
+      }
+      Arrays.fill( randomBytes, position, position + byteCount, ( byte ) 0 ) ;
+      position += byteCount ;
+      return new String( hexadecimal ) ;
+    }
+  }
+
+}
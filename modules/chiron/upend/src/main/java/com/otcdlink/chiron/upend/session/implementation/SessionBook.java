@@ -17,6 +17,7 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
@@ -110,6 +111,15 @@ class SessionBook<
 
   private final Function< CHANNEL, ADDRESS > addressExtractor ;
 
+  /**
+   * Same entries as {@link #sessionDetailMap}, keyed by {@link SignableUser#login()}, so
+   * {@link #create(KeyHolder.Key, Object, SignableUser, DateTime)} doesn't scan every
+   * {@link SessionDetail} to enforce one {@link SESSION_IDENTIFIER} per {@link SignableUser}.
+   * Every removal from {@link #sessionDetailMap} must go through {@link #forget(KeyHolder.Key)}
+   * or {@link #unindex(SessionDetail)}.
+   */
+  private final Map< String, SESSION_IDENTIFIER > sessionIdentifierByLogin = new HashMap<>() ;
+
   SessionBook(
       final Function< CHANNEL, ADDRESS > addressExtractor,
       final Duration maximumInactivityDuration
@@ -147,20 +157,16 @@ class SessionBook<
     checkNotNull( channel ) ;
     checkNotNull( creationTime ) ;
 
-    final Iterator< Map.Entry<
-        SESSION_IDENTIFIER,
-        SessionDetail< SESSION_IDENTIFIER, CHANNEL, ADDRESS > >
-    > iterator = sessionDetailMap.entrySet().iterator() ;
-    while( iterator.hasNext() ) {
+    final SESSION_IDENTIFIER sameUserSessionIdentifier =
+        sessionIdentifierByLogin.get( user.login() ) ;
+    if( sameUserSessionIdentifier != null ) {
       final SessionDetail< SESSION_IDENTIFIER, CHANNEL, ADDRESS > sessionDetail =
-          iterator.next().getValue() ;
-      if( sessionDetail.user.login().equals( user.login() ) ) {
-        if( sessionDetail instanceof SessionDetail.Orphaned ) {
-          iterator.remove() ;
-        } else {
-          return userSessionAlreadyAttributed(
-              user, sessionDetail.sessionIdentifier, sessionIdentifier ) ;
-        }
+          sessionDetailMap.get( sameUserSessionIdentifier ) ;
+      if( sessionDetail == null || sessionDetail instanceof SessionDetail.Orphaned ) {
+        forget( sameUserSessionIdentifier ) ;
+      } else {
+        return userSessionAlreadyAttributed(
+            user, sameUserSessionIdentifier, sessionIdentifier ) ;
       }
     }
 
@@ -177,6 +183,7 @@ class SessionBook<
       final SessionDetail.Pending< SESSION_IDENTIFIER, CHANNEL, ADDRESS > pending =
           SessionDetail.pending( sessionIdentifier, creationTime, channel, user ) ;
       sessionDetailMap.put( pending ) ;
+      sessionIdentifierByLogin.put( user.login(), sessionIdentifier ) ;
       LOGGER.debug( "Registered new " + pending + "." ) ;
       return null ;
     } else {
@@ -219,7 +226,7 @@ class SessionBook<
         final SessionDetail.Orphaned< SESSION_IDENTIFIER, CHANNEL, ADDRESS > orphaned =
             ( SessionDetail.Orphaned< SESSION_IDENTIFIER, CHANNEL, ADDRESS > ) sessionDetail ;
         if( ! remoteAddress( channel ).equals( orphaned.remoteAddress ) ) {
-          final SessionDetail removed = sessionDetailMap.remove( sessionDetail.key() ) ;
+          final SessionDetail removed = forget( sessionDetail.key() ) ;
           LOGGER.debug( "Removed " + removed + " because its remote address doesn't match " +
               orphaned + "'s." ) ;
           return new SignonDecision<>(
@@ -231,7 +238,7 @@ class SessionBook<
         LOGGER.debug( "Replaced with " + replaced + " the old " + replaced + ".");
         return new SignonDecision<>( orphaned.user ) ;
       } else {
-        final SessionDetail removed = sessionDetailMap.remove( sessionDetail.key() ) ;
+        final SessionDetail removed = forget( sessionDetail.key() ) ;
             LOGGER.debug( "Removed " + removed + " because not " +
                 SessionDetail.Orphaned.class.getSimpleName() + " as expected." ) ;
         return new SignonDecision<>( new SignonFailureNotice(
@@ -279,7 +286,7 @@ class SessionBook<
     if( sessionDetail.channel != null &&
         ! remoteAddress( sessionDetail.channel ).equals( remoteAddress( channel ) )
     ) {
-      final SessionDetail removed = sessionDetailMap.remove( sessionDetail.key() ) ;
+      final SessionDetail removed = forget( sessionDetail.key() ) ;
       LOGGER.debug( "Removed " + removed + " because remote address doesn't match " +
           channel + "'s." ) ;
       return new SignonDecision<>(
@@ -300,7 +307,7 @@ class SessionBook<
       }
     }
 
-    final SessionDetail removed = sessionDetailMap.remove( sessionDetail.key() ) ;
+    final SessionDetail removed = forget( sessionDetail.key() ) ;
     LOGGER.info( "Removed " + removed +
         " as fallback during an unsuccessful activation attempt." ) ;
     return new SignonDecision<>( new SignonFailureNotice(
@@ -313,7 +320,7 @@ class SessionBook<
   public CHANNEL removeSession( final SESSION_IDENTIFIER sessionIdentifier ) {
     checkNotNull( sessionIdentifier ) ;
     final SessionDetail< SESSION_IDENTIFIER, CHANNEL, ADDRESS > removed =
-        sessionDetailMap.remove( sessionIdentifier ) ;
+        forget( sessionIdentifier ) ;
     if( removed == null ) {
       return null ;
     } else {
@@ -358,13 +365,13 @@ class SessionBook<
         for( final SessionDetail< SESSION_IDENTIFIER, ?, ? > sessionDetail :
             sessionDetailMap.values()
         ) {
-          sessionDetailMap.remove( sessionDetail.sessionIdentifier ) ;
+          forget( sessionDetail.sessionIdentifier ) ;
           LOGGER.info( "Removed " + sessionDetail + " with no replacement." ) ;
         }
       }
       final SessionDetail< SESSION_IDENTIFIER, CHANNEL, ADDRESS > sessionDetail = found.get( 0 ) ;
       if( now == null ) {
-        sessionDetailMap.remove( sessionDetail.sessionIdentifier ) ;
+        forget( sessionDetail.sessionIdentifier ) ;
       } else {
         if( sessionDetail instanceof SessionDetail.Active ) {
           final SessionDetail.Active< SESSION_IDENTIFIER, CHANNEL, ADDRESS > connected =
@@ -380,6 +387,32 @@ class SessionBook<
     }
   }
 
+  /**
+   * Removes every {@link SessionDetail} with a {@link SessionDetail#inactiveSince} older than
+   * {@link #maximumInactivityDuration}, instead of waiting for some access to it.
+   *
+   * @return the number of removed {@link SessionDetail}s.
+   */
+  public int removeInactive( final DateTime now ) {
+    final DateTime earliestInactivity = now.minus( maximumInactivityDuration ) ;
+    final int[] removedCount = { 0 } ;
+    processAllChannels( sessionDetail -> {
+      if( sessionDetail.inactiveSince != null &&
+          sessionDetail.inactiveSince.isBefore( earliestInactivity )
+      ) {
+        removedCount[ 0 ] ++ ;
+        return ChannelProcessor.ProcessAction.DELETE ;
+      } else {
+        return ChannelProcessor.ProcessAction.CONTINUE ;
+      }
+    } ) ;
+    if( removedCount[ 0 ] > 0 ) {
+      LOGGER.debug( "Removed " + removedCount[ 0 ] + " session(s) inactive for more than " +
+          maximumInactivityDuration + "." ) ;
+    }
+    return removedCount[ 0 ] ;
+  }
+
   public ImmutableSet< CHANNEL > removeAllChannels() {
     final ImmutableSet.Builder< CHANNEL > removedChannels = ImmutableSet.builder() ;
     processAllChannels( sessionDetail -> {
@@ -412,7 +445,7 @@ class SessionBook<
     if( sessionDetail.inactiveSince != null ) {
       final DateTime earliestOrphanhood = now.minus( maximumInactivityDuration ) ;
       if( sessionDetail.inactiveSince.isBefore( earliestOrphanhood ) ) {
-        final SessionDetail removed = sessionDetailMap.remove( sessionDetail.key() ) ;
+        final SessionDetail removed = forget( sessionDetail.key() ) ;
         LOGGER.debug( "Removed " + removed + " because inactive for more than " +
             maximumInactivityDuration + "." ) ;
         return unknownSession( sessionIdentifier ) ;
@@ -454,6 +487,7 @@ class SessionBook<
       final ChannelProcessor.ProcessAction action = processor.process( sessionDetail ) ;
       if( action.deleting ) {
         iterator.remove() ;
+        unindex( sessionDetail ) ;
       }
       if( action.stopping ) {
         break ;
@@ -461,6 +495,21 @@ class SessionBook<
     }
   }
 
+  private SessionDetail< SESSION_IDENTIFIER, CHANNEL, ADDRESS > forget(
+      final SESSION_IDENTIFIER sessionIdentifier
+  ) {
+    final SessionDetail< SESSION_IDENTIFIER, CHANNEL, ADDRESS > removed =
+        sessionDetailMap.remove( sessionIdentifier ) ;
+    if( removed != null ) {
+      unindex( removed ) ;
+    }
+    return removed ;
+  }
+
+  private void unindex( final SessionDetail< SESSION_IDENTIFIER, ?, ? > removed ) {
+    sessionIdentifierByLogin.remove( removed.user.login(), removed.sessionIdentifier ) ;
+  }
+
   private interface ChannelProcessor<
       SESSION_IDENTIFIER extends KeyHolder.Key< SESSION_IDENTIFIER >,
       CHANNEL,
@@ -0,0 +1,486 @@
+package com.otcdlink.chiron.upend.session.implementation;
+
+import com.google.common.collect.ImmutableList;
+import com.otcdlink.chiron.designator.Designator;
+import com.otcdlink.chiron.middle.PhoneNumber;
+import com.otcdlink.chiron.middle.session.SecondaryCode;
+import com.otcdlink.chiron.middle.session.SecondaryToken;
+import com.otcdlink.chiron.middle.session.SessionIdentifier;
+import com.otcdlink.chiron.middle.session.SignableUser;
+import com.otcdlink.chiron.middle.session.SignonDecision;
+import com.otcdlink.chiron.middle.session.SignonFailure;
+import com.otcdlink.chiron.middle.session.SignonFailureNotice;
+import com.otcdlink.chiron.toolbox.ToStringTools;
+import com.otcdlink.chiron.toolbox.clock.Clock;
+import com.otcdlink.chiron.toolbox.concurrent.ExecutorTools;
+import com.otcdlink.chiron.upend.TimeKit;
+import com.otcdlink.chiron.upend.session.OutwardSessionSupervisor;
+import com.otcdlink.chiron.upend.session.SecondaryAuthenticator;
+import com.otcdlink.chiron.upend.session.SessionIdentifierGenerator;
+import com.otcdlink.chiron.upend.session.SignonInwardDuty;
+import org.joda.time.DateTime;
+import org.joda.time.Duration;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static com.google.common.base.Preconditions.checkNotNull;
+
+/**
+ * Spreads sessions across several {@link DefaultSessionSupervisor}s, each one with its own
+ * {@link SessionBook} and its own thread, so signon attempts and {@link #closed} calls for
+ * unrelated sessions don't serialize through one single thread.
+ *
+ * <h1>Partitioning</h1>
+ * A {@link SessionIdentifier} starts with the index of the shard owning it, followed by
+ * {@link #SHARD_SEPARATOR}. Methods receiving a {@link SessionIdentifier} just run in the
+ * thread of its shard. A malformed {@link SessionIdentifier} goes to the first shard, which
+ * doesn't know about it.
+ * A Primary Signon runs in the shard given by the hash of the login, and this shard creates
+ * the {@link SessionIdentifier} with its own {@link SessionIdentifierGenerator}, adding its
+ * index in front. So all the sessions of a given user live in the same shard,
+ * where {@link SessionBook} enforces there is only one of them.
+ * A Secondary Signon only knows about the {@link SecondaryToken}, so there is a concurrent
+ * index telling which shard did request the secondary authentication.
+ *
+ * <h1>Threading</h1>
+ * All public methods are non-blocking and thread-safe. Callbacks happen in the thread of the
+ * shard, including {@link SecondaryAuthenticator}'s ones which get rescheduled into it.
+ * Each shard periodically removes sessions inactive for too long, along with outdated
+ * {@link SecondaryToken}s.
+ */
+public class ShardedSessionSupervisor< CHANNEL, ADDRESS, SESSION_PRIMER >
+    implements
+    OutwardSessionSupervisor< CHANNEL, ADDRESS, SESSION_PRIMER >
+{
+  private static final Logger LOGGER = LoggerFactory.getLogger( ShardedSessionSupervisor.class ) ;
+
+  /**
+   * Separates the shard index from what the {@link SessionIdentifierGenerator} did generate.
+   */
+  static final char SHARD_SEPARATOR = '-' ;
+
+  private final Clock clock ;
+  private final Duration secondaryTokenValidity ;
+  private final ImmutableList< Shard > shards ;
+
+  private final Map< SecondaryToken, PendingSecondaryToken > pendingSecondaryTokens =
+      new ConcurrentHashMap<>() ;
+
+  /**
+   * @param shardCount the number of threads, one {@link SessionBook} each.
+   * @param sessionIdentifierGeneratorFactory called once per shard, so the
+   *     {@link SessionIdentifierGenerator} doesn't need to be thread-safe.
+   * @param sweepPeriod how often each shard removes sessions inactive for more than
+   *     {@code maximumInactivityDuration}.
+   */
+  public ShardedSessionSupervisor(
+      final TimeKit timeKit,
+      final int shardCount,
+      final Duration sweepPeriod,
+      final Supplier< ? extends SessionIdentifierGenerator > sessionIdentifierGeneratorFactory,
+      final SignonInwardDuty signonInwardDuty,
+      final SecondaryAuthenticator secondaryAuthenticator,
+      final Duration maximumInactivityDuration,
+      final Function< CHANNEL, ADDRESS > addressExtractor,
+      final ChannelCloser< CHANNEL > channelCloser
+  ) {
+    this(
+        timeKit,
+        shardCount,
+        sweepPeriod,
+        Duration.standardMinutes( 1 ),
+        sessionIdentifierGeneratorFactory,
+        signonInwardDuty,
+        secondaryAuthenticator,
+        maximumInactivityDuration,
+        addressExtractor,
+        channelCloser
+    ) ;
+  }
+
+  ShardedSessionSupervisor(
+      final TimeKit timeKit,
+      final int shardCount,
+      final Duration sweepPeriod,
+      final Duration secondaryTokenValidity,
+      final Supplier< ? extends SessionIdentifierGenerator > sessionIdentifierGeneratorFactory,
+      final SignonInwardDuty signonInwardDuty,
+      final SecondaryAuthenticator secondaryAuthenticator,
+      final Duration maximumInactivityDuration,
+      final Function< CHANNEL, ADDRESS > addressExtractor,
+      final ChannelCloser< CHANNEL > channelCloser
+  ) {
+    checkArgument( shardCount > 0, "Incorrect shard count: " + shardCount ) ;
+    checkArgument( sweepPeriod.getMillis() > 0, "Incorrect sweep period: " + sweepPeriod ) ;
+    checkNotNull( sessionIdentifierGeneratorFactory ) ;
+    this.clock = checkNotNull( timeKit.clock ) ;
+    this.secondaryTokenValidity = checkNotNull( secondaryTokenValidity ) ;
+    final ImmutableList.Builder< Shard > shardBuilder = ImmutableList.builder() ;
+    for( int index = 0 ; index < shardCount ; index ++ ) {
+      shardBuilder.add( new Shard(
+          index,
+          timeKit,
+          sessionIdentifierGeneratorFactory.get(),
+          signonInwardDuty,
+          secondaryAuthenticator,
+          maximumInactivityDuration,
+          addressExtractor,
+          channelCloser
+      ) ) ;
+    }
+    this.shards = shardBuilder.build() ;
+    for( final Shard shard : shards ) {
+      shard.executorService.scheduleAtFixedRate(
+          shard::sweep, sweepPeriod.getMillis(), sweepPeriod.getMillis(), TimeUnit.MILLISECONDS ) ;
+    }
+  }
+
+  /**
+   * Stops the threads of every shard, pending calls don't happen.
+   */
+  public void stop() {
+    for( final Shard shard : shards ) {
+      shard.executorService.shutdownNow() ;
+    }
+  }
+
+
+// =======
+// Routing
+// =======
+
+  private Shard shard( final SessionIdentifier sessionIdentifier ) {
+    final String string = sessionIdentifier.asString() ;
+    final int separatorPosition = string.indexOf( SHARD_SEPARATOR ) ;
+    if( separatorPosition > 0 ) {
+      try {
+        final int index = Integer.parseInt( string.substring( 0, separatorPosition ) ) ;
+        if( index >= 0 && index < shards.size() ) {
+          return shards.get( index ) ;
+        }
+      } catch( final NumberFormatException ignore ) { }
+    }
+    return shards.get( 0 ) ;
+  }
+
+  private Shard shardForLogin( final String login ) {
+    return shards.get( shardIndex( login.hashCode() ) ) ;
+  }
+
+  private int shardIndex( final int hash ) {
+    return Math.floorMod( hash, shards.size() ) ;
+  }
+
+
+// ==================
+// SessionSupervisor
+// ==================
+
+  @Override
+  public void tryReuse(
+      final SessionIdentifier sessionIdentifier,
+      final CHANNEL channel,
+      final ReuseCallback callback
+  ) {
+    final Shard shard = shard( sessionIdentifier ) ;
+    shard.execute( () -> shard.supervisor.tryReuse( sessionIdentifier, channel, callback ) ) ;
+  }
+
+  @Override
+  public void attemptPrimarySignon(
+      final String userLogin,
+      final String password,
+      final CHANNEL channel,
+      final ADDRESS remoteAddress,
+      final PrimarySignonAttemptCallback< SESSION_PRIMER > callback
+  ) {
+    final Shard shard = shardForLogin( userLogin ) ;
+    shard.execute( () -> shard.supervisor.attemptPrimarySignon(
+        userLogin, password, channel, remoteAddress, callback ) ) ;
+  }
+
+  @Override
+  public void attemptSecondarySignon(
+      final CHANNEL channel,
+      final ADDRESS remoteAddress,
+      final SecondaryToken secondaryToken,
+      final SecondaryCode secondaryCode,
+      final SecondarySignonAttemptCallback callback
+  ) {
+    final PendingSecondaryToken pendingSecondaryToken =
+        pendingSecondaryTokens.get( secondaryToken ) ;
+    if( pendingSecondaryToken == null ) {
+      callback.signonResult( new SignonFailureNotice( SignonFailure.INVALID_SECONDARY_TOKEN ) ) ;
+    } else {
+      final Shard shard = pendingSecondaryToken.shard ;
+      shard.execute( () -> shard.supervisor.attemptSecondarySignon(
+          channel, remoteAddress, secondaryToken, secondaryCode, callback ) ) ;
+    }
+  }
+
+  /**
+   * Without {@link SessionIdentifier} we don't know which shard references the
+   * {@link CHANNEL}, so we ask all of them to remove it. There is no session to sign out
+   * from {@link SignonInwardDuty}'s point of view.
+   */
+  @Override
+  public void closed(
+      final CHANNEL channel,
+      final SessionIdentifier sessionIdentifier,
+      final boolean terminateSession
+  ) {
+    if( sessionIdentifier == null ) {
+      LOGGER.info( "Closed (with " + ( terminateSession ? "" : "no " ) + "session termination) " +
+          "for unknown session: " + channel + "." ) ;
+      for( final Shard shard : shards ) {
+        shard.execute( () -> shard.supervisor.removeChannel(
+            channel, terminateSession ? null : clock.getCurrentDateTime() ) ) ;
+      }
+    } else {
+      final Shard shard = shard( sessionIdentifier ) ;
+      shard.execute( () ->
+          shard.supervisor.closed( channel, sessionIdentifier, terminateSession ) ) ;
+    }
+  }
+
+  @Override
+  public void kickoutAll() {
+    for( final Shard shard : shards ) {
+      shard.execute( shard.supervisor::kickoutAll ) ;
+    }
+  }
+
+  @Override
+  public void kickout( final Designator designator, final SessionIdentifier sessionIdentifier ) {
+    final Shard shard = shard( sessionIdentifier ) ;
+    shard.execute( () -> shard.supervisor.kickout( designator, sessionIdentifier ) ) ;
+  }
+
+
+// =================
+// SignonOutwardDuty
+// =================
+
+  @Override
+  public void primarySignonAttempted(
+      final Designator designatorInternal,
+      final SignonDecision< SignableUser > signonDecision
+  ) {
+    final String login =
+        ( ( DefaultSessionSupervisor.PrimarySignonAttemptDesignator ) designatorInternal ).login ;
+    final Shard shard = shardForLogin( login ) ;
+    shard.execute( () ->
+        shard.supervisor.primarySignonAttempted( designatorInternal, signonDecision ) ) ;
+  }
+
+  @Override
+  public void secondarySignonAttempted(
+      final Designator designatorInternal,
+      final SignonFailureNotice signonFailureNotice
+  ) {
+    final DefaultSessionSupervisor.SecondarySignonAttemptDesignator designator =
+        ( DefaultSessionSupervisor.SecondarySignonAttemptDesignator ) designatorInternal ;
+    final PendingSecondaryToken pendingSecondaryToken =
+        pendingSecondaryTokens.get( designator.secondaryToken ) ;
+    if( pendingSecondaryToken == null ) {
+      designator.callback.signonResult( new SignonFailureNotice(
+          SignonFailure.INVALID_SECONDARY_TOKEN,
+          SignonFailure.INVALID_SECONDARY_TOKEN.description() + ": " + designator.secondaryToken
+      ) ) ;
+    } else {
+      final Shard shard = pendingSecondaryToken.shard ;
+      shard.execute( () ->
+          shard.supervisor.secondarySignonAttempted( designatorInternal, signonFailureNotice ) ) ;
+    }
+  }
+
+  @Override
+  public void sessionCreated(
+      final Designator designatorInternal,
+      final SessionIdentifier sessionIdentifier,
+      final String login,
+      final SESSION_PRIMER sessionPrimer
+  ) {
+    final Shard shard = shard( sessionIdentifier ) ;
+    shard.execute( () -> shard.supervisor.sessionCreated(
+        designatorInternal, sessionIdentifier, login, sessionPrimer ) ) ;
+  }
+
+  /**
+   * A {@code null} {@link SessionIdentifier} means there is nothing to remove from a
+   * {@link SessionBook}, so any shard can notify the callback.
+   */
+  @Override
+  public void sessionCreationFailed(
+      final Designator designatorInternal,
+      final SessionIdentifier sessionIdentifier,
+      final SignonFailureNotice signonFailureNotice
+  ) {
+    final Shard shard = sessionIdentifier == null ? shards.get( 0 ) : shard( sessionIdentifier ) ;
+    shard.execute( () -> shard.supervisor.sessionCreationFailed(
+        designatorInternal, sessionIdentifier, signonFailureNotice ) ) ;
+  }
+
+  @Override
+  public void terminateSession(
+      final Designator designatorInternal,
+      final SessionIdentifier sessionIdentifier
+  ) {
+    checkNotNull( sessionIdentifier ) ;
+    final Shard shard = shard( sessionIdentifier ) ;
+    shard.execute( () ->
+        shard.supervisor.terminateSession( designatorInternal, sessionIdentifier ) ) ;
+  }
+
+  @Override
+  public String toString() {
+    return ToStringTools.nameAndCompactHash( this ) + "{shards=" + shards.size() + "}" ;
+  }
+
+
+// =====
+// Shard
+// =====
+
+  private final class Shard {
+
+    private final int index ;
+    private final ScheduledExecutorService executorService ;
+    private final DefaultSessionSupervisor< CHANNEL, ADDRESS, SESSION_PRIMER > supervisor ;
+
+    private Shard(
+        final int index,
+        final TimeKit timeKit,
+        final SessionIdentifierGenerator sessionIdentifierGenerator,
+        final SignonInwardDuty signonInwardDuty,
+        final SecondaryAuthenticator secondaryAuthenticator,
+        final Duration maximumInactivityDuration,
+        final Function< CHANNEL, ADDRESS > addressExtractor,
+        final ChannelCloser< CHANNEL > channelCloser
+    ) {
+      this.index = index ;
+      this.executorService = ExecutorTools.singleThreadedScheduledExecutorServiceFactory(
+          ShardedSessionSupervisor.class.getSimpleName() + "-" + index ).create() ;
+      this.supervisor = new DefaultSessionSupervisor<>(
+          timeKit.clock,
+          timeKit.stampGenerator,
+          timeKit.designatorFactory,
+          secondaryTokenValidity,
+          ownedSessionIdentifierGenerator( sessionIdentifierGenerator ),
+          signonInwardDuty,
+          secondaryAuthenticator == null ? null : shardAuthenticator( secondaryAuthenticator ),
+          maximumInactivityDuration,
+          addressExtractor,
+          channelCloser
+      ) ;
+    }
+
+    /**
+     * Prepends the index of this {@link Shard} so {@link #shard(SessionIdentifier)} routes
+     * to it. Given {@link SessionIdentifierGenerator} belongs to this {@link Shard} only,
+     * and runs in its thread.
+     */
+    private SessionIdentifierGenerator ownedSessionIdentifierGenerator(
+        final SessionIdentifierGenerator sessionIdentifierGenerator
+    ) {
+      checkNotNull( sessionIdentifierGenerator ) ;
+      final String prefix = Integer.toString( index ) + SHARD_SEPARATOR ;
+      return () -> new SessionIdentifier(
+          prefix + sessionIdentifierGenerator.generate().asString() ) ;
+    }
+
+    /**
+     * Runs callbacks in the thread of this {@link Shard} since {@link DefaultSessionSupervisor}
+     * is single-threaded, and indexes {@link SecondaryToken}s for
+     * {@link #attemptSecondarySignon(Object, Object, SecondaryToken, SecondaryCode,
+     * SecondarySignonAttemptCallback)}.
+     */
+    private SecondaryAuthenticator shardAuthenticator(
+        final SecondaryAuthenticator secondaryAuthenticator
+    ) {
+      return new SecondaryAuthenticator() {
+        @Override
+        public void requestAuthentication(
+            final PhoneNumber userPhoneNumber,
+            final SecondaryTokenCallback callback
+        ) {
+          secondaryAuthenticator.requestAuthentication(
+              userPhoneNumber,
+              secondaryToken -> execute( () -> {
+                pendingSecondaryTokens.put( secondaryToken,
+                    new PendingSecondaryToken( Shard.this, clock.getCurrentDateTime() ) ) ;
+                callback.secondaryToken( secondaryToken ) ;
+              } )
+          ) ;
+        }
+
+        @Override
+        public void verifySecondaryCode(
+            final SecondaryToken secondaryToken,
+            final SecondaryCode secondaryCode,
+            final VerificationCallback callback
+        ) {
+          secondaryAuthenticator.verifySecondaryCode(
+              secondaryToken,
+              secondaryCode,
+              authenticationFailureNotice -> execute( () -> {
+                if( authenticationFailureNotice == null ) {
+                  pendingSecondaryTokens.remove( secondaryToken ) ;
+                }
+                callback.secondaryAuthenticationResult( authenticationFailureNotice ) ;
+              } )
+          ) ;
+        }
+      } ;
+    }
+
+    void execute( final Runnable runnable ) {
+      executorService.execute( () -> {
+        try {
+          runnable.run() ;
+        } catch( final RuntimeException e ) {
+          LOGGER.error( "Failed to run " + runnable + " in " + this + ".", e ) ;
+        }
+      } ) ;
+    }
+
+    /**
+     * Runs in the thread of this {@link Shard}, so it only sees its own {@link SessionBook}.
+     */
+    private void sweep() {
+      try {
+        supervisor.sweep() ;
+        final DateTime earliestSurvivor =
+            clock.getCurrentDateTime().minus( secondaryTokenValidity ) ;
+        pendingSecondaryTokens.values().removeIf( pending ->
+            pending.shard == this && pending.creationTime.isBefore( earliestSurvivor ) ) ;
+      } catch( final RuntimeException e ) {
+        LOGGER.error( "Sweep failed in " + this + ".", e ) ;
+      }
+    }
+
+    @Override
+    public String toString() {
+      return ToStringTools.getNiceClassName( this ) + "{" + index + "}" ;
+    }
+  }
+
+  private final class PendingSecondaryToken {
+    private final Shard shard ;
+    private final DateTime creationTime ;
+
+    private PendingSecondaryToken( final Shard shard, final DateTime creationTime ) {
+      this.shard = checkNotNull( shard ) ;
+      this.creationTime = checkNotNull( creationTime ) ;
+    }
+  }
+
+}
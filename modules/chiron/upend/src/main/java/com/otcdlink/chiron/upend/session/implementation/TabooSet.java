@@ -0,0 +1,63 @@
+package com.otcdlink.chiron.upend.session.implementation;
+
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static com.google.common.base.Preconditions.checkNotNull;
+
+/**
+ * Remembers the last {@link #capacity} values, with constant-time lookup.
+ * Same purpose as the taboo ring of {@link GeneratorWithTaboo} which scans every
+ * previous value, but relies on {@link Object#hashCode()} and {@link Object#equals(Object)}.
+ *
+ * <h1>Thread-safety</h1>
+ * The ring only serves to know which value to evict, while the {@code Set} decides about
+ * collisions, so concurrent calls to {@link #offer(Object)} can't let a duplicate in.
+ * Under contention the {@code Set} may briefly hold a bit more than {@link #capacity} values.
+ */
+public final class TabooSet< VALUE > {
+
+  private final int capacity ;
+  private final Set< VALUE > present ;
+  private final AtomicReferenceArray< VALUE > ring ;
+  private final AtomicInteger cursor = new AtomicInteger() ;
+
+  public TabooSet( final int capacity ) {
+    checkArgument( capacity > 0 ) ;
+    this.capacity = capacity ;
+    this.present = ConcurrentHashMap.newKeySet( capacity * 2 ) ;
+    this.ring = new AtomicReferenceArray<>( capacity ) ;
+  }
+
+  /**
+   * @return {@code false} if the value was already there, so caller should generate another.
+   */
+  public boolean offer( final VALUE value ) {
+    checkNotNull( value ) ;
+    if( ! present.add( value ) ) {
+      return false ;
+    }
+    final int index = Math.floorMod( cursor.getAndIncrement(), capacity ) ;
+    final VALUE evicted = ring.getAndSet( index, value ) ;
+    if( evicted != null ) {
+      present.remove( evicted ) ;
+    }
+    return true ;
+  }
+
+  public boolean contains( final VALUE value ) {
+    return present.contains( value ) ;
+  }
+
+  public int capacity() {
+    return capacity ;
+  }
+
+  @Override
+  public String toString() {
+    return getClass().getSimpleName() + "{capacity=" + capacity + "}" ;
+  }
+}
@@ -2,6 +2,7 @@ package com.otcdlink.chiron.upend.tier;
 
 import com.otcdlink.chiron.command.Command;
 import com.otcdlink.chiron.command.CommandConsumer;
+import com.otcdlink.chiron.command.RecyclableCommand;
 import com.otcdlink.chiron.designator.Designator;
 import com.otcdlink.chiron.toolbox.ReadableStateHolder;
 import com.otcdlink.chiron.upend.UpendConnector;
@@ -35,10 +36,14 @@ public class CommandReceiverTier< UPWARD_DUTY >
   ) throws Exception {
     final UpendConnector.State currentState = readableState.get() ;
     if( currentState == UpendConnector.State.STARTED ) {
+      // Releasing a RecyclableCommand is now the job of the Logic.
       commandConsumer.accept( command ) ;
       LOGGER.debug( "Passing " + command + " to " + commandConsumer + "." ) ;
     } else {
       LOGGER.info( "Quietly dropping " + command + " because in " + currentState + " state." ) ;
+      if( command instanceof RecyclableCommand ) {
+        ( ( RecyclableCommand ) command ).release() ;
+      }
     }
   }
 }
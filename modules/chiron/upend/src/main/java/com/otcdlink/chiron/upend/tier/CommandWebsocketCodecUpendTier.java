@@ -6,10 +6,15 @@ import com.otcdlink.chiron.codec.CommandBodyDecoder;
 import com.otcdlink.chiron.codec.DecodeException;
 import com.otcdlink.chiron.command.Command;
 import com.otcdlink.chiron.designator.Designator;
+import com.otcdlink.chiron.designator.FlyweightDesignator;
 import com.otcdlink.chiron.middle.ChannelTools;
+import com.otcdlink.chiron.middle.session.SessionIdentifier;
 import com.otcdlink.chiron.middle.tier.AbstractCommandWebsocketCodecTier;
+import com.otcdlink.chiron.middle.tier.WebsocketMetrics;
 import io.netty.channel.ChannelHandlerContext;
 
+import java.io.IOException;
+
 import static com.google.common.base.Preconditions.checkNotNull;
 
 public class CommandWebsocketCodecUpendTier< UPWARD_DUTY, DOWNWARD_DUTY >
@@ -20,16 +25,56 @@ public class CommandWebsocketCodecUpendTier< UPWARD_DUTY, DOWNWARD_DUTY >
             DOWNWARD_DUTY
         >
 {
+  private final CommandBodyDecoder< Designator, UPWARD_DUTY > commandDecoder ;
   private final Designator.Factory designatorFactory ;
 
+  /**
+   * Lazily created, there is one {@link CommandWebsocketCodecUpendTier} per {@code Channel}
+   * so it is for one session at a time.
+   */
+  private FlyweightDesignator flyweightDesignator = null ;
+
   public CommandWebsocketCodecUpendTier(
       final CommandBodyDecoder< Designator, UPWARD_DUTY > commandDecoder,
       final Designator.Factory designatorFactory
   ) {
-    super( commandDecoder ) ;
+    this( commandDecoder, designatorFactory, WebsocketMetrics.NULL ) ;
+  }
+
+  public CommandWebsocketCodecUpendTier(
+      final CommandBodyDecoder< Designator, UPWARD_DUTY > commandDecoder,
+      final Designator.Factory designatorFactory,
+      final WebsocketMetrics websocketMetrics
+  ) {
+    super( commandDecoder, websocketMetrics ) ;
+    this.commandDecoder = commandDecoder ;
     this.designatorFactory = checkNotNull( designatorFactory ) ;
   }
 
+  @Override
+  protected Designator readEndpointSpecific(
+      final ChannelHandlerContext channelHandlerContext,
+      final String commandName,
+      final PositionalFieldReader fieldReader
+  ) throws IOException {
+    if( commandDecoder.recycles( commandName ) ) {
+      // Untracked Command, Downend sent no meaningful Tag.
+      fieldReader.readDelimitedString() ;
+      return flyweightDesignator( ChannelTools.sessionIdentifier( channelHandlerContext ) ) ;
+    } else {
+      return readEndpointSpecific( channelHandlerContext, fieldReader ) ;
+    }
+  }
+
+  private FlyweightDesignator flyweightDesignator( final SessionIdentifier sessionIdentifier ) {
+    if( flyweightDesignator == null ||
+        ! flyweightDesignator.sessionIdentifier.equals( sessionIdentifier )
+    ) {
+      flyweightDesignator = designatorFactory.flyweight( sessionIdentifier ) ;
+    }
+    return flyweightDesignator ;
+  }
+
 
   @Override
   protected Designator readEndpointSpecific(
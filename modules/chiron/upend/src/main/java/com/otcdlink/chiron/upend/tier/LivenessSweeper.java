@@ -0,0 +1,124 @@
+package com.otcdlink.chiron.upend.tier;
+
+import io.netty.util.concurrent.EventExecutor;
+import io.netty.util.concurrent.ScheduledFuture;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+
+import static com.google.common.base.Preconditions.checkNotNull;
+
+/**
+ * Checks periodically, with one single task per {@link EventExecutor}, which {@link PongTier}s
+ * saw no activity for too long, so {@link PongTier} doesn't need to reschedule anything
+ * when a frame arrives.
+ * The price is a coarser timeout: a {@link io.netty.channel.Channel} closes between
+ * {@link PongTier#timeoutIfNoActivityMs} and {@link PongTier#timeoutIfNoActivityMs} plus
+ * {@link #periodMs}.
+ *
+ * <p>
+ * All instance methods run in the {@link EventExecutor}, so there is no synchronization.
+ */
+final class LivenessSweeper {
+
+  private static final Logger LOGGER = LoggerFactory.getLogger( LivenessSweeper.class ) ;
+
+  /**
+   * Shortest period, so a very short timeout doesn't cause a busy sweep.
+   */
+  static final long MINIMUM_PERIOD_MS = 10 ;
+
+  private static final ConcurrentMap< EventExecutor, LivenessSweeper > SWEEPERS =
+      new ConcurrentHashMap<>() ;
+
+  private final EventExecutor executor ;
+  private final Set< PongTier > pongTiers = new LinkedHashSet<>() ;
+  private long periodMs = Long.MAX_VALUE ;
+  private ScheduledFuture< ? > sweepFuture = null ;
+
+  private LivenessSweeper( final EventExecutor executor ) {
+    this.executor = checkNotNull( executor ) ;
+  }
+
+  static void register( final EventExecutor executor, final PongTier pongTier ) {
+    SWEEPERS.computeIfAbsent( executor, LivenessSweeper::new ).add( pongTier ) ;
+  }
+
+  static void unregister( final EventExecutor executor, final PongTier pongTier ) {
+    final LivenessSweeper sweeper = SWEEPERS.get( executor ) ;
+    if( sweeper != null ) {
+      sweeper.remove( pongTier ) ;
+    }
+  }
+
+  /**
+   * For tests.
+   */
+  static void sweepNow( final EventExecutor executor ) {
+    final LivenessSweeper sweeper = SWEEPERS.get( executor ) ;
+    if( sweeper != null ) {
+      sweeper.sweep() ;
+    }
+  }
+
+  private void add( final PongTier pongTier ) {
+    pongTiers.add( pongTier ) ;
+    final long desiredPeriodMs =
+        Math.max( MINIMUM_PERIOD_MS, pongTier.timeoutIfNoActivityMs / 4 ) ;
+    if( desiredPeriodMs < periodMs ) {
+      periodMs = desiredPeriodMs ;
+      cancelSweep() ;
+    }
+    if( sweepFuture == null ) {
+      sweepFuture = executor.scheduleAtFixedRate(
+          this::sweep, periodMs, periodMs, TimeUnit.MILLISECONDS ) ;
+      LOGGER.debug( "Scheduled sweep every " + periodMs + " ms on " + executor + "." ) ;
+    }
+  }
+
+  private void remove( final PongTier pongTier ) {
+    pongTiers.remove( pongTier ) ;
+    if( pongTiers.isEmpty() ) {
+      cancelSweep() ;
+      periodMs = Long.MAX_VALUE ;
+      SWEEPERS.remove( executor, this ) ;
+    }
+  }
+
+  private void cancelSweep() {
+    if( sweepFuture != null ) {
+      sweepFuture.cancel( false ) ;
+      sweepFuture = null ;
+    }
+  }
+
+  private void sweep() {
+    List< PongTier > expired = null ;
+    for( final PongTier pongTier : pongTiers ) {
+      if( pongTier.inactiveForTooLong() ) {
+        if( expired == null ) {
+          expired = new ArrayList<>() ;
+        }
+        expired.add( pongTier ) ;
+      }
+    }
+    if( expired != null ) {
+      for( final PongTier pongTier : expired ) {
+        // Closing causes a call to #remove(PongTier) so we don't iterate over pongTiers.
+        pongTier.closeForInactivity() ;
+      }
+    }
+  }
+
+  @Override
+  public String toString() {
+    return getClass().getSimpleName() + "{" + executor + ";" + pongTiers.size() + "}" ;
+  }
+}
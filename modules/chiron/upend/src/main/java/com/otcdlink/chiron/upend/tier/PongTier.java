@@ -9,45 +9,77 @@ import io.netty.handler.codec.http.websocketx.ContinuationWebSocketFrame;
 import io.netty.handler.codec.http.websocketx.PingWebSocketFrame;
 import io.netty.handler.codec.http.websocketx.PongWebSocketFrame;
 import io.netty.handler.codec.http.websocketx.TextWebSocketFrame;
-import io.netty.util.concurrent.EventExecutor;
-import io.netty.util.concurrent.ScheduledFuture;
+import io.netty.handler.codec.http.websocketx.WebSocketFrame;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.util.concurrent.TimeUnit;
-import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.LongSupplier;
 
 import static com.google.common.base.Preconditions.checkArgument;
+import static com.google.common.base.Preconditions.checkNotNull;
 
 /**
- * Answers to every {@link PingWebSocketFrame} with a {@link PongWebSocketFrame} and triggers
- * a timeout if there was no ping for a certain period.
+ * Answers to every {@link PingWebSocketFrame} with a {@link PongWebSocketFrame} and closes
+ * the {@link io.netty.channel.Channel} if there was no inbound activity for a certain period.
+ * Activity means a {@link PingWebSocketFrame} or any content frame (which is either a
+ * {@link TextWebSocketFrame}, a {@link BinaryWebSocketFrame}, or a
+ * {@link ContinuationWebSocketFrame}).
  *
- * <h2>Not yet supported</h2>
- * Consider any content frame (which is either a {@link TextWebSocketFrame}, a
- * {@link BinaryWebSocketFrame}, or a {@link ContinuationWebSocketFrame}) as a
- * Ping, and wait for some delay before sending a Pong. During this delay, if there
- * is an outbound content frame, don't send the Pong.
+ * <p>
+ * Receiving a frame only updates a timestamp. A {@link LivenessSweeper} shared by every
+ * {@link PongTier} of the same {@link io.netty.channel.EventLoop} detects inactivity,
+ * so there is no {@code ScheduledFuture} to cancel and reschedule for each frame.
  */
 public class PongTier extends SimpleChannelInboundHandler< PingWebSocketFrame > {
 
   private static final Logger LOGGER = LoggerFactory.getLogger( PongTier.class ) ;
 
-  private final long timeoutIfNoPingMs ;
+  final long timeoutIfNoActivityMs ;
+  private final long timeoutIfNoActivityNs ;
+  private final LongSupplier nanoClock ;
 
-  private final AtomicReference< ScheduledFuture< ? > > nextTimeoutFutureReference =
-      new AtomicReference<>() ;
+  /**
+   * Accessed only from the {@link io.netty.channel.EventLoop}.
+   */
+  private long lastActivityNs ;
 
+  /**
+   * Non-{@code null} when registered to a {@link LivenessSweeper}.
+   */
+  private ChannelHandlerContext channelHandlerContext = null ;
 
-  public PongTier( final long timeoutIfNoPingMs ) {
+
+  public PongTier( final long timeoutIfNoActivityMs ) {
+    this( timeoutIfNoActivityMs, System::nanoTime ) ;
+  }
+
+  /**
+   * For tests.
+   */
+  PongTier( final long timeoutIfNoActivityMs, final LongSupplier nanoClock ) {
     super( true ) ;
-    checkArgument( timeoutIfNoPingMs > 0 ) ;
-    this.timeoutIfNoPingMs = timeoutIfNoPingMs ;
+    checkArgument( timeoutIfNoActivityMs > 0 ) ;
+    this.timeoutIfNoActivityMs = timeoutIfNoActivityMs ;
+    this.timeoutIfNoActivityNs = TimeUnit.MILLISECONDS.toNanos( timeoutIfNoActivityMs ) ;
+    this.nanoClock = checkNotNull( nanoClock ) ;
+  }
+
+  /**
+   * {@link PongTier} usually gets added after WebSocket handshake, when the
+   * {@link io.netty.channel.Channel} is already active.
+   */
+  @Override
+  public void handlerAdded( final ChannelHandlerContext channelHandlerContext ) throws Exception {
+    if( channelHandlerContext.channel().isActive() ) {
+      startWatching( channelHandlerContext ) ;
+    }
+    super.handlerAdded( channelHandlerContext ) ;
   }
 
   @Override
   public void channelActive( final ChannelHandlerContext channelHandlerContext ) throws Exception {
-    rescheduleTimeout( channelHandlerContext ) ;
+    startWatching( channelHandlerContext ) ;
     super.channelActive( channelHandlerContext ) ;
   }
 
@@ -55,10 +87,29 @@ public class PongTier extends SimpleChannelInboundHandler< PingWebSocketFrame >
   public void channelInactive( final ChannelHandlerContext channelHandlerContext )
       throws Exception
   {
-    cancelTimeout() ;
+    stopWatching() ;
     super.channelInactive( channelHandlerContext ) ;
   }
 
+  @Override
+  public void handlerRemoved( final ChannelHandlerContext channelHandlerContext )
+      throws Exception
+  {
+    stopWatching() ;
+    super.handlerRemoved( channelHandlerContext ) ;
+  }
+
+  @Override
+  public void channelRead(
+      final ChannelHandlerContext channelHandlerContext,
+      final Object message
+  ) throws Exception {
+    if( message instanceof WebSocketFrame ) {
+      lastActivityNs = nanoClock.getAsLong() ;
+    }
+    super.channelRead( channelHandlerContext, message ) ;
+  }
+
   @Override
   protected void channelRead0(
       final ChannelHandlerContext channelHandlerContext,
@@ -77,34 +128,48 @@ public class PongTier extends SimpleChannelInboundHandler< PingWebSocketFrame >
         LOGGER.error( "Pong failed in response to ping #" + pingCounter + ".", future.cause() ) ;
       }
     } ) ;
-    rescheduleTimeout( channelHandlerContext ) ;
   }
 
-  private void cancelTimeout() {
-    scheduleNext( null ) ;
-  }
 
-  private void scheduleNext( final ScheduledFuture< ? > scheduledFuture ) {
-    final ScheduledFuture< ? > previous = nextTimeoutFutureReference.getAndSet( scheduledFuture ) ;
-    if( previous != null ) {
-      previous.cancel( false ) ;
+// ========
+// Liveness
+// ========
+
+  private void startWatching( final ChannelHandlerContext channelHandlerContext ) {
+    if( this.channelHandlerContext == null ) {
+      this.channelHandlerContext = channelHandlerContext ;
+      lastActivityNs = nanoClock.getAsLong() ;
+      LivenessSweeper.register( channelHandlerContext.executor(), this ) ;
+      LOGGER.debug( "Watching activity of " + channelHandlerContext.channel() + " with a " +
+          "timeout of " + timeoutIfNoActivityMs + " ms." ) ;
     }
   }
 
-  private void rescheduleTimeout( final ChannelHandlerContext channelHandlerContext ) {
-    final EventExecutor executor = channelHandlerContext.executor() ;
-    final ScheduledFuture< ? > scheduledFuture = executor.schedule(
-        () -> closeChannel( channelHandlerContext ),
-        timeoutIfNoPingMs,
-        TimeUnit.MILLISECONDS
-    ) ;
-    scheduleNext( scheduledFuture ) ;
-    LOGGER.debug( "Rescheduled timeout in " + timeoutIfNoPingMs + " ms." ) ;
+  private void stopWatching() {
+    if( channelHandlerContext != null ) {
+      LivenessSweeper.unregister( channelHandlerContext.executor(), this ) ;
+      channelHandlerContext = null ;
+    }
   }
 
+  /**
+   * Called by {@link LivenessSweeper}.
+   */
+  boolean inactiveForTooLong() {
+    return nanoClock.getAsLong() - lastActivityNs > timeoutIfNoActivityNs ;
+  }
 
-  private static void closeChannel( final ChannelHandlerContext channelHandlerContext ) {
-    channelHandlerContext.close() ;
+  /**
+   * Called by {@link LivenessSweeper}.
+   */
+  void closeForInactivity() {
+    final ChannelHandlerContext context = channelHandlerContext ;
+    if( context != null ) {
+      stopWatching() ;
+      LOGGER.debug( "No activity for more than " + timeoutIfNoActivityMs + " ms, closing " +
+          context.channel() + "." ) ;
+      context.close() ;
+    }
   }
 
 
@@ -0,0 +1,132 @@
+package com.otcdlink.chiron.upend.http.content;
+
+import io.netty.handler.codec.DateFormatter;
+import io.netty.handler.codec.http.DefaultHttpHeaders;
+import io.netty.handler.codec.http.HttpHeaderNames;
+import io.netty.handler.codec.http.HttpHeaders;
+import org.junit.jupiter.api.Test;
+
+import java.util.Date;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class ClientCachingToolsTest {
+
+  @Test
+  void notModifiedWithEtag() {
+    assertThat( ClientCachingTools.notModified( headers(), ETAG, LAST_MODIFIED ) ).isFalse() ;
+    assertThat( ClientCachingTools.notModified(
+        headers( HttpHeaderNames.IF_NONE_MATCH, "\"other\", " + ETAG ), ETAG, LAST_MODIFIED ) )
+        .isTrue() ;
+    assertThat( ClientCachingTools.notModified(
+        headers( HttpHeaderNames.IF_NONE_MATCH, "W/" + ETAG ), ETAG, LAST_MODIFIED ) )
+        .isTrue() ;
+    assertThat( ClientCachingTools.notModified(
+        headers( HttpHeaderNames.IF_NONE_MATCH, "\"other\"" ), ETAG, LAST_MODIFIED ) )
+        .isFalse() ;
+  }
+
+  @Test
+  void notModifiedWithDate() {
+    assertThat( ClientCachingTools.notModified(
+        headers( HttpHeaderNames.IF_MODIFIED_SINCE, httpDate( LAST_MODIFIED ) ),
+        ETAG,
+        LAST_MODIFIED + 999  // Sub-second precision gets lost.
+    ) ).isTrue() ;
+    assertThat( ClientCachingTools.notModified(
+        headers( HttpHeaderNames.IF_MODIFIED_SINCE, httpDate( LAST_MODIFIED - 1000 ) ),
+        ETAG,
+        LAST_MODIFIED
+    ) ).isFalse() ;
+  }
+
+  @Test
+  void etagTakesPrecedenceOverDate() {
+    assertThat( ClientCachingTools.notModified(
+        headers(
+            HttpHeaderNames.IF_NONE_MATCH, "\"other\"",
+            HttpHeaderNames.IF_MODIFIED_SINCE, httpDate( LAST_MODIFIED )
+        ),
+        ETAG,
+        LAST_MODIFIED
+    ) ).isFalse() ;
+  }
+
+  @Test
+  void ranges() {
+    assertThat( ClientCachingTools.parseRange( "bytes=0-9", 100 ) )
+        .isEqualTo( new ClientCachingTools.ByteRange( 0, 9 ) ) ;
+    assertThat( ClientCachingTools.parseRange( "bytes=90-", 100 ) )
+        .isEqualTo( new ClientCachingTools.ByteRange( 90, 99 ) ) ;
+    assertThat( ClientCachingTools.parseRange( "bytes=-10", 100 ) )
+        .isEqualTo( new ClientCachingTools.ByteRange( 90, 99 ) ) ;
+    assertThat( ClientCachingTools.parseRange( "bytes=50-1000", 100 ) )
+        .isEqualTo( new ClientCachingTools.ByteRange( 50, 99 ) ) ;
+    assertThat( ClientCachingTools.parseRange( "bytes=100-", 100 ) )
+        .isSameAs( ClientCachingTools.ByteRange.UNSATISFIABLE ) ;
+    assertThat( ClientCachingTools.parseRange( "bytes=0-1,5-6", 100 ) ).isNull() ;
+    assertThat( ClientCachingTools.parseRange( "bytes=9-0", 100 ) ).isNull() ;
+    assertThat( ClientCachingTools.parseRange( "lines=0-1", 100 ) ).isNull() ;
+    assertThat( ClientCachingTools.parseRange( "bytes=x-1", 100 ) ).isNull() ;
+    assertThat( new ClientCachingTools.ByteRange( 0, 9 ).contentRange( 100 ) )
+        .isEqualTo( "bytes 0-9/100" ) ;
+  }
+
+  @Test
+  void ifRange() {
+    assertThat( ClientCachingTools.byteRange(
+        headers( HttpHeaderNames.RANGE, "bytes=0-9", HttpHeaderNames.IF_RANGE, ETAG ),
+        ETAG, LAST_MODIFIED, 100
+    ) ).isEqualTo( new ClientCachingTools.ByteRange( 0, 9 ) ) ;
+    assertThat( ClientCachingTools.byteRange(
+        headers( HttpHeaderNames.RANGE, "bytes=0-9", HttpHeaderNames.IF_RANGE, "\"other\"" ),
+        ETAG, LAST_MODIFIED, 100
+    ) ).isNull() ;
+    assertThat( ClientCachingTools.byteRange(
+        headers(
+            HttpHeaderNames.RANGE, "bytes=0-9",
+            HttpHeaderNames.IF_RANGE, httpDate( LAST_MODIFIED )
+        ),
+        ETAG, LAST_MODIFIED, 100
+    ) ).isEqualTo( new ClientCachingTools.ByteRange( 0, 9 ) ) ;
+  }
+
+  @Test
+  void acceptsGzip() {
+    assertThat( ClientCachingTools.acceptsGzip( headers() ) ).isFalse() ;
+    assertThat( ClientCachingTools.acceptsGzip(
+        headers( HttpHeaderNames.ACCEPT_ENCODING, "gzip, deflate, br" ) ) ).isTrue() ;
+    assertThat( ClientCachingTools.acceptsGzip(
+        headers( HttpHeaderNames.ACCEPT_ENCODING, "br;q=1.0, GZIP;q=0.5" ) ) ).isTrue() ;
+    assertThat( ClientCachingTools.acceptsGzip(
+        headers( HttpHeaderNames.ACCEPT_ENCODING, "gzip;q=0" ) ) ).isFalse() ;
+    assertThat( ClientCachingTools.acceptsGzip(
+        headers( HttpHeaderNames.ACCEPT_ENCODING, "identity" ) ) ).isFalse() ;
+  }
+
+  @Test
+  void gzipEtag() {
+    assertThat( ClientCachingTools.gzipEtag( ETAG ) ).isEqualTo( "\"cafe-gzip\"" ) ;
+  }
+
+// =======
+// Fixture
+// =======
+
+  private static final String ETAG = "\"cafe\"" ;
+
+  private static final long LAST_MODIFIED = 1_500_000_000_000L ;
+
+  private static HttpHeaders headers( final Object... namesAndValues ) {
+    final HttpHeaders headers = new DefaultHttpHeaders() ;
+    for( int i = 0 ; i < namesAndValues.length ; ) {
+      headers.set( ( CharSequence ) namesAndValues[ i ++ ], namesAndValues[ i ++ ] ) ;
+    }
+    return headers ;
+  }
+
+  private static String httpDate( final long timeMs ) {
+    return DateFormatter.format( new Date( timeMs ) ) ;
+  }
+
+}
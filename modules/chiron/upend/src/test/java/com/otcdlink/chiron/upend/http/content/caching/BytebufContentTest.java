@@ -30,4 +30,25 @@ public class BytebufContentTest {
         .isEqualTo( readableBytes2 ) ;
 
   }
-}
\ No newline at end of file
+
+  @Test
+  public void retainOnlyWhileCacheHoldsReference() throws Exception {
+    final ByteBuf byteBuf = Unpooled.buffer() ;
+    ByteBufUtil.writeAscii( byteBuf, "Content" ) ;
+    final BytebufContent bytebufContent = new BytebufContent(
+        Unpooled.unmodifiableBuffer( byteBuf ), "mimetype/some" ) ;
+
+    assertThat( bytebufContent.tryRetain() ).isTrue() ;
+    bytebufContent.releaseCacheReference() ;
+    assertThat( byteBuf.refCnt() )
+        .describedAs( "Evicted, but still retained by us" )
+        .isEqualTo( 1 ) ;
+
+    bytebufContent.release() ;
+    assertThat( byteBuf.refCnt() ).isEqualTo( 0 ) ;
+    assertThat( bytebufContent.tryRetain() )
+        .describedAs( "Must not touch a released buffer, the pool may have recycled it" )
+        .isFalse() ;
+    assertThat( byteBuf.refCnt() ).isEqualTo( 0 ) ;
+  }
+}
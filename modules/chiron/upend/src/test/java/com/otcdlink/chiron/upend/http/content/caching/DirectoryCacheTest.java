@@ -0,0 +1,98 @@
+package com.otcdlink.chiron.upend.http.content.caching;
+
+import com.google.common.base.Charsets;
+import com.google.common.collect.ImmutableMap;
+import com.google.common.io.Files;
+import com.otcdlink.chiron.testing.junit5.DirectoryExtension;
+import com.otcdlink.chiron.upend.http.content.ClientCaching;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.RegisterExtension;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.function.Supplier;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Tests for {@link StaticContentCacheFactory#newDirectoryCache(File, ImmutableMap,
+ * ClientCaching, long)}.
+ */
+class DirectoryCacheTest {
+
+  @Test
+  void fileChangeInvalidates() throws Exception {
+    final File directory = directoryExtension.testDirectory() ;
+    final File subdirectory = new File( directory, "sub" ) ;
+    assertThat( subdirectory.mkdirs() ).isTrue() ;
+    final File file = new File( subdirectory, "script.js" ) ;
+    write( file, "Version 1" ) ;
+    assertThat( file.setLastModified( 1_000_000_000_000L ) ).isTrue() ;
+
+    try( final StaticContentCache cache = StaticContentCacheFactory.newDirectoryCache(
+        directory, MIME_TYPES, ClientCaching.NONE, 1024 * 1024 )
+    ) {
+      final Supplier< String > content =
+          () -> cache.staticContent( "sub/script.js" ).bytebuf().toString( Charsets.UTF_8 ) ;
+      assertThat( content.get() ).isEqualTo( "Version 1" ) ;
+      assertThat( cache.staticContent( "sub/script.js" ).lastModifiedMs )
+          .isEqualTo( 1_000_000_000_000L ) ;
+      assertThat( cache.staticContent( "sub/unknown.js" ) ).isNull() ;
+      assertThat( cache.staticContent( "sub/script.txt" ) ).isNull() ;
+
+      write( file, "Version 2" ) ;
+      waitUntil( () -> "Version 2".equals( content.get() ) ) ;
+
+      assertThat( file.delete() ).isTrue() ;
+      waitUntil( () -> cache.staticContent( "sub/script.js" ) == null ) ;
+    }
+  }
+
+  @Test
+  void noTraversal() throws Exception {
+    final File root = directoryExtension.testDirectory() ;
+    final File directory = new File( root, "served" ) ;
+    assertThat( directory.mkdirs() ).isTrue() ;
+    write( new File( root, "secret.js" ), "Secret" ) ;
+    write( new File( directory, "public.js" ), "Public" ) ;
+
+    try( final StaticContentCache cache = StaticContentCacheFactory.newDirectoryCache(
+        directory, MIME_TYPES, ClientCaching.NONE, 1024 * 1024 )
+    ) {
+      assertThat( cache.staticContent( "../served/public.js" ) ).isNotNull() ;
+      assertThat( cache.staticContent( "../secret.js" ) ).isNull() ;
+      assertThat( cache.staticContent( "sub/../../secret.js" ) ).isNull() ;
+      assertThat( cache.staticContent( new File( root, "secret.js" ).getAbsolutePath() ) )
+          .isNull() ;
+    }
+  }
+
+// =======
+// Fixture
+// =======
+
+  private static final ImmutableMap< String, String > MIME_TYPES =
+      ImmutableMap.of( "js", "application/javascript" ) ;
+
+  private static void write( final File file, final String content ) throws IOException {
+    Files.asCharSink( file, Charsets.UTF_8 ).write( content ) ;
+  }
+
+  /**
+   * {@link java.nio.file.WatchService} may poll, so this can take a few seconds.
+   */
+  private static void waitUntil( final Supplier< Boolean > condition )
+      throws InterruptedException
+  {
+    final long deadline = System.currentTimeMillis() + 20_000 ;
+    while( ! condition.get() ) {
+      assertThat( System.currentTimeMillis() ).isLessThan( deadline ) ;
+      Thread.sleep( 50 ) ;
+    }
+  }
+
+  @SuppressWarnings( "WeakerAccess" )
+  @RegisterExtension
+  final DirectoryExtension directoryExtension = new DirectoryExtension() ;
+
+}
@@ -1,15 +1,26 @@
 package com.otcdlink.chiron.upend.http.content.caching;
 
 import com.google.common.base.Charsets;
+import com.google.common.base.Strings;
 import com.google.common.collect.ImmutableMap;
 import com.google.common.io.ByteSource;
+import com.google.common.io.ByteStreams;
+import com.otcdlink.chiron.upend.http.content.ClientCaching;
+import com.otcdlink.chiron.upend.http.content.StaticContent;
+import io.netty.buffer.ByteBufInputStream;
 import org.junit.Test;
 
 import java.io.ByteArrayInputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 import java.util.concurrent.atomic.AtomicInteger;
+import java.util.zip.GZIPInputStream;
 
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.assertj.core.api.Assertions.assertThatThrownBy;
@@ -55,6 +66,135 @@ public class StaticContentCacheFactoryTest {
     ;
   }
 
+  @Test
+  public void gzipVariant() throws Exception {
+    final String text = Strings.repeat( "Compress me. ", 200 ) ;
+    final StaticContentCache cache = StaticContentCacheFactory.newCache(
+        ImmutableMap.of( "js", "application/javascript", "png", "image/png" ),
+        ImmutableMap.of(
+            "big.js", ByteSource.wrap( text.getBytes( CHARSET ) ),
+            "big.png", ByteSource.wrap( text.getBytes( CHARSET ) )
+        ),
+        ClientCaching.REVALIDATE
+    ) ;
+    final BytebufContent script = cache.staticContent( "big.js" ) ;
+    assertThat( script.hasGzip() ).isTrue() ;
+    assertThat( script.gzipBytebuf().readableBytes() ).isLessThan( script.length() ) ;
+    try( final InputStream inputStream =
+             new GZIPInputStream( new ByteBufInputStream( script.gzipBytebuf() ) )
+    ) {
+      assertThat( new String( ByteStreams.toByteArray( inputStream ), CHARSET ) )
+          .isEqualTo( text ) ;
+    }
+    assertThat( script.gzipEtag() ).isNotEqualTo( script.etag ) ;
+
+    assertThat( cache.staticContent( "big.png" ).hasGzip() )
+        .describedAs( "Not a compressible MIME type" )
+        .isFalse() ;
+  }
+
+  @Test
+  public void etagDependsOnContent() throws Exception {
+    final StaticContentCache cache = StaticContentCacheFactory.newCache(
+        ImmutableMap.of( "x", "x/x" ),
+        ImmutableMap.of(
+            "a.x", ByteSource.wrap( "A".getBytes( CHARSET ) ),
+            "b.x", ByteSource.wrap( "B".getBytes( CHARSET ) ),
+            "c.x", ByteSource.wrap( "A".getBytes( CHARSET ) )
+        )
+    ) ;
+    final String etagA = cache.staticContent( "a.x" ).etag ;
+    assertThat( etagA ).startsWith( "\"" ).endsWith( "\"" ) ;
+    assertThat( cache.staticContent( "b.x" ).etag ).isNotEqualTo( etagA ) ;
+    assertThat( cache.staticContent( "c.x" ).etag ).isEqualTo( etagA ) ;
+  }
+
+  @Test
+  public void evictionReleases() throws Exception {
+    final StaticContentCacheFactory bounded = new StaticContentCacheFactory(
+        ClientCaching.NONE, 150 ) ;
+    final StaticContentCache cache = bounded.sharedCache(
+        ImmutableMap.of( "x", "x/x" ),
+        ImmutableMap.of(
+            "a.x", ByteSource.wrap( Strings.repeat( "A", 100 ).getBytes( CHARSET ) ),
+            "b.x", ByteSource.wrap( Strings.repeat( "B", 100 ).getBytes( CHARSET ) )
+        )
+    ) ;
+    final BytebufContent retained = cache.retainedStaticContent( "a.x" ) ;
+    final BytebufContent notRetained = cache.staticContent( "a.x" ) ;
+    assertThat( notRetained ).isSameAs( retained ) ;
+    cache.staticContent( "b.x" ) ;
+    assertThat( cache.weight() ).isLessThanOrEqualTo( 150 ) ;
+
+    assertThat( retained.bytebuf().refCnt() )
+        .describedAs( "Evicted, but still retained by us" )
+        .isEqualTo( 1 ) ;
+    assertThat( retained.bytebuf().toString( CHARSET ) ).startsWith( "AAA" ) ;
+    retained.release() ;
+    assertThat( retained.bytebuf().refCnt() ).isEqualTo( 0 ) ;
+    assertThat( retained.tryRetain() ).isFalse() ;
+
+    final BytebufContent reloaded = cache.retainedStaticContent( "a.x" ) ;
+    assertThat( reloaded ).isNotSameAs( retained ) ;
+    reloaded.release() ;
+    bounded.flushShare() ;
+  }
+
+  @Test
+  public void singleLoadForConcurrentMisses() throws Exception {
+    final AtomicInteger openings = new AtomicInteger() ;
+    final ByteSource slowByteSource = new ByteSource() {
+      @Override
+      public InputStream openStream() throws IOException {
+        openings.incrementAndGet() ;
+        try {
+          Thread.sleep( 100 ) ;
+        } catch( final InterruptedException e ) {
+          throw new IOException( e ) ;
+        }
+        return new ByteArrayInputStream( "Slow".getBytes( CHARSET ) ) ;
+      }
+    } ;
+    final StaticContentCache cache = StaticContentCacheFactory.newCache(
+        ImmutableMap.of( "x", "x/x" ), ImmutableMap.of( "slow.x", slowByteSource ) ) ;
+    final ExecutorService executorService = Executors.newFixedThreadPool( 4 ) ;
+    try {
+      final List< Future< BytebufContent > > futures = new ArrayList<>() ;
+      for( int i = 0 ; i < 4 ; i ++ ) {
+        futures.add( executorService.submit( () -> cache.staticContent( "slow.x" ) ) ) ;
+      }
+      for( final Future< BytebufContent > future : futures ) {
+        assertThat( future.get().bytebuf().toString( CHARSET ) ).isEqualTo( "Slow" ) ;
+      }
+    } finally {
+      executorService.shutdownNow() ;
+    }
+    assertThat( openings.get() ).isEqualTo( 1 ) ;
+  }
+
+  @Test
+  public void hitDoesNotResolve() throws Exception {
+    final AtomicInteger resolutions = new AtomicInteger() ;
+    final StaticContentCache cache = StaticContentCacheFactory.newCache(
+        resourceName -> {
+          resolutions.incrementAndGet() ;
+          return "known.x".equals( resourceName ) ? new StaticContent.Streamed(
+              resourceName, ByteSource.wrap( "K".getBytes( CHARSET ) ), "x/x", 12_345_000 ) :
+              null ;
+        }
+    ) ;
+    assertThat( cache.staticContent( "known.x" ).lastModifiedMs ).isEqualTo( 12_345_000 ) ;
+    cache.staticContent( "known.x" ) ;
+    assertThat( resolutions.get() ).isEqualTo( 1 ) ;
+
+    assertThat( cache.staticContent( "unknown.x" ) ).isNull() ;
+    assertThat( cache.staticContent( "unknown.x" ) ).isNull() ;
+    assertThat( resolutions.get() )
+        .describedAs( "Negative lookups don't get cached" )
+        .isEqualTo( 3 ) ;
+    cache.invalidateAll() ;
+  }
+
 // =======
 // Fixture
 // =======
@@ -0,0 +1,123 @@
+package com.otcdlink.chiron.upend.http.dispatch;
+
+import com.otcdlink.chiron.toolbox.netty.RichHttpRequest;
+import io.netty.channel.embedded.EmbeddedChannel;
+import io.netty.handler.codec.http.HttpMethod;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.net.InetSocketAddress;
+import java.util.ArrayList;
+import java.util.List;
+
+import static com.otcdlink.chiron.upend.http.dispatch.UsualConditions.IS_GET_METHOD;
+import static com.otcdlink.chiron.upend.http.dispatch.UsualConditions.IS_POST_METHOD;
+
+/**
+ * Compares {@link BareHttpDispatcher#build()} with a walk through the whole rule tree,
+ * with a few hundreds of rules looking like a real application: sections, each of them
+ * with {@code GET} resources and {@code POST} forms, and a "Not found" rule at the end.
+ */
+@State( Scope.Benchmark )
+public class BareHttpDispatcherJmhBenchmark {
+
+  private static final int SECTION_COUNT = 20 ;
+  private static final int RESOURCES_PER_SECTION = 15 ;
+  private static final int FORMS_PER_SECTION = 5 ;
+
+  private HttpRequestRelayer compiled ;
+  private HttpRequestRelayer uncompiled ;
+  private RichHttpRequest[] requests ;
+  private int requestIndex = 0 ;
+
+  @Setup
+  public void setUp() {
+    final BareHttpDispatcher< ?, ?, Void, Void, ? extends BareHttpDispatcher > dispatcher =
+        BareHttpDispatcher.newCrudeHttpDispatcher(
+            new HttpDispatcherFixture().designatorFactory ) ;
+    for( int section = 0 ; section < SECTION_COUNT ; section ++ ) {
+      dispatcher.beginPathSegment( "section" + section ) ;
+      dispatcher.beginCondition( IS_GET_METHOD ) ;
+      for( int resource = 0 ; resource < RESOURCES_PER_SECTION ; resource ++ ) {
+        dispatcher
+            .beginPathSegment( "resource" + resource )
+                .just( FOUND )
+            .endPathSegment()
+        ;
+      }
+      dispatcher.endCondition() ;
+      dispatcher.beginCondition( IS_POST_METHOD ) ;
+      for( int form = 0 ; form < FORMS_PER_SECTION ; form ++ ) {
+        dispatcher
+            .beginPathSegment( "form" + form )
+                .just( FOUND )
+            .endPathSegment()
+        ;
+      }
+      dispatcher.endCondition() ;
+      dispatcher.endPathSegment() ;
+    }
+    dispatcher.just( NOT_FOUND ) ;
+    compiled = dispatcher.build() ;
+    uncompiled = dispatcher.buildUncompiled() ;
+
+    final EmbeddedChannel channel = new EmbeddedChannel() ;
+    final List< RichHttpRequest > requestList = new ArrayList<>() ;
+    for( int section = 0 ; section < SECTION_COUNT ; section ++ ) {
+      for( int resource = 0 ; resource < RESOURCES_PER_SECTION ; resource += 3 ) {
+        requestList.add( request( channel, HttpMethod.GET,
+            "/section" + section + "/resource" + resource + "/detail" ) ) ;
+      }
+      requestList.add( request( channel, HttpMethod.POST, "/section" + section + "/form0" ) ) ;
+      requestList.add( request( channel, HttpMethod.GET, "/section" + section + "/missing" ) ) ;
+    }
+    requestList.add( request( channel, HttpMethod.GET, "/favicon.ico" ) ) ;
+    requests = requestList.toArray( new RichHttpRequest[ requestList.size() ] ) ;
+  }
+
+  @Benchmark
+  @Fork( value = 1, warmups = 1 )
+  @BenchmarkMode( Mode.Throughput )
+  public boolean compiled() {
+    return compiled.relay( nextRequest(), null ) ;
+  }
+
+  @Benchmark
+  @Fork( value = 1, warmups = 1 )
+  @BenchmarkMode( Mode.Throughput )
+  public boolean uncompiled() {
+    return uncompiled.relay( nextRequest(), null ) ;
+  }
+
+  private RichHttpRequest nextRequest() {
+    final RichHttpRequest request = requests[ requestIndex ] ;
+    requestIndex = ( requestIndex + 1 ) % requests.length ;
+    return request ;
+  }
+
+  private static final HttpRequestRelayer FOUND = ( httpRequest, channelHandlerContext ) -> true ;
+
+  private static final HttpRequestRelayer NOT_FOUND =
+      ( httpRequest, channelHandlerContext ) -> true ;
+
+  private static final InetSocketAddress ADDRESS = new InetSocketAddress( "127.0.0.1", 80 ) ;
+
+  private static RichHttpRequest request(
+      final EmbeddedChannel channel,
+      final HttpMethod httpMethod,
+      final String uriPath
+  ) {
+    return RichHttpRequest.from(
+        httpMethod, "http://127.0.0.1" + uriPath, channel, ADDRESS, ADDRESS, false ) ;
+  }
+
+  public static void main( final String... arguments ) throws Exception {
+    org.openjdk.jmh.Main.main( arguments ) ;
+  }
+
+}
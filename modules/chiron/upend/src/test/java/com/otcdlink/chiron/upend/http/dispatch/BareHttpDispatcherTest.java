@@ -1,9 +1,12 @@
 package com.otcdlink.chiron.upend.http.dispatch;
 
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
 import com.otcdlink.chiron.command.Command;
 import com.otcdlink.chiron.designator.Designator;
 import com.otcdlink.chiron.designator.RenderingAwareDesignator;
 import com.otcdlink.chiron.fixture.Monolist;
+import com.otcdlink.chiron.toolbox.metrics.MetricRegistry;
 import com.otcdlink.chiron.toolbox.netty.RichHttpRequest;
 import com.otcdlink.chiron.upend.http.dispatch.HttpDispatcherFixture.SecondDuty;
 import com.otcdlink.chiron.upend.http.dispatch.HttpDispatcherFixture.TransientCommandOne;
@@ -12,7 +15,10 @@ import io.netty.buffer.UnpooledByteBufAllocator;
 import io.netty.channel.Channel;
 import io.netty.channel.ChannelFuture;
 import io.netty.channel.ChannelHandlerContext;
+import io.netty.channel.ChannelInboundHandlerAdapter;
+import io.netty.channel.embedded.EmbeddedChannel;
 import io.netty.handler.codec.http.FullHttpResponse;
+import io.netty.handler.codec.http.HttpHeaderNames;
 import io.netty.handler.codec.http.HttpResponseStatus;
 import mockit.Expectations;
 import mockit.FullVerifications;
@@ -22,6 +28,10 @@ import org.junit.Test;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.function.BiFunction;
 import java.util.function.Consumer;
 
@@ -478,6 +488,110 @@ public class BareHttpDispatcherTest {
   }
 
 
+  @Test
+  public void compiledRulesResolveLikeUncompiled( @Injectable final Channel channel ) {
+    final List< String > relayed = new ArrayList<>() ;
+    final AtomicInteger conditionEvaluations = new AtomicInteger() ;
+    final HttpResponder.Condition countingCondition = ( evaluationContext, httpRequest ) -> {
+      conditionEvaluations.incrementAndGet() ;
+      return true ;
+    } ;
+    final BareHttpDispatcher< ?, ?, Void, Void, ? extends BareHttpDispatcher > dispatcher =
+        newDispatcher() ;
+    dispatcher
+        .beginPathSegment( "api" )
+            .just( record( relayed, "api-pass", false ) )
+            .beginCondition( countingCondition )
+                .beginPathSegment( "users" )
+                    .just( record( relayed, "users", true ) )
+                .endPathSegment()
+                .just( record( relayed, "api-counted", true ) )
+            .endCondition()
+        .endPathSegment()
+        .beginPathSegment( "static/js" )
+            .just( record( relayed, "js", true ) )
+        .endPathSegment()
+        .beginCondition( UsualConditions.NEVER )
+            .just( record( relayed, "never", true ) )
+        .endCondition()
+        .just( record( relayed, "fallback", true ) )
+    ;
+    final HttpRequestRelayer compiled = dispatcher.build() ;
+    final HttpRequestRelayer uncompiled = dispatcher.buildUncompiled() ;
+
+    final BiFunction< HttpRequestRelayer, String, String > resolve = ( relayer, uriPath ) -> {
+      relayed.clear() ;
+      conditionEvaluations.set( 0 ) ;
+      assertThat( relayer.relay( httpRequest( channel, uriPath ), null ) ).isTrue() ;
+      return String.join( ",", relayed ) + "/" + conditionEvaluations.get() ;
+    } ;
+    final ImmutableMap< String, String > expectations = ImmutableMap.< String, String >builder()
+        .put( "/api/users/42", "api-pass,users/1" )
+        .put( "/api/users", "api-pass,users/1" )
+        .put( "/api/", "api-pass,api-counted/1" )
+        .put( "/api", "api-pass,api-counted/1" )
+        .put( "/apix", "fallback/0" )
+        .put( "/static/js/app.js", "js/0" )
+        .put( "/static/jsx", "fallback/0" )
+        .put( "/static", "fallback/0" )
+        .put( "/", "fallback/0" )
+        .build()
+    ;
+    expectations.forEach( ( uriPath, expected ) -> {
+      assertThat( resolve.apply( compiled, uriPath ) )
+          .describedAs( uriPath ).isEqualTo( expected ) ;
+      assertThat( resolve.apply( uncompiled, uriPath ) )
+          .describedAs( uriPath ).isEqualTo( expected ) ;
+    } ) ;
+  }
+
+  @Test
+  public void metrics() {
+    final MetricRegistry metricRegistry = new MetricRegistry() ;
+    metricRegistry.counter( "some.counter" ).add( 2 ) ;
+    final HttpRequestRelayer httpRequestRelayer = newDispatcher()
+        .beginPathSegment( "metrics" )
+            .metrics( metricRegistry )
+        .endPathSegment()
+        .build()
+    ;
+    final EmbeddedChannel channel = new EmbeddedChannel( new ChannelInboundHandlerAdapter() {
+      @Override
+      public void channelRead(
+          final ChannelHandlerContext channelHandlerContext,
+          final Object message
+      ) {
+        httpRequestRelayer.relay( ( RichHttpRequest ) message, channelHandlerContext ) ;
+      }
+    } ) ;
+    channel.writeInbound( httpRequest( channel, "/metrics" ) ) ;
+
+    final FullHttpResponse fullHttpResponse = channel.readOutbound() ;
+    assertThat( fullHttpResponse.status() ).isEqualTo( HttpResponseStatus.OK ) ;
+    assertThat( fullHttpResponse.headers().get( HttpHeaderNames.CONTENT_TYPE ) )
+        .isEqualTo( UsualHttpCommands.PlainText.MIME_TYPE ) ;
+    assertThat( fullHttpResponse.content().toString( StandardCharsets.UTF_8 ) )
+        .isEqualTo( "some.counter 2\n" ) ;
+    assertThat( fullHttpResponse.release() ).isTrue() ;
+    assertThat( fullHttpResponse.refCnt() ).isEqualTo( 0 ) ;
+  }
+
+  @Test
+  public void routeTrieCandidates() {
+    final RouteTrie.Builder builder = new RouteTrie.Builder() ;
+    builder.add( UriPath.ROOT, ImmutableList.of(), NOOP ) ;
+    builder.add( UriPath.from( "a", "b" ), ImmutableList.of(), NOOP ) ;
+    builder.add( UriPath.from( "a" ), ImmutableList.of(), NOOP ) ;
+    builder.add( UriPath.from( "c" ), ImmutableList.of(), NOOP ) ;
+    final RouteTrie routeTrie = builder.build() ;
+    assertThat( routeTrie.deepestNode( "/a/b/c" ).candidateCount() ).isEqualTo( 3 ) ;
+    assertThat( routeTrie.deepestNode( "/a/bb" ).candidateCount() ).isEqualTo( 2 ) ;
+    assertThat( routeTrie.deepestNode( "/c" ).candidateCount() ).isEqualTo( 2 ) ;
+    assertThat( routeTrie.deepestNode( "/d" ).candidateCount() ).isEqualTo( 1 ) ;
+    assertThat( routeTrie.deepestNode( "a/b" ).candidateCount() ).isEqualTo( 1 ) ;
+  }
+
+
 
 // =======
 // Fixture
@@ -494,4 +608,17 @@ public class BareHttpDispatcherTest {
 
   private static final class Result1 { }
 
+  private static final HttpRequestRelayer NOOP = ( httpRequest, channelHandlerContext ) -> false ;
+
+  private static HttpRequestRelayer record(
+      final List< String > relayed,
+      final String name,
+      final boolean relayerDone
+  ) {
+    return ( httpRequest, channelHandlerContext ) -> {
+      relayed.add( name ) ;
+      return relayerDone ;
+    } ;
+  }
+
 }
\ No newline at end of file
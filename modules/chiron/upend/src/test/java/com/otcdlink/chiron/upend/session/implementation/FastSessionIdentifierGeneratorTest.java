@@ -0,0 +1,90 @@
+package com.otcdlink.chiron.upend.session.implementation;
+
+import com.otcdlink.chiron.middle.session.SessionIdentifier;
+import org.junit.Test;
+
+import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class FastSessionIdentifierGeneratorTest {
+
+  @Test
+  public void format() throws Exception {
+    final SessionIdentifier sessionIdentifier =
+        new FastSessionIdentifierGenerator().generate() ;
+    assertThat( sessionIdentifier.asString() ).matches( "[0-9A-F]{32}" ) ;
+  }
+
+  @Test
+  public void sameEncodingAsDefault() throws Exception {
+    final String fast = new FastSessionIdentifierGenerator(
+        16, () -> new Random( 0 ), 10 ).generate().asString() ;
+    final String usual = new DefaultSessionIdentifierGenerator(
+        16, new Random( 0 ), 10 ).generate().asString() ;
+    assertThat( fast ).isEqualTo( usual ) ;
+  }
+
+  /**
+   * With one single byte there are only 256 possible values, so the taboo has work to do.
+   */
+  @Test
+  public void tabooPreventsCollisions() throws Exception {
+    final FastSessionIdentifierGenerator generator =
+        new FastSessionIdentifierGenerator( 1, () -> new Random( 0 ), 200 ) ;
+    final Set< SessionIdentifier > generated = ConcurrentHashMap.newKeySet() ;
+    for( int i = 0 ; i < 200 ; i ++ ) {
+      assertThat( generated.add( generator.generate() ) ).isTrue() ;
+    }
+  }
+
+  @Test
+  public void concurrentGeneration() throws Exception {
+    final FastSessionIdentifierGenerator generator = new FastSessionIdentifierGenerator() ;
+    final Set< SessionIdentifier > generated = ConcurrentHashMap.newKeySet() ;
+    final ExecutorService executorService = Executors.newFixedThreadPool( THREAD_COUNT ) ;
+    try {
+      final List< Future< ? > > futures = new ArrayList<>() ;
+      for( int thread = 0 ; thread < THREAD_COUNT ; thread ++ ) {
+        futures.add( executorService.submit( () -> {
+          for( int i = 0 ; i < COUNT_PER_THREAD ; i ++ ) {
+            generated.add( generator.generate() ) ;
+          }
+        } ) ) ;
+      }
+      for( final Future< ? > future : futures ) {
+        future.get( 10, TimeUnit.SECONDS ) ;
+      }
+    } finally {
+      executorService.shutdownNow() ;
+    }
+    assertThat( generated ).hasSize( THREAD_COUNT * COUNT_PER_THREAD ) ;
+  }
+
+  @Test
+  public void tabooSetEvictsOldest() throws Exception {
+    final TabooSet< String > tabooSet = new TabooSet<>( 2 ) ;
+    assertThat( tabooSet.offer( "A" ) ).isTrue() ;
+    assertThat( tabooSet.offer( "A" ) ).isFalse() ;
+    assertThat( tabooSet.offer( "B" ) ).isTrue() ;
+    assertThat( tabooSet.offer( "C" ) ).isTrue() ;
+    assertThat( tabooSet.contains( "A" ) ).isFalse() ;
+    assertThat( tabooSet.offer( "A" ) ).isTrue() ;
+  }
+
+// =======
+// Fixture
+// =======
+
+  private static final int THREAD_COUNT = 4 ;
+  private static final int COUNT_PER_THREAD = 2_000 ;
+
+}
@@ -0,0 +1,44 @@
+package com.otcdlink.chiron.upend.session.implementation;
+
+import com.otcdlink.chiron.middle.session.SessionIdentifier;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+
+/**
+ * Simulates a login storm with several threads generating at the same time.
+ */
+@State( Scope.Benchmark )
+public class SessionIdentifierGeneratorJmhBenchmark {
+
+  private final DefaultSessionIdentifierGenerator defaultGenerator =
+      new DefaultSessionIdentifierGenerator() ;
+
+  private final FastSessionIdentifierGenerator fastGenerator =
+      new FastSessionIdentifierGenerator() ;
+
+  @Benchmark
+  @Fork( value = 1, warmups = 1 )
+  @BenchmarkMode( Mode.Throughput )
+  @Threads( 4 )
+  public SessionIdentifier defaultGenerator() {
+    return defaultGenerator.generate() ;
+  }
+
+  @Benchmark
+  @Fork( value = 1, warmups = 1 )
+  @BenchmarkMode( Mode.Throughput )
+  @Threads( 4 )
+  public SessionIdentifier fastGenerator() {
+    return fastGenerator.generate() ;
+  }
+
+  public static void main( final String... arguments ) throws Exception {
+    org.openjdk.jmh.Main.main( arguments ) ;
+  }
+
+}
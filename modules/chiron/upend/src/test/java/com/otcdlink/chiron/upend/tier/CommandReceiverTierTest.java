@@ -0,0 +1,101 @@
+package com.otcdlink.chiron.upend.tier;
+
+import com.otcdlink.chiron.buffer.PositionalFieldReader;
+import com.otcdlink.chiron.buffer.PositionalFieldWriter;
+import com.otcdlink.chiron.command.Command;
+import com.otcdlink.chiron.command.RecyclableCommand;
+import com.otcdlink.chiron.command.Stamp;
+import com.otcdlink.chiron.designator.Designator;
+import com.otcdlink.chiron.designator.FlyweightDesignator;
+import com.otcdlink.chiron.middle.session.SessionIdentifier;
+import com.otcdlink.chiron.toolbox.StateHolder;
+import com.otcdlink.chiron.toolbox.clock.Clock;
+import com.otcdlink.chiron.upend.UpendConnector;
+import io.netty.channel.embedded.EmbeddedChannel;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class CommandReceiverTierTest {
+
+  @Test
+  public void passCommandWhenStarted() throws Exception {
+    final StateHolder< UpendConnector.State > state =
+        new StateHolder<>( UpendConnector.State.STARTED ) ;
+    final EmbeddedChannel embeddedChannel = new EmbeddedChannel(
+        new CommandReceiverTier< Void >( state, received::add ) ) ;
+
+    final Ping ping = obtain( designator ) ;
+    ping.counter = 1 ;
+    embeddedChannel.writeInbound( ping ) ;
+
+    assertThat( received ).containsExactly( ping ) ;
+    assertThat( ping.counter ).isEqualTo( 1 ) ;
+  }
+
+  @Test
+  public void releaseDroppedRecyclableCommand() throws Exception {
+    final StateHolder< UpendConnector.State > state =
+        new StateHolder<>( UpendConnector.State.STOPPING ) ;
+    final EmbeddedChannel embeddedChannel = new EmbeddedChannel(
+        new CommandReceiverTier< Void >( state, received::add ) ) ;
+
+    final Ping ping = obtain( designator ) ;
+    ping.counter = 1 ;
+    embeddedChannel.writeInbound( ping ) ;
+
+    assertThat( received ).isEmpty() ;
+    assertThat( ping.counter ).isEqualTo( 0 ) ;
+    assertThat( obtain( designator ) ).isSameAs( ping ) ;
+  }
+
+
+// =======
+// Fixture
+// =======
+
+  private static final Clock CLOCK = () -> Stamp.FLOOR_MILLISECONDS ;
+
+  private static final SessionIdentifier SESSION_IDENTIFIER = new SessionIdentifier( "s000" ) ;
+
+  private final FlyweightDesignator designator =
+      new Designator.Factory( new Stamp.Generator( CLOCK ) ).flyweight( SESSION_IDENTIFIER ) ;
+
+  private final List< Command< Designator, Void > > received = new ArrayList<>() ;
+
+  private static Ping obtain( final FlyweightDesignator designator ) {
+    return designator.obtain( Ping.class, Ping::new ) ;
+  }
+
+  @Command.Description( name = "ping", tracked = false )
+  private static class Ping extends RecyclableCommand< Void > {
+
+    int counter ;
+
+    Ping( final FlyweightDesignator designator ) {
+      super( designator ) ;
+    }
+
+    @Override
+    public void readBody( final PositionalFieldReader positionalFieldReader ) throws IOException {
+      counter = positionalFieldReader.readIntegerPrimitive() ;
+    }
+
+    @Override
+    protected void clearBody() {
+      counter = 0 ;
+    }
+
+    @Override
+    public void callReceiver( final Void callableReceiver ) { }
+
+    @Override
+    public void encodeBody( final PositionalFieldWriter positionalFieldWriter ) throws IOException {
+      positionalFieldWriter.writeIntegerPrimitive( counter ) ;
+    }
+  }
+}
@@ -3,7 +3,6 @@ package com.otcdlink.chiron.wire;
 import com.google.common.collect.ImmutableCollection;
 import com.google.common.collect.ImmutableMap;
 import com.otcdlink.chiron.buffer.CrudeReader;
-import com.otcdlink.chiron.codec.DecodeException;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -47,61 +46,10 @@ public abstract class AbstractXmlNodeReader<
 
 
   /**
-   * To be filled with a {@link LEAF} value as {@code String} before using {@link #crudeReader}.
+   * Set its value with {@link XmlAttributeCrudeReader#attributeValue(String)} before passing
+   * it to {@link Wire.LeafToken#fromWire(CrudeReader)}.
    */
-  protected String attributeAsString = null ;
-
-  protected final CrudeReader crudeReader = new CrudeReader() {
-    @Override
-    public int readIntegerPrimitive() {
-      return Integer.parseInt( attributeAsString ) ;
-    }
-
-    @Override
-    public Integer readIntegerObject() {
-      return attributeAsString.isEmpty() ? null : readIntegerPrimitive() ;
-    }
-
-    @Override
-    public String readDelimitedString() {
-      return attributeAsString ;
-    }
-
-    @Override
-    public String readNullableString() throws DecodeException {
-      return attributeAsString ;
-    }
-
-    @Override
-    public long readLongPrimitive() throws DecodeException {
-      throw new UnsupportedOperationException( "TODO" );
-    }
-
-    @Override
-    public Long readLongObject() throws DecodeException {
-      throw new UnsupportedOperationException( "TODO" );
-    }
-
-    @Override
-    public float readFloatPrimitive() throws DecodeException {
-      throw new UnsupportedOperationException( "TODO" );
-    }
-
-    @Override
-    public Float readFloatObject() throws DecodeException {
-      throw new UnsupportedOperationException( "TODO" );
-    }
-
-    @Override
-    public boolean readBooleanPrimitive() throws DecodeException {
-      throw new UnsupportedOperationException( "TODO" );
-    }
-
-    @Override
-    public Boolean readBooleanObject() throws DecodeException {
-      throw new UnsupportedOperationException( "TODO" );
-    }
-  } ;
+  final XmlAttributeCrudeReader crudeReader = new XmlAttributeCrudeReader() ;
 
 
 // ========================
@@ -0,0 +1,283 @@
+package com.otcdlink.chiron.wire;
+
+import com.fasterxml.aalto.AsyncByteBufferFeeder;
+import com.fasterxml.aalto.AsyncXMLStreamReader;
+import com.fasterxml.aalto.stax.InputFactoryImpl;
+import com.google.common.collect.ImmutableCollection;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
+import com.otcdlink.chiron.codec.DecodeException;
+import io.netty.buffer.ByteBuf;
+
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.events.XMLEvent;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import static com.google.common.base.Preconditions.checkNotNull;
+import static com.google.common.base.Preconditions.checkState;
+
+/**
+ * Non-blocking counterpart of {@link XmlNodeReader}: it gets fed with {@link ByteBuf}s as they
+ * arrive, and calls a {@link Handler} for each {@link NODE} as soon as its start or end tag
+ * got parsed. So there is no need to gather the whole document as a {@code String} first.
+ * Memory consumption is bound by the size of the largest tag, plus the current path
+ * of {@link NODE}s.
+ *
+ * <p>
+ * Since parsing happens when a {@link ByteBuf} is available (typically in a Netty
+ * {@code EventLoop}), this class uses a push model, unlike {@link Wire.NodeReader} which pulls
+ * and therefore needs the whole input or a blocking stream.
+ * Not thread-safe, which is fine when fed from a single {@code Channel}.
+ *
+ * <p>
+ * Relies on Aalto's asynchronous parser.
+ */
+public class AsyncXmlNodeReader<
+    NODE extends Wire.NodeToken< NODE, LEAF >,
+    LEAF extends Wire.LeafToken
+> {
+
+  public interface Handler<
+      NODE extends Wire.NodeToken< NODE, LEAF >,
+      LEAF extends Wire.LeafToken
+  > {
+    /**
+     * @param leafReader valid only during the call.
+     */
+    void nodeStart( NODE node, LeafReader leafReader ) throws WireException ;
+
+    void nodeEnd( NODE node ) throws WireException ;
+
+    /**
+     * Called once, after the end tag of the root {@link NODE}.
+     */
+    default void documentEnd() throws WireException { }
+  }
+
+  public interface LeafReader {
+    /**
+     * Same contract as {@link Wire.NodeReader#leaf(Wire.LeafToken)}.
+     */
+    < ITEM_LEAF extends Wire.LeafToken< ITEM >, ITEM > ITEM leaf( ITEM_LEAF leafWithTypedItem )
+        throws WireException ;
+  }
+
+  private final AsyncXMLStreamReader< AsyncByteBufferFeeder > xmlStreamReader ;
+  private final ImmutableMap< String, NODE > nodeNames ;
+  private final Handler< NODE, LEAF > handler ;
+
+  /**
+   * The only state that grows with the document.
+   */
+  private final List< NODE > path = new ArrayList<>() ;
+
+  private boolean documentEnded = false ;
+  private boolean broken = false ;
+
+  public AsyncXmlNodeReader(
+      final ImmutableCollection< NODE > nodes,
+      final Handler< NODE, LEAF > handler
+  ) {
+    this( Wire.Token.rekeyWithXmlNames( nodes ), handler ) ;
+  }
+
+  public AsyncXmlNodeReader(
+      final ImmutableMap< String, NODE > nodeNames,
+      final Handler< NODE, LEAF > handler
+  ) {
+    this.nodeNames = checkNotNull( nodeNames ) ;
+    this.handler = checkNotNull( handler ) ;
+    this.xmlStreamReader = new InputFactoryImpl().createAsyncForByteBuffer() ;
+  }
+
+  /**
+   * Parses every readable byte, calling the {@link Handler} for each complete tag, and
+   * moves the reader index of the {@link ByteBuf} accordingly.
+   * The caller keeps ownership of the {@link ByteBuf} (no release).
+   *
+   * @throws WireException if the XML is malformed or doesn't match {@link NODE} definitions;
+   *     this {@link AsyncXmlNodeReader} is unusable afterwards.
+   */
+  public void feed( final ByteBuf byteBuf ) throws WireException {
+    checkUsable() ;
+    final int readableBytes = byteBuf.readableBytes() ;
+    if( readableBytes == 0 ) {
+      return ;
+    }
+    final ByteBuffer byteBuffer ;
+    if( byteBuf.nioBufferCount() == 1 ) {
+      // No copy, we consume it before returning so Aalto won't keep a stale reference.
+      byteBuffer = byteBuf.nioBuffer( byteBuf.readerIndex(), readableBytes ) ;
+    } else {
+      final byte[] bytes = new byte[ readableBytes ] ;
+      byteBuf.getBytes( byteBuf.readerIndex(), bytes ) ;
+      byteBuffer = ByteBuffer.wrap( bytes ) ;
+    }
+    try {
+      xmlStreamReader.getInputFeeder().feedInput( byteBuffer ) ;
+    } catch( final XMLStreamException e ) {
+      throw brokenWith( e ) ;
+    }
+    byteBuf.skipBytes( readableBytes ) ;
+    drain() ;
+  }
+
+  /**
+   * Tells there will be no more input.
+   *
+   * @throws WireException if the document is incomplete.
+   */
+  public void endOfInput() throws WireException {
+    checkUsable() ;
+    xmlStreamReader.getInputFeeder().endOfInput() ;
+    drain() ;
+    if( ! documentEnded ) {
+      throw brokenWith( "Premature document end" ) ;
+    }
+  }
+
+  public boolean documentEnded() {
+    return documentEnded ;
+  }
+
+  /**
+   * @return a copy of the path of currently open {@link NODE}s, root first.
+   */
+  public ImmutableList< NODE > path() {
+    return ImmutableList.copyOf( path ) ;
+  }
+
+
+// =======
+// Parsing
+// =======
+
+  private void drain() throws WireException {
+    try {
+      while( ! documentEnded ) {
+        final int event = xmlStreamReader.next() ;
+        switch( event ) {
+          case AsyncXMLStreamReader.EVENT_INCOMPLETE :
+            return ;
+          case XMLEvent.START_ELEMENT :
+            startElement( xmlStreamReader.getLocalName() ) ;
+            break ;
+          case XMLEvent.END_ELEMENT :
+            endElement() ;
+            break ;
+          case XMLEvent.END_DOCUMENT :
+            documentEnded = true ;
+            xmlStreamReader.close() ;
+            handler.documentEnd() ;
+            break ;
+          default :
+            // Comments, whitespaces, processing instructions: nothing to do.
+            break ;
+        }
+      }
+    } catch( final XMLStreamException e ) {
+      throw brokenWith( e ) ;
+    } catch( final WireException e ) {
+      broken = true ;
+      throw e ;
+    }
+  }
+
+  private void startElement( final String xmlName ) throws WireException {
+    final NODE node = nodeNames.get( xmlName ) ;
+    if( node == null ) {
+      throw brokenWith( "Unknown node '" + xmlName + "'" ) ;
+    }
+    if( ! path.isEmpty() ) {
+      final NODE parent = path.get( path.size() - 1 ) ;
+      if( ! parent.subnodes().contains( node ) ) {
+        throw brokenWith( "Node '" + xmlName + "' not allowed in '" + parent.xmlName() + "'" ) ;
+      }
+    }
+    path.add( node ) ;
+    handler.nodeStart( node, leafReader ) ;
+  }
+
+  private void endElement() throws WireException {
+    final NODE node = path.remove( path.size() - 1 ) ;
+    handler.nodeEnd( node ) ;
+  }
+
+
+// ======
+// Leaves
+// ======
+
+  private final LeafReader leafReader = new LeafReader() {
+    @Override
+    public < ITEM_LEAF extends Wire.LeafToken< ITEM >, ITEM > ITEM leaf(
+        final ITEM_LEAF leafWithTypedItem
+    ) throws WireException {
+      checkState( xmlStreamReader.getEventType() == XMLEvent.START_ELEMENT,
+          "Can read leaves only when notified of a node start" ) ;
+      final String attributeValue =
+          xmlStreamReader.getAttributeValue( null, leafWithTypedItem.xmlName() ) ;
+      if( attributeValue == null ) {
+        throw wireExceptionGenerator.throwWireException(
+            "No value defined for attribute '" + leafWithTypedItem.xmlName() + "'" ) ;
+      }
+      if( XmlEscaping.MAGIC_NULL.equals( attributeValue ) ) {
+        return null ;
+      }
+      crudeReader.attributeValue( attributeValue ) ;
+      try {
+        return leafWithTypedItem.fromWire( crudeReader ) ;
+      } catch( final DecodeException | RuntimeException e ) {
+        throw wireExceptionGenerator.throwWireException( e ) ;
+      } finally {
+        crudeReader.attributeValue( null ) ;
+      }
+    }
+  } ;
+
+  private final XmlAttributeCrudeReader crudeReader = new XmlAttributeCrudeReader() ;
+
+
+// ==========
+// Exceptions
+// ==========
+
+  private void checkUsable() {
+    checkState( ! broken, "Unusable after a previous failure" ) ;
+    checkState( ! documentEnded, "Document already ended" ) ;
+  }
+
+  private WireException brokenWith( final String message ) throws WireException {
+    broken = true ;
+    throw wireExceptionGenerator.throwWireException( message ) ;
+  }
+
+  private WireException brokenWith( final XMLStreamException e ) throws WireException {
+    broken = true ;
+    throw wireExceptionGenerator.throwWireException( e ) ;
+  }
+
+  private Wire.Location location() {
+    final javax.xml.stream.Location location = xmlStreamReader.getLocation() ;
+    final String breadcrumbs = path.stream()
+        .map( Wire.Token::xmlName ).collect( Collectors.joining( "/" ) ) ;
+    return new Wire.Location(
+        location.getSystemId(),
+        location.getLineNumber(),
+        location.getColumnNumber(),
+        location.getCharacterOffset(),
+        breadcrumbs
+    ) ;
+  }
+
+  private final WireException.Generator wireExceptionGenerator =
+      new WireException.Generator( this::location ) ;
+
+  @Override
+  public String toString() {
+    return getClass().getSimpleName() + "{" + location().asString() + "}" ;
+  }
+}
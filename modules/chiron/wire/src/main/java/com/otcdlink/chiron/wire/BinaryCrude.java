@@ -0,0 +1,210 @@
+package com.otcdlink.chiron.wire;
+
+import com.google.common.base.Charsets;
+import com.otcdlink.chiron.buffer.CrudeReader;
+import com.otcdlink.chiron.buffer.CrudeWriter;
+import com.otcdlink.chiron.codec.DecodeException;
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.ByteBufUtil;
+
+import static com.google.common.base.Preconditions.checkNotNull;
+
+/**
+ * {@link CrudeReader} and {@link CrudeWriter} with a binary format, unlike
+ * {@link com.otcdlink.chiron.buffer.BytebufCoat} which writes text.
+ * Primitives are written as-is (big-endian), objects are preceded by a presence byte,
+ * strings are UTF-8 bytes preceded by their length as a variable-length integer.
+ */
+final class BinaryCrude {
+
+  private BinaryCrude() { }
+
+  private static final byte ABSENT = 0 ;
+  private static final byte PRESENT = 1 ;
+
+  static void writeVarint( final ByteBuf byteBuf, final int value ) {
+    int remaining = value ;
+    while( ( remaining & ~0x7F ) != 0 ) {
+      byteBuf.writeByte( ( remaining & 0x7F ) | 0x80 ) ;
+      remaining >>>= 7 ;
+    }
+    byteBuf.writeByte( remaining ) ;
+  }
+
+  static int readVarint( final ByteBuf byteBuf ) throws DecodeException {
+    int value = 0 ;
+    for( int shift = 0 ; shift < 32 ; shift += 7 ) {
+      if( ! byteBuf.isReadable() ) {
+        throw new DecodeException( "Truncated variable-length integer", byteBuf ) ;
+      }
+      final byte b = byteBuf.readByte() ;
+      value |= ( b & 0x7F ) << shift ;
+      if( ( b & 0x80 ) == 0 ) {
+        return value ;
+      }
+    }
+    throw new DecodeException( "Malformed variable-length integer", byteBuf ) ;
+  }
+
+  static final class Writer implements CrudeWriter {
+    private final ByteBuf byteBuf ;
+
+    Writer( final ByteBuf byteBuf ) {
+      this.byteBuf = checkNotNull( byteBuf ) ;
+    }
+
+    private boolean writePresence( final Object object ) {
+      byteBuf.writeByte( object == null ? ABSENT : PRESENT ) ;
+      return object != null ;
+    }
+
+    @Override
+    public void writeDelimitedString( final String nonNullString ) {
+      writeVarint( byteBuf, ByteBufUtil.utf8Bytes( nonNullString ) ) ;
+      ByteBufUtil.writeUtf8( byteBuf, nonNullString ) ;
+    }
+
+    @Override
+    public void writeNullableString( final String string ) {
+      if( writePresence( string ) ) {
+        writeDelimitedString( string ) ;
+      }
+    }
+
+    @Override
+    public void writeIntegerPrimitive( final int integerPrimitive ) {
+      byteBuf.writeInt( integerPrimitive ) ;
+    }
+
+    @Override
+    public void writeIntegerObject( final Integer integerObject ) {
+      if( writePresence( integerObject ) ) {
+        byteBuf.writeInt( integerObject ) ;
+      }
+    }
+
+    @Override
+    public void writeLongPrimitive( final long longPrimitive ) {
+      byteBuf.writeLong( longPrimitive ) ;
+    }
+
+    @Override
+    public void writeLongObject( final Long longObject ) {
+      if( writePresence( longObject ) ) {
+        byteBuf.writeLong( longObject ) ;
+      }
+    }
+
+    @Override
+    public void writeFloatPrimitive( final float floatPrimitive ) {
+      byteBuf.writeFloat( floatPrimitive ) ;
+    }
+
+    @Override
+    public void writeFloatObject( final Float floatObject ) {
+      if( writePresence( floatObject ) ) {
+        byteBuf.writeFloat( floatObject ) ;
+      }
+    }
+
+    @Override
+    public void writeBooleanPrimitive( final boolean booleanPrimitive ) {
+      byteBuf.writeBoolean( booleanPrimitive ) ;
+    }
+
+    @Override
+    public void writeBooleanObject( final Boolean booleanObject ) {
+      if( writePresence( booleanObject ) ) {
+        byteBuf.writeBoolean( booleanObject ) ;
+      }
+    }
+  }
+
+  static final class Reader implements CrudeReader {
+    private final ByteBuf byteBuf ;
+
+    Reader( final ByteBuf byteBuf ) {
+      this.byteBuf = checkNotNull( byteBuf ) ;
+    }
+
+    private void ensureReadable( final int length ) throws DecodeException {
+      if( byteBuf.readableBytes() < length ) {
+        throw new DecodeException( "Expecting " + length + " more bytes", byteBuf ) ;
+      }
+    }
+
+    private boolean readPresence() throws DecodeException {
+      ensureReadable( 1 ) ;
+      final byte presence = byteBuf.readByte() ;
+      if( presence == PRESENT ) {
+        return true ;
+      } else if( presence == ABSENT ) {
+        return false ;
+      } else {
+        throw new DecodeException( "Bad presence marker " + presence, byteBuf ) ;
+      }
+    }
+
+    @Override
+    public String readDelimitedString() throws DecodeException {
+      final int length = readVarint( byteBuf ) ;
+      if( length < 0 ) {
+        throw new DecodeException( "Negative string length " + length, byteBuf ) ;
+      }
+      ensureReadable( length ) ;
+      final String string = byteBuf.toString( byteBuf.readerIndex(), length, Charsets.UTF_8 ) ;
+      byteBuf.skipBytes( length ) ;
+      return string ;
+    }
+
+    @Override
+    public String readNullableString() throws DecodeException {
+      return readPresence() ? readDelimitedString() : null ;
+    }
+
+    @Override
+    public int readIntegerPrimitive() throws DecodeException {
+      ensureReadable( Integer.BYTES ) ;
+      return byteBuf.readInt() ;
+    }
+
+    @Override
+    public Integer readIntegerObject() throws DecodeException {
+      return readPresence() ? readIntegerPrimitive() : null ;
+    }
+
+    @Override
+    public long readLongPrimitive() throws DecodeException {
+      ensureReadable( Long.BYTES ) ;
+      return byteBuf.readLong() ;
+    }
+
+    @Override
+    public Long readLongObject() throws DecodeException {
+      return readPresence() ? readLongPrimitive() : null ;
+    }
+
+    @Override
+    public float readFloatPrimitive() throws DecodeException {
+      ensureReadable( Float.BYTES ) ;
+      return byteBuf.readFloat() ;
+    }
+
+    @Override
+    public Float readFloatObject() throws DecodeException {
+      return readPresence() ? readFloatPrimitive() : null ;
+    }
+
+    @Override
+    public boolean readBooleanPrimitive() throws DecodeException {
+      ensureReadable( 1 ) ;
+      return byteBuf.readBoolean() ;
+    }
+
+    @Override
+    public Boolean readBooleanObject() throws DecodeException {
+      return readPresence() ? readBooleanPrimitive() : null ;
+    }
+  }
+
+}
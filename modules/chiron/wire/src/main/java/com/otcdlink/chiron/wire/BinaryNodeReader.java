@@ -0,0 +1,232 @@
+package com.otcdlink.chiron.wire;
+
+import com.google.common.collect.ImmutableMap;
+import com.otcdlink.chiron.codec.DecodeException;
+import com.otcdlink.chiron.toolbox.collection.StreamTools;
+import io.netty.buffer.ByteBuf;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.BiConsumer;
+import java.util.function.Function;
+import java.util.stream.Collector;
+import java.util.stream.Collectors;
+
+import static com.google.common.base.Preconditions.checkNotNull;
+
+/**
+ * Reads what {@link BinaryNodeWriter} wrote.
+ * If a {@link Wire.NodeReader.ReadingAction} doesn't read the whole body of a {@link NODE},
+ * the remainder gets skipped.
+ * {@link #skipSingleNode(Wire.NodeToken)} and {@link #skipNodeSequence(Wire.NodeToken)}
+ * skip a whole subtree without decoding it.
+ * <p>
+ * Writer and reader must use the same definitions, because {@link WireSchema} numbers tokens
+ * by declaration order. The {@code public} constructor checks this with
+ * {@link WireSchema#fingerprint()}.
+ */
+public class BinaryNodeReader<
+    NODE extends Wire.NodeToken< NODE, LEAF >,
+    LEAF extends Wire.LeafToken
+> implements Wire.NodeReader< NODE, LEAF > {
+
+  private final WireSchema< NODE, LEAF > schema ;
+  private final ByteBuf byteBuf ;
+  private final BinaryCrude.Reader crudeReader ;
+
+  /**
+   * Shared with redefined instances, only for {@link #location()}.
+   */
+  private final List< Wire.Token > breadcrumbs ;
+
+  /**
+   * @throws WireException if {@link BinaryNodeWriter} used a different {@link WireSchema}.
+   */
+  public BinaryNodeReader( final WireSchema< NODE, LEAF > schema, final ByteBuf byteBuf )
+      throws WireException
+  {
+    this( schema, byteBuf, new BinaryCrude.Reader( byteBuf ), new ArrayList<>() ) ;
+    if( byteBuf.readableBytes() < Integer.BYTES ) {
+      throw wireExceptionGenerator.throwWireException( "Truncated schema fingerprint" ) ;
+    }
+    final int fingerprint = byteBuf.readInt() ;
+    if( fingerprint != schema.fingerprint() ) {
+      throw wireExceptionGenerator.throwWireException( "Schema mismatch, expecting " +
+          "fingerprint " + schema.fingerprint() + " but got " + fingerprint + " for " + schema ) ;
+    }
+  }
+
+  private BinaryNodeReader(
+      final WireSchema< NODE, LEAF > schema,
+      final ByteBuf byteBuf,
+      final BinaryCrude.Reader crudeReader,
+      final List< Wire.Token > breadcrumbs
+  ) {
+    this.schema = checkNotNull( schema ) ;
+    this.byteBuf = checkNotNull( byteBuf ) ;
+    this.crudeReader = checkNotNull( crudeReader ) ;
+    this.breadcrumbs = checkNotNull( breadcrumbs ) ;
+  }
+
+  @Override
+  public < ITEM_LEAF extends Wire.LeafToken< ITEM >, ITEM > ITEM leaf(
+      final ITEM_LEAF leafWithTypedItem
+  ) throws WireException {
+    try {
+      final int leafNumber = BinaryCrude.readVarint( byteBuf ) ;
+      final int expected = schema.leafNumber( leafWithTypedItem ) ;
+      if( leafNumber != expected ) {
+        throw wireExceptionGenerator.throwWireException( "Expecting " + leafWithTypedItem +
+            " but got " + schema.leaf( leafNumber ) + " (#" + leafNumber + ")" ) ;
+      }
+      return leafWithTypedItem.fromWire( crudeReader ) ;
+    } catch( final DecodeException e ) {
+      throw wireExceptionGenerator.throwWireException( e ) ;
+    }
+  }
+
+  @Override
+  public < ITEM > ITEM singleNode(
+      final NODE node,
+      final ReadingAction< NODE, LEAF, ITEM > readingAction
+  ) throws WireException {
+    readNodeNumber( node ) ;
+    return readBody( node, readingAction ) ;
+  }
+
+  @Override
+  public < ITEM > void nodeSequence(
+      final NODE node,
+      final ReadingAction< NODE, LEAF, ITEM > readingAction
+  ) throws WireException {
+    nodeSequence( node, StreamTools.nullCollector(), readingAction ) ;
+  }
+
+  @Override
+  public < ITEM, COLLECTION > COLLECTION nodeSequence(
+      final NODE node,
+      final Collector< ITEM, ?, COLLECTION > collector,
+      final ReadingAction< NODE, LEAF, ITEM > readingAction
+  ) throws WireException {
+    final Object container = collector.supplier().get() ;
+    @SuppressWarnings( "unchecked" )
+    final BiConsumer< Object, ITEM > accumulator =
+        ( BiConsumer< Object, ITEM > ) collector.accumulator() ;
+    final Function< ?, COLLECTION > finisher = collector.finisher() ;
+
+    readNodeNumber( node ) ;
+    final int count = readVarint() ;
+    for( int i = 0 ; i < count ; i ++ ) {
+      accumulator.accept( container, readBody( node, readingAction ) ) ;
+    }
+    @SuppressWarnings( "unchecked" )
+    final COLLECTION collection = ( COLLECTION ) ( ( Function ) finisher ).apply( container ) ;
+    return collection ;
+  }
+
+  /**
+   * Skips a {@link NODE} written with
+   * {@link Wire.NodeWriter#singleNode(Wire.NodeToken, Object, Wire.NodeWriter.WritingAction)},
+   * reading only its length.
+   */
+  public void skipSingleNode( final NODE node ) throws WireException {
+    readNodeNumber( node ) ;
+    skipBody() ;
+  }
+
+  /**
+   * Skips a sequence of {@link NODE}s, reading only their lengths.
+   */
+  public void skipNodeSequence( final NODE node ) throws WireException {
+    readNodeNumber( node ) ;
+    final int count = readVarint() ;
+    for( int i = 0 ; i < count ; i ++ ) {
+      skipBody() ;
+    }
+  }
+
+  private void readNodeNumber( final NODE node ) throws WireException {
+    final int nodeNumber = readVarint() ;
+    final int expected = schema.nodeNumber( node ) ;
+    if( nodeNumber != expected ) {
+      throw wireExceptionGenerator.throwWireException( "Expecting " + node +
+          " but got " + schema.node( nodeNumber ) + " (#" + nodeNumber + ")" ) ;
+    }
+  }
+
+  private < ITEM > ITEM readBody(
+      final NODE node,
+      final ReadingAction< NODE, LEAF, ITEM > readingAction
+  ) throws WireException {
+    final int bodyEnd = readBodyLength() + byteBuf.readerIndex() ;
+    breadcrumbs.add( node ) ;
+    final ITEM item ;
+    try {
+      item = readingAction.read( this ) ;
+    } finally {
+      // Exception's location already captured breadcrumbs, don't let them pile up for next read.
+      breadcrumbs.remove( breadcrumbs.size() - 1 ) ;
+    }
+    if( byteBuf.readerIndex() > bodyEnd ) {
+      throw wireExceptionGenerator.throwWireException( "Did read past the end of " + node ) ;
+    }
+    byteBuf.readerIndex( bodyEnd ) ;
+    return item ;
+  }
+
+  private void skipBody() throws WireException {
+    final int bodyLength = readBodyLength() ;
+    byteBuf.skipBytes( bodyLength ) ;
+  }
+
+  private int readBodyLength() throws WireException {
+    if( byteBuf.readableBytes() < Integer.BYTES ) {
+      throw wireExceptionGenerator.throwWireException( "Truncated body length" ) ;
+    }
+    final int bodyLength = byteBuf.readInt() ;
+    if( bodyLength < 0 || bodyLength > byteBuf.readableBytes() ) {
+      throw wireExceptionGenerator.throwWireException( "Bad body length: " + bodyLength ) ;
+    }
+    return bodyLength ;
+  }
+
+  private int readVarint() throws WireException {
+    try {
+      return BinaryCrude.readVarint( byteBuf ) ;
+    } catch( final DecodeException e ) {
+      throw wireExceptionGenerator.throwWireException( e ) ;
+    }
+  }
+
+  private Wire.Location location() {
+    return new Wire.Location(
+        null,
+        -1,
+        -1,
+        byteBuf.readerIndex(),
+        breadcrumbs.stream().map( Wire.Token::xmlName ).collect( Collectors.joining( "/" ) )
+    ) ;
+  }
+
+  private final WireException.Generator wireExceptionGenerator =
+      new WireException.Generator( this::location ) ;
+
+  /**
+   * Redefined tokens must be reachable from given {@link NODE2}s.
+   */
+  @Override
+  public <
+      NODE2 extends Wire.NodeToken< NODE2, LEAF2 >,
+      LEAF2 extends Wire.LeafToken
+  > Wire.NodeReader< NODE2, LEAF2 > redefineWith(
+      final ImmutableMap< String, NODE2 > nodes,
+      final ImmutableMap< String, LEAF2 > leaves
+  ) {
+    return new BinaryNodeReader<>(
+        WireSchema.of( nodes.values(), leaves.values() ),
+        byteBuf,
+        crudeReader,
+        breadcrumbs
+    ) ;
+  }
+}
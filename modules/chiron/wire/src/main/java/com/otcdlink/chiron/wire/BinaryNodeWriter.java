@@ -0,0 +1,113 @@
+package com.otcdlink.chiron.wire;
+
+import com.google.common.collect.ImmutableMap;
+import io.netty.buffer.ByteBuf;
+
+import java.util.Iterator;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static com.google.common.base.Preconditions.checkNotNull;
+
+/**
+ * Writes {@link NODE}s and {@link LEAF}s in a compact binary format, identifying them by their
+ * number in a {@link WireSchema}.
+ * <pre>
+ * stream        = schema-fingerprint, ( single node | node sequence ) *
+ * single node   = node-number, body-length, body
+ * node sequence = node-number, count, ( body-length, body ) * count
+ * body          = ( leaf | single node | node sequence ) *
+ * leaf          = leaf-number, value
+ * </pre>
+ * Numbers and counts are variable-length integers. Body length is a 4-byte integer so it can
+ * be set once the body is written. It lets {@link BinaryNodeReader} skip subtrees.
+ * Schema fingerprint is a 4-byte {@link WireSchema#fingerprint()}, written by the
+ * {@code public} constructor.
+ * Leaf values use {@link BinaryCrude}.
+ */
+public class BinaryNodeWriter<
+    NODE extends Wire.NodeToken< NODE, LEAF >,
+    LEAF extends Wire.LeafToken
+> implements Wire.NodeWriter< NODE, LEAF > {
+
+  private final WireSchema< NODE, LEAF > schema ;
+  private final ByteBuf byteBuf ;
+  private final BinaryCrude.Writer crudeWriter ;
+
+  public BinaryNodeWriter( final WireSchema< NODE, LEAF > schema, final ByteBuf byteBuf ) {
+    this( schema, byteBuf, new BinaryCrude.Writer( byteBuf ) ) ;
+    byteBuf.writeInt( schema.fingerprint() ) ;
+  }
+
+  private BinaryNodeWriter(
+      final WireSchema< NODE, LEAF > schema,
+      final ByteBuf byteBuf,
+      final BinaryCrude.Writer crudeWriter
+  ) {
+    this.schema = checkNotNull( schema ) ;
+    this.byteBuf = checkNotNull( byteBuf ) ;
+    this.crudeWriter = checkNotNull( crudeWriter ) ;
+  }
+
+  @Override
+  public < ITEM_LEAF extends Wire.LeafToken< ITEM >, ITEM > void leaf(
+      final ITEM_LEAF leaf,
+      final ITEM item
+  ) throws WireException {
+    BinaryCrude.writeVarint( byteBuf, schema.leafNumber( leaf ) ) ;
+    leaf.toWire( item, crudeWriter ) ;
+  }
+
+  @Override
+  public < ITEM > void singleNode(
+      final NODE node,
+      final ITEM item,
+      final WritingAction< NODE, LEAF, ITEM > writingAction
+  ) throws WireException {
+    BinaryCrude.writeVarint( byteBuf, schema.nodeNumber( node ) ) ;
+    writeBody( item, writingAction ) ;
+  }
+
+  @Override
+  public < ITEM > void nodeSequence(
+      final NODE node,
+      final int count,
+      final Iterable< ITEM > items,
+      final WritingAction< NODE, LEAF, ITEM > writingAction
+  ) throws WireException {
+    checkArgument( count >= 0 ) ;
+    BinaryCrude.writeVarint( byteBuf, schema.nodeNumber( node ) ) ;
+    BinaryCrude.writeVarint( byteBuf, count ) ;
+    final Iterator< ITEM > iterator = items.iterator() ;
+    for( int i = 0 ; i < count ; i ++ ) {
+      writeBody( iterator.next(), writingAction ) ;
+    }
+  }
+
+  private < ITEM > void writeBody(
+      final ITEM item,
+      final WritingAction< NODE, LEAF, ITEM > writingAction
+  ) throws WireException {
+    final int lengthIndex = byteBuf.writerIndex() ;
+    byteBuf.writeInt( 0 ) ;
+    writingAction.write( this, item ) ;
+    byteBuf.setInt( lengthIndex, byteBuf.writerIndex() - lengthIndex - Integer.BYTES ) ;
+  }
+
+  /**
+   * Redefined tokens must be reachable from given {@link NODE2}s.
+   */
+  @Override
+  public <
+      NODE2 extends Wire.NodeToken< NODE2, LEAF2 >,
+      LEAF2 extends Wire.LeafToken
+  > Wire.NodeWriter< NODE2, LEAF2 > redefineWith(
+      final ImmutableMap< String, NODE2 > newNodeTokens,
+      final ImmutableMap< String, LEAF2 > newLeafTokens
+  ) {
+    return new BinaryNodeWriter<>(
+        WireSchema.of( newNodeTokens.values(), newLeafTokens.values() ),
+        byteBuf,
+        crudeWriter
+    ) ;
+  }
+}
@@ -0,0 +1,152 @@
+package com.otcdlink.chiron.wire;
+
+import com.google.common.collect.ImmutableCollection;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.ImmutableSet;
+
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.LinkedHashSet;
+import java.util.Set;
+
+import static com.google.common.base.Preconditions.checkArgument;
+
+/**
+ * Gives a number to every {@link Wire.NodeToken} and {@link Wire.LeafToken} reachable from
+ * some root {@link NODE}s, by walking {@link Wire.NodeToken#subnodes()} and
+ * {@link Wire.NodeToken#subleaves()} breadth-first. Numbering only depends on declaration
+ * order, so a writer and a reader with the same definitions agree on numbers without
+ * exchanging anything.
+ * <p>
+ * Adding, removing or moving one token changes the number of every token after it, so
+ * definitions can't evolve independently on both sides. The {@link #fingerprint()} lets
+ * {@link BinaryNodeReader} detect such a mismatch.
+ */
+public final class WireSchema<
+    NODE extends Wire.NodeToken< NODE, LEAF >,
+    LEAF extends Wire.LeafToken
+> {
+
+  private final ImmutableList< NODE > nodes ;
+  private final ImmutableList< LEAF > leaves ;
+  private final ImmutableMap< NODE, Integer > nodeNumbers ;
+  private final ImmutableMap< LEAF, Integer > leafNumbers ;
+  private final int fingerprint ;
+
+  private WireSchema(
+      final ImmutableList< NODE > nodes,
+      final ImmutableList< LEAF > leaves
+  ) {
+    this.nodes = nodes ;
+    this.leaves = leaves ;
+    this.nodeNumbers = numbers( nodes ) ;
+    this.leafNumbers = numbers( leaves ) ;
+    this.fingerprint = fingerprint( nodes, leaves ) ;
+  }
+
+  @SafeVarargs
+  public static <
+      NODE extends Wire.NodeToken< NODE, LEAF >,
+      LEAF extends Wire.LeafToken
+  > WireSchema< NODE, LEAF > of( final NODE root, final NODE... otherRoots ) {
+    return of( ImmutableList.< NODE >builder().add( root ).add( otherRoots ).build(),
+        ImmutableList.of() ) ;
+  }
+
+  /**
+   * @param extraLeaves {@link LEAF}s not belonging to any {@link NODE}, for
+   *     {@link Wire.NodeWriter#redefineWith(ImmutableMap, ImmutableMap)}.
+   */
+  @SuppressWarnings( "unchecked" )
+  public static <
+      NODE extends Wire.NodeToken< NODE, LEAF >,
+      LEAF extends Wire.LeafToken
+  > WireSchema< NODE, LEAF > of(
+      final ImmutableCollection< NODE > roots,
+      final ImmutableCollection< LEAF > extraLeaves
+  ) {
+    final Set< NODE > nodes = new LinkedHashSet<>() ;
+    final Set< LEAF > leaves = new LinkedHashSet<>() ;
+    final Deque< NODE > toVisit = new ArrayDeque<>( roots ) ;
+    while( ! toVisit.isEmpty() ) {
+      final NODE node = toVisit.removeFirst() ;
+      if( nodes.add( node ) ) {
+        leaves.addAll( ( ImmutableSet< LEAF > ) node.subleaves() ) ;
+        toVisit.addAll( ( ImmutableSet< NODE > ) node.subnodes() ) ;
+      }
+    }
+    leaves.addAll( extraLeaves ) ;
+    return new WireSchema<>( ImmutableList.copyOf( nodes ), ImmutableList.copyOf( leaves ) ) ;
+  }
+
+  private static < TOKEN > ImmutableMap< TOKEN, Integer > numbers(
+      final ImmutableList< TOKEN > tokens
+  ) {
+    final ImmutableMap.Builder< TOKEN, Integer > builder = ImmutableMap.builder() ;
+    for( int i = 0 ; i < tokens.size() ; i ++ ) {
+      builder.put( tokens.get( i ), i ) ;
+    }
+    return builder.build() ;
+  }
+
+  /**
+   * Same algorithm as {@link String#hashCode()}, which is part of its contract, so the result
+   * doesn't depend on the JVM.
+   */
+  private static int fingerprint(
+      final ImmutableList< ? extends Wire.Token > nodes,
+      final ImmutableList< ? extends Wire.Token > leaves
+  ) {
+    int hash = 1 ;
+    for( final Wire.Token node : nodes ) {
+      hash = 31 * hash + node.xmlName().hashCode() ;
+    }
+    // Keeps a node and a leaf with the same name from swapping unnoticed.
+    hash = 31 * hash + nodes.size() ;
+    for( final Wire.Token leaf : leaves ) {
+      hash = 31 * hash + leaf.xmlName().hashCode() ;
+    }
+    return hash ;
+  }
+
+  /**
+   * Derives from the names of the tokens, in number order.
+   * Two {@link WireSchema}s with the same fingerprint give the same numbers to the same names.
+   */
+  public int fingerprint() {
+    return fingerprint ;
+  }
+
+  public int nodeNumber( final NODE node ) {
+    final Integer number = nodeNumbers.get( node ) ;
+    checkArgument( number != null, "Not in schema: " + node ) ;
+    return number ;
+  }
+
+  /**
+   * @return {@code null} if out of bounds.
+   */
+  public NODE node( final int number ) {
+    return number >= 0 && number < nodes.size() ? nodes.get( number ) : null ;
+  }
+
+  public int leafNumber( final Wire.LeafToken leaf ) {
+    final Integer number = leafNumbers.get( leaf ) ;
+    checkArgument( number != null, "Not in schema: " + leaf ) ;
+    return number ;
+  }
+
+  /**
+   * @return {@code null} if out of bounds.
+   */
+  public LEAF leaf( final int number ) {
+    return number >= 0 && number < leaves.size() ? leaves.get( number ) : null ;
+  }
+
+  @Override
+  public String toString() {
+    return getClass().getSimpleName() + "{" +
+        nodes.size() + " nodes, " + leaves.size() + " leaves}" ;
+  }
+}
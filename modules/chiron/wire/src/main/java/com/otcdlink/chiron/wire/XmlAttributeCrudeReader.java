@@ -0,0 +1,79 @@
+package com.otcdlink.chiron.wire;
+
+import com.otcdlink.chiron.buffer.CrudeReader;
+
+/**
+ * Reads the value of an XML attribute, for {@link AbstractXmlNodeReader} and
+ * {@link AsyncXmlNodeReader}. Caller sets the value with {@link #attributeValue(String)}
+ * before calling {@link Wire.LeafToken#fromWire(CrudeReader)}, then clears it.
+ * An empty value means {@code null} for object types.
+ */
+final class XmlAttributeCrudeReader implements CrudeReader {
+
+  private String attributeAsString = null ;
+
+  /**
+   * @param attributeValue as found in XML, with accolade escaping, or {@code null} to clear.
+   */
+  void attributeValue( final String attributeValue ) {
+    if( attributeValue != null &&
+        XmlEscaping.ACCOLADE_UNESCAPER.needsTransformation( attributeValue )
+    ) {
+      final StringBuilder stringBuilder = new StringBuilder() ;
+      XmlEscaping.ACCOLADE_UNESCAPER.transform( attributeValue, stringBuilder ) ;
+      attributeAsString = stringBuilder.toString() ;
+    } else {
+      attributeAsString = attributeValue ;
+    }
+  }
+
+  @Override
+  public String readDelimitedString() {
+    return attributeAsString ;
+  }
+
+  @Override
+  public String readNullableString() {
+    return attributeAsString ;
+  }
+
+  @Override
+  public int readIntegerPrimitive() {
+    return Integer.parseInt( attributeAsString ) ;
+  }
+
+  @Override
+  public Integer readIntegerObject() {
+    return attributeAsString.isEmpty() ? null : readIntegerPrimitive() ;
+  }
+
+  @Override
+  public long readLongPrimitive() {
+    return Long.parseLong( attributeAsString ) ;
+  }
+
+  @Override
+  public Long readLongObject() {
+    return attributeAsString.isEmpty() ? null : readLongPrimitive() ;
+  }
+
+  @Override
+  public float readFloatPrimitive() {
+    return Float.parseFloat( attributeAsString ) ;
+  }
+
+  @Override
+  public Float readFloatObject() {
+    return attributeAsString.isEmpty() ? null : readFloatPrimitive() ;
+  }
+
+  @Override
+  public boolean readBooleanPrimitive() {
+    return Boolean.parseBoolean( attributeAsString ) ;
+  }
+
+  @Override
+  public Boolean readBooleanObject() {
+    return attributeAsString.isEmpty() ? null : readBooleanPrimitive() ;
+  }
+}
@@ -106,14 +106,13 @@ public class XmlNodeReader<
           debug( () -> "Extracted Attribute '" + leafWithTypedItem.xmlName() + "' null." ) ;
           return null ;
         } else {
-          if( XmlEscaping.ACCOLADE_UNESCAPER.needsTransformation( attributeValue ) ) {
-            final StringBuilder stringBuilder = new StringBuilder() ;
-            XmlEscaping.ACCOLADE_UNESCAPER.transform( attributeValue, stringBuilder ) ;
-            attributeAsString = stringBuilder.toString() ;
-          } else {
-            attributeAsString = attributeValue ;
+          crudeReader.attributeValue( attributeValue ) ;
+          final ITEM item ;
+          try {
+            item = leafWithTypedItem.fromWire( crudeReader ) ;
+          } finally {
+            crudeReader.attributeValue( null ) ;
           }
-          final ITEM item = leafWithTypedItem.fromWire( crudeReader ) ;
           debug( () -> "Extracted Attribute '" + leafWithTypedItem.xmlName() + "' " + item + "." ) ;
           return item ;
         }
@@ -0,0 +1,187 @@
+package com.otcdlink.chiron.wire;
+
+import com.google.common.base.Charsets;
+import com.google.common.collect.ImmutableList;
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.Unpooled;
+import org.junit.jupiter.api.Test;
+
+import java.io.StringWriter;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class AsyncXmlNodeReaderTest {
+
+  @Test
+  void wholeDocument() throws Exception {
+    final TreeBuilder treeBuilder = new TreeBuilder() ;
+    final AsyncXmlNodeReader< WireFixture.MyNodeToken, WireFixture.MyLeafToken > reader =
+        new AsyncXmlNodeReader<>( WireFixture.MyNodeToken.MAP, treeBuilder ) ;
+    final ByteBuf byteBuf = Unpooled.copiedBuffer( toXml( TREE ), Charsets.UTF_8 ) ;
+    try {
+      reader.feed( byteBuf ) ;
+      assertThat( byteBuf.readableBytes() ).isEqualTo( 0 ) ;
+    } finally {
+      byteBuf.release() ;
+    }
+    reader.endOfInput() ;
+
+    assertThat( reader.documentEnded() ).isTrue() ;
+    assertThat( treeBuilder.tree ).isEqualTo( TREE ) ;
+  }
+
+  @Test
+  void byteByByte() throws Exception {
+    final TreeBuilder treeBuilder = new TreeBuilder() ;
+    final AsyncXmlNodeReader< WireFixture.MyNodeToken, WireFixture.MyLeafToken > reader =
+        new AsyncXmlNodeReader<>( WireFixture.MyNodeToken.MAP, treeBuilder ) ;
+    final byte[] bytes = toXml( TREE ).getBytes( Charsets.UTF_8 ) ;
+    for( final byte b : bytes ) {
+      final ByteBuf byteBuf = Unpooled.buffer( 1 ).writeByte( b ) ;
+      reader.feed( byteBuf ) ;
+      byteBuf.release() ;
+    }
+    reader.endOfInput() ;
+
+    assertThat( treeBuilder.tree ).isEqualTo( TREE ) ;
+  }
+
+  @Test
+  void nodesAreNotifiedBeforeDocumentEnd() throws Exception {
+    final List< String > events = new ArrayList<>() ;
+    final AsyncXmlNodeReader< WireFixture.MyNodeToken, WireFixture.MyLeafToken > reader =
+        new AsyncXmlNodeReader<>(
+            WireFixture.MyNodeToken.MAP,
+            new AsyncXmlNodeReader.Handler< WireFixture.MyNodeToken, WireFixture.MyLeafToken >() {
+              @Override
+              public void nodeStart(
+                  final WireFixture.MyNodeToken node,
+                  final AsyncXmlNodeReader.LeafReader leafReader
+              ) {
+                events.add( "+" + node.xmlName() ) ;
+              }
+
+              @Override
+              public void nodeEnd( final WireFixture.MyNodeToken node ) {
+                events.add( "-" + node.xmlName() ) ;
+              }
+            }
+        )
+    ;
+    feed( reader, "<tree s='x'><branch i='1'>" ) ;
+    assertThat( events ).containsExactly( "+tree", "+branch" ) ;
+    assertThat( reader.path() ).containsExactly(
+        WireFixture.MyNodeToken.TREE, WireFixture.MyNodeToken.BRANCH ) ;
+
+    feed( reader, "</branch>" ) ;
+    assertThat( events ).containsExactly( "+tree", "+branch", "-branch" ) ;
+    assertThat( reader.documentEnded() ).isFalse() ;
+  }
+
+  @Test
+  void unexpectedNode() throws Exception {
+    final AsyncXmlNodeReader< WireFixture.MyNodeToken, WireFixture.MyLeafToken > reader =
+        new AsyncXmlNodeReader<>( WireFixture.MyNodeToken.MAP, new TreeBuilder() ) ;
+    assertThatThrownBy( () -> feed( reader, "<tree s='x'><terminal i='1'/></tree>" ) )
+        .isInstanceOf( WireException.class )
+        .hasMessageContaining( "terminal" )
+    ;
+  }
+
+  @Test
+  void prematureEnd() throws Exception {
+    final AsyncXmlNodeReader< WireFixture.MyNodeToken, WireFixture.MyLeafToken > reader =
+        new AsyncXmlNodeReader<>( WireFixture.MyNodeToken.MAP, new TreeBuilder() ) ;
+    feed( reader, "<tree s='x'>" ) ;
+    assertThatThrownBy( reader::endOfInput ).isInstanceOf( WireException.class ) ;
+  }
+
+
+// =======
+// Fixture
+// =======
+
+  private static final WireFixture.Tree TREE = new WireFixture.Tree(
+      "Parent",
+      ImmutableList.of(
+          new WireFixture.Branch( 1, ImmutableList.of(
+              new WireFixture.Branch( 11, ImmutableList.of() ),
+              new WireFixture.Branch( 12, ImmutableList.of() )
+          ) ),
+          new WireFixture.Branch( 2, ImmutableList.of() )
+      )
+  ) ;
+
+  /**
+   * {@link AsyncXmlNodeReader#feed(ByteBuf)} doesn't take ownership of the {@link ByteBuf}.
+   */
+  private static void feed(
+      final AsyncXmlNodeReader< ?, ? > reader,
+      final String xml
+  ) throws WireException {
+    final ByteBuf byteBuf = Unpooled.copiedBuffer( xml, Charsets.UTF_8 ) ;
+    try {
+      reader.feed( byteBuf ) ;
+    } finally {
+      byteBuf.release() ;
+    }
+  }
+
+  private static String toXml( final WireFixture.Tree tree ) throws WireException {
+    final StringWriter stringWriter = new StringWriter() ;
+    final XmlNodeWriter< WireFixture.MyNodeToken, WireFixture.MyLeafToken > nodeWriter =
+        new XmlNodeWriter<>( stringWriter ) ;
+    nodeWriter.singleNode( WireFixture.MyNodeToken.TREE, tree, WireFixture::writeTree ) ;
+    return stringWriter.toString() ;
+  }
+
+  /**
+   * Rebuilds a {@link WireFixture.Tree} keeping only the path of unfinished nodes.
+   */
+  private static final class TreeBuilder
+      implements AsyncXmlNodeReader.Handler< WireFixture.MyNodeToken, WireFixture.MyLeafToken >
+  {
+    private final Deque< Pending > pendings = new ArrayDeque<>() ;
+    private WireFixture.Tree tree = null ;
+
+    @Override
+    public void nodeStart(
+        final WireFixture.MyNodeToken node,
+        final AsyncXmlNodeReader.LeafReader leafReader
+    ) throws WireException {
+      if( node == WireFixture.MyNodeToken.TREE ) {
+        pendings.push( new Pending( leafReader.leaf( WireFixture.MyLeafToken.S ), 0 ) ) ;
+      } else {
+        pendings.push( new Pending( null, leafReader.leaf( WireFixture.MyLeafToken.I ) ) ) ;
+      }
+    }
+
+    @Override
+    public void nodeEnd( final WireFixture.MyNodeToken node ) {
+      final Pending pending = pendings.pop() ;
+      if( node == WireFixture.MyNodeToken.TREE ) {
+        tree = new WireFixture.Tree( pending.s, ImmutableList.copyOf( pending.children ) ) ;
+      } else {
+        pendings.peek().children.add(
+            new WireFixture.Branch( pending.i, ImmutableList.copyOf( pending.children ) ) ) ;
+      }
+    }
+
+    private static final class Pending {
+      final String s ;
+      final int i ;
+      final List< WireFixture.Branch > children = new ArrayList<>() ;
+
+      Pending( final String s, final int i ) {
+        this.s = s ;
+        this.i = i ;
+      }
+    }
+  }
+
+}
@@ -0,0 +1,165 @@
+package com.otcdlink.chiron.wire;
+
+import com.google.common.collect.ImmutableList;
+import com.otcdlink.chiron.codec.DecodeException;
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.Unpooled;
+import org.junit.jupiter.api.Test;
+
+import java.io.StringWriter;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class BinaryNodeWireTest {
+
+  @Test
+  void rake() throws Exception {
+    final WireFixture.Rake rake = new WireFixture.Rake(
+        "Parent",
+        ImmutableList.of(
+            new WireFixture.Terminal( 1 ),
+            new WireFixture.Terminal( 2 ),
+            new WireFixture.Terminal( 3 )
+        )
+    ) ;
+    final ByteBuf byteBuf = Unpooled.buffer() ;
+    new BinaryNodeWriter<>( SCHEMA, byteBuf )
+        .singleNode( WireFixture.MyNodeToken.RAKE, rake, WireFixture::writeRake ) ;
+
+    final WireFixture.Rake unwired = new BinaryNodeReader<>( SCHEMA, byteBuf )
+        .singleNode( WireFixture.MyNodeToken.RAKE, WireFixture::readRake ) ;
+    assertThat( unwired ).isEqualTo( rake ) ;
+    assertThat( byteBuf.readableBytes() ).isEqualTo( 0 ) ;
+  }
+
+  @Test
+  void deepTree() throws Exception {
+    final ByteBuf byteBuf = Unpooled.buffer() ;
+    new BinaryNodeWriter<>( SCHEMA, byteBuf )
+        .singleNode( WireFixture.MyNodeToken.TREE, TREE, WireFixture::writeTree ) ;
+
+    final WireFixture.Tree unwired = new BinaryNodeReader<>( SCHEMA, byteBuf )
+        .singleNode( WireFixture.MyNodeToken.TREE, WireFixture::readTree ) ;
+    assertThat( unwired ).isEqualTo( TREE ) ;
+    assertThat( byteBuf.readableBytes() ).isEqualTo( 0 ) ;
+  }
+
+  @Test
+  void skipSubtrees() throws Exception {
+    final ByteBuf byteBuf = Unpooled.buffer() ;
+    final BinaryNodeWriter< WireFixture.MyNodeToken, WireFixture.MyLeafToken > writer =
+        new BinaryNodeWriter<>( SCHEMA, byteBuf ) ;
+    writer.singleNode( WireFixture.MyNodeToken.TREE, TREE, WireFixture::writeTree ) ;
+    writer.singleNode( WireFixture.MyNodeToken.TREE, TREE, WireFixture::writeTree ) ;
+
+    final BinaryNodeReader< WireFixture.MyNodeToken, WireFixture.MyLeafToken > reader =
+        new BinaryNodeReader<>( SCHEMA, byteBuf ) ;
+    reader.skipSingleNode( WireFixture.MyNodeToken.TREE ) ;
+
+    // Reads only the top-level leaf, the reader skips the rest of the body.
+    final String s = reader.singleNode(
+        WireFixture.MyNodeToken.TREE,
+        nodeReader -> nodeReader.leaf( WireFixture.MyLeafToken.S )
+    ) ;
+    assertThat( s ).isEqualTo( "Parent" ) ;
+    assertThat( byteBuf.readableBytes() ).isEqualTo( 0 ) ;
+  }
+
+  @Test
+  void smallerThanXml() throws Exception {
+    final ByteBuf byteBuf = Unpooled.buffer() ;
+    new BinaryNodeWriter<>( SCHEMA, byteBuf )
+        .singleNode( WireFixture.MyNodeToken.TREE, TREE, WireFixture::writeTree ) ;
+
+    final StringWriter stringWriter = new StringWriter() ;
+    new XmlNodeWriter< WireFixture.MyNodeToken, WireFixture.MyLeafToken >( stringWriter )
+        .singleNode( WireFixture.MyNodeToken.TREE, TREE, WireFixture::writeTree ) ;
+
+    assertThat( byteBuf.readableBytes() ).isLessThan( stringWriter.toString().length() ) ;
+  }
+
+  @Test
+  void wrongNode() throws Exception {
+    final ByteBuf byteBuf = Unpooled.buffer() ;
+    new BinaryNodeWriter<>( SCHEMA, byteBuf )
+        .singleNode( WireFixture.MyNodeToken.TREE, TREE, WireFixture::writeTree ) ;
+
+    assertThatThrownBy( () -> new BinaryNodeReader<>( SCHEMA, byteBuf )
+        .singleNode( WireFixture.MyNodeToken.RAKE, WireFixture::readRake ) )
+        .isInstanceOf( WireException.class )
+    ;
+  }
+
+  @Test
+  void schemaMismatch() throws Exception {
+    final ByteBuf byteBuf = Unpooled.buffer() ;
+    new BinaryNodeWriter<>( SCHEMA, byteBuf )
+        .singleNode( WireFixture.MyNodeToken.RAKE, RAKE, WireFixture::writeRake ) ;
+
+    final WireSchema< WireFixture.MyNodeToken, WireFixture.MyLeafToken > reordered =
+        WireSchema.of( WireFixture.MyNodeToken.RAKE, WireFixture.MyNodeToken.TREE ) ;
+    assertThatThrownBy( () -> new BinaryNodeReader<>( reordered, byteBuf ) )
+        .isInstanceOf( WireException.class )
+        .hasMessageContaining( "Schema mismatch" )
+    ;
+  }
+
+  @Test
+  void breadcrumbsPoppedAfterFailedRead() throws Exception {
+    final ByteBuf byteBuf = Unpooled.buffer() ;
+    final BinaryNodeWriter< WireFixture.MyNodeToken, WireFixture.MyLeafToken > writer =
+        new BinaryNodeWriter<>( SCHEMA, byteBuf ) ;
+    writer.singleNode( WireFixture.MyNodeToken.RAKE, RAKE, WireFixture::writeRake ) ;
+    writer.singleNode( WireFixture.MyNodeToken.RAKE, RAKE, WireFixture::writeRake ) ;
+
+    final BinaryNodeReader< WireFixture.MyNodeToken, WireFixture.MyLeafToken > reader =
+        new BinaryNodeReader<>( SCHEMA, byteBuf ) ;
+    assertThatThrownBy( () -> reader.singleNode( WireFixture.MyNodeToken.RAKE, nodeReader -> {
+      WireFixture.readRake( nodeReader ) ;
+      throw new WireException( "Boom", null, null ) ;
+    } ) ).hasMessage( "Boom" ) ;
+
+    // Next failure happens at top level, so it should not report the node that failed before.
+    assertThatThrownBy( () -> reader.singleNode(
+        WireFixture.MyNodeToken.TREE, WireFixture::readTree ) )
+        .isInstanceOfSatisfying(
+            WireException.class,
+            e -> assertThat( e.location.breadcrumbs ).isEmpty()
+        )
+    ;
+  }
+
+  @Test
+  void negativeStringLength() throws Exception {
+    final ByteBuf byteBuf = Unpooled.buffer() ;
+    BinaryCrude.writeVarint( byteBuf, -1 ) ;
+    byteBuf.writeZero( 10 ) ;
+    assertThatThrownBy( () -> new BinaryCrude.Reader( byteBuf ).readDelimitedString() )
+        .isInstanceOf( DecodeException.class )
+    ;
+  }
+
+
+// =======
+// Fixture
+// =======
+
+  private static final WireSchema< WireFixture.MyNodeToken, WireFixture.MyLeafToken > SCHEMA =
+      WireSchema.of( WireFixture.MyNodeToken.TREE, WireFixture.MyNodeToken.RAKE ) ;
+
+  private static final WireFixture.Rake RAKE = new WireFixture.Rake(
+      "Parent", ImmutableList.of( new WireFixture.Terminal( 1 ) ) ) ;
+
+  private static final WireFixture.Tree TREE = new WireFixture.Tree(
+      "Parent",
+      ImmutableList.of(
+          new WireFixture.Branch( 1, ImmutableList.of(
+              new WireFixture.Branch( 11, ImmutableList.of() ),
+              new WireFixture.Branch( 12, ImmutableList.of() )
+          ) ),
+          new WireFixture.Branch( 2, ImmutableList.of() )
+      )
+  ) ;
+
+}